@@ -9,8 +9,7 @@ public abstract class ActionStatement extends ProgramStatement {
 	@Override
 	public void execute() {
 		if (this.getProgram()!=null) {
-			this.getProgram().setTimeLeftToExecute(
-					this.getProgram().getTimeLeftToExecute()-0.2);
+			this.getProgram().takeAction();
 		}
 	}
 	
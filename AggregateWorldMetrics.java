@@ -0,0 +1,137 @@
+package asteroids.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A class of aggregate world metrics, counting the collisions, evolutions, pair tests and program
+ * statements of all worlds with metrics, and the entities in all worlds with registered metrics.
+ *
+ * There is a single instance of this class, to be retrieved with WorldMetrics.getAggregate(). It
+ * is registered in the platform MBean server along with the first world metrics to be registered.
+ * Switching it off stops the collection of the metrics of every world.
+ */
+public final class AggregateWorldMetrics extends WorldMetrics implements AggregateWorldMetricsMBean {
+
+	/**
+	 * Initialize these new aggregate metrics.
+	 */
+	AggregateWorldMetrics() {
+		super();
+	}
+
+	/**
+	 * Return whether these metrics are collected: they are enabled.
+	 */
+	@Override
+	public boolean isCollecting() {
+		return isEnabled();
+	}
+
+	/**
+	 * Register these aggregate metrics in the platform MBean server, if they are not registered yet.
+	 *
+	 * @throws	JMException
+	 * 			These metrics could not be registered.
+	 */
+	@Override
+	public synchronized void register() throws JMException {
+		if (name != null)
+			return;
+		ObjectName name = new ObjectName(DOMAIN + ":type=Worlds");
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		this.name = name;
+	}
+
+	/**
+	 * Remove these aggregate metrics from the platform MBean server, if they are registered.
+	 */
+	@Override
+	public synchronized void unregister() {
+		if (name == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		catch (JMException exc) {
+			// The metrics were unregistered through the server itself.
+		}
+		name = null;
+	}
+
+	@Override
+	public synchronized ObjectName getName() {
+		return this.name;
+	}
+
+	/**
+	 * Add the given metrics to the registered metrics of a world, and register these aggregate
+	 * metrics as well.
+	 *
+	 * @throws	JMException
+	 * 			These aggregate metrics could not be registered.
+	 */
+	void register(WorldMetrics metrics) throws JMException {
+		worlds.add(metrics);
+		register();
+	}
+
+	/**
+	 * Remove the given metrics from the registered metrics of a world.
+	 */
+	void unregister(WorldMetrics metrics) {
+		worlds.remove(metrics);
+	}
+
+	@Override
+	public int getNbWorlds() {
+		return worlds.size();
+	}
+
+	@Override
+	public int getNbShips() {
+		int result = 0;
+		for (WorldMetrics metrics: worlds)
+			result += metrics.getNbShips();
+		return result;
+	}
+
+	@Override
+	public int getNbBullets() {
+		int result = 0;
+		for (WorldMetrics metrics: worlds)
+			result += metrics.getNbBullets();
+		return result;
+	}
+
+	@Override
+	public int getNbAsteroids() {
+		int result = 0;
+		for (WorldMetrics metrics: worlds)
+			result += metrics.getNbAsteroids();
+		return result;
+	}
+
+	@Override
+	public int getNbPlanetoids() {
+		int result = 0;
+		for (WorldMetrics metrics: worlds)
+			result += metrics.getNbPlanetoids();
+		return result;
+	}
+
+	/**
+	 * A variable registering the name these aggregate metrics are registered under, if any.
+	 */
+	private ObjectName name;
+
+	/**
+	 * A variable registering the registered metrics of worlds.
+	 */
+	private final Set<WorldMetrics> worlds = ConcurrentHashMap.newKeySet();
+
+}
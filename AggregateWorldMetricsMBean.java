@@ -0,0 +1,14 @@
+package asteroids.model;
+
+/**
+ * The management interface of the aggregate metrics of all worlds with registered metrics.
+ * Switching the aggregate off stops the collection of the metrics of every world.
+ */
+public interface AggregateWorldMetricsMBean extends WorldMetricsMBean {
+
+	/**
+	 * Return the number of worlds whose metrics are registered.
+	 */
+	int getNbWorlds();
+
+}
@@ -0,0 +1,157 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+
+/**
+ * Allocation budgets of the hot paths of a world, measured with the allocation counter of the
+ * current thread. Each operation is measured in a number of rounds, and its budget applies to
+ * the best round, so that it holds for the compiled code a running game executes rather than
+ * for the interpreter.
+ */
+public class AllocationTest {
+
+	private static final int ROUNDS = 10;
+	private static final int OPERATIONS = 20000;
+
+	private static final int STEADY_ENTITIES = 1000;
+	private static final int STEADY_EVOLUTIONS = 50;
+	private static final long EVOLVE_BUDGET = 1024;
+
+	private static final int RESTORE_ENTITIES = 10000;
+	private static final int RESTORES = 10;
+	private static final long RESTORE_BUDGET = 1024;
+
+	com.sun.management.ThreadMXBean threads;
+	World world;
+	Asteroid asteroid;
+	Bullet bullet;
+
+	@Before
+	public void setUp() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		world = new World(4000,4000);
+		asteroid = new Asteroid(100, 100, 10, 5, 10);
+		world.addEntity(asteroid);
+		bullet = new Bullet(3000, 200, -20, 0, 5);
+		world.addEntity(bullet);
+	}
+
+	/**
+	 * Return the number of bytes, allocated by the current thread so far.
+	 */
+	private long getAllocatedBytes() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Return the least number of bytes, allocated by the current thread in a round of performing
+	 * the given operation the given number of times.
+	 */
+	private long measure(Operation operation, int times) throws Exception {
+		long result = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long calibration = getAllocatedBytes();
+			calibration = getAllocatedBytes() - calibration;
+			long start = getAllocatedBytes();
+			for (int i = 0; i < times; i++)
+				operation.run();
+			result = Math.min(result, getAllocatedBytes() - start - calibration);
+		}
+		return result;
+	}
+
+	/**
+	 * An operation to be measured.
+	 */
+	private interface Operation {
+		void run() throws Exception;
+	}
+
+	@Test
+	public void testGetTimeToCollision_NoAllocation() throws Exception {
+		double[] sink = new double[1];
+		long bytes = measure(() -> sink[0] += asteroid.getTimeToCollision(bullet), OPERATIONS);
+		assertTrue(bytes + " bytes for " + OPERATIONS + " collision times", bytes < OPERATIONS);
+	}
+
+	@Test
+	public void testGetTimeToBoundary_NoAllocation() throws Exception {
+		double[] sink = new double[1];
+		long bytes = measure(() -> sink[0] += asteroid.getTimeToBoundary(), OPERATIONS);
+		assertTrue(bytes + " bytes for " + OPERATIONS + " boundary times", bytes < OPERATIONS);
+	}
+
+	@Test
+	public void testMove_NoAllocation() throws Exception {
+		double[] position = world.getEntities().get(bullet);
+		long bytes = measure(() -> bullet.move(0.0001), OPERATIONS);
+		assertTrue(bytes + " bytes for " + OPERATIONS + " moves", bytes < OPERATIONS);
+		assertTrue(world.getEntities().get(bullet) == position);
+		assertEquals(bullet.getXPosition(), position[0], 0);
+		assertEquals(bullet.getYPosition(), position[1], 0);
+	}
+
+	@Test
+	public void testQueryRadius_NoAllocation() throws Exception {
+		int[] count = new int[1];
+		Consumer<Asteroid> counter = entity -> count[0]++;
+		long bytes = measure(() -> world.queryRadius(2000, 200, 2000, Asteroid.class, counter), OPERATIONS);
+		assertTrue(bytes + " bytes for " + OPERATIONS + " range queries", bytes < OPERATIONS);
+		assertEquals(ROUNDS*OPERATIONS, count[0]);
+	}
+
+	@Test
+	public void testEvolve_SteadyWorld() throws Exception {
+		World world = new World(4000,4000);
+		for (int i = 0; i < STEADY_ENTITIES; i++)
+			world.addEntity(new Asteroid(100+(i%32)*120, 100+(i/32)*120, 1+(i%7), 1+(i%5), 10));
+		long bytes = measure(() -> world.evolve(1.0/60), STEADY_EVOLUTIONS);
+		assertEquals(STEADY_ENTITIES, world.getEntities().size());
+		for (Entity entity: world.getEntities().keySet())
+			assertTrue(! entity.isTerminated());
+		assertTrue(bytes + " bytes for " + STEADY_EVOLUTIONS + " evolutions",
+				bytes <= STEADY_EVOLUTIONS*EVOLVE_BUDGET);
+	}
+
+	@Test
+	public void testRestore_NoAllocationPerEntity() throws Exception {
+		World world = new World(10000,10000);
+		List<Entity> asteroids = new ArrayList<Entity>();
+		for (int i = 0; i < RESTORE_ENTITIES; i++)
+			asteroids.add(new Asteroid(50+(i%100)*99, 50+(i/100)*99, 1+(i%7), 1+(i%5), 20));
+		world.addEntities(asteroids);
+		WorldSnapshot snapshot = world.snapshot();
+		Entity last = asteroids.get(RESTORE_ENTITIES-1);
+		long bytes = measure(() -> world.restore(snapshot), RESTORES);
+		assertTrue(bytes + " bytes for " + RESTORES + " restores", bytes <= RESTORES*RESTORE_BUDGET);
+		bytes = measure(() -> {
+			world.removeEntity(last);
+			world.restore(snapshot);
+		}, RESTORES);
+		assertTrue(bytes + " bytes for " + RESTORES + " restores after a removal",
+				bytes <= RESTORES*RESTORE_BUDGET);
+		assertEquals(RESTORE_ENTITIES, world.getEntities().size());
+		assertTrue(last.getWorld() == world);
+	}
+
+}
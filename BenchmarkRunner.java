@@ -0,0 +1,34 @@
+package asteroids.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * A runner of the benchmarks in this package, writing their results in JSON, so that the results
+ * of different revisions can be compared by tools.
+ *
+ * The first argument, if any, is the file the results are written to; by default, they are
+ * written to benchmarks.json. The second argument, if any, is a regular expression selecting
+ * the benchmarks to run; by default, all benchmarks are run.
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * Do not instantiate this class.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include((args.length > 1) ? args[1] : BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+				.resultFormat(ResultFormatType.JSON)
+				.result((args.length > 0) ? args[0] : "benchmarks.json")
+				.build();
+		new Runner(options).run();
+	}
+
+}
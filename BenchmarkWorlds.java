@@ -0,0 +1,136 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * A class of generators of the worlds, the benchmarks are run on.
+ *
+ * A world holds asteroids and, for every tenth entity, a ship, all moving slowly in random
+ * directions. Its size grows with the number of entities, so that the average density is the
+ * same for every number of entities. In a uniform layout, the entities are spread over the whole
+ * world on a jittered grid; in a clustered layout, they are packed in groups of a hundred, which
+ * makes the collision tests in each group far more frequent. A generator draws from a seeded
+ * random source, so the same arguments always produce the same world.
+ */
+public final class BenchmarkWorlds {
+
+	/**
+	 * The layouts of the entities in a generated world.
+	 */
+	public enum Layout {
+		UNIFORM, CLUSTERED
+	}
+
+	/**
+	 * Do not instantiate this class.
+	 */
+	private BenchmarkWorlds() {
+	}
+
+	/**
+	 * Return a new world with the given number of entities in the given layout, generated from
+	 * the given seed.
+	 */
+	public static World create(int nbEntities, Layout layout, long seed) {
+		Random random = new Random(seed);
+		World world = new World(getSize(nbEntities), getSize(nbEntities), seed);
+		List<Entity> entities = (layout == Layout.UNIFORM)
+				? createUniform(nbEntities, random) : createClustered(nbEntities, random);
+		world.addEntities(entities);
+		return world;
+	}
+
+	/**
+	 * Return the width and height of a world with the given number of entities.
+	 */
+	public static double getSize(int nbEntities) {
+		return Math.max(4, Math.ceil(Math.sqrt(nbEntities)))*SPACING;
+	}
+
+	/**
+	 * Return the given number of entities, spread over a world on a jittered grid.
+	 */
+	private static List<Entity> createUniform(int nbEntities, Random random) {
+		int side = (int) (getSize(nbEntities)/SPACING);
+		List<Integer> cells = new ArrayList<Integer>(side*side);
+		for (int cell = 0; cell < side*side; cell++)
+			cells.add(cell);
+		Collections.shuffle(cells, random);
+		List<Entity> entities = new ArrayList<Entity>(nbEntities);
+		for (int index = 0; index < nbEntities; index++) {
+			int cell = cells.get(index);
+			entities.add(createEntity(index, (cell % side + 0.5)*SPACING, (cell / side + 0.5)*SPACING,
+					SPACING/2 - 2*MAX_RADIUS, random));
+		}
+		return entities;
+	}
+
+	/**
+	 * Return the given number of entities, packed in clusters of CLUSTER_SIZE entities, each
+	 * placed in its own region of a world.
+	 */
+	private static List<Entity> createClustered(int nbEntities, Random random) {
+		double regionSize = Math.ceil(Math.sqrt(CLUSTER_SIZE))*CLUSTER_SPACING + 2*MAX_RADIUS;
+		int regions = (int) (getSize(nbEntities)/regionSize);
+		List<Integer> order = new ArrayList<Integer>(regions*regions);
+		for (int region = 0; region < regions*regions; region++)
+			order.add(region);
+		Collections.shuffle(order, random);
+		int clusterSide = (int) Math.ceil(Math.sqrt(CLUSTER_SIZE));
+		List<Entity> entities = new ArrayList<Entity>(nbEntities);
+		for (int index = 0; index < nbEntities; index++) {
+			int region = order.get(index / CLUSTER_SIZE);
+			int member = index % CLUSTER_SIZE;
+			double x = (region % regions)*regionSize + MAX_RADIUS + (member % clusterSide + 0.5)*CLUSTER_SPACING;
+			double y = (region / regions)*regionSize + MAX_RADIUS + (member / clusterSide + 0.5)*CLUSTER_SPACING;
+			entities.add(createEntity(index, x, y, CLUSTER_SPACING/2 - MAX_RADIUS - 1, random));
+		}
+		return entities;
+	}
+
+	/**
+	 * Return a new entity near the given position, within the given jitter, with a random velocity.
+	 * Every tenth entity is a ship, all others are asteroids.
+	 */
+	private static Entity createEntity(int index, double x, double y, double jitter, Random random) {
+		x += (2*random.nextDouble() - 1)*jitter;
+		y += (2*random.nextDouble() - 1)*jitter;
+		double angle = 2*Math.PI*random.nextDouble();
+		double speed = MAX_SPEED*random.nextDouble();
+		if (index % 10 == 0)
+			return new Ship(x, y, speed*Math.cos(angle), speed*Math.sin(angle), MAX_RADIUS, angle, 0);
+		return new Asteroid(x, y, speed*Math.cos(angle), speed*Math.sin(angle), ASTEROID_RADIUS);
+	}
+
+	/**
+	 * Variables registering the distance between neighbouring entities in a uniform layout and
+	 * in a cluster.
+	 */
+	private static final double SPACING = 100;
+	private static final double CLUSTER_SPACING = 24;
+
+	/**
+	 * A variable registering the number of entities in a cluster.
+	 */
+	private static final int CLUSTER_SIZE = 100;
+
+	/**
+	 * Variables registering the radius of a ship, which is the largest radius, and of an asteroid.
+	 */
+	private static final double MAX_RADIUS = 10;
+	private static final double ASTEROID_RADIUS = 8;
+
+	/**
+	 * A variable registering the highest speed of an entity.
+	 */
+	private static final double MAX_SPEED = 20;
+
+}
@@ -1,6 +1,7 @@
 package asteroids.model;
 
 import asteroids.model.exceptions.IllegalBulletException;
+import asteroids.model.exceptions.IllegalDurationException;
 import asteroids.model.exceptions.IllegalPositionException;
 import asteroids.model.exceptions.IllegalRadiusException;
 import be.kuleuven.cs.som.annotate.Raw;
@@ -58,12 +59,11 @@ public class Bullet extends Entity{
 	 *			|	(this.getWorld() == null)
 	 *			| 	|| (this.getShip()!=null) 
 	 *			| 	|| (
-	 *			| 	(xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))
-	 *			| 	&& (ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))
+	 *			| 	getWorld().liesWithinBoundaries(xpos, ypos, getRadius())
 	 *			| 	&& (for each entity in getWorld().getEntities():
 	 *			| 		(entity == this)
-	 *			| 		|| ((Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-	 *			|					Math.pow(ypos-entity.getYPosition(),2)))>=
+	 *			| 		|| ((Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+	 *			|					Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))>=
 	 *			|					0.99*(entity.getRadius()+getRadius())))
 	 *			|	)
 	 *			|	)
@@ -75,12 +75,11 @@ public class Bullet extends Entity{
 		if ((Double.isNaN(xpos))||(Double.isNaN(ypos)))
 			return false;
 		if (getWorld()!=null) {
-			if ((xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))&&
-					(ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))) {
+			if (getWorld().liesWithinBoundaries(xpos, ypos, getRadius())) {
 				for (Entity entity: getWorld().getEntities().keySet()) {
 					if ((entity!=this)&&
-							(Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-									Math.pow(ypos-entity.getYPosition(),2)))<
+							(Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+									Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))<
 									0.99*(entity.getRadius()+getRadius())) {
 						return false;
 					}
@@ -135,6 +134,68 @@ public class Bullet extends Entity{
 		return (density == DENSITY);
 	}
 	
+	/**
+	 * Return the position of this bullet along the x-axis. A bullet in a magazine is located
+	 * at the position of the carrier of that magazine.
+	 * 
+	 * @return	| if (getMagazine() != null)
+	 * 			| 	then result == getMagazine().getCarrier().getXPosition()
+	 */
+	@Override @Raw
+	public double getXPosition() {
+		return (magazine == null) ? super.getXPosition() : magazine.getCarrier().getXPosition();
+	}
+	
+	/**
+	 * Return the position of this bullet along the y-axis. A bullet in a magazine is located
+	 * at the position of the carrier of that magazine.
+	 * 
+	 * @return	| if (getMagazine() != null)
+	 * 			| 	then result == getMagazine().getCarrier().getYPosition()
+	 */
+	@Override @Raw
+	public double getYPosition() {
+		return (magazine == null) ? super.getYPosition() : magazine.getCarrier().getYPosition();
+	}
+	
+	/**
+	 * Return the velocity of this bullet along the x-axis. A bullet in a magazine moves with
+	 * the velocity of the carrier of that magazine.
+	 * 
+	 * @return	| if (getMagazine() != null)
+	 * 			| 	then result == getMagazine().getCarrier().getXVelocity()
+	 */
+	@Override @Raw
+	public double getXVelocity() {
+		return (magazine == null) ? super.getXVelocity() : magazine.getCarrier().getXVelocity();
+	}
+	
+	/**
+	 * Return the velocity of this bullet along the y-axis. A bullet in a magazine moves with
+	 * the velocity of the carrier of that magazine.
+	 * 
+	 * @return	| if (getMagazine() != null)
+	 * 			| 	then result == getMagazine().getCarrier().getYVelocity()
+	 */
+	@Override @Raw
+	public double getYVelocity() {
+		return (magazine == null) ? super.getYVelocity() : magazine.getCarrier().getYVelocity();
+	}
+	
+	/**
+	 * Return the magazine, this bullet is in. Null if none.
+	 */
+	Magazine getMagazine() {
+		return this.magazine;
+	}
+	
+	/**
+	 * Register the given magazine as the magazine, this bullet is in.
+	 */
+	void setMagazine(Magazine magazine) {
+		this.magazine = magazine;
+	}
+	
 	/**
 	 * Return the ship, in which this bullet is loaded. Null if none.
 	 */
@@ -309,6 +370,22 @@ public class Bullet extends Entity{
 		this.setBounces(getBounces()+1);
 	}
 	
+	/**
+	 * Move this bullet for a given duration.
+	 * 
+	 * @post	The velocity of this bullet is set to a new value, taken into account the gravity
+	 * 			of its world.
+	 * 			| new.getXVelocity() = old.getXVelocity+dt*old.getGravityX()
+	 * 			| new.getYVelocity() = old.getYVelocity+dt*old.getGravityY()
+	 */
+	@Override
+	public void move(double dt) throws IllegalDurationException {
+		double gravityX = getGravityX(), gravityY = getGravityY();
+		super.move(dt);
+		if ((gravityX != 0)||(gravityY != 0))
+			setVelocity(getXVelocity()+dt*gravityX, getYVelocity()+dt*gravityY);
+	}
+	
 	/**
 	 * Return whether this bullet has been terminated in a loop.
 	 */
@@ -358,11 +435,34 @@ public class Bullet extends Entity{
 		}
 	}
 
+	/**
+	 * Restore the associations, bounces and loop termination of this bullet, bypassing all
+	 * checks and side effects of the regular setters.
+	 * 
+	 * @post	| new.getShip() == ship
+	 * 			| new.getSource() == source
+	 * 			| new.getBounces() == bounces
+	 * 			| new.isLoopTerminated() == loopTerminated
+	 */
+	@Raw
+	void restoreBulletState(World world, Ship ship, Ship source, int bounces, boolean loopTerminated) {
+		this.world = world;
+		this.ship = ship;
+		this.source = source;
+		this.bounces = bounces;
+		this.loopTerminated = loopTerminated;
+	}
+	
 	/**
 	 * A variable registering in which ship this bullet is loaded. Null if none.
 	 */
 	private Ship ship = null;
 	
+	/**
+	 * A variable registering the magazine, this bullet is in. Null if none.
+	 */
+	private Magazine magazine = null;
+	
 	/**
 	 * A variable registering in which world this bullet is loaded. Null if none.
 	 */
@@ -11,7 +11,7 @@ import asteroids.facade.Facade;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 import asteroids.model.Bullet;
-import asteroids.model.IllegalDurationException;
+import asteroids.model.exceptions.IllegalDurationException;
 
 public class BulletTest {
 	
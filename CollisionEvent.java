@@ -0,0 +1,37 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events, registering the resolution of a collision of an entity with
+ * another entity or with a boundary of its world. The duration of the event is the time it took
+ * to resolve the collision.
+ */
+@Name("asteroids.Collision")
+@Label("Collision")
+@Category("Asteroids")
+@Description("The resolution of a collision of an entity")
+final class CollisionEvent extends jdk.jfr.Event {
+
+	@Label("Entity Type")
+	String entityType;
+
+	@Label("Other Type")
+	@Description("The type of the other entity, or Boundary for a collision with a boundary")
+	String otherType;
+
+	@Label("Entity")
+	long entityId;
+
+	@Label("Other")
+	@Description("The identifier of the other entity, zero for a collision with a boundary")
+	long otherId;
+
+	@Label("Impact Time")
+	@Description("The game time of the impact since the start of the evolution of the world, in seconds")
+	double impactTime;
+
+}
@@ -0,0 +1,275 @@
+package asteroids.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of collision event queues, handing the collisions in a world over to a collision
+ * listener on a thread of their own.
+ *
+ * Events are published by the thread that evolves the world into a ring of preallocated slots,
+ * and taken out by a consumer thread that invokes the listener. There is a single producer and
+ * a single consumer, so the ring only needs ordered writes of its two counters. Publishing
+ * never blocks: when the ring is full, the event is dropped and counted as an overflow. A
+ * listener that throws an exception does not stop the consumer; the failure is counted.
+ *
+ * An event holds the entities themselves, not a copy of their state; only its position is
+ * captured when it is published. The listener runs while the world goes on evolving, so by then
+ * the entities may have moved, changed or been terminated, and reading their state from the
+ * listener races with the thread that evolves the world. Listeners should only use the entities
+ * to identify them, and take the position of the collision from the event.
+ * The consumer thread runs until the queue is shut down, which a world does when it is terminated.
+ *
+ * @invar	The capacity of each queue is a power of two.
+ * 			| Integer.bitCount(getCapacity()) == 1
+ */
+public class CollisionEventQueue {
+
+	/**
+	 * Initialize this new collision event queue with room for the given number of events,
+	 * and start its consumer thread.
+	 *
+	 * @param 	capacity
+	 * 			The number of events, this new queue can hold.
+	 * @post	The capacity of this new queue is the smallest power of two, not below the given
+	 * 			capacity, nor below 2.
+	 * 			| @see implementation
+	 * @post	| new.getListener() == null
+	 */
+	public CollisionEventQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.entities1 = new Object[size];
+		this.entities2 = new Object[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.consumer = new Thread(this::consume, "collision-events");
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * Initialize this new collision event queue with a standard capacity.
+	 *
+	 * @effect	| this(STANDARD_CAPACITY)
+	 */
+	public CollisionEventQueue() {
+		this(STANDARD_CAPACITY);
+	}
+
+	/**
+	 * Return the number of events, this queue can hold.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Return the listener, this queue dispatches events to. Null if none.
+	 */
+	@Basic
+	public CollisionListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Dispatch the events of this queue to the given listener from now on. Events are dropped
+	 * by the consumer while there is no listener.
+	 *
+	 * @post	| new.getListener() == listener
+	 */
+	public void setListener(CollisionListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Return the number of events, published in this queue.
+	 */
+	public long getNbPublished() {
+		return tail.get();
+	}
+
+	/**
+	 * Return the number of events, taken out of this queue by its consumer.
+	 */
+	public long getNbDispatched() {
+		return head.get();
+	}
+
+	/**
+	 * Return the number of events, dropped because this queue was full.
+	 */
+	public long getNbOverflows() {
+		return this.nbOverflows;
+	}
+
+	/**
+	 * Return the number of events, whose listener threw an exception.
+	 */
+	public long getNbFailures() {
+		return this.nbFailures;
+	}
+
+	/**
+	 * Publish a collision of the given entity with a boundary at the given position.
+	 *
+	 * @return	False if and only if this queue was full, and the event was dropped.
+	 */
+	public boolean publishBoundaryCollision(Entity entity, double x, double y) {
+		return publish(entity, null, x, y);
+	}
+
+	/**
+	 * Publish a collision of the given entities at the given position.
+	 *
+	 * @return	False if and only if this queue was full, and the event was dropped.
+	 */
+	public boolean publishObjectCollision(Entity entity1, Entity entity2, double x, double y) {
+		return publish(entity1, entity2, x, y);
+	}
+
+	/**
+	 * Publish an event with given entities and position. Only the thread that evolves the world
+	 * of this queue publishes events.
+	 */
+	private boolean publish(Entity entity1, Entity entity2, double x, double y) {
+		long position = tail.get();
+		if (position - cachedHead > mask) {
+			cachedHead = head.get();
+			if (position - cachedHead > mask) {
+				nbOverflows++;
+				return false;
+			}
+		}
+		int slot = (int) position & mask;
+		entities1[slot] = entity1;
+		entities2[slot] = entity2;
+		xs[slot] = x;
+		ys[slot] = y;
+		tail.lazySet(position + 1);
+		if (consumerWaiting)
+			LockSupport.unpark(consumer);
+		return true;
+	}
+
+	/**
+	 * Take the events out of this queue and dispatch them, until this queue is shut down.
+	 */
+	private void consume() {
+		while (! shutdown) {
+			long position = head.get();
+			if (position == tail.get()) {
+				consumerWaiting = true;
+				if (position == tail.get())
+					LockSupport.parkNanos(this, MAX_PARK_NANOS);
+				consumerWaiting = false;
+				continue;
+			}
+			int slot = (int) position & mask;
+			Object entity1 = entities1[slot], entity2 = entities2[slot];
+			double x = xs[slot], y = ys[slot];
+			entities1[slot] = null;
+			entities2[slot] = null;
+			head.lazySet(position + 1);
+			CollisionListener current = listener;
+			if (current == null)
+				continue;
+			try {
+				if (entity2 == null)
+					current.boundaryCollision(entity1, x, y);
+				else
+					current.objectCollision(entity1, entity2, x, y);
+			}
+			catch (RuntimeException exc) {
+				nbFailures++;
+			}
+		}
+	}
+
+	/**
+	 * Stop the consumer thread of this queue. Events that have not been dispatched yet are dropped.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		LockSupport.unpark(consumer);
+	}
+
+	/**
+	 * Return whether this queue is shut down.
+	 */
+	@Basic
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	/**
+	 * Wait at most the given number of milliseconds for the consumer thread of this queue to stop,
+	 * and return whether it has stopped.
+	 *
+	 * @throws	InterruptedException
+	 * 			The current thread was interrupted while waiting.
+	 */
+	public boolean awaitTermination(long millis) throws InterruptedException {
+		consumer.join(millis);
+		return ! consumer.isAlive();
+	}
+
+	/**
+	 * Variables registering the slots of this queue: the entities of each event, the second one
+	 * being null for a boundary collision, and its position.
+	 */
+	private final Object[] entities1;
+	private final Object[] entities2;
+	private final double[] xs;
+	private final double[] ys;
+
+	/**
+	 * A variable registering the mask, mapping positions to slots.
+	 */
+	private final int mask;
+
+	/**
+	 * Variables registering the position of the next event to take out and to publish.
+	 */
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * A variable registering the last position of the consumer, seen by the producer.
+	 */
+	private long cachedHead = 0;
+
+	/**
+	 * Variables registering the number of dropped events, written by the producer only, and
+	 * of failed events, written by the consumer only.
+	 */
+	private volatile long nbOverflows = 0;
+	private volatile long nbFailures = 0;
+
+	/**
+	 * A variable registering the listener of this queue.
+	 */
+	private volatile CollisionListener listener = null;
+
+	/**
+	 * Variables registering the consumer thread, whether it is waiting for events, and whether
+	 * this queue is shut down.
+	 */
+	private final Thread consumer;
+	private volatile boolean consumerWaiting = false;
+	private volatile boolean shutdown = false;
+
+	/**
+	 * A variable registering the standard capacity of a queue.
+	 */
+	public static final int STANDARD_CAPACITY = 4096;
+
+	/**
+	 * A variable registering the longest time the consumer waits before checking for events.
+	 */
+	private static final long MAX_PARK_NANOS = 1000000;
+
+}
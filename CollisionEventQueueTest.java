@@ -0,0 +1,127 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.CollisionEventQueue;
+import asteroids.part2.CollisionListener;
+
+public class CollisionEventQueueTest {
+
+	CollisionEventQueue queue;
+	Asteroid asteroid1;
+	Asteroid asteroid2;
+	List<Double> positions;
+	CountDownLatch release;
+
+	@Before
+	public void setUp() {
+		queue = new CollisionEventQueue(4);
+		asteroid1 = new Asteroid(100,100,10,0,10);
+		asteroid2 = new Asteroid(200,100,-10,0,10);
+		positions = new CopyOnWriteArrayList<Double>();
+		release = new CountDownLatch(0);
+		queue.setListener(new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				assert entity == asteroid1;
+				record(x);
+			}
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				assert (entity1 == asteroid1) && (entity2 == asteroid2);
+				record(x);
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		queue.shutdown();
+	}
+
+	@Test
+	public void testPublish_CaseOrder() throws InterruptedException {
+		for (int index = 0; index < 100; index++) {
+			while (! ((index % 2 == 0) ? queue.publishBoundaryCollision(asteroid1, index, 0)
+					: queue.publishObjectCollision(asteroid1, asteroid2, index, 0)))
+				Thread.yield();
+		}
+		awaitRecorded(100);
+		for (int index = 0; index < 100; index++)
+			assertEquals(index, positions.get(index), 0);
+		assertEquals(0, queue.getNbFailures());
+	}
+
+	@Test
+	public void testPublish_CaseOverflow() throws InterruptedException {
+		release = new CountDownLatch(1);
+		assert queue.publishBoundaryCollision(asteroid1, 0, 0);
+		awaitDispatched(1);
+		for (int index = 1; index <= 4; index++)
+			assert queue.publishBoundaryCollision(asteroid1, index, 0);
+		assert ! queue.publishBoundaryCollision(asteroid1, 5, 0);
+		assertEquals(1, queue.getNbOverflows());
+		assertEquals(5, queue.getNbPublished());
+		release.countDown();
+		awaitDispatched(5);
+		assert queue.publishBoundaryCollision(asteroid1, 6, 0);
+		awaitRecorded(6);
+		assertEquals(4, positions.get(4), 0);
+		assertEquals(6, positions.get(5), 0);
+	}
+
+	@Test
+	public void testShutdown() throws InterruptedException {
+		assert ! queue.isShutdown();
+		queue.shutdown();
+		assert queue.isShutdown();
+		assert queue.awaitTermination(1000);
+		queue.publishBoundaryCollision(asteroid1, 0, 0);
+		Thread.sleep(20);
+		assertEquals(0, queue.getNbDispatched());
+		assertEquals(0, positions.size());
+	}
+
+	/**
+	 * Register the given position of an event, after waiting for the release of the listener.
+	 */
+	private void record(double x) {
+		try {
+			release.await();
+		}
+		catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		positions.add(x);
+	}
+
+	/**
+	 * Wait until the given number of events has been taken out of the queue.
+	 */
+	private void awaitDispatched(long count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((queue.getNbDispatched() < count)&&(System.currentTimeMillis() < deadline))
+			Thread.sleep(1);
+		assertEquals(count, queue.getNbDispatched());
+	}
+
+	/**
+	 * Wait until the listener has registered the given number of events.
+	 */
+	private void awaitRecorded(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((positions.size() < count)&&(System.currentTimeMillis() < deadline))
+			Thread.sleep(1);
+		assertEquals(count, positions.size());
+	}
+
+}
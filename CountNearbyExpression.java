@@ -0,0 +1,52 @@
+package asteroids.model.programs.expressions;
+
+import java.util.function.Consumer;
+
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.programs.exceptions.IllegalExpressionException;
+
+/**
+ * An expression counting the entities of a given type, other than the ship executing the
+ * program, that lie within the distance its operand evaluates to from that ship. The entities
+ * are counted through a range query of the world of the ship, without collecting them.
+ */
+public class CountNearbyExpression extends UnaryDoubleExpression {
+
+	public CountNearbyExpression(ProgramExpression operand, Class<? extends Entity> type) {
+		super(operand);
+		this.type = type;
+	}
+
+	public Class<? extends Entity> getType() {
+		return this.type;
+	}
+
+	@Override
+	public Double getValue() {
+		if (! (getOperand() instanceof DoubleExpression))
+			throw new IllegalExpressionException(getOperand());
+		Double radius = ((DoubleExpression)getOperand()).getValue();
+		if ((radius == null)||(! (radius >= 0)))
+			throw new IllegalExpressionException(getOperand());
+		Ship ship = getShip();
+		if ((ship == null)||(ship.getWorld() == null))
+			return 0.0;
+		count = 0;
+		ship.getWorld().queryRadius(ship.getXPosition(), ship.getYPosition(), radius, type, counter);
+		return (double) count;
+	}
+
+	/**
+	 * Count the given entity, unless it is the ship executing the program.
+	 */
+	private void count(Entity entity) {
+		if (entity != getShip())
+			count++;
+	}
+
+	private final Class<? extends Entity> type;
+	private final Consumer<Entity> counter = this::count;
+	private int count;
+
+}
@@ -6,7 +6,7 @@ import asteroids.model.exceptions.IllegalPositionException;
 import asteroids.model.exceptions.IllegalRadiusException;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A class of entities, involving a position, a velocity and a radius.
@@ -96,9 +96,35 @@ public abstract class Entity {
 		}
 		this.getPosition().setX(xpos);
 		this.getPosition().setY(ypos);
+		if (getWorld() != null)
+			getWorld().updateIndices(this);
 	}
 	
 
+	/**
+	 * Set the position of this entity to the given position, which it reaches while its world
+	 * moves its awake entities up to the next event. The world has already established that
+	 * no collision happens before that event, so the position is not checked against the
+	 * other entities in the world, which would take time proportional to their number.
+	 * 
+	 * @post	| new.getXPosition() == xpos
+	 * 			| new.getYPosition() == ypos
+	 * @throws	IllegalPositionException
+	 * 			The given position is not a number, or does not lie within the boundaries of the
+	 * 			world of this entity.
+	 * 			| Double.isNaN(xpos) || Double.isNaN(ypos) ||
+	 * 			| 	! getWorld().liesWithinBoundaries(xpos, ypos, getRadius())
+	 */
+	@Raw
+	private void setMovedPosition(double xpos, double ypos) throws IllegalPositionException {
+		if ((Double.isNaN(xpos))||(Double.isNaN(ypos))||
+				(! getWorld().liesWithinBoundaries(xpos, ypos, getRadius())))
+			throw new IllegalPositionException(xpos, ypos);
+		this.getPosition().setX(xpos);
+		this.getPosition().setY(ypos);
+		getWorld().updateIndices(this);
+	}
+	
 	/**
 	 * Checks whether the given position is a valid position for this entity.
 	 * 
@@ -114,8 +140,7 @@ public abstract class Entity {
 	 *			| 	&& (! ypos == Double.POSITIVE_INFINITY)&&(! ypos == Double.NEGATIVE_INFINITY)&&(! Double.isNaN(ypos))
 	 *			|	&& (
 	 *			|	(this.getWorld() == null)|| (
-	 *			| 	(xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))&&
-	 *			|	(ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius())) )
+	 *			| 	getWorld().liesWithinBoundaries(xpos, ypos, getRadius()) )
 	 *			|	)		
 	 */
 	@Raw
@@ -123,8 +148,7 @@ public abstract class Entity {
 		if ((Double.isNaN(xpos)) || (Double.isNaN(ypos)))
 			return false;
 		if (this.getWorld() != null) {
-			if ((xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))&&
-					(ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))) {
+			if (getWorld().liesWithinBoundaries(xpos, ypos, getRadius())) {
 				return true;
 			}
 			return false;
@@ -171,12 +195,16 @@ public abstract class Entity {
 	 * 			| else
 	 * 			| 	(new.getXVelocity == xvel/sqrt(xvel^2 + yvel^2)*old.getMaxSpeed() &&
 	 * 			|		new.getYVelocity == yvel/sqrt(xvel^2 + yvel^2)*old.getMaxSpeed());
+	 * @effect	If this entity is located in a world, it is woken up or put to sleep in that world
+	 * 			according to its new velocity.
+	 * 			| if (getWorld() != null)
+	 * 			| 	getWorld().updateSleepState(this)
 	 */
 	@Basic @Raw
 	public void setVelocity(double xvel, double yvel) {
 		if (Double.isNaN(xvel) || Double.isNaN(yvel)) {
-			xvel = new Random().nextDouble() * this.maxSpeed;
-			yvel = new Random().nextDouble() * this.maxSpeed;
+			xvel = nextRandomDouble() * this.maxSpeed;
+			yvel = nextRandomDouble() * this.maxSpeed;
 		}
 		double absVel = Math.sqrt(Math.pow(xvel, 2)+Math.pow(yvel, 2));
 		if (absVel <= this.maxSpeed) {
@@ -185,6 +213,24 @@ public abstract class Entity {
 		else {
 			this.getVelocity().setX(xvel/absVel*this.maxSpeed);
 			this.getVelocity().setY(yvel/absVel*this.maxSpeed); }
+		if (getWorld() != null)
+			getWorld().updateSleepState(this);
+	}
+	
+	/**
+	 * Return a random number, drawn from the random source of the world of this entity.
+	 * If this entity is not located in a world, the number is drawn from the random source
+	 * of the current thread.
+	 * 
+	 * @return	| if (getWorld() != null)
+	 * 			| 	result == getWorld().getRandom().nextDouble()
+	 * 			| (result >= 0) && (result < 1)
+	 */
+	protected double nextRandomDouble() {
+		World world = getWorld();
+		if (world != null)
+			return world.getRandom().nextDouble();
+		return ThreadLocalRandom.current().nextDouble();
 	}
 	
 	/**
@@ -277,6 +323,8 @@ public abstract class Entity {
 		}
 		else
 			this.radius = radius;
+		if (getWorld() != null)
+			getWorld().updateIndices(this);
 	}
 
 	/**
@@ -397,11 +445,70 @@ public abstract class Entity {
 			throw new IllegalEntityException(this);
 		if (this == other)
 			return 0;
-		return (Math.sqrt(Math.pow(this.getXPosition()-other.getXPosition(),2)
-					+ Math.pow(this.getYPosition()-other.getYPosition(),2))
+		return (Math.sqrt(Math.pow(this.getSeparationX(other),2)
+					+ Math.pow(this.getSeparationY(other),2))
 					- this.getRadius() - other.getRadius());
 	}
 	
+	/**
+	 * Return the displacement along the x-axis from the center of this entity to the center
+	 * of the given entity, in the world of this entity.
+	 * 
+	 * @return	| if (getWorld() == null)
+	 * 			| 	then result == other.getXPosition() - getXPosition()
+	 * 			| else
+	 * 			| 	result == getWorld().getSeparationX(other.getXPosition() - getXPosition())
+	 */
+	double getSeparationX(Entity other) {
+		double dx = other.getXPosition() - this.getXPosition();
+		return (getWorld() == null) ? dx : getWorld().getSeparationX(dx);
+	}
+	
+	/**
+	 * Return the displacement along the y-axis from the center of this entity to the center
+	 * of the given entity, in the world of this entity.
+	 * 
+	 * @return	| if (getWorld() == null)
+	 * 			| 	then result == other.getYPosition() - getYPosition()
+	 * 			| else
+	 * 			| 	result == getWorld().getSeparationY(other.getYPosition() - getYPosition())
+	 */
+	double getSeparationY(Entity other) {
+		double dy = other.getYPosition() - this.getYPosition();
+		return (getWorld() == null) ? dy : getWorld().getSeparationY(dy);
+	}
+	
+	/**
+	 * Return the acceleration along the x-axis, exerted on this entity by the gravity field
+	 * of its world.
+	 * 
+	 * @return	| if ((getWorld() == null) || (getWorld().getGravityField() == null))
+	 * 			| 	then result == 0
+	 */
+	public double getGravityX() {
+		return ((getWorld() == null)||(getWorld().getGravityField() == null)) ? 0 : this.gravityX;
+	}
+	
+	/**
+	 * Return the acceleration along the y-axis, exerted on this entity by the gravity field
+	 * of its world.
+	 * 
+	 * @return	| if ((getWorld() == null) || (getWorld().getGravityField() == null))
+	 * 			| 	then result == 0
+	 */
+	public double getGravityY() {
+		return ((getWorld() == null)||(getWorld().getGravityField() == null)) ? 0 : this.gravityY;
+	}
+	
+	/**
+	 * Set the acceleration, exerted on this entity by the gravity field of its world, to the
+	 * given components.
+	 */
+	void setGravity(double gravityX, double gravityY) {
+		this.gravityX = gravityX;
+		this.gravityY = gravityY;
+	}
+	
 	/**
 	 * Return the time until the first collision of this entity with the boundaries of its world, if any.
 	 * Other entities within the world of this entity are not taken into account.
@@ -422,28 +529,34 @@ public abstract class Entity {
 	 * 			|	(1.01*(getWorld().getHeight()-getRadius())-getYPosition())/getYVelocity())
 	 */
 	public double getTimeToBoundary() {
-		if (this.getWorld()==null)
+		if ((this.getWorld()==null)||(! this.getWorld().hasBoundaries()))
 			return Double.POSITIVE_INFINITY;
-		double X;
-		double Y;
-		if (this.getXVelocity() < 0) {
-			X = (getRadius()-getXPosition())/getXVelocity();
-		}
-		else if (this.getXVelocity() > 0) {
-			X = ((getWorld().getWidth()-getRadius())-getXPosition())/getXVelocity();
+		return Math.min(getTimeToBoundaryX(), getTimeToBoundaryY());
 		}
+	
+	/**
+	 * Return the time until this entity reaches the left or right boundary of its world.
+	 */
+	private double getTimeToBoundaryX() {
+		if (this.getXVelocity() < 0)
+			return (getRadius()-getXPosition())/getXVelocity();
+		else if (this.getXVelocity() > 0)
+			return ((getWorld().getWidth()-getRadius())-getXPosition())/getXVelocity();
 		else
-			X = Double.POSITIVE_INFINITY;
-		if (this.getYVelocity() < 0) {
-			Y = (getRadius()-getYPosition())/getYVelocity();
-		}
-		else if (this.getYVelocity() > 0) {
-			Y = ((getWorld().getHeight()-getRadius())-getYPosition())/getYVelocity();
-		}
+			return Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Return the time until this entity reaches the lower or upper boundary of its world.
+	 */
+	private double getTimeToBoundaryY() {
+		if (this.getYVelocity() < 0)
+			return (getRadius()-getYPosition())/getYVelocity();
+		else if (this.getYVelocity() > 0)
+			return ((getWorld().getHeight()-getRadius())-getYPosition())/getYVelocity();
 		else
-			Y = Double.POSITIVE_INFINITY;
-		return Math.min(X, Y);
-		}
+			return Double.POSITIVE_INFINITY;
+	}
 	
 	/**
 	 * Return where this entity will first collide with a boundary of its world, if anywhere.
@@ -466,25 +579,56 @@ public abstract class Entity {
 	 * 			|	result == {getXPosition()+getYVelocity()*getTimeToBoundary(),getWorld().getHeight()};		
 	 */
 	public double[] getBoundaryPosition() {
-		double time = this.getTimeToBoundary();
-		if (time==Double.POSITIVE_INFINITY)
+		Vector position = new Vector(0, 0);
+		if (! getBoundaryPosition(position))
 			return null;
-		double xpos = getXPosition()+getXVelocity()*time;
-		double ypos = getYPosition()+getYVelocity()*time;
-		if (xpos<=getRadius())
-			return new double[]{0,ypos};
-		else if (xpos>=getWorld().getWidth()-getRadius())
-			return new double[]{getWorld().getWidth(),ypos};
-		else if (ypos<=getRadius())
-			return new double[]{xpos,0};
-		else 
-			return new double[]{xpos,getWorld().getHeight()};
+		return new double[]{position.getX(),position.getY()};
+	}
+	
+	/**
+	 * Compute where this entity will first collide with a boundary of its world, if anywhere,
+	 * without allocating any objects.
+	 * 
+	 * @param	position
+	 * 			The vector to store the position of the collision in.
+	 * @return	False if and only if the time to the boundary is infinity.
+	 * 			| result == (getTimeToBoundary() != Double.POSITIVE_INFINITY)
+	 * @post	If this entity will reach a boundary of its world, the given vector holds the
+	 * 			position of its first collision with that boundary, as returned by
+	 * 			getBoundaryPosition(). Otherwise, the given vector is left untouched.
+	 * 			| if (result)
+	 * 			| 	(new position).getX() == getBoundaryPosition()[0]
+	 * 			| 	(new position).getY() == getBoundaryPosition()[1]
+	 */
+	public boolean getBoundaryPosition(Vector position) {
+		if ((this.getWorld()==null)||(! this.getWorld().hasBoundaries()))
+			return false;
+		double X = getTimeToBoundaryX();
+		double Y = getTimeToBoundaryY();
+		double time = Math.min(X, Y);
+		if (time==Double.POSITIVE_INFINITY)
+			return false;
+		if (X <= Y) {
+			position.setX((getXVelocity() < 0) ? 0 : getWorld().getWidth());
+			position.setY(getYPosition()+getYVelocity()*time);
+		}
+		else {
+			position.setX(getXPosition()+getXVelocity()*time);
+			position.setY((getYVelocity() < 0) ? 0 : getWorld().getHeight());
+		}
+		return true;
 	}
 	
 	/**
 	 * Return the time until this entity will collide with the given entity for the first time.
 	 * Other entities within the world of this entity are not taken into account.
 	 * 
+	 * In a world without boundaries, the nearest periodic image of the other entity need not be
+	 * the one that is reached first: when it moves away, the image on the opposite side comes
+	 * closer. The neighbouring images towards which the relative velocity points are therefore
+	 * tried as well, which finds every collision before the entities have moved half the world
+	 * relative to each other.
+	 * 
 	 * @param	other
 	 * 			The second ship, with which the collision will happen.
 	 * @return	If the ships do not yet overlap, they will if they move for the returned amount of time.
@@ -520,16 +664,36 @@ public abstract class Entity {
 			return Double.POSITIVE_INFINITY;
 		if (this.overlap(other))
 			throw new IllegalEntityException(this);
-		double[] dr = {other.getXPosition() - this.getXPosition(),
-						other.getYPosition() - this.getYPosition()};
-		double[] dv = {other.getXVelocity() - this.getXVelocity(),
-						other.getYVelocity() - this.getYVelocity()};
-		double d = Math.pow(dv[0]*dr[0]+dv[1]*dr[1],2)-(dv[0]*dv[0]+dv[1]*dv[1])
-				*(dr[0]*dr[0]+dr[1]*dr[1]-Math.pow(this.getRadius()+other.getRadius(), 2));
-		if ((dv[0]*dr[0]+dv[1]*dr[1] >= 0) || (d <= 0))
+		double drx = this.getSeparationX(other), dry = this.getSeparationY(other);
+		double dvx = other.getXVelocity() - this.getXVelocity();
+		double dvy = other.getYVelocity() - this.getYVelocity();
+		double sigma = this.getRadius() + other.getRadius();
+		World world = getWorld();
+		if (world.hasBoundaries())
+			return getTimeToCollision(drx, dry, dvx, dvy, sigma);
+		double width = world.getWidth(), height = world.getHeight();
+		double time = Double.POSITIVE_INFINITY;
+		for (int i = 0; i <= ((dvx == 0) ? 0 : 1); i++) {
+			for (int j = 0; j <= ((dvy == 0) ? 0 : 1); j++)
+				time = Math.min(time, getTimeToCollision(drx - i*Math.signum(dvx)*width,
+						dry - j*Math.signum(dvy)*height, dvx, dvy, sigma));
+		}
+		return time;
+	}
+	
+	/**
+	 * Return the time until two entities, the second one at the given displacement from the
+	 * first one and moving at the given relative velocity, lie the given distance apart for
+	 * the first time. Infinity if they never will.
+	 */
+	private static double getTimeToCollision(double drx, double dry, double dvx, double dvy, double sigma) {
+		double dvdr = dvx*drx+dvy*dry;
+		double dvdv = dvx*dvx+dvy*dvy;
+		double d = Math.pow(dvdr,2)-dvdv*(drx*drx+dry*dry-Math.pow(sigma, 2));
+		if ((dvdr >= 0) || (d <= 0))
 			return Double.POSITIVE_INFINITY;
 		else
-			return -(dv[0]*dr[0]+dv[1]*dr[1]+Math.sqrt(d))/(dv[0]*dv[0]+dv[1]*dv[1]);	
+			return -(dvdr+Math.sqrt(d))/dvdv;
 	}
 	
 	/**
@@ -549,18 +713,62 @@ public abstract class Entity {
 	 *			| 	result == null
 	 */
 	public double[] getCollisionPosition(Entity other) throws IllegalEntityException {
-		if (this.getTimeToCollision(other) != Double.POSITIVE_INFINITY) {
-			double dt = this.getTimeToCollision(other);
-			double[] drc = {other.getXPosition() - this.getXPosition() + dt*(other.getXVelocity() - this.getXVelocity()),
-					other.getYPosition() - this.getYPosition() + dt*(other.getYVelocity() - this.getYVelocity())};
-			double[] c = {drc[0] * (this.getRadius() / (other.getRadius()+this.getRadius())) + this.getXPosition()
-					+ dt*this.getXVelocity(),
-					drc[1] * (this.getRadius() / (other.getRadius()+this.getRadius())) + this.getYPosition()
-					+dt*this.getYVelocity()};
-			return c;
-		}
-		else
+		Vector position = new Vector(0, 0);
+		if (! getCollisionPosition(other, position))
 			return null;
+		return new double[]{position.getX(),position.getY()};
+	}
+	
+	/**
+	 * Compute the position where this entity will collide with another entity, without
+	 * allocating any objects.
+	 * 
+	 * @param	other
+	 * 			The entity with which this entity will collide.
+	 * @param	position
+	 * 			The vector to store the position of the collision in.
+	 * @effect	| getCollisionPosition(other, getTimeToCollision(other), position)
+	 */
+	public boolean getCollisionPosition(Entity other, Vector position) throws IllegalEntityException {
+		return getCollisionPosition(other, this.getTimeToCollision(other), position);
+	}
+	
+	/**
+	 * Compute the position where this entity will collide with another entity after the given
+	 * time, which has been computed by getTimeToCollision(other) before, without allocating
+	 * any objects.
+	 * 
+	 * @param	other
+	 * 			The entity with which this entity will collide.
+	 * @param	dt
+	 * 			The time until the collision.
+	 * @param	position
+	 * 			The vector to store the position of the collision in.
+	 * @return	False if and only if the given time is infinity.
+	 * 			| result == (dt != Double.POSITIVE_INFINITY)
+	 * @post	If the given time is finite, the given vector holds the position of the collision,
+	 * 			as returned by getCollisionPosition(other). Otherwise, it is left untouched.
+	 * 			| if (result)
+	 * 			| 	(new position).getX() == getCollisionPosition(other)[0]
+	 * 			| 	(new position).getY() == getCollisionPosition(other)[1]
+	 */
+	public boolean getCollisionPosition(Entity other, double dt, Vector position) {
+		if (dt == Double.POSITIVE_INFINITY)
+			return false;
+		World world = getWorld();
+		double drcx = this.getSeparationX(other) + dt*(other.getXVelocity() - this.getXVelocity());
+		double drcy = this.getSeparationY(other) + dt*(other.getYVelocity() - this.getYVelocity());
+		if (world != null) {
+			drcx = world.getSeparationX(drcx);
+			drcy = world.getSeparationY(drcy);
+		}
+		double cx = drcx * (this.getRadius() / (other.getRadius()+this.getRadius())) + this.getXPosition()
+				+ dt*this.getXVelocity();
+		double cy = drcy * (this.getRadius() / (other.getRadius()+this.getRadius())) + this.getYPosition()
+				+dt*this.getYVelocity();
+		position.setX((world == null) ? cx : world.foldX(cx));
+		position.setY((world == null) ? cy : world.foldY(cy));
+		return true;
 	}
 	
 	/**
@@ -570,6 +778,24 @@ public abstract class Entity {
 		return this.isTerminated;
 	}
 	
+	/**
+	 * Return the identifier of this entity. Zero if this entity has never been located in a world.
+	 */
+	@Basic @Raw
+	public long getId() {
+		return this.id;
+	}
+	
+	/**
+	 * Set the identifier of this entity to the given identifier.
+	 * 
+	 * @post	| new.getId() == id
+	 */
+	@Raw
+	void setId(long id) {
+		this.id = id;
+	}
+	
 	/**
 	 * Resolve the collision of this entity with another given entity.
 	 * 
@@ -610,8 +836,15 @@ public abstract class Entity {
 	 * 			| 	this.collideShip()
 	 * 			| else if (other instanceof MinorPlanet && this instanceof Ship)
 	 * 			| 	other.collideShip()
+	 * @effect	The resolution is registered as a flight recorder event, if that event is enabled.
 	 */
 	public void collide(Entity other){
+		CollisionEvent event = new CollisionEvent();
+		event.begin();
+		World world = getWorld();
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordCollision(this, other);
 		if (this instanceof Bullet) {
 			if (((Bullet) this).getSource()==other) {
 				if (this.getWorld()!=null) {
@@ -643,16 +876,15 @@ public abstract class Entity {
 			}
 		}
 		else if ((this instanceof Ship && other instanceof Ship) || (this instanceof MinorPlanet && other instanceof MinorPlanet)){
-			double dvdr = (other.getXVelocity()-this.getXVelocity())*
-				(other.getXPosition()-this.getXPosition()) +
-				(other.getYVelocity()-this.getYVelocity())*
-				(other.getYPosition()-this.getYPosition());
-			double sigma = Math.sqrt(Math.pow(this.getXPosition()-other.getXPosition(), 2)+
-				Math.pow(this.getYPosition()-other.getYPosition(), 2));
+			double dx = this.getSeparationX(other);
+			double dy = this.getSeparationY(other);
+			double dvdr = (other.getXVelocity()-this.getXVelocity())*dx +
+				(other.getYVelocity()-this.getYVelocity())*dy;
+			double sigma = Math.sqrt(Math.pow(dx, 2)+Math.pow(dy, 2));
 			double J = 2*this.getMass()*other.getMass()*
 					dvdr/(sigma*(this.getMass()+other.getMass()));
-			double JX = J*(other.getXPosition()-this.getXPosition())/sigma;
-			double JY = J*(other.getYPosition()-this.getYPosition())/sigma;
+			double JX = J*dx/sigma;
+			double JY = J*dy/sigma;
 			this.setVelocity(getXVelocity()+JX/this.getMass(), 
 					getYVelocity()+JY/this.getMass());
 			other.setVelocity(other.getXVelocity()-JX/other.getMass(), 
@@ -664,6 +896,14 @@ public abstract class Entity {
 		else if (other instanceof Ship && this instanceof MinorPlanet) {
 			((MinorPlanet)this).collideShip(((Ship)other));
 		}
+		if (event.shouldCommit()) {
+			event.entityType = getClass().getSimpleName();
+			event.otherType = other.getClass().getSimpleName();
+			event.entityId = getId();
+			event.otherId = other.getId();
+			event.impactTime = (world == null) ? 0 : world.getStepTime();
+			event.commit();
+		}
 	}
 	
 	/**
@@ -679,8 +919,14 @@ public abstract class Entity {
 	 * 			|		new.getXVelocity() == -old.getXVelocity()
 	 * 			|	else
 	 * 			|		new.getYVelocity() == -old.getYVelocity()
+	 * @effect	The resolution is registered as a flight recorder event, if that event is enabled.
 	 */
 	public void collideBoundary() {
+		CollisionEvent event = new CollisionEvent();
+		event.begin();
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordBoundaryCollision(this);
 		double[] pos = getBoundaryPosition();
 		if (pos!=null) {
 			if ((pos[0]==0)||(pos[0]==this.getWorld().getWidth())) {
@@ -696,6 +942,13 @@ public abstract class Entity {
 					setVelocity(getXVelocity(),-getYVelocity());
 				}
 		}
+		if (event.shouldCommit()) {
+			event.entityType = getClass().getSimpleName();
+			event.otherType = "Boundary";
+			event.entityId = getId();
+			event.impactTime = (getWorld() == null) ? 0 : getWorld().getStepTime();
+			event.commit();
+		}
 	}
 	
 	/**
@@ -708,10 +961,12 @@ public abstract class Entity {
 	 * 			and its velocity does not change 
 	 * 			| new.getXPosition() == old.getXPosition() + dt*old.getXVelocity()
 	 * 			| new.getYPosition() == old.getYPosition() + dt*old.getYVelocity()
-	 * @effect	If this entity is associated with a world, the map, containing all positions of its 
-	 * 			entities, of the world of this entity is updated. 
+	 * @post	If this entity is associated with a world, the map, containing all positions of its 
+	 * 			entities, of the world of this entity is updated. The array, registering the position
+	 * 			of this entity in that map, is reused.
 	 * 			| if new.getWorld()!=null
-	 * 			| 	getWorld().getEntities().put(new, new double[]{new.getXPosition(), new.getYPosition()});
+	 * 			| 	new.getWorld().getEntities().get(new)[0] == new.getXPosition()
+	 * 			| 	new.getWorld().getEntities().get(new)[1] == new.getYPosition()
 	 * @throws 	IllegalDurationException
 	 * 			The given duration of the movement is negative.
 	 * 			| dt < 0
@@ -720,11 +975,26 @@ public abstract class Entity {
 		if (dt <= 0)
 			throw new IllegalDurationException(dt);
 		else if (dt > 0) {
-			this.setPosition(getXPosition()+getXVelocity()*dt,
-					getYPosition()+getYVelocity()*dt);
+			if ((getWorld() != null)&&(getWorld().isMovingAwakeEntities()))
+				this.setMovedPosition(getWorld().foldX(getXPosition()+getXVelocity()*dt),
+						getWorld().foldY(getYPosition()+getYVelocity()*dt));
+			else if (getWorld() != null)
+				this.setPosition(getWorld().foldX(getXPosition()+getXVelocity()*dt),
+						getWorld().foldY(getYPosition()+getYVelocity()*dt));
+			else
+				this.setPosition(getXPosition()+getXVelocity()*dt,
+						getYPosition()+getYVelocity()*dt);
 		}
 		if (getWorld()!=null) {
-			getWorld().getEntities().put(this, new double[]{getXPosition(), getYPosition()});
+			double[] position = getWorld().getEntities().get(this);
+			if (position == null) {
+				getWorld().getEntities().put(this, new double[]{getXPosition(), getYPosition()});
+				getWorld().countEntity(this, 1);
+			}
+			else {
+				position[0] = getXPosition();
+				position[1] = getYPosition();
+			}
 		}
 	}
 	
@@ -735,8 +1005,43 @@ public abstract class Entity {
 	 * 			| new.isTerminated() == true;
 	 */
 	public void terminate() {
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordTerminate(this);
 		this.isTerminated = true;
 	}
+	
+	/**
+	 * Return the journal of the world of this entity. Null if this entity is not located in
+	 * a world, or its world does not have a journal.
+	 */
+	EventJournal getJournal() {
+		World world = getWorld();
+		return (world == null) ? null : world.getJournal();
+	}
+	
+	/**
+	 * Restore the position, velocity, radius and termination of this entity, bypassing all
+	 * checks and side effects of the regular setters.
+	 * 
+	 * @post	| new.getXPosition() == xpos
+	 * 			| new.getYPosition() == ypos
+	 * 			| new.getXVelocity() == xvel
+	 * 			| new.getYVelocity() == yvel
+	 * 			| new.getRadius() == radius
+	 * 			| new.isTerminated() == terminated
+	 */
+	@Raw
+	void restoreState(double xpos, double ypos, double xvel, double yvel, double radius, boolean terminated) {
+		this.position.setX(xpos);
+		this.position.setY(ypos);
+		this.velocity.setX(xvel);
+		this.velocity.setY(yvel);
+		this.radius = radius;
+		this.isTerminated = terminated;
+		if (getWorld() != null)
+			getWorld().updateIndices(this);
+	}
 
 	/**
 	 * A vector registering the position of this entity.
@@ -758,6 +1063,13 @@ public abstract class Entity {
 	 */
 	private double radius;
 	
+	/**
+	 * Variables registering the acceleration, exerted on this entity by the gravity field of
+	 * its world at the start of the current evolution.
+	 */
+	private double gravityX = 0;
+	private double gravityY = 0;
+	
 	/**
 	 * A variable registering whether this entity is terminated.
 	 */
@@ -773,6 +1085,30 @@ public abstract class Entity {
 	 */
 	private double massDensity;
 	
+	/**
+	 * A variable registering the identifier of this entity.
+	 */
+	private long id = 0;
+	
+	/**
+	 * Variables registering the index of this entity in the snapshot, that captured it last,
+	 * and the stamp of that capture.
+	 */
+	int snapshotIndex = -1;
+	long snapshotStamp = 0;
+	
+	/**
+	 * A variable registering the index of this entity in the index of sleeping entities of its
+	 * world, or -1 if it is not indexed there.
+	 */
+	int sleepingSlot = -1;
+	
+	/**
+	 * A variable registering the index of this entity in the range index of its world, or -1
+	 * if it is not indexed there.
+	 */
+	int rangeSlot = -1;
+	
 	/**
 	 * A variable registering the maximum speed of an entity.
 	 */
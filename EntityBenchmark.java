@@ -0,0 +1,98 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Asteroid;
+import asteroids.model.ClosestEntity;
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * A benchmark of the queries on single entities: the time to the collision of a pair of
+ * entities, and the entity of a type closest to a ship.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	public int nbEntities;
+
+	@Param({"UNIFORM", "CLUSTERED"})
+	public BenchmarkWorlds.Layout layout;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		World world = BenchmarkWorlds.create(nbEntities, layout, SEED);
+		List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+		Random random = new Random(SEED);
+		firsts = new Entity[NB_PAIRS];
+		seconds = new Entity[NB_PAIRS];
+		for (int index = 0; index < NB_PAIRS; index++) {
+			int first = random.nextInt(entities.size());
+			int second = (first + 1 + random.nextInt(entities.size() - 1)) % entities.size();
+			firsts[index] = entities.get(first);
+			seconds[index] = entities.get(second);
+		}
+		for (Entity entity: entities) {
+			if (entity instanceof Ship) {
+				ship = (Ship) entity;
+				break;
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_PAIRS)
+	public double getTimeToCollision() {
+		double sum = 0;
+		for (int index = 0; index < NB_PAIRS; index++) {
+			double time = firsts[index].getTimeToCollision(seconds[index]);
+			if (time != Double.POSITIVE_INFINITY)
+				sum += time;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public Asteroid getClosestAsteroid() {
+		return new ClosestEntity<Asteroid>(ship, Asteroid.class).getClosestEntity();
+	}
+
+	private Entity[] firsts;
+	private Entity[] seconds;
+	private Ship ship;
+
+	/**
+	 * A variable registering the number of pairs, whose time to collision is computed per invocation.
+	 */
+	private static final int NB_PAIRS = 1024;
+
+	/**
+	 * A variable registering the seed of the generated world and of the selected pairs.
+	 */
+	private static final long SEED = 42;
+
+}
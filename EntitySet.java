@@ -1,6 +1,6 @@
 package asteroids.model;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class EntitySet<T extends Entity> {
@@ -18,6 +18,6 @@ public class EntitySet<T extends Entity> {
 		return this.entitySet;
 	}
 	
-	private Set<T> entitySet = new HashSet<T>();
+	private Set<T> entitySet = new LinkedHashSet<T>();
 
 }
@@ -2,12 +2,18 @@ package asteroids.tests;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import asteroids.facade.Facade;
-import asteroids.model.IllegalEntityException;
+import asteroids.model.Asteroid;
+import asteroids.model.exceptions.IllegalEntityException;
 import asteroids.model.Ship;
+import asteroids.model.Vector;
 import asteroids.model.World;
 import asteroids.model.Bullet;
 import asteroids.part2.facade.IFacade;
@@ -256,4 +262,41 @@ public class EntityTest {
 		assert bullet.isTerminated();
 	}
 	
+	@Test
+	public void testVectorOverloads_CaseEqualToArrays() throws ModelException {
+		World world2 = new World(1000,1000);
+		Random random = new Random(43);
+		List<Asteroid> asteroids = new ArrayList<Asteroid>();
+		for (int index = 0; index < 20; index++)
+			asteroids.add(new Asteroid(50+(index%5)*200, 50+(index/5)*250,
+					random.nextDouble()*200-100, random.nextDouble()*200-100, 10+random.nextDouble()*20));
+		assert world2.addEntities(asteroids).isEmpty();
+		Vector position = new Vector(-1, -1);
+		for (Asteroid asteroid: asteroids) {
+			double[] boundary = asteroid.getBoundaryPosition();
+			assert asteroid.getBoundaryPosition(position) == (boundary != null);
+			if (boundary != null) {
+				assert position.getX()==boundary[0];
+				assert position.getY()==boundary[1];
+			}
+			for (Asteroid other: asteroids) {
+				if (other == asteroid)
+					continue;
+				double[] collision = asteroid.getCollisionPosition(other);
+				assert asteroid.getCollisionPosition(other, position) == (collision != null);
+				if (collision != null) {
+					assert position.getX()==collision[0];
+					assert position.getY()==collision[1];
+					assert asteroid.getCollisionPosition(other, asteroid.getTimeToCollision(other), position);
+					assert position.getX()==collision[0];
+					assert position.getY()==collision[1];
+				}
+			}
+		}
+		double[] first = world2.getFirstCollisionPosition();
+		assert world2.getFirstCollisionPosition(position) == (first != null);
+		assert position.getX()==first[0];
+		assert position.getY()==first[1];
+	}
+
 }
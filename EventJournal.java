@@ -0,0 +1,418 @@
+package asteroids.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of event journals, registering everything that happens to a world in an
+ * append-only binary log, so that a match can be replayed afterwards.
+ *
+ * Every event is written as a record of RECORD_SIZE bytes: an int type, an int auxiliary
+ * value and seven 8-byte slots, holding identifiers of entities or the raw bits of doubles.
+ * Records are written into segments of a fixed size, each memory-mapped from its own file in
+ * the directory of the journal and headed by a HEADER record. When a segment is full, the
+ * journal rolls over to the next one. Writing a record never allocates; only opening a
+ * segment does.
+ *
+ * Events that are caused by another event are written right after the record of their cause,
+ * so that the first record of each series is the one that has to be replayed. An event that
+ * fails after it has been written is followed by a FAILURE record, naming the class of the
+ * exception, so that a replay can verify that it fails in the same way. Every so many
+ * evolutions, the position and velocity of every entity in the world are written in CHECKPOINT
+ * records, against which a replay is verified.
+ *
+ * A journal is written by the thread that evolves its world. Once closed, it no longer
+ * registers any events.
+ */
+public class EventJournal implements Closeable {
+
+	/**
+	 * Initialize this new event journal, writing segments of given size in the given directory,
+	 * with checkpoints every given number of evolutions.
+	 *
+	 * @param 	directory
+	 * 			The directory of this new journal. It must not contain segments of another journal.
+	 * @param 	segmentSize
+	 * 			The size of the segments of this new journal, in bytes.
+	 * @param 	checkpointInterval
+	 * 			The number of evolutions between two checkpoints. Checkpoints are disabled if
+	 * 			it is not strictly positive.
+	 * @post	The size of the segments is the given size, rounded down to a whole number of
+	 * 			records, but no less than two records.
+	 * 			| new.getSegmentSize() == Math.max(2, segmentSize / RECORD_SIZE) * RECORD_SIZE
+	 * @post	| new.getDirectory() == directory
+	 * 			| new.getCheckpointInterval() == checkpointInterval
+	 * 			| new.getNbSegments() == 1
+	 * @throws	IOException
+	 * 			The first segment of this new journal could not be created.
+	 */
+	public EventJournal(Path directory, int segmentSize, int checkpointInterval) throws IOException {
+		this.directory = directory;
+		this.segmentSize = Math.max(2, segmentSize / RECORD_SIZE) * RECORD_SIZE;
+		this.checkpointInterval = checkpointInterval;
+		try {
+			roll();
+		}
+		catch (UncheckedIOException exc) {
+			throw exc.getCause();
+		}
+	}
+
+	/**
+	 * Initialize this new event journal, writing segments of a standard size in the given
+	 * directory, with checkpoints at a standard interval.
+	 *
+	 * @effect	| this(directory, STANDARD_SEGMENT_SIZE, STANDARD_CHECKPOINT_INTERVAL)
+	 */
+	public EventJournal(Path directory) throws IOException {
+		this(directory, STANDARD_SEGMENT_SIZE, STANDARD_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Initialize this new event journal, writing its records in memory only, with checkpoints
+	 * every given number of evolutions. Such a journal is used to replay another one.
+	 */
+	EventJournal(int checkpointInterval) {
+		this.directory = null;
+		this.segmentSize = 0;
+		this.checkpointInterval = checkpointInterval;
+		this.buffer = ByteBuffer.allocate(64 * RECORD_SIZE);
+	}
+
+	/**
+	 * Return the directory of this journal. Null if this journal is only kept in memory.
+	 */
+	@Basic
+	public Path getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Return the size of the segments of this journal, in bytes.
+	 */
+	@Basic
+	public int getSegmentSize() {
+		return this.segmentSize;
+	}
+
+	/**
+	 * Return the number of evolutions between two checkpoints of this journal.
+	 */
+	@Basic
+	public int getCheckpointInterval() {
+		return this.checkpointInterval;
+	}
+
+	/**
+	 * Return the number of segments, opened by this journal.
+	 */
+	@Basic
+	public int getNbSegments() {
+		return this.nbSegments;
+	}
+
+	/**
+	 * Return the number of records, written by this journal, segment headers not included.
+	 */
+	@Basic
+	public long getNbRecords() {
+		return this.nbRecords;
+	}
+
+	/**
+	 * Return the number of evolutions, registered by this journal.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return this.nbTicks;
+	}
+
+	/**
+	 * Return whether this journal is closed.
+	 */
+	@Basic
+	public boolean isClosed() {
+		return this.buffer == null;
+	}
+
+	/**
+	 * Write the records of this journal through to its files.
+	 */
+	public void flush() {
+		if (buffer instanceof MappedByteBuffer)
+			((MappedByteBuffer) buffer).force();
+	}
+
+	/**
+	 * Close this journal, after writing its records through to its files.
+	 *
+	 * @post	| new.isClosed()
+	 */
+	@Override
+	public void close() {
+		flush();
+		buffer = null;
+	}
+
+	/**
+	 * Register the start of an evolution of the world of this journal for the given duration.
+	 */
+	void recordEvolve(double dt) {
+		write(EVOLVE, 0, nbTicks, Double.doubleToRawLongBits(dt), 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register the end of an evolution of the given world, and write a checkpoint if one is due.
+	 */
+	void recordEndOfEvolve(World world) {
+		nbTicks++;
+		if ((checkpointInterval > 0)&&(nbTicks % checkpointInterval == 0)) {
+			for (Entity entity: world.getEntities().keySet())
+				write(CHECKPOINT, 0, entity.getId(),
+						Double.doubleToRawLongBits(entity.getXPosition()),
+						Double.doubleToRawLongBits(entity.getYPosition()),
+						Double.doubleToRawLongBits(entity.getXVelocity()),
+						Double.doubleToRawLongBits(entity.getYVelocity()),
+						Double.doubleToRawLongBits(entity.getRadius()), nbTicks);
+		}
+	}
+
+	/**
+	 * Register that the given entity enters the world of this journal. An entity without an
+	 * identifier is registered with all data needed to construct it again, unless it is
+	 * detached, in which case it is only given an identifier.
+	 */
+	void recordAdd(World world, Entity entity, boolean detached) {
+		if (entity.getId() != 0) {
+			write(ADD, 0, entity.getId(), 0, 0, 0, 0, 0, 0);
+			return;
+		}
+		if (detached)
+			world.assignId(entity);
+		int kind;
+		long aux1 = 0, aux2 = 0;
+		if (entity instanceof Ship) {
+			kind = SHIP;
+			aux1 = Double.doubleToRawLongBits(((Ship) entity).getOrientation());
+			aux2 = Double.doubleToRawLongBits(((Ship) entity).getShipMass());
+		}
+		else if (entity instanceof Bullet)
+			kind = BULLET;
+		else if (entity instanceof Planetoid) {
+			kind = PLANETOID;
+			aux1 = Double.doubleToRawLongBits(((Planetoid) entity).getTotalDistance());
+		}
+		else
+			kind = ASTEROID;
+		write(SPAWN, detached ? kind | DETACHED : kind,
+				Double.doubleToRawLongBits(entity.getXPosition()),
+				Double.doubleToRawLongBits(entity.getYPosition()),
+				Double.doubleToRawLongBits(entity.getXVelocity()),
+				Double.doubleToRawLongBits(entity.getYVelocity()),
+				Double.doubleToRawLongBits(entity.getRadius()), aux1, aux2);
+	}
+
+	/**
+	 * Register that the given entity leaves the world of this journal. An entity without an
+	 * identifier has never entered that world, and is not registered.
+	 */
+	void recordRemove(Entity entity) {
+		if (entity.getId() != 0)
+			write(REMOVE, 0, entity.getId(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given ship fires a bullet.
+	 */
+	void recordFire(Ship ship) {
+		write(FIRE, 0, ship.getId(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given ship loads the given bullet.
+	 */
+	void recordLoad(Ship ship, Bullet bullet) {
+		write(LOAD, 0, ship.getId(), bullet.getId(), 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given ship turns by the given angle.
+	 */
+	void recordTurn(Ship ship, double angle) {
+		write(TURN, 0, ship.getId(), Double.doubleToRawLongBits(angle), 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given ship enables or disables its thruster.
+	 */
+	void recordThrust(Ship ship, boolean thruster) {
+		write(THRUST, thruster ? 1 : 0, ship.getId(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given entities collide.
+	 */
+	void recordCollision(Entity entity, Entity other) {
+		write(COLLISION, 0, entity.getId(), other.getId(), 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given entity collides with a boundary of its world.
+	 */
+	void recordBoundaryCollision(Entity entity) {
+		write(BOUNDARY, 0, entity.getId(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the given entity is terminated. An entity without an identifier has never
+	 * entered the world of this journal, and is not registered.
+	 */
+	void recordTerminate(Entity entity) {
+		if (entity.getId() != 0)
+			write(TERMINATE, 0, entity.getId(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Register that the event, registered last, fails with the given exception.
+	 */
+	void recordFailure(RuntimeException exc) {
+		write(FAILURE, 0, exc.getClass().getName().hashCode(), 0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Return the buffer, this journal writes its records in.
+	 */
+	ByteBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * Write a record with given type, auxiliary value and slots.
+	 */
+	private void write(int type, int aux, long slot0, long slot1, long slot2, long slot3,
+			long slot4, long slot5, long slot6) {
+		if (buffer == null)
+			return;
+		if (buffer.remaining() < RECORD_SIZE)
+			roll();
+		buffer.putInt(type).putInt(aux).putLong(slot0).putLong(slot1).putLong(slot2)
+				.putLong(slot3).putLong(slot4).putLong(slot5).putLong(slot6);
+		if (type != HEADER)
+			nbRecords++;
+	}
+
+	/**
+	 * Continue writing in a fresh segment. A journal in memory doubles its buffer instead.
+	 */
+	private void roll() {
+		if (directory == null) {
+			ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+			return;
+		}
+		flush();
+		Path file = directory.resolve(getSegmentName(nbSegments));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		catch (IOException exc) {
+			throw new UncheckedIOException(exc);
+		}
+		write(HEADER, VERSION, MAGIC, nbSegments, RECORD_SIZE, segmentSize, checkpointInterval, nbTicks, 0);
+		nbSegments++;
+	}
+
+	/**
+	 * Return the name of the file of the segment with given index.
+	 */
+	static String getSegmentName(int index) {
+		return String.format("segment-%08d.journal", index);
+	}
+
+	/**
+	 * A variable registering the directory of this journal.
+	 */
+	private final Path directory;
+
+	/**
+	 * A variable registering the size of the segments of this journal.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * A variable registering the number of evolutions between two checkpoints.
+	 */
+	private final int checkpointInterval;
+
+	/**
+	 * A variable registering the buffer of the current segment of this journal.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Variables registering the number of segments, records and evolutions of this journal.
+	 */
+	private int nbSegments = 0;
+	private long nbRecords = 0;
+	private long nbTicks = 0;
+
+	/**
+	 * A variable registering the size of a record, in bytes.
+	 */
+	public static final int RECORD_SIZE = 64;
+
+	/**
+	 * Variables registering the standard size of a segment and the standard number of
+	 * evolutions between two checkpoints.
+	 */
+	public static final int STANDARD_SEGMENT_SIZE = 64 << 20;
+	public static final int STANDARD_CHECKPOINT_INTERVAL = 60;
+
+	/**
+	 * Variables identifying the format of a journal.
+	 */
+	static final long MAGIC = 0x4153544A524E4CL;
+	static final int VERSION = 1;
+
+	/**
+	 * Variables registering the types of records. A record of type END marks the end of
+	 * the records in a segment.
+	 */
+	static final int END = 0;
+	static final int HEADER = 1;
+	static final int EVOLVE = 2;
+	static final int CHECKPOINT = 3;
+	static final int SPAWN = 4;
+	static final int ADD = 5;
+	static final int REMOVE = 6;
+	static final int FIRE = 7;
+	static final int LOAD = 8;
+	static final int TURN = 9;
+	static final int THRUST = 10;
+	static final int COLLISION = 11;
+	static final int BOUNDARY = 12;
+	static final int TERMINATE = 13;
+	static final int FAILURE = 14;
+
+	/**
+	 * Variables registering the kinds of spawned entities, and the flag of a spawned entity
+	 * that is not located in the world itself.
+	 */
+	static final int SHIP = 1;
+	static final int BULLET = 2;
+	static final int ASTEROID = 3;
+	static final int PLANETOID = 4;
+	static final int DETACHED = 8;
+
+}
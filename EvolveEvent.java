@@ -0,0 +1,34 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events, registering an evolution of a world. The duration of the
+ * event is the time it took to evolve the world.
+ */
+@Name("asteroids.Evolve")
+@Label("Evolve")
+@Category("Asteroids")
+@Description("An evolution of a world over a duration of game time")
+final class EvolveEvent extends jdk.jfr.Event {
+
+	@Label("Game Time")
+	@Description("The duration of game time the world evolved over, in seconds")
+	double gameTime;
+
+	@Label("Events")
+	@Description("The number of collisions, resolved during the evolution")
+	int nbEvents;
+
+	@Label("Entities")
+	@Description("The number of entities in the world after the evolution")
+	int nbEntities;
+
+	@Label("Awake Entities")
+	@Description("The number of entities that were moved during the evolution")
+	int nbAwakeEntities;
+
+}
@@ -1,5 +1,6 @@
 package asteroids.facade;
 
+import java.nio.DoubleBuffer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -52,12 +53,12 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public double[] getShipPosition(Ship ship) throws ModelException {
-		return new double[]{ship.getXPosition(), ship.getYPosition()};
+		return getPosition(ship);
 	}
 
 	@Override
 	public double[] getShipVelocity(Ship ship) throws ModelException {
-		return new double[]{ship.getXVelocity(), ship.getYVelocity()};
+		return getVelocity(ship);
 	}
 
 	@Override
@@ -195,12 +196,12 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public double[] getBulletPosition(Bullet bullet) throws ModelException {
-		return new double[]{bullet.getXPosition(),bullet.getYPosition()};
+		return getPosition(bullet);
 	}
 
 	@Override
 	public double[] getBulletVelocity(Bullet bullet) throws ModelException {
-		return new double[]{bullet.getXVelocity(),bullet.getYVelocity()};
+		return getVelocity(bullet);
 	}
 
 	@Override
@@ -250,11 +251,17 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Ship> getWorldShips(World world) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntities(Ship.class);
 		return (new EntitySet<Ship>(world, Ship.class)).getSet();
 	}
 
 	@Override
 	public Set<? extends Bullet> getWorldBullets(World world) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntities(Bullet.class);
 		return (new EntitySet<Bullet>(world, Bullet.class)).getSet();
 	}
 
@@ -372,9 +379,31 @@ public class Facade implements asteroids.part3.facade.IFacade {
 		return world.getFirstCollisionPosition();
 	}
 
+	/**
+	 * Evolve the given world over the given duration. The collisions are handed to the given
+	 * listener on the thread of the collision queue of the world, which is created on the first
+	 * evolution with a listener. Evolving the world without a listener shuts its collision queue
+	 * down, and detaches it from the world.
+	 * 
+	 * @see		CollisionEventQueue
+	 */
 	@Override
 	public void evolve(World world, double dt, CollisionListener collisionListener) throws ModelException {
 		try {
+			CollisionEventQueue queue = world.getCollisionQueue();
+			if (collisionListener == null) {
+				if (queue != null) {
+					queue.shutdown();
+					world.setCollisionQueue(null);
+				}
+			}
+			else {
+				if (queue == null) {
+					queue = new CollisionEventQueue();
+					world.setCollisionQueue(queue);
+				}
+				queue.setListener(collisionListener);
+			}
 			world.evolve(dt);
 		}
 		catch (IllegalEntityException exc) {
@@ -393,14 +422,105 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Object getEntityAt(World world, double x, double y) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntityAt(x, y);
 		return world.getEntityAt(x, y);
 	}
 
 	@Override
 	public Set<? extends Object> getEntities(World world) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntities();
 		return world.getAllEntities();
 	}
 
+	/**
+	 * Write a record (id, type, x, y, vx, vy, r) of each entity in the given world into the given
+	 * array, starting at the given offset, read from the view on that world if there is one.
+	 * 
+	 * @return	The number of records written.
+	 * @see		World#exportState(double[], int, Class)
+	 */
+	public int exportEntities(World world, double[] target, int offset) throws ModelException {
+		return exportEntities(world, Entity.class, target, offset);
+	}
+
+	/**
+	 * Write a record of each entity of the given type in the given world into the given array,
+	 * starting at the given offset, read from the view on that world if there is one.
+	 * 
+	 * @return	The number of records written.
+	 * @see		World#exportState(double[], int, Class)
+	 */
+	public int exportEntities(World world, Class<? extends Entity> type, double[] target, int offset)
+			throws ModelException {
+		if ((world == null)||(target == null))
+			throw new ModelException("Illegal world");
+		try {
+			WorldView view = world.getReadView();
+			if (view != null)
+				return view.exportState(target, offset, type);
+			return world.exportState(target, offset, type);
+		}
+		catch (IndexOutOfBoundsException exc) {
+			throw new ModelException("Illegal offset");
+		}
+	}
+
+	/**
+	 * Write a record of each entity in the given world into the given buffer, read from the
+	 * view on that world if there is one.
+	 * 
+	 * @return	The number of records written.
+	 * @see		World#exportState(DoubleBuffer, Class)
+	 */
+	public int exportEntities(World world, DoubleBuffer target) throws ModelException {
+		return exportEntities(world, Entity.class, target);
+	}
+
+	/**
+	 * Write a record of each entity of the given type in the given world into the given buffer,
+	 * read from the view on that world if there is one.
+	 * 
+	 * @return	The number of records written.
+	 * @see		World#exportState(DoubleBuffer, Class)
+	 */
+	public int exportEntities(World world, Class<? extends Entity> type, DoubleBuffer target)
+			throws ModelException {
+		if ((world == null)||(target == null))
+			throw new ModelException("Illegal world");
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.exportState(target, type);
+		return world.exportState(target, type);
+	}
+
+	/**
+	 * Return the position of the given entity, read from the view on its world if it is in there.
+	 */
+	private static double[] getPosition(Entity entity) {
+		World world = entity.getWorld();
+		WorldView view = (world == null) ? null : world.getReadView();
+		double[] position = (view == null) ? null : view.getPosition(entity);
+		if (position == null)
+			position = new double[]{entity.getXPosition(), entity.getYPosition()};
+		return position;
+	}
+
+	/**
+	 * Return the velocity of the given entity, read from the view on its world if it is in there.
+	 */
+	private static double[] getVelocity(Entity entity) {
+		World world = entity.getWorld();
+		WorldView view = (world == null) ? null : world.getReadView();
+		double[] velocity = (view == null) ? null : view.getVelocity(entity);
+		if (velocity == null)
+			velocity = new double[]{entity.getXVelocity(), entity.getYVelocity()};
+		return velocity;
+	}
+
 	@Override
 	public int getNbStudentsInTeam() {
 		return 2;
@@ -408,6 +528,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Asteroid> getWorldAsteroids(World world) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntities(Asteroid.class);
 		return (new EntitySet<Asteroid>(world, Asteroid.class)).getSet();
 	}
 
@@ -427,6 +550,9 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public Set<? extends Planetoid> getWorldPlanetoids(World world) throws ModelException {
+		WorldView view = world.getReadView();
+		if (view != null)
+			return view.getEntities(Planetoid.class);
 		return (new EntitySet<Planetoid>(world, Planetoid.class)).getSet();
 	}
 
@@ -462,12 +588,12 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public double[] getAsteroidPosition(Asteroid asteroid) throws ModelException {
-		return new double[]{asteroid.getXPosition(),asteroid.getYPosition()};
+		return getPosition(asteroid);
 	}
 
 	@Override
 	public double[] getAsteroidVelocity(Asteroid asteroid) throws ModelException {
-		return new double[]{asteroid.getXVelocity(),asteroid.getYVelocity()};
+		return getVelocity(asteroid);
 	}
 
 	@Override
@@ -503,12 +629,12 @@ public class Facade implements asteroids.part3.facade.IFacade {
 
 	@Override
 	public double[] getPlanetoidPosition(Planetoid planetoid) throws ModelException {
-		return new double[]{planetoid.getXPosition(),planetoid.getYPosition()};
+		return getPosition(planetoid);
 	}
 
 	@Override
 	public double[] getPlanetoidVelocity(Planetoid planetoid) throws ModelException {
-		return new double[]{planetoid.getXVelocity(),planetoid.getYVelocity()};
+		return getVelocity(planetoid);
 	}
 
 	@Override
@@ -0,0 +1,397 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of gravity fields, pulling the ships and bullets in a world towards its minor planets.
+ *
+ * At the start of each evolution of its world, a field sorts the minor planets of that world in
+ * a quadtree, in which each node registers the total mass and the center of mass of the planets
+ * in its square. The acceleration of each ship and bullet is then summed over that tree: a node
+ * that is small compared to its distance to the body, as measured by the opening angle of the
+ * field, acts as a single mass, and only nearer nodes are opened. This takes a time in the order
+ * of n*log(n) for n entities, instead of the n*n of summing over all pairs. An opening angle of
+ * zero opens every node, and sums the exact accelerations.
+ *
+ * The tree is built once per evolution and shared by all bodies. The accelerations are held
+ * constant during that evolution, and integrated into the velocity of each body when it moves,
+ * next to the thrust of a ship. In a wrapping world, the distance to a node is measured to its
+ * nearest periodic image.
+ *
+ * A field is not registered in the journal of its world, so a journal of a world with gravity
+ * can only be replayed in a world with an equal field.
+ *
+ * @invar	The opening angle of each field is a valid opening angle.
+ * 			| isValidOpeningAngle(getOpeningAngle())
+ */
+public class GravityField {
+
+	/**
+	 * Initialize this new gravity field in the given world, with given opening angle and
+	 * gravitational constant.
+	 *
+	 * @param 	world
+	 * 			The world of this new field.
+	 * @param 	openingAngle
+	 * 			The opening angle of this new field.
+	 * @param 	gravitationalConstant
+	 * 			The gravitational constant of this new field.
+	 * @pre		| isValidOpeningAngle(openingAngle)
+	 * @post	| new.getWorld() == world
+	 * @post	| new.getOpeningAngle() == openingAngle
+	 * @post	| new.getGravitationalConstant() == gravitationalConstant
+	 * @effect	The new field is attached to the given world.
+	 * 			| world.setGravityField(new)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not effective.
+	 * 			| world == null
+	 */
+	public GravityField(World world, double openingAngle, double gravitationalConstant)
+			throws IllegalWorldException {
+		if (world == null)
+			throw new IllegalWorldException(world);
+		this.world = world;
+		setOpeningAngle(openingAngle);
+		this.gravitationalConstant = gravitationalConstant;
+		world.setGravityField(this);
+	}
+
+	/**
+	 * Initialize this new gravity field in the given world, with given opening angle and the
+	 * gravitational constant of Newton, in kilometres, kilograms and seconds.
+	 *
+	 * @effect	| this(world, openingAngle, GRAVITATIONAL_CONSTANT)
+	 */
+	public GravityField(World world, double openingAngle) throws IllegalWorldException {
+		this(world, openingAngle, GRAVITATIONAL_CONSTANT);
+	}
+
+	/**
+	 * Initialize this new gravity field in the given world, with a standard opening angle and
+	 * the gravitational constant of Newton.
+	 *
+	 * @effect	| this(world, STANDARD_OPENING_ANGLE)
+	 */
+	public GravityField(World world) throws IllegalWorldException {
+		this(world, STANDARD_OPENING_ANGLE);
+	}
+
+	/**
+	 * Return the world of this field.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the gravitational constant of this field.
+	 */
+	@Basic
+	public double getGravitationalConstant() {
+		return this.gravitationalConstant;
+	}
+
+	/**
+	 * Return the opening angle of this field.
+	 */
+	@Basic
+	public double getOpeningAngle() {
+		return this.openingAngle;
+	}
+
+	/**
+	 * Check whether the given opening angle is a valid opening angle for any field.
+	 *
+	 * @return	| result == (openingAngle >= 0) && (openingAngle < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidOpeningAngle(double openingAngle) {
+		return (openingAngle >= 0)&&(openingAngle < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Set the opening angle of this field to the given angle. The new angle is used from the
+	 * next evolution of its world on.
+	 *
+	 * @param 	openingAngle
+	 * 			The new opening angle of this field.
+	 * @pre		| isValidOpeningAngle(openingAngle)
+	 * @post	| new.getOpeningAngle() == openingAngle
+	 */
+	public void setOpeningAngle(double openingAngle) {
+		assert isValidOpeningAngle(openingAngle);
+		this.openingAngle = openingAngle;
+	}
+
+	/**
+	 * Return the number of nodes in the tree, built at the last update of this field.
+	 */
+	public int getNbNodes() {
+		return this.nbNodes;
+	}
+
+	/**
+	 * Build the tree of the minor planets in the world of this field, and register the
+	 * acceleration of each ship and bullet in that world.
+	 *
+	 * @effect	Each ship and bullet is woken up or put to sleep in the world of this field,
+	 * 			according to its new acceleration.
+	 * 			| for each entity in getWorld().getEntities().keySet()
+	 * 			| 	if ((entity instanceof Ship)||(entity instanceof Bullet))
+	 * 			| 		getWorld().updateSleepState(entity)
+	 */
+	void update() {
+		build();
+		for (Entity entity: world.getEntities().keySet()) {
+			if (((entity instanceof Ship)||(entity instanceof Bullet))&&(entity.getWorld() == world)) {
+				accelerate(entity);
+				world.updateSleepState(entity);
+			}
+		}
+	}
+
+	/**
+	 * Build the tree of the minor planets in the world of this field.
+	 */
+	private void build() {
+		nbBodies = 0;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Entity entity: world.getEntities().keySet()) {
+			if ((entity instanceof MinorPlanet)&&(entity.getWorld() == world)&&(entity.getMass() > 0)) {
+				if (nbBodies == bodyXs.length)
+					growBodies();
+				double x = entity.getXPosition(), y = entity.getYPosition();
+				bodyXs[nbBodies] = x;
+				bodyYs[nbBodies] = y;
+				bodyMasses[nbBodies] = entity.getMass();
+				nbBodies++;
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
+			}
+		}
+		nbNodes = 0;
+		if (nbBodies == 0)
+			return;
+		double half = Math.max(Math.max(maxX - minX, maxY - minY)/2, MIN_HALF_SIZE);
+		newNode((minX + maxX)/2, (minY + maxY)/2, half);
+		for (int body = 0; body < nbBodies; body++)
+			insert(body);
+		for (int node = 0; node < nbNodes; node++) {
+			centerXs[node] = centerXs[node]/masses[node];
+			centerYs[node] = centerYs[node]/masses[node];
+		}
+	}
+
+	/**
+	 * Insert the body at the given index in the tree of this field. During the build, the
+	 * center of a node registers the sum of the positions of its bodies, weighted by their mass.
+	 */
+	private void insert(int body) {
+		double x = bodyXs[body], y = bodyYs[body], mass = bodyMasses[body];
+		int node = 0;
+		int depth = 0;
+		while (true) {
+			if (leaves[node]) {
+				if ((masses[node] == 0)||(depth == MAX_DEPTH)) {
+					addMass(node, x, y, mass);
+					return;
+				}
+				double otherX = centerXs[node]/masses[node], otherY = centerYs[node]/masses[node];
+				int child = newChild(node, quadrant(node, otherX, otherY));
+				centerXs[child] = centerXs[node];
+				centerYs[child] = centerYs[node];
+				masses[child] = masses[node];
+				leaves[node] = false;
+			}
+			addMass(node, x, y, mass);
+			int quadrant = quadrant(node, x, y);
+			int child = children[4*node + quadrant];
+			if (child < 0) {
+				child = newChild(node, quadrant);
+				addMass(child, x, y, mass);
+				return;
+			}
+			node = child;
+			depth++;
+		}
+	}
+
+	/**
+	 * Add the given mass at the given position to the given node.
+	 */
+	private void addMass(int node, double x, double y, double mass) {
+		masses[node] += mass;
+		centerXs[node] += mass*x;
+		centerYs[node] += mass*y;
+	}
+
+	/**
+	 * Return the quadrant of the given node, the given position lies in.
+	 */
+	private int quadrant(int node, double x, double y) {
+		return ((x < squareXs[node]) ? 0 : 1) + ((y < squareYs[node]) ? 0 : 2);
+	}
+
+	/**
+	 * Create an empty child of the given node in the given quadrant, and return its index.
+	 */
+	private int newChild(int node, int quadrant) {
+		double half = halfSizes[node]/2;
+		int child = newNode(squareXs[node] + (((quadrant & 1) == 0) ? -half : half),
+				squareYs[node] + (((quadrant & 2) == 0) ? -half : half), half);
+		children[4*node + quadrant] = child;
+		return child;
+	}
+
+	/**
+	 * Create an empty leaf, covering the square with given center and half size, and return
+	 * its index.
+	 */
+	private int newNode(double x, double y, double half) {
+		if (nbNodes == masses.length)
+			growNodes();
+		int node = nbNodes++;
+		squareXs[node] = x;
+		squareYs[node] = y;
+		halfSizes[node] = half;
+		masses[node] = 0;
+		centerXs[node] = 0;
+		centerYs[node] = 0;
+		leaves[node] = true;
+		for (int quadrant = 0; quadrant < 4; quadrant++)
+			children[4*node + quadrant] = -1;
+		return node;
+	}
+
+	/**
+	 * Sum the acceleration of the given entity over the tree of this field, and register it
+	 * in that entity.
+	 */
+	private void accelerate(Entity entity) {
+		double x = entity.getXPosition(), y = entity.getYPosition();
+		double ax = 0, ay = 0;
+		double threshold = openingAngle*openingAngle;
+		int top = 0;
+		if (nbNodes > 0)
+			stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			double dx = world.getSeparationX(centerXs[node] - x);
+			double dy = world.getSeparationY(centerYs[node] - y);
+			double distance2 = dx*dx + dy*dy;
+			double size = 2*halfSizes[node];
+			if (leaves[node] || (size*size < threshold*distance2)) {
+				if (distance2 > 0) {
+					double factor = gravitationalConstant*masses[node]/(distance2*Math.sqrt(distance2));
+					ax += factor*dx;
+					ay += factor*dy;
+				}
+			}
+			else {
+				for (int quadrant = 0; quadrant < 4; quadrant++) {
+					int child = children[4*node + quadrant];
+					if (child >= 0)
+						stack[top++] = child;
+				}
+			}
+		}
+		entity.setGravity(ax, ay);
+	}
+
+	/**
+	 * Make room in this field for twice as many bodies.
+	 */
+	private void growBodies() {
+		int capacity = 2*bodyXs.length;
+		bodyXs = Arrays.copyOf(bodyXs, capacity);
+		bodyYs = Arrays.copyOf(bodyYs, capacity);
+		bodyMasses = Arrays.copyOf(bodyMasses, capacity);
+	}
+
+	/**
+	 * Make room in this field for twice as many nodes.
+	 */
+	private void growNodes() {
+		int capacity = 2*masses.length;
+		masses = Arrays.copyOf(masses, capacity);
+		centerXs = Arrays.copyOf(centerXs, capacity);
+		centerYs = Arrays.copyOf(centerYs, capacity);
+		squareXs = Arrays.copyOf(squareXs, capacity);
+		squareYs = Arrays.copyOf(squareYs, capacity);
+		halfSizes = Arrays.copyOf(halfSizes, capacity);
+		leaves = Arrays.copyOf(leaves, capacity);
+		children = Arrays.copyOf(children, 4*capacity);
+	}
+
+	/**
+	 * A variable registering the world of this field.
+	 */
+	private final World world;
+
+	/**
+	 * A variable registering the gravitational constant of this field.
+	 */
+	private final double gravitationalConstant;
+
+	/**
+	 * A variable registering the opening angle of this field.
+	 */
+	private double openingAngle;
+
+	/**
+	 * Variables registering the number of minor planets in the tree, and their position and mass.
+	 */
+	private int nbBodies = 0;
+	private double[] bodyXs = new double[16];
+	private double[] bodyYs = new double[16];
+	private double[] bodyMasses = new double[16];
+
+	/**
+	 * Variables registering the number of nodes in the tree, and for each node its total mass,
+	 * its center of mass, the center and half size of its square, whether it is a leaf, and
+	 * the indices of its four children, -1 for an absent child.
+	 */
+	private int nbNodes = 0;
+	private double[] masses = new double[32];
+	private double[] centerXs = new double[32];
+	private double[] centerYs = new double[32];
+	private double[] squareXs = new double[32];
+	private double[] squareYs = new double[32];
+	private double[] halfSizes = new double[32];
+	private boolean[] leaves = new boolean[32];
+	private int[] children = new int[4*32];
+
+	/**
+	 * A variable registering the nodes that remain to be visited while summing an acceleration.
+	 */
+	private final int[] stack = new int[3*MAX_DEPTH + 4];
+
+	/**
+	 * A variable registering the depth, below which minor planets are no longer separated,
+	 * but share a leaf.
+	 */
+	private static final int MAX_DEPTH = 48;
+
+	/**
+	 * A variable registering the smallest half size of the square of the root.
+	 */
+	private static final double MIN_HALF_SIZE = 1;
+
+	/**
+	 * A variable registering the standard opening angle of a field.
+	 */
+	public static final double STANDARD_OPENING_ANGLE = 0.5;
+
+	/**
+	 * A variable registering the gravitational constant of Newton, in cubic kilometres per
+	 * kilogram per square second.
+	 */
+	public static final double GRAVITATIONAL_CONSTANT = 6.674e-20;
+
+}
@@ -0,0 +1,63 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.GravityField;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class GravityFieldTest {
+
+	private static final double EPSILON = 0.0001;
+
+	World world;
+	Ship ship;
+	Planetoid planetoid;
+
+	@Before
+	public void setUp() {
+		world = new World(1000,1000);
+		ship = new Ship(100,500,0,0,10,0,100);
+		planetoid = new Planetoid(500,500,0,0,50,0);
+		world.addEntity(ship);
+		world.addEntity(planetoid);
+	}
+
+	@Test
+	public void testEvolve_CaseShipNextToPlanetoid() throws IllegalWorldException {
+		new GravityField(world, 0, 100*400*400/planetoid.getMass());
+		world.evolve(0.1);
+		assertEquals(10, ship.getXVelocity(), EPSILON);
+		assertEquals(0, ship.getYVelocity(), EPSILON);
+		assertEquals(100, ship.getXPosition(), EPSILON);
+		world.evolve(0.1);
+		assertEquals(20, ship.getXVelocity(), EPSILON);
+		assertEquals(101, ship.getXPosition(), EPSILON);
+		world.evolve(0.1);
+		assertEquals(100*Math.pow(400/399.0, 2), ship.getGravityX(), EPSILON);
+		assertEquals(0, planetoid.getXVelocity(), 0);
+	}
+
+	@Test
+	public void testEvolve_CaseBalancedPlanetoids() throws IllegalWorldException {
+		world.addEntity(new Planetoid(100,100,0,0,50,0));
+		world.addEntity(new Planetoid(100,900,0,0,50,0));
+		new GravityField(world, 0, 1);
+		world.evolve(0.1);
+		assertEquals(0, ship.getYVelocity(), EPSILON);
+		assert ship.getXVelocity() > 0;
+	}
+
+	@Test
+	public void testEvolve_CaseNoField() throws IllegalWorldException {
+		world.evolve(0.1);
+		assert ship.getXVelocity()==0;
+		assert ship.getYVelocity()==0;
+	}
+
+}
@@ -0,0 +1,36 @@
+package asteroids.model.exceptions;
+
+/**
+ * A class of exceptions signaling that a replay does not match the journal it replays.
+ */
+public class IllegalReplayException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Initialize this new illegal replay exception with given record.
+	 *
+	 * @param 	record
+	 * 			The index of the first record of the journal that is not matched.
+	 * @post	The record of this new illegal replay exception is the given record.
+	 * 			| new.getRecord() == record
+	 * @effect	This new illegal replay exception is further initialized as a new runtime
+	 * 			exception involving no diagnostic message and no cause.
+	 * 			| super()
+	 */
+	public IllegalReplayException(long record) {
+		this.record = record;
+	}
+
+	/**
+	 * Return the index of the first record of the journal that is not matched.
+	 */
+	public long getRecord() {
+		return this.record;
+	}
+
+	/**
+	 * A variable registering the record of this illegal replay exception.
+	 */
+	private final long record;
+}
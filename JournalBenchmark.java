@@ -0,0 +1,101 @@
+package asteroids.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.EventJournal;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.model.exceptions.IllegalWorldException;
+
+/**
+ * A benchmark of the evolution of a world with and without an event journal attached to it.
+ * The overhead of journaling is the difference between both settings of journaled, and should
+ * stay below five percent of the evolution without a journal.
+ *
+ * The journal writes segments of the standard size, with checkpoints at the standard interval,
+ * in a temporary directory that is removed after the trial. The world is restored to its initial
+ * state before each iteration, which the journal does not register; it is never replayed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+	@Param({"1000", "10000"})
+	public int nbEntities;
+
+	@Param({"false", "true"})
+	public boolean journaled;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		world = BenchmarkWorlds.create(nbEntities, BenchmarkWorlds.Layout.UNIFORM, SEED);
+		if (journaled) {
+			directory = Files.createTempDirectory("journal");
+			journal = new EventJournal(directory);
+			world.setJournal(journal);
+		}
+		initial = world.snapshot();
+	}
+
+	@Setup(Level.Iteration)
+	public void restore() throws IllegalWorldException {
+		world.restore(initial);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		if (journal != null) {
+			journal.close();
+			try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+				for (Path segment: segments)
+					Files.delete(segment);
+			}
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	@Benchmark
+	public World evolve() throws IllegalWorldException {
+		try {
+			world.evolve(STEP);
+		}
+		catch (RuntimeException exc) {
+			// The world keeps the state it reached, and the next step goes on from there.
+		}
+		return world;
+	}
+
+	private World world;
+	private WorldSnapshot initial;
+	private EventJournal journal;
+	private Path directory;
+
+	/**
+	 * Variables registering the seed of the generated world, and the duration of a step.
+	 */
+	private static final long SEED = 42;
+	private static final double STEP = 1/30.;
+
+}
@@ -0,0 +1,359 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import asteroids.model.exceptions.IllegalBulletException;
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalEntityException;
+import asteroids.model.exceptions.IllegalOrientationException;
+import asteroids.model.exceptions.IllegalPositionException;
+import asteroids.model.exceptions.IllegalRadiusException;
+import asteroids.model.exceptions.IllegalReplayException;
+import asteroids.model.exceptions.IllegalShipException;
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of journal replayers, reconstructing a world from its initial state and the
+ * event journal that was written while it evolved.
+ *
+ * Only the first record of each series of records is replayed: the evolution, input or
+ * spawn it registers is performed again on the world. While doing so, the world writes its
+ * own records in a journal in memory, and these must match the records that follow in the
+ * journal on disk, bit for bit. This verifies every caused event and every checkpoint, so a
+ * replay stops at the first record where the reconstructed world diverges. A replayed event
+ * may only fail if the world registered its failure, for the failure record must then match
+ * the failure of the original event.
+ *
+ * A journal can only be replayed from the state its world was in when the journal was
+ * attached to it, typically captured in a snapshot right after attaching it.
+ */
+public class JournalReplayer {
+
+	/**
+	 * Initialize this new journal replayer for the journal in the given directory.
+	 *
+	 * @param 	directory
+	 * 			The directory of the journal to replay.
+	 * @post	| new.getDirectory() == directory
+	 */
+	public JournalReplayer(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Return the directory of the journal, replayed by this replayer.
+	 */
+	@Basic
+	public Path getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Return the number of records, matched by the last replay of this replayer.
+	 */
+	@Basic
+	public long getNbRecords() {
+		return this.nbRecords;
+	}
+
+	/**
+	 * Return the number of checkpoint records, verified by the last replay of this replayer.
+	 */
+	@Basic
+	public long getNbCheckpoints() {
+		return this.nbCheckpoints;
+	}
+
+	/**
+	 * Restore the given world to the given initial snapshot, and replay the journal of this
+	 * replayer on it.
+	 *
+	 * @effect	| world.restore(initial)
+	 * @effect	| replay(world)
+	 */
+	public long replay(World world, WorldSnapshot initial)
+			throws IOException, IllegalWorldException, IllegalReplayException {
+		world.restore(initial);
+		return replay(world);
+	}
+
+	/**
+	 * Replay the journal of this replayer on the given world, which must be in the state its
+	 * world was in when the journal was started.
+	 *
+	 * @param 	world
+	 * 			The world to replay the journal on.
+	 * @return	The number of evolutions, replayed.
+	 * @post	The journal of the given world is left unchanged.
+	 * 			| new.getJournal() == world.getJournal()
+	 * @throws	IOException
+	 * 			A segment of the journal could not be read.
+	 * @throws	IllegalReplayException
+	 * 			The given world diverges from the journal, or the journal is corrupt.
+	 */
+	public long replay(World world) throws IOException, IllegalReplayException {
+		nbRecords = 0;
+		nbCheckpoints = 0;
+		segmentIndex = 0;
+		segment = null;
+		entities.clear();
+		if (! hasRecord())
+			return 0;
+		EventJournal previous = world.getJournal();
+		EventJournal shadow = new EventJournal(checkpointInterval);
+		world.setJournal(shadow);
+		long nbTicks = 0;
+		try {
+			indexEntities(world);
+			while (hasRecord()) {
+				int type = segment.getInt(segment.position());
+				int aux = segment.getInt(segment.position()+4);
+				try {
+					apply(world, type, aux);
+				}
+				catch (IllegalEntityException | IllegalPositionException | IllegalBulletException |
+						IllegalShipException | IllegalDurationException | IllegalRadiusException |
+						IllegalOrientationException | IllegalWorldException exc) {
+					if (! endsWithFailure(shadow.getBuffer()))
+						throw new IllegalReplayException(nbRecords);
+				}
+				if (type == EventJournal.EVOLVE)
+					nbTicks++;
+				ByteBuffer emitted = shadow.getBuffer();
+				int count = emitted.position() / EventJournal.RECORD_SIZE;
+				if ((type == EventJournal.SPAWN)&&((aux & EventJournal.DETACHED) != 0)) {
+					if (count != 0)
+						throw new IllegalReplayException(nbRecords);
+					next();
+				}
+				else if (count == 0)
+					throw new IllegalReplayException(nbRecords);
+				for (int index = 0; index < count; index++) {
+					if (! hasRecord())
+						throw new IllegalReplayException(nbRecords);
+					if (! matches(emitted, index * EventJournal.RECORD_SIZE))
+						throw new IllegalReplayException(nbRecords);
+					if (segment.getInt(segment.position()) == EventJournal.CHECKPOINT)
+						nbCheckpoints++;
+					next();
+				}
+				emitted.clear();
+			}
+		}
+		finally {
+			world.setJournal(previous);
+		}
+		return nbTicks;
+	}
+
+	/**
+	 * Perform the event, registered in the current record, on the given world.
+	 */
+	private void apply(World world, int type, int aux) throws IllegalWorldException {
+		switch (type) {
+		case EventJournal.EVOLVE:
+			world.evolve(getDouble(1));
+			break;
+		case EventJournal.SPAWN:
+			spawn(world, aux);
+			break;
+		case EventJournal.ADD:
+			world.addEntity(getEntity(world, 0));
+			break;
+		case EventJournal.REMOVE:
+			world.removeEntity(getEntity(world, 0));
+			break;
+		case EventJournal.FIRE:
+			((Ship) getEntity(world, 0)).fireBullet();
+			break;
+		case EventJournal.LOAD:
+			((Ship) getEntity(world, 0)).loadBullet((Bullet) getEntity(world, 1));
+			break;
+		case EventJournal.TURN:
+			((Ship) getEntity(world, 0)).turn(getDouble(1));
+			break;
+		case EventJournal.THRUST:
+			if (aux != 0)
+				((Ship) getEntity(world, 0)).thrustOn();
+			else
+				((Ship) getEntity(world, 0)).thrustOff();
+			break;
+		case EventJournal.COLLISION:
+			getEntity(world, 0).collide(getEntity(world, 1));
+			break;
+		case EventJournal.BOUNDARY:
+			getEntity(world, 0).collideBoundary();
+			break;
+		case EventJournal.TERMINATE:
+			getEntity(world, 0).terminate();
+			break;
+		default:
+			throw new IllegalReplayException(nbRecords);
+		}
+	}
+
+	/**
+	 * Construct the entity, registered in the current spawn record, and locate it in the given
+	 * world, unless it is detached.
+	 */
+	private void spawn(World world, int aux) {
+		double xpos = getDouble(0), ypos = getDouble(1);
+		double xvel = getDouble(2), yvel = getDouble(3), radius = getDouble(4);
+		Entity entity;
+		switch (aux & ~EventJournal.DETACHED) {
+		case EventJournal.SHIP:
+			entity = new Ship(xpos, ypos, xvel, yvel, radius, getDouble(5), getDouble(6));
+			break;
+		case EventJournal.BULLET:
+			entity = new Bullet(xpos, ypos, xvel, yvel, radius);
+			break;
+		case EventJournal.PLANETOID:
+			entity = new Planetoid(xpos, ypos, xvel, yvel, radius, 0);
+			((Planetoid) entity).setTotalDistance(getDouble(5));
+			break;
+		case EventJournal.ASTEROID:
+			entity = new Asteroid(xpos, ypos, xvel, yvel, radius);
+			break;
+		default:
+			throw new IllegalReplayException(nbRecords);
+		}
+		if ((aux & EventJournal.DETACHED) != 0)
+			world.assignId(entity);
+		else
+			world.addEntity(entity);
+		if (entity.getId() != 0)
+			entities.put(entity.getId(), entity);
+	}
+
+	/**
+	 * Return the entity, whose identifier is registered in the given slot of the current record.
+	 */
+	private Entity getEntity(World world, int slot) {
+		long id = getLong(slot);
+		Entity entity = entities.get(id);
+		if (entity == null) {
+			indexEntities(world);
+			entity = entities.get(id);
+			if (entity == null)
+				throw new IllegalReplayException(nbRecords);
+		}
+		return entity;
+	}
+
+	/**
+	 * Register the entities in the given world and the bullets loaded on its ships by their
+	 * identifiers.
+	 */
+	private void indexEntities(World world) {
+		for (Entity entity: world.getEntities().keySet()) {
+			entities.put(entity.getId(), entity);
+			if (entity instanceof Ship)
+				for (Bullet bullet: ((Ship) entity).getBullets())
+					entities.put(bullet.getId(), bullet);
+		}
+	}
+
+	/**
+	 * Return the given slot of the current record.
+	 */
+	private long getLong(int slot) {
+		return segment.getLong(segment.position() + 8 + 8*slot);
+	}
+
+	/**
+	 * Return the given slot of the current record, as a double.
+	 */
+	private double getDouble(int slot) {
+		return Double.longBitsToDouble(getLong(slot));
+	}
+
+	/**
+	 * Return whether the record at the given offset in the given buffer is equal to the
+	 * current record.
+	 */
+	private boolean matches(ByteBuffer buffer, int offset) {
+		int position = segment.position();
+		for (int index = 0; index < EventJournal.RECORD_SIZE; index += 8) {
+			if (buffer.getLong(offset + index) != segment.getLong(position + index))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return whether the last record, written in the given buffer, registers a failure.
+	 */
+	private static boolean endsWithFailure(ByteBuffer buffer) {
+		return (buffer.position() >= EventJournal.RECORD_SIZE)&&
+				(buffer.getInt(buffer.position() - EventJournal.RECORD_SIZE) == EventJournal.FAILURE);
+	}
+
+	/**
+	 * Return whether the journal has a current record, opening the next segment if needed.
+	 */
+	private boolean hasRecord() throws IOException {
+		while ((segment == null)||(segment.remaining() < EventJournal.RECORD_SIZE)||
+				(segment.getInt(segment.position()) == EventJournal.END)) {
+			if ((segment != null)&&(segment.remaining() >= EventJournal.RECORD_SIZE))
+				return false;
+			Path file = directory.resolve(EventJournal.getSegmentName(segmentIndex));
+			if (! Files.exists(file))
+				return false;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if ((segment.remaining() < EventJournal.RECORD_SIZE)||
+					(segment.getInt(0) != EventJournal.HEADER)||
+					(segment.getInt(4) != EventJournal.VERSION)||
+					(getLong(0) != EventJournal.MAGIC)||(getLong(1) != segmentIndex)||
+					(getLong(2) != EventJournal.RECORD_SIZE))
+				throw new IllegalReplayException(nbRecords);
+			if (segmentIndex == 0)
+				checkpointInterval = (int) getLong(4);
+			segmentIndex++;
+			segment.position(EventJournal.RECORD_SIZE);
+		}
+		return true;
+	}
+
+	/**
+	 * Move on to the next record of the journal.
+	 */
+	private void next() {
+		segment.position(segment.position() + EventJournal.RECORD_SIZE);
+		nbRecords++;
+	}
+
+	/**
+	 * A variable registering the directory of the journal, replayed by this replayer.
+	 */
+	private final Path directory;
+
+	/**
+	 * Variables registering the number of matched records and verified checkpoint records.
+	 */
+	private long nbRecords = 0;
+	private long nbCheckpoints = 0;
+
+	/**
+	 * Variables registering the current segment, the index of the next segment to open and
+	 * the checkpoint interval of the journal.
+	 */
+	private ByteBuffer segment = null;
+	private int segmentIndex = 0;
+	private int checkpointInterval = 0;
+
+	/**
+	 * A variable registering the replayed entities by their identifiers.
+	 */
+	private final Map<Long,Entity> entities = new HashMap<Long,Entity>();
+
+}
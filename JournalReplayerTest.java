@@ -0,0 +1,192 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.EventJournal;
+import asteroids.model.JournalReplayer;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.model.exceptions.IllegalBulletException;
+import asteroids.model.exceptions.IllegalReplayException;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class JournalReplayerTest {
+
+	Path directory;
+	World world;
+	Ship ship;
+	Asteroid asteroid;
+	EventJournal journal;
+	WorldSnapshot initial;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("journal");
+		world = new World(1000,1000);
+		ship = new Ship(100,100,10,0,20,0,100);
+		asteroid = new Asteroid(500,500,-20,5,30);
+		world.addEntity(ship);
+		world.addEntity(asteroid);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (journal != null)
+			journal.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Object file: files.sorted(Comparator.reverseOrder()).toArray())
+				Files.delete((Path) file);
+		}
+	}
+
+	@Test
+	public void testReplay_CaseRoundTrip() throws IOException, IllegalWorldException {
+		play(1 << 16);
+		double x = ship.getXPosition(), y = ship.getYPosition();
+		double asteroidX = asteroid.getXPosition(), asteroidVY = asteroid.getYVelocity();
+		JournalReplayer replayer = new JournalReplayer(directory);
+		assertEquals(20, replayer.replay(world, initial));
+		assertEquals(journal.getNbRecords(), replayer.getNbRecords());
+		assertEquals(4, replayer.getNbCheckpoints()/world.getEntities().size());
+		assert ship.getXPosition()==x;
+		assert ship.getYPosition()==y;
+		assert asteroid.getXPosition()==asteroidX;
+		assert asteroid.getYVelocity()==asteroidVY;
+		assert world.getJournal()==journal;
+	}
+
+	@Test
+	public void testReplay_CaseSegmentRollover() throws IOException, IllegalWorldException {
+		play(4*EventJournal.RECORD_SIZE);
+		assert journal.getNbSegments()>1;
+		assertEquals(4*EventJournal.RECORD_SIZE, journal.getSegmentSize());
+		for (int index = 0; index < journal.getNbSegments(); index++)
+			assert Files.size(getSegment(index))==journal.getSegmentSize();
+		assert ! Files.exists(getSegment(journal.getNbSegments()));
+		JournalReplayer replayer = new JournalReplayer(directory);
+		assertEquals(20, replayer.replay(world, initial));
+		assertEquals(journal.getNbRecords(), replayer.getNbRecords());
+	}
+
+	@Test(expected = IllegalReplayException.class)
+	public void testReplay_IllegalCaseTruncatedSegment() throws IOException, IllegalWorldException {
+		play(4*EventJournal.RECORD_SIZE);
+		byte[] bytes = Files.readAllBytes(getSegment(1));
+		Files.write(getSegment(1), Arrays.copyOf(bytes, EventJournal.RECORD_SIZE/2));
+		new JournalReplayer(directory).replay(world, initial);
+	}
+
+	@Test
+	public void testReplay_IllegalCaseCorruptSegment() throws IOException, IllegalWorldException {
+		play(1 << 16);
+		byte[] bytes = Files.readAllBytes(getSegment(0));
+		bytes[EventJournal.RECORD_SIZE] ^= 0x40;
+		Files.write(getSegment(0), bytes);
+		try {
+			new JournalReplayer(directory).replay(world, initial);
+			assert false;
+		}
+		catch (IllegalReplayException exc) {
+			assertEquals(0, exc.getRecord());
+		}
+	}
+
+	@Test
+	public void testReplay_IllegalCaseDivergingWorld() throws IOException, IllegalWorldException {
+		play(1 << 16);
+		world.restore(initial);
+		asteroid.setVelocity(-21, 5);
+		JournalReplayer replayer = new JournalReplayer(directory);
+		try {
+			replayer.replay(world);
+			assert false;
+		}
+		catch (IllegalReplayException exc) {
+			assert exc.getRecord()>0;
+			assert exc.getRecord()<journal.getNbRecords();
+			assertEquals(replayer.getNbRecords(), exc.getRecord());
+		}
+	}
+
+	@Test
+	public void testReplay_CaseFailure() throws IOException, IllegalWorldException {
+		journal = new EventJournal(directory, 1 << 16, 5);
+		world.setJournal(journal);
+		initial = world.snapshot();
+		try {
+			ship.loadBullet(new Bullet(800,800,0,0,5));
+			assert false;
+		}
+		catch (IllegalBulletException exc) {
+		}
+		world.evolve(0.5);
+		journal.close();
+		assertEquals(1, count(FAILURE));
+		double x = asteroid.getXPosition();
+		JournalReplayer replayer = new JournalReplayer(directory);
+		assertEquals(1, replayer.replay(world, initial));
+		assertEquals(journal.getNbRecords(), replayer.getNbRecords());
+		assert asteroid.getXPosition()==x;
+	}
+
+	/**
+	 * Attach a journal with segments of the given size and checkpoints every five evolutions to
+	 * the world, and play a match of twenty evolutions with inputs of the ship on it.
+	 */
+	private void play(int segmentSize) throws IOException, IllegalWorldException {
+		journal = new EventJournal(directory, segmentSize, 5);
+		world.setJournal(journal);
+		initial = world.snapshot();
+		ship.loadBullet(new Bullet(100,100,0,0,5));
+		for (int tick = 0; tick < 20; tick++) {
+			world.evolve(0.5);
+			if (tick == 3)
+				ship.fireBullet();
+			if (tick == 5)
+				ship.turn(1);
+			if (tick == 8)
+				ship.thrustOn();
+		}
+		journal.close();
+	}
+
+	/**
+	 * Return the file of the segment of the journal with the given index.
+	 */
+	private Path getSegment(int index) {
+		return directory.resolve(String.format("segment-%08d.journal", index));
+	}
+
+	/**
+	 * Return the number of records of the given type in the first segment of the journal.
+	 */
+	private int count(int type) throws IOException {
+		ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(getSegment(0)));
+		int count = 0;
+		for (int offset = 0; offset < segment.capacity(); offset += EventJournal.RECORD_SIZE)
+			if (segment.getInt(offset) == type)
+				count++;
+		return count;
+	}
+
+	/**
+	 * A variable registering the type of the records in a journal, registering a failure.
+	 */
+	private static final int FAILURE = 14;
+
+}
@@ -0,0 +1,129 @@
+package asteroids.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of latency histograms, registering durations in nanoseconds.
+ *
+ * Durations are counted in buckets whose bounds are consecutive powers of two, so
+ * recording never allocates and percentiles are accurate up to a factor of two.
+ * Several threads may record into a histogram at the same time. A reading, taken while
+ * durations are being recorded, may not include all of them.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Record the given duration in this histogram.
+	 *
+	 * @param 	nanos
+	 * 			The duration to record, in nanoseconds.
+	 * @post	The number of recorded durations is incremented by 1.
+	 * 			| new.getCount() == old.getCount() + 1
+	 * @post	Negative durations are recorded as zero.
+	 * 			| new.getMax() == Math.max(old.getMax(), Math.max(0, nanos))
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	/**
+	 * Return the number of durations recorded in this histogram.
+	 */
+	@Basic
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * Return the longest duration recorded in this histogram, in nanoseconds.
+	 */
+	@Basic
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * Return the mean of the durations recorded in this histogram, in nanoseconds.
+	 *
+	 * @return	| if (getCount() == 0)
+	 * 			| 	result == 0
+	 * 			| else
+	 * 			| 	result == (sum of all recorded durations) / getCount()
+	 */
+	public double getMean() {
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		return (double) total.sum() / count;
+	}
+
+	/**
+	 * Return an upper bound on the given percentile of the durations in this histogram.
+	 *
+	 * @param 	percentile
+	 * 			The percentile to look up, between 0 and 100.
+	 * @return	The upper bound of the first bucket at which the given percentage of
+	 * 			the recorded durations is reached, but no more than the longest recorded
+	 * 			duration. Zero if no durations are recorded.
+	 * 			| @see implementation
+	 */
+	public long getPercentile(double percentile) {
+		long count = getCount();
+		long max = getMax();
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count);
+		long seen = 0;
+		for (int bucket = 0; bucket < buckets.length(); bucket++) {
+			seen += buckets.get(bucket);
+			if ((seen >= rank)&&(seen > 0))
+				return Math.min(max, bucket == 0 ? 0 : (bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1));
+		}
+		return max;
+	}
+
+	/**
+	 * Reset this histogram.
+	 *
+	 * @post	| new.getCount() == 0
+	 * 			| new.getMax() == 0
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < buckets.length(); bucket++)
+			buckets.set(bucket, 0);
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	/**
+	 * A variable registering, for each power of two, the number of recorded durations
+	 * whose highest bit is that power.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(65);
+
+	/**
+	 * A variable registering the number of recorded durations.
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * A variable registering the sum of the recorded durations.
+	 */
+	private final LongAdder total = new LongAdder();
+
+	/**
+	 * A variable registering the longest recorded duration.
+	 */
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+}
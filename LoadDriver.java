@@ -0,0 +1,324 @@
+package asteroids.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import asteroids.model.CollisionEventQueue;
+import asteroids.model.Entity;
+import asteroids.model.LatencyHistogram;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.exceptions.IllegalWorldException;
+
+/**
+ * A headless load driver, evolving a world of a load scenario in a fixed-step loop as fast as it
+ * can, and reporting what that costs.
+ *
+ * The driver is run from the command line with arguments of the form key=value, all optional:
+ * ships, asteroids, planetoids and bullets give the population of the scenario, layout is uniform
+ * or clustered, and seed is the seed it is generated from; step is the duration of a tick in
+ * seconds of game time; warmup and duration are the number of seconds of wall-clock time the
+ * driver runs before and while it measures; output is the file the summary is written to in JSON.
+ *
+ * On each tick, the program of every ship is executed for the duration of the tick, and then the
+ * world is evolved. The driver reports the number of ticks per second, the latency of a tick at
+ * the 50th, 99th and 99.9th percentile, the number of collision events per tick, the time spent
+ * in garbage collection and the allocation rate of the driving thread.
+ *
+ * A world in which entities are moved one after the other may refuse to move an entity into a
+ * position that overlaps an entity that has not been moved yet, and then no longer evolves. A tick
+ * in which the world fails to evolve is counted as a failure, and the world is generated anew from
+ * the scenario; the time that takes is not counted in the measurements. A program that fails is
+ * no longer executed.
+ */
+public class LoadDriver {
+
+	/**
+	 * Initialize this new load driver for the given scenario, evolving its world in ticks of the
+	 * given duration.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			The given scenario is null, or the given step is not a positive number.
+	 */
+	public LoadDriver(LoadScenario scenario, double step) throws IllegalArgumentException {
+		if ((scenario == null) || (! (step > 0)) || Double.isInfinite(step))
+			throw new IllegalArgumentException();
+		this.scenario = scenario;
+		this.step = step;
+		createWorld();
+	}
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new LinkedHashMap<String, String>(DEFAULTS);
+		for (String arg: args) {
+			int separator = arg.indexOf('=');
+			if ((separator < 0) || (! DEFAULTS.containsKey(arg.substring(0, separator)))) {
+				System.err.println("Unknown argument: " + arg);
+				System.err.println("Arguments (key=value): " + DEFAULTS);
+				System.exit(2);
+			}
+			options.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		LoadScenario scenario = new LoadScenario(Integer.parseInt(options.get("ships")),
+				Integer.parseInt(options.get("asteroids")), Integer.parseInt(options.get("planetoids")),
+				Integer.parseInt(options.get("bullets")),
+				BenchmarkWorlds.Layout.valueOf(options.get("layout").toUpperCase(Locale.ROOT)),
+				Long.parseLong(options.get("seed")));
+		LoadDriver driver = new LoadDriver(scenario, Double.parseDouble(options.get("step")));
+		driver.run(Double.parseDouble(options.get("warmup")), Double.parseDouble(options.get("duration")));
+		System.out.print(driver.getReport());
+		Files.write(Paths.get(options.get("output")), driver.getSummary().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Generate the world of the scenario of this driver anew.
+	 */
+	private void createWorld() {
+		world = scenario.create();
+		ships.clear();
+		for (Entity entity: world.getEntities().keySet())
+			if ((entity instanceof Ship) && (((Ship) entity).getProgram() != null))
+				ships.add((Ship) entity);
+		world.setCollisionQueue(events);
+	}
+
+	/**
+	 * Run ticks for the given number of seconds of wall-clock time without measuring them, and
+	 * then for the given duration while measuring them.
+	 */
+	public void run(double warmup, double duration) {
+		runFor(warmup);
+		latency.reset();
+		nbFailedTicks = 0;
+		nbProgramFailures = 0;
+		excluded = 0;
+		long published = getNbEvents();
+		long[] gc = getGarbageCollections();
+		long allocated = getAllocatedBytes();
+		long start = System.nanoTime();
+		nbTicks = runFor(duration);
+		elapsed = System.nanoTime() - start - excluded;
+		nbEvents = getNbEvents() - published;
+		long[] gcAfter = getGarbageCollections();
+		nbCollections = gcAfter[0] - gc[0];
+		collectionMillis = gcAfter[1] - gc[1];
+		allocatedBytes = (allocated < 0) ? -1 : getAllocatedBytes() - allocated;
+		events.shutdown();
+	}
+
+	/**
+	 * Run ticks for the given number of seconds of wall-clock time, and return the number of ticks run.
+	 * The time spent generating worlds anew does not count.
+	 */
+	private long runFor(double seconds) {
+		long end = System.nanoTime() + (long) (seconds*1e9);
+		long ticks = 0, paused = 0;
+		while (System.nanoTime() - paused < end) {
+			if (! tick()) {
+				long start = System.nanoTime();
+				createWorld();
+				paused += System.nanoTime() - start;
+			}
+			ticks++;
+		}
+		excluded += paused;
+		return ticks;
+	}
+
+	/**
+	 * Execute the programs of the ships for the duration of a tick, and evolve the world over it.
+	 * Return whether the world evolved.
+	 */
+	private boolean tick() {
+		long start = System.nanoTime();
+		for (int index = ships.size() - 1; index >= 0; index--) {
+			Ship ship = ships.get(index);
+			try {
+				if (ship.getWorld() == world)
+					ship.getProgram().execute(step);
+			}
+			catch (RuntimeException exc) {
+				ships.set(index, ships.get(ships.size() - 1));
+				ships.remove(ships.size() - 1);
+				nbProgramFailures++;
+			}
+		}
+		boolean evolved = true;
+		try {
+			world.evolve(step);
+		}
+		catch (RuntimeException | IllegalWorldException exc) {
+			nbFailedTicks++;
+			evolved = false;
+		}
+		latency.record(System.nanoTime() - start);
+		return evolved;
+	}
+
+	/**
+	 * Return the number of collision events published so far, including those that were dropped.
+	 */
+	private long getNbEvents() {
+		return events.getNbPublished() + events.getNbOverflows();
+	}
+
+	/**
+	 * Return the number of garbage collections so far, and the time they took in milliseconds.
+	 */
+	private static long[] getGarbageCollections() {
+		long[] result = new long[2];
+		for (GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+			result[0] += Math.max(0, collector.getCollectionCount());
+			result[1] += Math.max(0, collector.getCollectionTime());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of bytes, allocated by the current thread so far. -1 if the virtual
+	 * machine does not measure allocation.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (! (threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Return the measured number of ticks per second of wall-clock time.
+	 */
+	public double getTicksPerSecond() {
+		return (elapsed == 0) ? 0 : nbTicks/(elapsed/1e9);
+	}
+
+	/**
+	 * Return the measured number of collision events per tick.
+	 */
+	public double getEventsPerTick() {
+		return (nbTicks == 0) ? 0 : (double) nbEvents/nbTicks;
+	}
+
+	/**
+	 * Return the measured number of bytes allocated per second. -1 if the virtual machine does not
+	 * measure allocation.
+	 */
+	public double getAllocationRate() {
+		if (allocatedBytes < 0)
+			return -1;
+		return (elapsed == 0) ? 0 : allocatedBytes/(elapsed/1e9);
+	}
+
+	/**
+	 * Return a readable report of the measurements.
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "scenario     %d ships, %d asteroids, %d planetoids, %d bullets, %s, seed %d%n",
+				scenario.getNbShips(), scenario.getNbAsteroids(), scenario.getNbPlanetoids(), scenario.getNbBullets(),
+				scenario.getLayout(), scenario.getSeed()));
+		report.append(String.format(Locale.ROOT, "ticks        %d in %.1f s, %.1f per second, %.2fx real time%n",
+				nbTicks, elapsed/1e9, getTicksPerSecond(), getTicksPerSecond()*step));
+		report.append(String.format(Locale.ROOT, "latency      p50 %.1f us, p99 %.1f us, p999 %.1f us, max %.1f us%n",
+				latency.getPercentile(50)/1e3, latency.getPercentile(99)/1e3, latency.getPercentile(99.9)/1e3,
+				latency.getMax()/1e3));
+		report.append(String.format(Locale.ROOT, "events       %.2f per tick%n", getEventsPerTick()));
+		report.append(String.format(Locale.ROOT, "gc           %d collections, %d ms%n", nbCollections, collectionMillis));
+		report.append(String.format(Locale.ROOT, "allocation   %.1f MB/s%n", getAllocationRate()/1e6));
+		report.append(String.format(Locale.ROOT, "failures     %d ticks, %d programs%n", nbFailedTicks, nbProgramFailures));
+		return report.toString();
+	}
+
+	/**
+	 * Return a summary of the measurements in JSON.
+	 */
+	public String getSummary() {
+		return String.format(Locale.ROOT, "{\n"
+				+ "  \"scenario\": {\"ships\": %d, \"asteroids\": %d, \"planetoids\": %d, \"bullets\": %d, "
+				+ "\"layout\": \"%s\", \"seed\": %d, \"step\": %s},\n"
+				+ "  \"ticks\": %d,\n"
+				+ "  \"seconds\": %s,\n"
+				+ "  \"ticksPerSecond\": %s,\n"
+				+ "  \"latencyNanos\": {\"p50\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d, \"mean\": %s},\n"
+				+ "  \"eventsPerTick\": %s,\n"
+				+ "  \"gc\": {\"collections\": %d, \"millis\": %d},\n"
+				+ "  \"allocationBytesPerSecond\": %s,\n"
+				+ "  \"failedTicks\": %d,\n"
+				+ "  \"failedPrograms\": %d,\n"
+				+ "  \"entities\": %d\n"
+				+ "}\n",
+				scenario.getNbShips(), scenario.getNbAsteroids(), scenario.getNbPlanetoids(), scenario.getNbBullets(),
+				scenario.getLayout(), scenario.getSeed(), step, nbTicks, elapsed/1e9, getTicksPerSecond(),
+				latency.getPercentile(50), latency.getPercentile(99), latency.getPercentile(99.9), latency.getMax(),
+				latency.getMean(), getEventsPerTick(), nbCollections, collectionMillis, getAllocationRate(),
+				nbFailedTicks, nbProgramFailures, world.getEntities().size());
+	}
+
+	/**
+	 * Variables registering the scenario of this driver, its world and the duration of a tick.
+	 */
+	private final LoadScenario scenario;
+	private World world;
+	private final double step;
+
+	/**
+	 * A variable registering the ships whose programs are executed on each tick.
+	 */
+	private final List<Ship> ships = new ArrayList<Ship>();
+
+	/**
+	 * A variable registering the queue, the collisions in the world of this driver are published in.
+	 */
+	private final CollisionEventQueue events = new CollisionEventQueue();
+
+	/**
+	 * A variable registering the latencies of the ticks.
+	 */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Variables registering the measurements of the last run.
+	 */
+	private long nbTicks;
+	private long elapsed;
+	private long nbEvents;
+	private long nbCollections;
+	private long collectionMillis;
+	private long allocatedBytes;
+	private long nbFailedTicks;
+	private long nbProgramFailures;
+
+	/**
+	 * A variable registering the time spent generating worlds anew during the current run, in nanoseconds.
+	 */
+	private long excluded;
+
+	/**
+	 * A variable registering the arguments of the driver, with their default values.
+	 */
+	private static final Map<String, String> DEFAULTS = new LinkedHashMap<String, String>();
+
+	static {
+		DEFAULTS.put("ships", "20");
+		DEFAULTS.put("asteroids", "400");
+		DEFAULTS.put("planetoids", "50");
+		DEFAULTS.put("bullets", "100");
+		DEFAULTS.put("layout", "uniform");
+		DEFAULTS.put("seed", "42");
+		DEFAULTS.put("step", "0.016666666666666666");
+		DEFAULTS.put("warmup", "5");
+		DEFAULTS.put("duration", "30");
+		DEFAULTS.put("output", "load.json");
+	}
+
+}
@@ -0,0 +1,288 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.programs.ProgramFactory;
+import asteroids.model.programs.ProgramFunction;
+import asteroids.model.programs.statements.ProgramStatement;
+
+/**
+ * A class of load scenarios, describing the population of a world to be put under load: a number
+ * of ships, each running a program and carrying bullets to fire, of asteroids, of planetoids, and
+ * of free bullets flying at high speed. The ships hold their position, and the other entities
+ * move in random directions.
+ *
+ * The world of a scenario is generated from its seed, so the same scenario always produces the
+ * same world. Its size grows with the number of entities, so that the average density is the
+ * same for every scenario. In a uniform layout, the entities are spread over the whole world; in
+ * a clustered layout, they are packed in groups of a hundred, each in a region of its own.
+ */
+public class LoadScenario {
+
+	/**
+	 * Initialize this new load scenario with given population, layout and seed.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			One of the given numbers is negative, or the given layout is null.
+	 */
+	public LoadScenario(int nbShips, int nbAsteroids, int nbPlanetoids, int nbBullets,
+			BenchmarkWorlds.Layout layout, long seed) throws IllegalArgumentException {
+		if ((nbShips < 0) || (nbAsteroids < 0) || (nbPlanetoids < 0) || (nbBullets < 0) || (layout == null))
+			throw new IllegalArgumentException();
+		this.nbShips = nbShips;
+		this.nbAsteroids = nbAsteroids;
+		this.nbPlanetoids = nbPlanetoids;
+		this.nbBullets = nbBullets;
+		this.layout = layout;
+		this.seed = seed;
+	}
+
+	public int getNbShips() {
+		return this.nbShips;
+	}
+
+	public int getNbAsteroids() {
+		return this.nbAsteroids;
+	}
+
+	public int getNbPlanetoids() {
+		return this.nbPlanetoids;
+	}
+
+	public int getNbBullets() {
+		return this.nbBullets;
+	}
+
+	public BenchmarkWorlds.Layout getLayout() {
+		return this.layout;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * Return the total number of entities in a world of this scenario, not counting the bullets
+	 * loaded on its ships.
+	 */
+	public int getNbEntities() {
+		return nbShips + nbAsteroids + nbPlanetoids + nbBullets;
+	}
+
+	/**
+	 * Return the width and height of a world of this scenario.
+	 */
+	public double getSize() {
+		double size = Math.max(4, Math.ceil(Math.sqrt(getNbEntities())))*SPACING;
+		if (layout == BenchmarkWorlds.Layout.CLUSTERED) {
+			int nbClusters = (getNbEntities() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+			size = Math.max(size, Math.ceil(Math.sqrt(Math.max(1, nbClusters)))*getRegionSize());
+		}
+		return size;
+	}
+
+	/**
+	 * Return a new world of this scenario. Each ship in it runs a program of its own, and carries
+	 * BULLETS_PER_SHIP bullets.
+	 */
+	public World create() {
+		Random random = new Random(seed);
+		World world = new World(getSize(), getSize(), seed);
+		double[] positions = (layout == BenchmarkWorlds.Layout.UNIFORM)
+				? getUniformPositions(random) : getClusteredPositions(random);
+		List<Entity> entities = new ArrayList<Entity>(getNbEntities());
+		int index = 0;
+		for (int ship = 0; ship < nbShips; ship++, index++)
+			entities.add(createShip(positions[2*index], positions[2*index+1], random));
+		for (int asteroid = 0; asteroid < nbAsteroids; asteroid++, index++)
+			entities.add(new Asteroid(positions[2*index], positions[2*index+1],
+					randomSpeed(random), randomSpeed(random), ASTEROID_RADIUS));
+		for (int planetoid = 0; planetoid < nbPlanetoids; planetoid++, index++)
+			entities.add(new Planetoid(positions[2*index], positions[2*index+1],
+					randomSpeed(random), randomSpeed(random), PLANETOID_RADIUS, 0));
+		for (int bullet = 0; bullet < nbBullets; bullet++, index++) {
+			double angle = 2*Math.PI*random.nextDouble();
+			entities.add(new Bullet(positions[2*index], positions[2*index+1],
+					BULLET_SPEED*Math.cos(angle), BULLET_SPEED*Math.sin(angle), BULLET_RADIUS));
+		}
+		world.addEntities(entities);
+		return world;
+	}
+
+	/**
+	 * Return a new ship at rest at the given position, loaded with bullets and a program that
+	 * fires them. The ship faces a random direction, leaving room to turn by TURN_ANGLE.
+	 */
+	private static Ship createShip(double x, double y, Random random) {
+		double angle = (2*Math.PI - TURN_ANGLE)*random.nextDouble();
+		Ship ship = new Ship(x, y, 0, 0, SHIP_RADIUS, angle, 0);
+		List<Bullet> bullets = new ArrayList<Bullet>(BULLETS_PER_SHIP);
+		for (int bullet = 0; bullet < BULLETS_PER_SHIP; bullet++)
+			bullets.add(new Bullet(x, y, 0, 0, BULLET_RADIUS));
+		ship.loadBullet(bullets);
+		ship.setProgram(createProgram());
+		return ship;
+	}
+
+	/**
+	 * Return a new program, that repeats firing a bullet, turning by TURN_ANGLE, firing a bullet
+	 * and turning back, forever.
+	 *
+	 * The ships do not thrust: a ship moving in the direction it fires in is moved before the
+	 * bullet it just fired, and is refused a position that overlaps the bullet, which stalls the
+	 * evolution of the world.
+	 */
+	private static Program createProgram() {
+		ProgramStatement body = factory.createSequenceStatement(new ArrayList<ProgramStatement>(Arrays.asList(
+				factory.createFireStatement(null),
+				factory.createTurnStatement(factory.createDoubleLiteralExpression(TURN_ANGLE, null), null),
+				factory.createFireStatement(null),
+				factory.createTurnStatement(factory.createDoubleLiteralExpression(-TURN_ANGLE, null), null))), null);
+		ProgramStatement forever = factory.createWhileStatement(factory.createLessThanExpression(
+				factory.createDoubleLiteralExpression(0, null), factory.createDoubleLiteralExpression(1, null), null),
+				body, null);
+		return factory.createProgram(new ArrayList<ProgramFunction>(), forever);
+	}
+
+	/**
+	 * Return a random velocity component, not exceeding MAX_SPEED in absolute value.
+	 */
+	private static double randomSpeed(Random random) {
+		return (2*random.nextDouble() - 1)*MAX_SPEED;
+	}
+
+	/**
+	 * Return the positions of the entities of this scenario, spread over a world on a jittered grid.
+	 * The coordinates of each position are stored at consecutive indices.
+	 */
+	private double[] getUniformPositions(Random random) {
+		int side = (int) (getSize()/SPACING);
+		List<Integer> cells = new ArrayList<Integer>(side*side);
+		for (int cell = 0; cell < side*side; cell++)
+			cells.add(cell);
+		Collections.shuffle(cells, random);
+		double jitter = SPACING/2 - PLANETOID_RADIUS - 1;
+		double[] positions = new double[2*getNbEntities()];
+		for (int index = 0; index < getNbEntities(); index++) {
+			int cell = cells.get(index);
+			positions[2*index] = (cell % side + 0.5)*SPACING + (2*random.nextDouble() - 1)*jitter;
+			positions[2*index+1] = (cell / side + 0.5)*SPACING + (2*random.nextDouble() - 1)*jitter;
+		}
+		shuffle(positions, random);
+		return positions;
+	}
+
+	/**
+	 * Return the positions of the entities of this scenario, packed in clusters of CLUSTER_SIZE
+	 * entities, each placed in its own region of a world. The coordinates of each position are
+	 * stored at consecutive indices.
+	 */
+	private double[] getClusteredPositions(Random random) {
+		int clusterSide = (int) Math.ceil(Math.sqrt(CLUSTER_SIZE));
+		int regions = (int) (getSize()/getRegionSize());
+		List<Integer> order = new ArrayList<Integer>(regions*regions);
+		for (int region = 0; region < regions*regions; region++)
+			order.add(region);
+		Collections.shuffle(order, random);
+		double[] positions = new double[2*getNbEntities()];
+		for (int index = 0; index < getNbEntities(); index++) {
+			int region = order.get(index / CLUSTER_SIZE);
+			int member = index % CLUSTER_SIZE;
+			positions[2*index] = (region % regions)*getRegionSize() + (member % clusterSide + 0.5)*CLUSTER_SPACING;
+			positions[2*index+1] = (region / regions)*getRegionSize() + (member / clusterSide + 0.5)*CLUSTER_SPACING;
+		}
+		shuffle(positions, random);
+		return positions;
+	}
+
+	/**
+	 * Return the width and height of the region of a cluster.
+	 */
+	private static double getRegionSize() {
+		return Math.ceil(Math.sqrt(CLUSTER_SIZE))*CLUSTER_SPACING;
+	}
+
+	/**
+	 * Shuffle the positions, stored in the given array, so that the kinds of entities are mixed
+	 * over the grid and over the clusters.
+	 */
+	private static void shuffle(double[] positions, Random random) {
+		for (int index = positions.length/2 - 1; index > 0; index--) {
+			int other = random.nextInt(index + 1);
+			double x = positions[2*index], y = positions[2*index+1];
+			positions[2*index] = positions[2*other];
+			positions[2*index+1] = positions[2*other+1];
+			positions[2*other] = x;
+			positions[2*other+1] = y;
+		}
+	}
+
+	/**
+	 * Variables registering the population of this scenario.
+	 */
+	private final int nbShips;
+	private final int nbAsteroids;
+	private final int nbPlanetoids;
+	private final int nbBullets;
+
+	/**
+	 * A variable registering the layout of the entities of this scenario.
+	 */
+	private final BenchmarkWorlds.Layout layout;
+
+	/**
+	 * A variable registering the seed, the worlds of this scenario are generated from.
+	 */
+	private final long seed;
+
+	/**
+	 * A variable registering the factory the programs of the ships are built with.
+	 */
+	private static final ProgramFactory factory = new ProgramFactory();
+
+	/**
+	 * Variables registering the distance between neighbouring entities in a uniform layout and
+	 * in a cluster, and the number of entities in a cluster.
+	 */
+	private static final double SPACING = 100;
+	private static final double CLUSTER_SPACING = 64;
+	private static final int CLUSTER_SIZE = 100;
+
+	/**
+	 * Variables registering the radius of each kind of entity. A planetoid is large enough to
+	 * shatter into asteroids when it is destroyed.
+	 */
+	private static final double SHIP_RADIUS = 10;
+	private static final double ASTEROID_RADIUS = 8;
+	private static final double PLANETOID_RADIUS = 30;
+	private static final double BULLET_RADIUS = 2;
+
+	/**
+	 * Variables registering the highest speed of minor planets along each axis, and the
+	 * speed of a free bullet.
+	 */
+	private static final double MAX_SPEED = 20;
+	private static final double BULLET_SPEED = 250;
+
+	/**
+	 * A variable registering the number of bullets, loaded on each ship.
+	 */
+	private static final int BULLETS_PER_SHIP = 10;
+
+	/**
+	 * A variable registering the angle, the programs of the ships turn by between shots.
+	 */
+	private static final double TURN_ANGLE = 0.5;
+
+}
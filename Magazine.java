@@ -0,0 +1,189 @@
+package asteroids.model;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A class of magazines, holding the bullets loaded on a ship.
+ *
+ * The bullets are kept in an array deque in the order they were loaded, so loading a bullet and
+ * taking out the bullet to fire are constant in time. Each bullet registers the magazine it is
+ * in, which makes looking it up constant in time as well. The total mass of the bullets is
+ * maintained as they are loaded and taken out.
+ *
+ * A bullet in a magazine does not register a position or velocity of its own, but takes those of
+ * the carrier of the magazine. When it is taken out, the current position and velocity of the
+ * carrier are written into the bullet.
+ *
+ * @invar	Each bullet in a magazine registers that magazine.
+ * 			| for each bullet in this
+ * 			| 	bullet.getMagazine() == this
+ */
+class Magazine extends AbstractSet<Bullet> {
+
+	/**
+	 * Initialize this new, empty magazine on the given carrier.
+	 *
+	 * @post	| new.getCarrier() == carrier
+	 * @post	| new.isEmpty()
+	 */
+	Magazine(Ship carrier) {
+		this.carrier = carrier;
+	}
+
+	/**
+	 * Return the ship, carrying this magazine.
+	 */
+	Ship getCarrier() {
+		return this.carrier;
+	}
+
+	/**
+	 * Return the total mass of the bullets in this magazine.
+	 *
+	 * @return	| result == sum of bullet.getMass() for each bullet in this
+	 */
+	double getMass() {
+		return this.mass;
+	}
+
+	/**
+	 * Return the number of bullets in this magazine.
+	 */
+	@Override
+	public int size() {
+		return rounds.size();
+	}
+
+	/**
+	 * Return whether the given object is a bullet in this magazine.
+	 */
+	@Override
+	public boolean contains(Object object) {
+		return (object instanceof Bullet)&&(((Bullet) object).getMagazine() == this);
+	}
+
+	/**
+	 * Add the given bullet to the back of this magazine, taking it out of the magazine it was
+	 * in, if any.
+	 *
+	 * @return	False if and only if the given bullet was in this magazine already.
+	 */
+	@Override
+	public boolean add(Bullet bullet) {
+		if (bullet.getMagazine() == this)
+			return false;
+		if (bullet.getMagazine() != null)
+			bullet.getMagazine().remove(bullet);
+		rounds.addLast(bullet);
+		bullet.setMagazine(this);
+		mass += bullet.getMass();
+		return true;
+	}
+
+	/**
+	 * Take the given object out of this magazine, if it is a bullet in this magazine. The bullet
+	 * at the front is taken out in constant time.
+	 *
+	 * @return	| result == old.contains(object)
+	 */
+	@Override
+	public boolean remove(Object object) {
+		if (! contains(object))
+			return false;
+		Bullet bullet = (Bullet) object;
+		if (rounds.peekFirst() == bullet)
+			rounds.pollFirst();
+		else
+			rounds.removeFirstOccurrence(bullet);
+		release(bullet);
+		return true;
+	}
+
+	/**
+	 * Take the bullet at the front of this magazine out of it, and return it. Null if this
+	 * magazine is empty.
+	 */
+	Bullet poll() {
+		Bullet bullet = rounds.pollFirst();
+		if (bullet != null)
+			release(bullet);
+		return bullet;
+	}
+
+	/**
+	 * Take all bullets out of this magazine.
+	 */
+	@Override
+	public void clear() {
+		for (Bullet bullet: rounds)
+			detach(bullet);
+		rounds.clear();
+		mass = 0;
+	}
+
+	/**
+	 * Return an iterator over the bullets in this magazine, in the order they were loaded.
+	 */
+	@Override
+	public Iterator<Bullet> iterator() {
+		return new Iterator<Bullet>() {
+
+			@Override
+			public boolean hasNext() {
+				return rounds.hasNext();
+			}
+
+			@Override
+			public Bullet next() {
+				last = rounds.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				rounds.remove();
+				release(last);
+			}
+
+			private final Iterator<Bullet> rounds = Magazine.this.rounds.iterator();
+			private Bullet last;
+
+		};
+	}
+
+	/**
+	 * Account for the given bullet, which was taken out of the deque of this magazine.
+	 */
+	private void release(Bullet bullet) {
+		detach(bullet);
+		mass = rounds.isEmpty() ? 0 : mass - bullet.getMass();
+	}
+
+	/**
+	 * Give the given bullet the current position and velocity of the carrier of this magazine,
+	 * and dissociate it from this magazine.
+	 */
+	private void detach(Bullet bullet) {
+		bullet.setMagazine(null);
+		bullet.restoreState(carrier.getXPosition(), carrier.getYPosition(),
+				carrier.getXVelocity(), carrier.getYVelocity(), bullet.getRadius(), bullet.isTerminated());
+	}
+
+	/**
+	 * A variable registering the ship, carrying this magazine.
+	 */
+	private final Ship carrier;
+
+	/**
+	 * A variable registering the bullets in this magazine, in the order they were loaded.
+	 */
+	private final ArrayDeque<Bullet> rounds = new ArrayDeque<Bullet>();
+
+	/**
+	 * A variable registering the total mass of the bullets in this magazine.
+	 */
+	private double mass = 0;
+
+}
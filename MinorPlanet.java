@@ -31,12 +31,11 @@ public abstract class MinorPlanet extends Entity {
 	 *			|	&& (
 	 *			|	(this.getWorld() == null)
 	 *			| 	|| (
-	 *			| 	(xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))
-	 *			| 	&& (ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))
+	 *			| 	getWorld().liesWithinBoundaries(xpos, ypos, getRadius())
 	 *			| 	&& (for each entity in getWorld().getEntities():
 	 *			| 		(entity == this)
-	 *			| 		|| ((Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-	 *			|					Math.pow(ypos-entity.getYPosition(),2)))>=
+	 *			| 		|| ((Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+	 *			|					Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))>=
 	 *			|					0.99*(entity.getRadius()+getRadius())))
 	 *			|	)
 	 *			|	)
@@ -46,12 +45,11 @@ public abstract class MinorPlanet extends Entity {
 		if ((Double.isNaN(xpos)) || (Double.isNaN(ypos)))
 			return false;
 		if (this.getWorld() != null) {
-			if ((xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))&&
-					(ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))) {
+			if (getWorld().liesWithinBoundaries(xpos, ypos, getRadius())) {
 				for (Entity entity: getWorld().getEntities().keySet()) {
 					if ((entity!=this)&&
-							(Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-									Math.pow(ypos-entity.getYPosition(),2)))<
+							(Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+									Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))<
 									0.99*(entity.getRadius()+getRadius())) {
 						return false;
 					}
@@ -2,7 +2,6 @@ package asteroids.model;
 
 import asteroids.model.exceptions.IllegalPositionException;
 import asteroids.model.exceptions.IllegalRadiusException;
-import java.util.Random;
 
 /**
  * A class of planetoids, involving a position, velocity and radius.
@@ -103,8 +102,9 @@ public class Planetoid extends MinorPlanet {
 	 * @post	This method generates a new, random position for this ship in its world.
 	 * 			If that new position is valid for this ship, the new position of this ship
 	 * 			is that random position. Otherwise, this ship is terminated.
-	 * 			| double randomx = ship.getRadius()*0.99 + (new Random().nextDouble() * (ship.getWorld().getWidth() - 2*ship.getRadius()*0.99));
-	 *			| double randomy = ship.getRadius()*0.99 + (new Random().nextDouble() * (ship.getWorld().getHeight() - 2*ship.getRadius()*0.99));
+	 * 			The random position is drawn from the random source of the world of this ship.
+	 * 			| double randomx = ship.getRadius()*0.99 + (ship.getWorld().getRandom().nextDouble() * (ship.getWorld().getWidth() - 2*ship.getRadius()*0.99));
+	 *			| double randomy = ship.getRadius()*0.99 + (ship.getWorld().getRandom().nextDouble() * (ship.getWorld().getHeight() - 2*ship.getRadius()*0.99));
 	 *			| if (ship.isValidPosition(randomx, randomy))
 	 *			| 	(new ship).getXPosition() == randomx
 	 *			| 	(new ship).getYPosition() == randomy
@@ -113,8 +113,9 @@ public class Planetoid extends MinorPlanet {
 	 */
 	@Override
 	public void collideShip(Ship ship) {
-		double randomx = ship.getRadius()*0.99 + (new Random().nextDouble() * (ship.getWorld().getWidth() - 2*ship.getRadius()*0.99));
-		double randomy = ship.getRadius()*0.99 + (new Random().nextDouble() * (ship.getWorld().getHeight() - 2*ship.getRadius()*0.99));
+		WorldRandom random = ship.getWorld().getRandom();
+		double randomx = ship.getRadius()*0.99 + (random.nextDouble() * (ship.getWorld().getWidth() - 2*ship.getRadius()*0.99));
+		double randomy = ship.getRadius()*0.99 + (random.nextDouble() * (ship.getWorld().getHeight() - 2*ship.getRadius()*0.99));
 		if (ship.isValidPosition(randomx, randomy))
 			ship.setPosition(randomx, randomy);
 		else
@@ -128,18 +129,22 @@ public class Planetoid extends MinorPlanet {
 	 * @post	This planetoid is terminated.
 	 * 			| new.isTerminated()
 	 * @post	If the radius of this planetoid is larger than 30, it is split into 2
-	 * 			new asteroids, positioned at a random angle beside this planetoid.
+	 * 			new asteroids, positioned at a random angle beside this planetoid. The angle is
+	 * 			drawn from the random source of the world of this planetoid.
 	 * 			| @see implementation
 	 * @post	If the radius of this planetoid is smaller than 30, this planetoid is
 	 * 			terminated.
 	 * 			| if (old.getRadius()<30)
 	 * 			| 	! old.getWorld().contains(new)
 	 * 			| 	new.isTerminated()
+	 * @effect	A split is registered as a flight recorder event, if that event is enabled.
 	 */
 	@Override
 	public void terminate() {
 		if (this.getRadius() >= 30) {
-			double randomAngle = new Random().nextDouble()*2*Math.PI;
+			PlanetoidSplitEvent event = new PlanetoidSplitEvent();
+			event.begin();
+			double randomAngle = nextRandomDouble()*2*Math.PI;
 			double newvel = 1.5*Math.sqrt(Math.pow(this.getXVelocity(),2) + Math.pow(this.getYVelocity(),2));
 			Asteroid asteroid1 = new Asteroid(this.getXPosition()+Math.cos(randomAngle)*this.getRadius()/2,this.getYPosition()+Math.sin(randomAngle)*this.getRadius()/2,
 									Math.cos(randomAngle)*newvel, Math.sin(randomAngle)*newvel, this.getRadius()/2);
@@ -153,6 +158,12 @@ public class Planetoid extends MinorPlanet {
 			world.addEntity(asteroid2);
 			asteroid1.setWorld(world);
 			asteroid2.setWorld(world);
+			if (event.shouldCommit()) {
+				event.planetoidId = getId();
+				event.radius = getRadius();
+				event.nbAsteroids = 2;
+				event.commit();
+			}
 		}
 		else {
 			super.terminate();
@@ -0,0 +1,28 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events, registering the termination of a planetoid that is split
+ * into asteroids. The duration of the event is the time it took to split the planetoid.
+ */
+@Name("asteroids.PlanetoidSplit")
+@Label("Planetoid Split")
+@Category("Asteroids")
+@Description("The split of a terminated planetoid into asteroids")
+final class PlanetoidSplitEvent extends jdk.jfr.Event {
+
+	@Label("Planetoid")
+	long planetoidId;
+
+	@Label("Radius")
+	double radius;
+
+	@Label("Asteroids")
+	@Description("The number of asteroids, the planetoid was split into")
+	int nbAsteroids;
+
+}
@@ -0,0 +1,160 @@
+package asteroids.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * A benchmark of the operations that change the population of a world: firing a full magazine,
+ * shattering planetoids into asteroids, and loading a world with entities one by one and in bulk.
+ *
+ * Each invocation starts from a freshly built world, so these benchmarks are measured per
+ * invocation, and report the average time per entity involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PopulationBenchmark {
+
+	@Param({"1000", "10000"})
+	public int nbEntities;
+
+	/**
+	 * The state of a ship with a full magazine, alone in a world. The ship is large enough to
+	 * fire all its bullets at different angles without any of them overlapping another one.
+	 */
+	@State(Scope.Thread)
+	public static class Magazine {
+
+		@Setup(Level.Invocation)
+		public void setUp() {
+			World world = new World(1000, 1000, SEED);
+			ship = new Ship(500, 500, 0, 0, 200, 0, 0);
+			List<Bullet> bullets = new ArrayList<Bullet>(MAGAZINE);
+			for (int index = 0; index < MAGAZINE; index++)
+				bullets.add(new Bullet(500, 500, 0, 0, 1));
+			ship.loadBullet(bullets);
+			world.addEntity(ship);
+		}
+
+		private Ship ship;
+
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MAGAZINE)
+	public Ship fireMagazine(Magazine state) {
+		Ship ship = state.ship;
+		for (int index = 0; index < MAGAZINE; index++) {
+			ship.setOrientation(index*2*Math.PI/MAGAZINE);
+			ship.fireBullet();
+		}
+		return ship;
+	}
+
+	/**
+	 * The state of a world, filled with large planetoids on a grid.
+	 */
+	@State(Scope.Thread)
+	public static class Planetoids {
+
+		@Setup(Level.Invocation)
+		public void setUp() {
+			int side = (int) Math.ceil(Math.sqrt(NB_PLANETOIDS));
+			world = new World(side*PLANETOID_SPACING, side*PLANETOID_SPACING, SEED);
+			List<Entity> entities = new ArrayList<Entity>(NB_PLANETOIDS);
+			for (int index = 0; index < NB_PLANETOIDS; index++)
+				entities.add(new Planetoid((index % side + 0.5)*PLANETOID_SPACING,
+						(index / side + 0.5)*PLANETOID_SPACING, 10, 0, PLANETOID_RADIUS, 0));
+			world.addEntities(entities);
+			planetoids = world.getEntities().keySet().toArray(new Entity[0]);
+		}
+
+		private World world;
+		private Entity[] planetoids;
+
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NB_PLANETOIDS)
+	public World shatterPlanetoids(Planetoids state) {
+		for (Entity planetoid: state.planetoids)
+			planetoid.terminate();
+		return state.world;
+	}
+
+	/**
+	 * The state of an empty world, and the entities to load it with.
+	 */
+	@State(Scope.Thread)
+	public static class Population {
+
+		@Setup(Level.Invocation)
+		public void setUp(PopulationBenchmark benchmark) {
+			World generated = BenchmarkWorlds.create(benchmark.nbEntities, BenchmarkWorlds.Layout.UNIFORM, SEED);
+			entities = new ArrayList<Entity>(generated.getEntities().keySet());
+			generated.terminate();
+			double size = BenchmarkWorlds.getSize(benchmark.nbEntities);
+			world = new World(size, size, SEED);
+		}
+
+		private World world;
+		private List<Entity> entities;
+
+	}
+
+	@Benchmark
+	public World addEntity(Population state) {
+		for (Entity entity: state.entities)
+			state.world.addEntity(entity);
+		return state.world;
+	}
+
+	@Benchmark
+	public World addEntities(Population state) {
+		state.world.addEntities(state.entities);
+		return state.world;
+	}
+
+	/**
+	 * A variable registering the number of bullets in a full magazine.
+	 */
+	private static final int MAGAZINE = 500;
+
+	/**
+	 * Variables registering the number of shattered planetoids, their radius and the distance
+	 * between them.
+	 */
+	private static final int NB_PLANETOIDS = 400;
+	private static final double PLANETOID_RADIUS = 40;
+	private static final double PLANETOID_SPACING = 200;
+
+	/**
+	 * A variable registering the seed of the generated worlds.
+	 */
+	private static final long SEED = 42;
+
+}
@@ -77,6 +77,11 @@ public class Program {
 			this.timeLeftToExecute = time;
 	}
 	
+	public void takeAction() {
+		setTimeLeftToExecute(getTimeLeftToExecute() - ACTION_DURATION);
+		nbActions++;
+	}
+	
 	public ProgramStatement getCurrentStatement() {
 		return this.currentStatement;
 	}
@@ -86,14 +91,32 @@ public class Program {
 	}
 	
 	public List<Object> execute(double dt) {
+		ProgramSliceEvent event = new ProgramSliceEvent();
+		event.begin();
 		setTimeLeftToExecute(dt + getTimeLeftToExecute());
-		while (getTimeLeftToExecute() >= 0.2) {
-			if (getCurrentStatement()==null)
-				return getPrintStack();
+		nbActions = 0;
+		int nbStatements = 0;
+		List<Object> result = null;
+		while (getTimeLeftToExecute() >= ACTION_DURATION) {
+			if (getCurrentStatement()==null) {
+				result = getPrintStack();
+				break;
+			}
 			getCurrentStatement().execute();
 			setCurrentStatement(getCurrentStatement().getNext());
+			nbStatements++;
 		}
-		return null;
+		if (event.shouldCommit()) {
+			event.shipId = (getShip() == null) ? 0 : getShip().getId();
+			event.sliceTime = dt;
+			event.nbStatements = nbStatements;
+			event.nbActions = nbActions;
+			event.commit();
+		}
+		World world = (getShip() == null) ? null : getShip().getWorld();
+		if ((world != null)&&(world.getMetrics() != null)&&(world.getMetrics().isCollecting()))
+			world.getMetrics().recordProgramSlice(nbStatements);
+		return result;
 	}
 	
 	private Ship ship;
@@ -103,5 +126,11 @@ public class Program {
 	private ProgramStatement main;
 	private double timeLeftToExecute = 0;
 	private ProgramStatement currentStatement;
+	private int nbActions = 0;
+	
+	/**
+	 * A variable registering the game time, taken by an action of a program, in seconds.
+	 */
+	public static final double ACTION_DURATION = 0.2;
 	
 }
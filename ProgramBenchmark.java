@@ -0,0 +1,329 @@
+package asteroids.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import asteroids.model.Entity;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.programs.ProgramFactory;
+import asteroids.model.programs.ProgramFunction;
+import asteroids.model.programs.expressions.ProgramExpression;
+import asteroids.model.programs.statements.ProgramStatement;
+
+/**
+ * A benchmark of the interpreter of programs, run on programs built directly through a program
+ * factory: an arithmetic loop, nested loops and conditionals, a recursive function, code reading
+ * the positions of the entities around the ship, and code printing values.
+ *
+ * Each program repeats a body, followed by a skip action, forever. An invocation executes a second
+ * of game time in frames of a thirtieth of a second, which lets the program take ACTIONS actions,
+ * and so run its body ACTIONS times. The results are given per node of the body: every statement
+ * and every expression, as written, counts as a single node each time it is executed, so that the
+ * cost of expressions that are evaluated more than once by the interpreter shows in the cost per
+ * node. The main method of this class runs the benchmark with the GC profiler, which reports the
+ * allocation per node.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramBenchmark {
+
+	/**
+	 * Run this benchmark with the GC profiler, writing the results in JSON to the file given as
+	 * the first argument, or to programs.json.
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(ProgramBenchmark.class.getName())
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result((args.length > 0) ? args[0] : "programs.json")
+				.build();
+		new Runner(options).run();
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		World world = BenchmarkWorlds.create(100, BenchmarkWorlds.Layout.UNIFORM, SEED);
+		for (Entity entity: world.getEntities().keySet())
+			if (entity instanceof Ship) {
+				ship = (Ship) entity;
+				break;
+			}
+	}
+
+	/**
+	 * Build the programs anew, so that values printed in an earlier iteration do not pile up.
+	 */
+	@Setup(Level.Iteration)
+	public void createPrograms() {
+		arithmetic = createArithmeticProgram();
+		nested = createNestedProgram();
+		recursive = createRecursiveProgram();
+		selector = createSelectorProgram();
+		ship.setProgram(selector);
+		printing = createPrintingProgram();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACTIONS*ARITHMETIC_NODES)
+	public List<Object> arithmetic() {
+		return execute(arithmetic);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACTIONS*NESTED_NODES)
+	public List<Object> nested() {
+		return execute(nested);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACTIONS*RECURSIVE_NODES)
+	public List<Object> recursive() {
+		return execute(recursive);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACTIONS*SELECTOR_NODES)
+	public List<Object> selector() {
+		return execute(selector);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACTIONS*PRINTING_NODES)
+	public List<Object> printing() {
+		return execute(printing);
+	}
+
+	/**
+	 * Execute the given program for a second of game time, in frames of a thirtieth of a second.
+	 */
+	private static List<Object> execute(Program program) {
+		List<Object> result = null;
+		for (int frame = 0; frame < FRAMES; frame++)
+			result = program.execute(1./FRAMES);
+		return result;
+	}
+
+	/**
+	 * Return a program with a loop over arithmetic on variables:
+	 * 	i := 0; while i < ITERATIONS { x := x * 0.5 + i * i; i := i + 1; }
+	 */
+	private static Program createArithmeticProgram() {
+		ProgramStatement loop = factory.createWhileStatement(less(read("i"), literal(ITERATIONS)), sequence(
+				assign("x", factory.createAdditionExpression(
+						factory.createMultiplicationExpression(read("x"), literal(0.5), null),
+						factory.createMultiplicationExpression(read("i"), read("i"), null), null)),
+				increment("i", 1)), null);
+		return createProgram(new ArrayList<ProgramFunction>(), sequence(assign("i", literal(0)), loop));
+	}
+
+	/**
+	 * Return a program with nested loops and conditionals:
+	 * 	i := 0; while i < OUTER { j := 0; while j < INNER { if j < i { y := y + 1; } else { y := y * 0.5; }
+	 * 	j := j + 1; } i := i + 1; }
+	 */
+	private static Program createNestedProgram() {
+		ProgramStatement inner = factory.createWhileStatement(less(read("j"), literal(INNER)), sequence(
+				factory.createIfStatement(less(read("j"), read("i")), increment("y", 1),
+						assign("y", factory.createMultiplicationExpression(read("y"), literal(0.5), null)), null),
+				increment("j", 1)), null);
+		ProgramStatement outer = factory.createWhileStatement(less(read("i"), literal(OUTER)), sequence(
+				assign("j", literal(0)), inner, increment("i", 1)), null);
+		return createProgram(new ArrayList<ProgramFunction>(), sequence(assign("i", literal(0)), outer));
+	}
+
+	/**
+	 * Return a program calling a recursive function:
+	 * 	def sum { if $1 < 1 { return 0; } else { return $1 + sum($1 + -1); } } x := sum(DEPTH);
+	 */
+	private static Program createRecursiveProgram() {
+		ProgramExpression call = factory.createFunctionCallExpression("sum", Arrays.asList(
+				factory.createAdditionExpression(parameter(), literal(-1), null)), null);
+		ProgramStatement body = factory.createIfStatement(less(parameter(), literal(1)),
+				factory.createReturnStatement(literal(0), null),
+				factory.createReturnStatement(factory.createAdditionExpression(parameter(), call, null), null), null);
+		List<ProgramFunction> functions = new ArrayList<ProgramFunction>();
+		functions.add(factory.createFunctionDefinition("sum", body, null));
+		return createProgram(functions, assign("x", factory.createFunctionCallExpression("sum",
+				Arrays.asList(literal(DEPTH)), null)));
+	}
+
+	/**
+	 * Return a program reading the positions of the entities around its ship:
+	 * 	x := getx asteroid + gety asteroid; y := getx ship + gety ship; z := getvx self + getradius any;
+	 */
+	private static Program createSelectorProgram() {
+		return createProgram(new ArrayList<ProgramFunction>(), sequence(
+				assign("x", factory.createAdditionExpression(
+						factory.createGetXExpression(factory.createAsteroidExpression(null), null),
+						factory.createGetYExpression(factory.createAsteroidExpression(null), null), null)),
+				assign("y", factory.createAdditionExpression(
+						factory.createGetXExpression(factory.createShipExpression(null), null),
+						factory.createGetYExpression(factory.createShipExpression(null), null), null)),
+				assign("z", factory.createAdditionExpression(
+						factory.createGetVXExpression(factory.createSelfExpression(null), null),
+						factory.createGetRadiusExpression(factory.createAnyExpression(null), null), null))));
+	}
+
+	/**
+	 * Return a program printing values:
+	 * 	print x + 1; (PRINTS times)
+	 */
+	private static Program createPrintingProgram() {
+		ProgramStatement[] prints = new ProgramStatement[PRINTS];
+		for (int index = 0; index < PRINTS; index++)
+			prints[index] = factory.createPrintStatement(
+					factory.createAdditionExpression(read("x"), literal(1), null), null);
+		return createProgram(new ArrayList<ProgramFunction>(), sequence(prints));
+	}
+
+	/**
+	 * Return a program with the given functions, that initializes its variables, and then repeats
+	 * the given body, followed by a skip action, forever.
+	 */
+	private static Program createProgram(List<ProgramFunction> functions, ProgramStatement body) {
+		ProgramStatement forever = factory.createWhileStatement(less(literal(0), literal(1)),
+				sequence(body, factory.createSkipStatement(null)), null);
+		return factory.createProgram(functions, sequence(assign("x", literal(0)), assign("y", literal(0)),
+				assign("z", literal(0)), assign("i", literal(0)), assign("j", literal(0)), forever));
+	}
+
+	private static ProgramStatement sequence(ProgramStatement... statements) {
+		return factory.createSequenceStatement(new ArrayList<ProgramStatement>(Arrays.asList(statements)), null);
+	}
+
+	private static ProgramStatement assign(String variable, ProgramExpression value) {
+		return factory.createAssignmentStatement(variable, value, null);
+	}
+
+	private static ProgramStatement increment(String variable, double value) {
+		return assign(variable, factory.createAdditionExpression(read(variable), literal(value), null));
+	}
+
+	private static ProgramExpression less(ProgramExpression left, ProgramExpression right) {
+		return factory.createLessThanExpression(left, right, null);
+	}
+
+	private static ProgramExpression read(String variable) {
+		return factory.createReadVariableExpression(variable, null);
+	}
+
+	private static ProgramExpression parameter() {
+		return factory.createReadParameterExpression("$1", null);
+	}
+
+	private static ProgramExpression literal(double value) {
+		return factory.createDoubleLiteralExpression(value, null);
+	}
+
+	private PrintStream out;
+	private Ship ship;
+	private Program arithmetic;
+	private Program nested;
+	private Program recursive;
+	private Program selector;
+	private Program printing;
+
+	/**
+	 * A variable registering the factory the programs are built with. The factory ignores the
+	 * locations in the source, so none are given.
+	 */
+	private static final ProgramFactory factory = new ProgramFactory();
+
+	/**
+	 * Variables registering the number of frames in an invocation, and the number of actions the
+	 * programs take in them.
+	 */
+	private static final int FRAMES = 30;
+	private static final int ACTIONS = 5;
+
+	/**
+	 * A variable registering the number of nodes executed around the body of each program: the
+	 * condition of the endless loop and the skip action.
+	 */
+	private static final int LOOP_NODES = 4;
+
+	/**
+	 * Variables registering the number of iterations of the arithmetic loop, and the number of
+	 * nodes executed for its body: the first assignment and the loop, every test of its condition,
+	 * and every iteration.
+	 */
+	private static final int ITERATIONS = 20;
+	private static final int ARITHMETIC_NODES = LOOP_NODES + 2 + 1 + (ITERATIONS + 1)*3 + ITERATIONS*12;
+
+	/**
+	 * Variables registering the number of iterations of the nested loops, and the number of nodes
+	 * executed for the body of the nested program.
+	 */
+	private static final int OUTER = 4;
+	private static final int INNER = 5;
+	private static final int NESTED_NODES = LOOP_NODES + 2 + 1 + (OUTER + 1)*3
+			+ OUTER*(2 + 1 + (INNER + 1)*3 + INNER*12 + 4);
+
+	/**
+	 * Variables registering the depth of the recursion, and the number of nodes executed for the
+	 * body of the recursive program: the assignment of the outermost call, DEPTH calls that recurse
+	 * and the call that ends the recursion.
+	 */
+	private static final int DEPTH = 8;
+	private static final int RECURSIVE_NODES = LOOP_NODES + 3 + DEPTH*11 + 6;
+
+	/**
+	 * A variable registering the number of nodes executed for the body of the selector program.
+	 */
+	private static final int SELECTOR_NODES = LOOP_NODES + 3*6;
+
+	/**
+	 * Variables registering the number of print statements, and the number of nodes executed for
+	 * the body of the printing program.
+	 */
+	private static final int PRINTS = 10;
+	private static final int PRINTING_NODES = LOOP_NODES + PRINTS*4;
+
+	/**
+	 * A variable registering the seed of the world, the selector program is run in.
+	 */
+	private static final long SEED = 42;
+
+}
@@ -1,6 +1,8 @@
 package asteroids.model.programs;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import asteroids.model.Asteroid;
 import asteroids.model.Bullet;
@@ -75,8 +77,15 @@ public class ProgramFactory implements IProgramFactory<ProgramExpression,
 		return new ReadParameterExpression(parameterName);
 	}
 
+	/**
+	 * Calls with a single argument to one of the names in NEARBY_TYPES count the entities of the
+	 * corresponding type within the distance that argument evaluates to from the executing ship,
+	 * instead of calling a function of the program.
+	 */
 	@Override
 	public ProgramExpression createFunctionCallExpression(String functionName, List<ProgramExpression> actualArgs, SourceLocation sourceLocation) {
+		if ((actualArgs.size() == 1)&&(NEARBY_TYPES.containsKey(functionName)))
+			return new CountNearbyExpression(actualArgs.get(0), NEARBY_TYPES.get(functionName));
 		return new FunctionCallExpression(functionName, (List<ProgramExpression>) actualArgs);
 	}
 
@@ -292,4 +301,21 @@ public class ProgramFactory implements IProgramFactory<ProgramExpression,
 		return new ActionStatement() {
 		};
 	}
+
+	/**
+	 * A variable registering the names of the built-in functions counting nearby entities, and
+	 * the type of entities each of them counts. A null type counts entities of any type.
+	 */
+	private static final Map<String, Class<? extends Entity>> NEARBY_TYPES =
+			new HashMap<String, Class<? extends Entity>>();
+
+	static {
+		NEARBY_TYPES.put("countNearbyShips", Ship.class);
+		NEARBY_TYPES.put("countNearbyAsteroids", Asteroid.class);
+		NEARBY_TYPES.put("countNearbyPlanetoids", Planetoid.class);
+		NEARBY_TYPES.put("countNearbyPlanets", MinorPlanet.class);
+		NEARBY_TYPES.put("countNearbyBullets", Bullet.class);
+		NEARBY_TYPES.put("countNearbyEntities", null);
+	}
+
 }
@@ -0,0 +1,62 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Planetoid;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.programs.ProgramFactory;
+import asteroids.model.programs.ProgramFunction;
+import asteroids.model.programs.expressions.ProgramExpression;
+import asteroids.model.programs.statements.ProgramStatement;
+
+public class ProgramFactoryTest {
+
+	World world;
+	Ship ship;
+	ProgramFactory factory;
+
+	@Before
+	public void setUp() {
+		world = new World(1000,1000);
+		ship = new Ship(100,100,0,0,20,0,100);
+		world.addEntity(ship);
+		world.addEntity(new Asteroid(250,100,0,0,30));
+		world.addEntity(new Asteroid(700,700,0,0,30));
+		world.addEntity(new Planetoid(100,250,0,0,20,50));
+		factory = new ProgramFactory();
+	}
+
+	@Test
+	public void testCreateFunctionCallExpression_CaseCountNearby() {
+		List<ProgramStatement> statements = new ArrayList<ProgramStatement>();
+		statements.add(factory.createPrintStatement(count("countNearbyAsteroids", 200), null));
+		statements.add(factory.createPrintStatement(count("countNearbyEntities", 200), null));
+		statements.add(factory.createPrintStatement(count("countNearbyShips", 2000), null));
+		statements.add(factory.createPrintStatement(count("countNearbyAsteroids", 2000), null));
+		Program program = factory.createProgram(new ArrayList<ProgramFunction>(),
+				factory.createSequenceStatement(statements, null));
+		ship.setProgram(program);
+		List<Object> printed = program.execute(0.2);
+		assertEquals(Arrays.asList(1.0, 2.0, 0.0, 2.0), printed);
+	}
+
+	/**
+	 * Return a call to the function with the given name, with the given radius as its argument.
+	 */
+	private ProgramExpression count(String functionName, double radius) {
+		List<ProgramExpression> args = new ArrayList<ProgramExpression>();
+		args.add(factory.createDoubleLiteralExpression(radius, null));
+		return factory.createFunctionCallExpression(functionName, args, null);
+	}
+
+}
@@ -0,0 +1,34 @@
+package asteroids.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events, registering the execution of a program for a slice of game
+ * time. The duration of the event is the time it took to execute the program.
+ */
+@Name("asteroids.ProgramSlice")
+@Label("Program Slice")
+@Category("Asteroids")
+@Description("The execution of the program of a ship for a slice of game time")
+final class ProgramSliceEvent extends jdk.jfr.Event {
+
+	@Label("Ship")
+	@Description("The identifier of the ship, running the program")
+	long shipId;
+
+	@Label("Slice Time")
+	@Description("The game time, the program was executed for, in seconds")
+	double sliceTime;
+
+	@Label("Statements")
+	@Description("The number of statements, executed in the slice")
+	int nbStatements;
+
+	@Label("Actions")
+	@Description("The number of actions, taken in the slice")
+	int nbActions;
+
+}
@@ -72,24 +72,6 @@ public class Ship extends Entity{
 		this(0.0,0.0,0.0,0.0,MIN_RADIUS,0.0,0.0);
 	}
 	
-	/**
-	 * Set the position of this ship to a given value.
-	 * 
-	 * @post	The bullets, loaded on this ship, have the same new position as this ship.
-	 * 			| (for each bullet: new.getBullets()
-	 * 			| 	(new bullet).getXPosition()==xpos
-	 * 			| 	(new bullet).getYPosition()==ypos
-	 */
-	@Override @Basic @Raw
-	public void setPosition(double xpos, double ypos) {
-		super.setPosition(xpos, ypos);
-		if (getBullets()!=null) {
-			for (Bullet bullet: getBullets()) {
-				bullet.setPosition(xpos, ypos);
-			}
-		}
-	}
-
 	/**
 	 * Return whether the given position is a valid position for this ship.
 	 * 
@@ -104,12 +86,11 @@ public class Ship extends Entity{
 	 *			|	&& (
 	 *			|	(this.getWorld() == null)
 	 *			| 	|| (
-	 *			| 	(xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))
-	 *			| 	&& (ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))
+	 *			| 	getWorld().liesWithinBoundaries(xpos, ypos, getRadius())
 	 *			| 	&& (for each entity in getWorld().getEntities():
 	 *			| 		(entity == this)
-	 *			| 		|| ((Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-	 *			|					Math.pow(ypos-entity.getYPosition(),2)))>=
+	 *			| 		|| ((Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+	 *			|					Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))>=
 	 *			|					0.99*(entity.getRadius()+getRadius())))
 	 *			|	)
 	 *			|	)
@@ -119,12 +100,11 @@ public class Ship extends Entity{
 		if ((Double.isNaN(xpos)) || (Double.isNaN(ypos)))
 			return false;
 		if (this.getWorld() != null) {
-			if ((xpos>0.99*getRadius())&&(xpos<1.01*(getWorld().getWidth()-getRadius()))&&
-					(ypos>0.99*getRadius())&&(ypos<1.01*(getWorld().getHeight()-getRadius()))) {
+			if (getWorld().liesWithinBoundaries(xpos, ypos, getRadius())) {
 				for (Entity entity: getWorld().getEntities().keySet()) {
 					if ((entity!=this)&&
-							(Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-									Math.pow(ypos-entity.getYPosition(),2)))<
+							(Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+									Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))<
 									0.99*(entity.getRadius()+getRadius())) {
 						return false;
 					}
@@ -146,26 +126,6 @@ public class Ship extends Entity{
 		return this.getWorld() != null;
 	}
 
-	/**
-	 * Set the velocity of this ship to a given value.
-	 * 
-	 * @post	The bullets, loaded on this ship, have the same new velocity as this ship.
-	 * 			| (for each bullet: new.getBullets()
-	 * 			| 	(new bullet).getXVelocity()==xvel
-	 * 			| 	(new bullet).getYVelocity()==yvel
-	 */
-	@Override @Basic @Raw
-	public void setVelocity(double xvel, double yvel) {
-		super.setVelocity(xvel, yvel);
-		if (getBullets() != null) {
-			if (! getBullets().isEmpty()) {
-				for (Bullet bullet: getBullets()) {
-					bullet.setVelocity(xvel, yvel);
-				}
-			}
-		}
-	}
-
 	/**
 	 * Checks whether the given radius is a valid radius.
 	 * 
@@ -280,11 +240,7 @@ public class Ship extends Entity{
 	 */
 	@Override
 	public double getMass() {
-		double totalMass = this.getShipMass();
-		for (Bullet bullet: this.getBullets()) {
-			totalMass = totalMass + bullet.getMass();
-		}
-		return totalMass;
+		return this.getShipMass() + this.bullets.getMass();
 	}
 	
 	
@@ -378,13 +334,14 @@ public class Ship extends Entity{
 	public void loadBullet(Bullet bullet) throws IllegalBulletException {
 		if (((bullet.getWorld()!=null)&&(this.getWorld()!=bullet.getWorld())))
 			throw new IllegalBulletException(bullet);
+		recordLoad(bullet);
 		if (bullet.getWorld()!=null)
 			bullet.getWorld().removeEntity(bullet);
 		if (Math.sqrt(Math.pow(bullet.getXPosition()-this.getXPosition(), 2)+
 				Math.pow(bullet.getYPosition()-this.getYPosition(), 2))
 				+bullet.getRadius() > this.getRadius()
 				)
-			throw new IllegalBulletException(bullet);
+			throw recordFailure(new IllegalBulletException(bullet));
 		bullet.setSource(null);
 		if (bullet.getShip()==null)
 			bullet.setShip(this);
@@ -439,13 +396,14 @@ public class Ship extends Entity{
 			if (bullet != null) {
 				if ((this.getWorld()!=null)&&(bullet.getWorld()!=null)&&(this.getWorld()!=bullet.getWorld()))
 					throw new IllegalBulletException(bullet);
+				recordLoad(bullet);
 				if (bullet.getWorld()!=null)
 					bullet.getWorld().removeEntity(bullet);
 				if (Math.sqrt(Math.pow(bullet.getXPosition()-this.getXPosition(), 2)+
 						Math.pow(bullet.getYPosition()-this.getYPosition(), 2))
 						+bullet.getRadius() > this.getRadius()
 						)
-					throw new IllegalBulletException(bullet);
+					throw recordFailure(new IllegalBulletException(bullet));
 				this.addBullet(bullet);
 				bullet.setSource(null);
 				if (bullet.getShip()==null)
@@ -460,6 +418,30 @@ public class Ship extends Entity{
 		}
 	}
 	
+	/**
+	 * Register the loading of the given bullet in the journal of the world of this ship, if any.
+	 * A bullet that has never been located in a world is registered as a detached entity first.
+	 */
+	private void recordLoad(Bullet bullet) {
+		EventJournal journal = getJournal();
+		if (journal == null)
+			return;
+		if (bullet.getId() == 0)
+			journal.recordAdd(getWorld(), bullet, true);
+		journal.recordLoad(this, bullet);
+	}
+	
+	/**
+	 * Register in the journal of the world of this ship, if any, that the loading of a bullet
+	 * fails with the given exception, and return that exception.
+	 */
+	private RuntimeException recordFailure(RuntimeException exc) {
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordFailure(exc);
+		return exc;
+	}
+	
 	/**
 	 * Add a given bullet to the collection of bullets, loaded on this ship.
 	 * 
@@ -511,27 +493,26 @@ public class Ship extends Entity{
 	 * 			| new.getBulletsFired().contains((new removed bullet))
 	 */
 	public void fireBullet() {
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordFire(this);
 		if ((this.getNbBullets()>0)&&(this.getWorld()!=null)) {
-			Bullet bullet = (Bullet) this.getBullets().toArray()[0];
-			this.removeBullet(bullet);
+			Bullet bullet = this.bullets.poll();
 			bullet.setShip(null);
 			bullet.setWorld(null);
 			bullet.setSource(null);
 			bullet.setVelocity(INITIAL_SPEED*Math.cos(getOrientation()), 
 				INITIAL_SPEED*Math.sin(getOrientation()));
-			double xpos = getXPosition()+(getRadius()+1*bullet.getRadius())*Math.cos(getOrientation());
-			double ypos = getYPosition()+(getRadius()+1*bullet.getRadius())*Math.sin(getOrientation());
-			if ((xpos<0.99*bullet.getRadius())||
-				(xpos>1.01*(this.getWorld().getWidth()-bullet.getRadius()))||
-				(ypos<0.99*bullet.getRadius())||
-				(ypos>1.01*(this.getWorld().getHeight()-bullet.getRadius())))
+			double xpos = getWorld().foldX(getXPosition()+(getRadius()+1*bullet.getRadius())*Math.cos(getOrientation()));
+			double ypos = getWorld().foldY(getYPosition()+(getRadius()+1*bullet.getRadius())*Math.sin(getOrientation()));
+			if (! getWorld().liesWithinBoundaries(xpos, ypos, bullet.getRadius()))
 				bullet.terminate();
 			else {
 				Set<Entity> terminateEntities = new HashSet<>();
 				for (Entity entity: getWorld().getEntities().keySet()) {
 					if ((!bullet.isLoopTerminated())&&(entity!=bullet)&&(entity!=this)&&
-							((Math.sqrt(Math.pow(xpos-entity.getXPosition(),2)+
-							Math.pow(ypos-entity.getYPosition(),2)))<
+							((Math.sqrt(Math.pow(getWorld().getSeparationX(xpos-entity.getXPosition()),2)+
+							Math.pow(getWorld().getSeparationY(ypos-entity.getYPosition()),2)))<
 							0.99*(entity.getRadius()+bullet.getRadius()))) {
 						bullet.setLoopTerminated();
 						terminateEntities.add(entity);
@@ -593,10 +574,18 @@ public class Ship extends Entity{
 	 * @post	The new acceleration of this ship is set to the value, derived from Newton's second
 	 * 			law of motion (F=m*a)
 	 * 			| new.getAcceleration == old.getThrustForce()/old.getTotalMass()
+	 * @effect	If this ship is located in a world, it is woken up in that world.
+	 * 			| if (getWorld() != null)
+	 * 			| 	getWorld().updateSleepState(this)
 	 */
 	public void thrustOn() {
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordThrust(this, true);
 		this.thruster = true;
 		this.setAcceleration(this.getThrustForce()/this.getMass());
+		if (getWorld() != null)
+			getWorld().updateSleepState(this);
 	}
 	
 	/**
@@ -607,10 +596,19 @@ public class Ship extends Entity{
 	 * @post	The acceleration of this ship is set to zero.
 	 * 			| new.getXAcceleration == 0
 	 * 			| new.getYAcceleration == 0
+	 * @effect	If this ship is located in a world and does not move, it is put to sleep in
+	 * 			that world.
+	 * 			| if (getWorld() != null)
+	 * 			| 	getWorld().updateSleepState(this)
 	 */
 	public void thrustOff() {
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordThrust(this, false);
 		this.thruster = false;
 		this.setAcceleration(0);
+		if (getWorld() != null)
+			getWorld().updateSleepState(this);
 	}
 
 	/**
@@ -649,6 +647,9 @@ public class Ship extends Entity{
 	public void turn(double angle) {
 		if ((angle<-2*Math.PI)||(angle>2*Math.PI))
 			throw new IllegalExpressionException(new DoubleLiteralExpression(angle));
+		EventJournal journal = getJournal();
+		if (journal != null)
+			journal.recordTurn(this, angle);
 		setOrientation(getOrientation()+angle);
 	}
 
@@ -656,15 +657,18 @@ public class Ship extends Entity{
 	 * Move this ship for a given duration.
 	 * 
 	 * @post	The velocity of this ship is set to a new value, taken into account its
-	 * 			acceleration.
+	 * 			acceleration and the gravity of its world.
 	 * 			| new.getXVelocity() = old.getXVelocity+dt*old.getAcceleration()*Math.cos(old.getOrientation())
+	 * 			| 	+dt*old.getGravityX()
 	 * 			| new.getYVelocity() = old.getYVelocity+dt*old.getAcceleration()*Math.sin(old.getOrientation())
+	 * 			| 	+dt*old.getGravityY()
 	 */
 	@Override
 	public void move(double dt) throws IllegalDurationException {
+		double gravityX = getGravityX(), gravityY = getGravityY();
 		super.move(dt);
-		setVelocity(getXVelocity()+dt*getAcceleration()*Math.cos(getOrientation()), 
-				getYVelocity()+dt*getAcceleration()*Math.sin(getOrientation()));
+		setVelocity(getXVelocity()+dt*getAcceleration()*Math.cos(getOrientation())+dt*gravityX, 
+				getYVelocity()+dt*getAcceleration()*Math.sin(getOrientation())+dt*gravityY);
 	}
 
 	/**
@@ -702,6 +706,21 @@ public class Ship extends Entity{
 		this.getBulletsFired().clear();
 	}
 	
+	/**
+	 * Restore the orientation, acceleration and thruster of this ship, bypassing all checks
+	 * and side effects of the regular setters.
+	 * 
+	 * @post	| new.getOrientation() == orientation
+	 * 			| new.getAcceleration() == acceleration
+	 * 			| new.thrusterEnabled() == thruster
+	 */
+	@Raw
+	void restoreShipState(double orientation, double acceleration, boolean thruster) {
+		this.orientation = orientation;
+		this.acceleration = acceleration;
+		this.thruster = thruster;
+	}
+	
 	/**
 	 * A variable registering the acceleration of this ship.
 	 */
@@ -720,7 +739,7 @@ public class Ship extends Entity{
 	/**
 	 * A variable registering the bullets of a ship.
 	 */
-	private Set<Bullet> bullets = new HashSet<Bullet>();
+	private final Magazine bullets = new Magazine(this);
 	
 	/**
 	 * A variable registering whether the thruster of this ship is enabled.
@@ -0,0 +1,329 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of ship command queues, collecting the controls of the ships in a world from any
+ * number of threads, and applying them on the thread that evolves the world.
+ *
+ * A command is written into a record of a ring of preallocated records. Each record carries a
+ * sequence number: a producer claims a record by advancing the tail of the queue, fills it and
+ * then publishes it by setting its sequence. Offering a command never blocks; when the ring is
+ * full, the command is rejected and counted.
+ *
+ * At the start of each evolution, the world drains the commands that were published by then.
+ * They are applied ordered by the identifier of their ship, and in the order they were offered
+ * for the same ship, so the outcome does not depend on how the threads of different ships were
+ * interleaved. A command that cannot be applied, because its ship is no longer in the world or
+ * its arguments are illegal, is skipped and counted.
+ *
+ * @invar	The capacity of each queue is a power of two, not above MAX_CAPACITY.
+ * 			| (Integer.bitCount(getCapacity()) == 1) && (getCapacity() <= MAX_CAPACITY)
+ */
+public class ShipCommandQueue {
+
+	/**
+	 * Initialize this new command queue for the given world, with room for the given number of
+	 * commands.
+	 *
+	 * @param 	world
+	 * 			The world to apply the commands in.
+	 * @param 	capacity
+	 * 			The number of commands, this new queue can hold.
+	 * @post	| new.getWorld() == world
+	 * @post	The capacity of this new queue is the smallest power of two, not below the given
+	 * 			capacity nor below 2, and not above MAX_CAPACITY.
+	 * 			| @see implementation
+	 * @effect	The new queue is attached to the given world.
+	 * 			| world.setCommandQueue(new)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not effective.
+	 * 			| world == null
+	 */
+	public ShipCommandQueue(World world, int capacity) throws IllegalWorldException {
+		if (world == null)
+			throw new IllegalWorldException(world);
+		int size = Integer.highestOneBit(Math.min(MAX_CAPACITY, Math.max(2, capacity)) - 1) << 1;
+		this.world = world;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		for (int index = 0; index < size; index++)
+			sequences.set(index, index);
+		this.ships = new Ship[size];
+		this.bullets = new Bullet[size];
+		this.types = new int[size];
+		this.arguments = new double[size];
+		this.order = new long[size];
+		this.drainedShips = new Ship[size];
+		this.drainedBullets = new Bullet[size];
+		this.drainedTypes = new int[size];
+		this.drainedArguments = new double[size];
+		world.setCommandQueue(this);
+	}
+
+	/**
+	 * Initialize this new command queue for the given world, with a standard capacity.
+	 *
+	 * @effect	| this(world, STANDARD_CAPACITY)
+	 */
+	public ShipCommandQueue(World world) throws IllegalWorldException {
+		this(world, STANDARD_CAPACITY);
+	}
+
+	/**
+	 * Return the world, the commands of this queue are applied in.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the number of commands, this queue can hold.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Return the number of commands, accepted by this queue.
+	 */
+	public long getNbAccepted() {
+		return tail.get();
+	}
+
+	/**
+	 * Return the number of commands, rejected because this queue was full.
+	 */
+	public long getNbRejected() {
+		return nbRejected.get();
+	}
+
+	/**
+	 * Return the number of commands, applied by this queue.
+	 */
+	public long getNbApplied() {
+		return this.nbApplied;
+	}
+
+	/**
+	 * Return the number of commands, skipped because they could not be applied.
+	 */
+	public long getNbSkipped() {
+		return this.nbSkipped;
+	}
+
+	/**
+	 * Offer a command to enable the thruster of the given ship.
+	 *
+	 * @return	False if and only if this queue was full, and the command was rejected.
+	 */
+	public boolean offerThrustOn(Ship ship) {
+		return offer(THRUST_ON, ship, null, 0);
+	}
+
+	/**
+	 * Offer a command to disable the thruster of the given ship.
+	 *
+	 * @return	False if and only if this queue was full, and the command was rejected.
+	 */
+	public boolean offerThrustOff(Ship ship) {
+		return offer(THRUST_OFF, ship, null, 0);
+	}
+
+	/**
+	 * Offer a command to turn the given ship over the given angle.
+	 *
+	 * @return	False if and only if this queue was full, and the command was rejected.
+	 */
+	public boolean offerTurn(Ship ship, double angle) {
+		return offer(TURN, ship, null, angle);
+	}
+
+	/**
+	 * Offer a command to fire a bullet from the given ship.
+	 *
+	 * @return	False if and only if this queue was full, and the command was rejected.
+	 */
+	public boolean offerFire(Ship ship) {
+		return offer(FIRE, ship, null, 0);
+	}
+
+	/**
+	 * Offer a command to load the given bullet on the given ship.
+	 *
+	 * @return	False if and only if this queue was full, and the command was rejected.
+	 */
+	public boolean offerLoad(Ship ship, Bullet bullet) {
+		return offer(LOAD, ship, bullet, 0);
+	}
+
+	/**
+	 * Offer a command of the given type, for the given ship, with the given bullet and argument.
+	 */
+	private boolean offer(int type, Ship ship, Bullet bullet, double argument) {
+		if (ship == null)
+			return false;
+		long position = tail.get();
+		while (true) {
+			int slot = (int) position & mask;
+			long difference = sequences.get(slot) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1))
+					break;
+				position = tail.get();
+			}
+			else if (difference < 0) {
+				nbRejected.incrementAndGet();
+				return false;
+			}
+			else
+				position = tail.get();
+		}
+		int slot = (int) position & mask;
+		types[slot] = type;
+		ships[slot] = ship;
+		bullets[slot] = bullet;
+		arguments[slot] = argument;
+		sequences.lazySet(slot, position + 1);
+		return true;
+	}
+
+	/**
+	 * Apply the commands that were published in this queue, ordered by the identifier of their
+	 * ship and the order in which they were offered. Only the thread that evolves the world of
+	 * this queue drains commands.
+	 *
+	 * @return	The number of commands, taken out of this queue.
+	 */
+	int drain() {
+		int count = 0;
+		while (true) {
+			int slot = (int) head & mask;
+			if (sequences.get(slot) != head + 1)
+				break;
+			drainedTypes[count] = types[slot];
+			drainedShips[count] = ships[slot];
+			drainedBullets[count] = bullets[slot];
+			drainedArguments[count] = arguments[slot];
+			ships[slot] = null;
+			bullets[slot] = null;
+			sequences.lazySet(slot, head + mask + 1);
+			order[count] = (drainedShips[count].getId() << ORDINAL_BITS) | count;
+			head++;
+			count++;
+			if (count == order.length)
+				break;
+		}
+		Arrays.sort(order, 0, count);
+		for (int index = 0; index < count; index++) {
+			int ordinal = (int) (order[index] & ((1L << ORDINAL_BITS) - 1));
+			apply(drainedTypes[ordinal], drainedShips[ordinal], drainedBullets[ordinal],
+					drainedArguments[ordinal]);
+			drainedShips[ordinal] = null;
+			drainedBullets[ordinal] = null;
+		}
+		return count;
+	}
+
+	/**
+	 * Apply a command of the given type, for the given ship, with the given bullet and argument.
+	 */
+	private void apply(int type, Ship ship, Bullet bullet, double argument) {
+		if (ship.getWorld() != world) {
+			nbSkipped++;
+			return;
+		}
+		try {
+			switch (type) {
+			case THRUST_ON:
+				ship.thrustOn();
+				break;
+			case THRUST_OFF:
+				ship.thrustOff();
+				break;
+			case TURN:
+				ship.turn(argument);
+				break;
+			case FIRE:
+				ship.fireBullet();
+				break;
+			case LOAD:
+				ship.loadBullet(bullet);
+				break;
+			}
+			nbApplied++;
+		}
+		catch (RuntimeException exc) {
+			nbSkipped++;
+		}
+	}
+
+	/**
+	 * A variable registering the world, the commands of this queue are applied in.
+	 */
+	private final World world;
+
+	/**
+	 * A variable registering the mask, mapping positions to records.
+	 */
+	private final int mask;
+
+	/**
+	 * Variables registering the records of this queue: their sequence numbers, and the type,
+	 * ship, bullet and argument of their command.
+	 */
+	private final AtomicLongArray sequences;
+	private final int[] types;
+	private final Ship[] ships;
+	private final Bullet[] bullets;
+	private final double[] arguments;
+
+	/**
+	 * Variables registering the position of the next record to claim and to drain.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	private long head = 0;
+
+	/**
+	 * Variables registering the drained commands, and the keys they are applied in order of.
+	 */
+	private final long[] order;
+	private final int[] drainedTypes;
+	private final Ship[] drainedShips;
+	private final Bullet[] drainedBullets;
+	private final double[] drainedArguments;
+
+	/**
+	 * Variables registering the number of rejected, applied and skipped commands.
+	 */
+	private final AtomicLong nbRejected = new AtomicLong();
+	private volatile long nbApplied = 0;
+	private volatile long nbSkipped = 0;
+
+	/**
+	 * Variables registering the types of commands.
+	 */
+	private static final int THRUST_ON = 0;
+	private static final int THRUST_OFF = 1;
+	private static final int TURN = 2;
+	private static final int FIRE = 3;
+	private static final int LOAD = 4;
+
+	/**
+	 * A variable registering the number of bits, reserved for the order of a command in a key.
+	 */
+	private static final int ORDINAL_BITS = 24;
+
+	/**
+	 * Variables registering the standard and largest capacity of a queue.
+	 */
+	public static final int STANDARD_CAPACITY = 1 << 16;
+	public static final int MAX_CAPACITY = 1 << ORDINAL_BITS;
+
+}
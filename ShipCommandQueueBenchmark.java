@@ -0,0 +1,92 @@
+package asteroids.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Ship;
+import asteroids.model.ShipCommandQueue;
+import asteroids.model.World;
+import asteroids.model.exceptions.IllegalWorldException;
+
+/**
+ * A benchmark of the throughput of a ship command queue: a number of producer threads offer
+ * turn commands for their own ships, while the simulation thread evolves the world and drains
+ * the queue. The target is well above a million applied commands per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ShipCommandQueueBenchmark {
+
+	@Param({"65536"})
+	public int capacity;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IllegalWorldException {
+		world = new World(10000, 10000);
+		ships = new Ship[NB_SHIPS];
+		for (int index = 0; index < NB_SHIPS; index++) {
+			ships[index] = new Ship(100 + 200*index, 100, 0, 0, 20, 0, 100);
+			world.addEntity(ships[index]);
+		}
+		queue = new ShipCommandQueue(world, capacity);
+	}
+
+	/**
+	 * The state of a producer thread: the ship it steers, and the sign of its next turn.
+	 */
+	@State(Scope.Thread)
+	public static class Producer {
+
+		@Setup(Level.Trial)
+		public void setUp(ShipCommandQueueBenchmark benchmark) {
+			synchronized (benchmark) {
+				ship = benchmark.ships[benchmark.nbProducers++ % NB_SHIPS];
+			}
+		}
+
+		private Ship ship;
+		private double angle = -0.001;
+
+	}
+
+	@Benchmark
+	@Group("ingest")
+	@GroupThreads(3)
+	public boolean offer(Producer producer) {
+		producer.angle = - producer.angle;
+		return queue.offerTurn(producer.ship, producer.angle);
+	}
+
+	@Benchmark
+	@Group("ingest")
+	@GroupThreads(1)
+	public void evolve() throws IllegalWorldException {
+		world.evolve(0);
+	}
+
+	private World world;
+	private Ship[] ships;
+	private ShipCommandQueue queue;
+	private int nbProducers = 0;
+
+	private static final int NB_SHIPS = 8;
+
+}
@@ -0,0 +1,100 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Ship;
+import asteroids.model.ShipCommandQueue;
+import asteroids.model.World;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class ShipCommandQueueTest {
+
+	private static final double EPSILON = 0.0001;
+
+	World world;
+	Ship ship1;
+	Ship ship2;
+	ShipCommandQueue queue;
+	List<Double> turns;
+
+	@Before
+	public void setUp() throws IllegalWorldException {
+		world = new World(1000,1000);
+		turns = new ArrayList<Double>();
+		ship1 = new RecordingShip(100,100);
+		ship2 = new RecordingShip(500,500);
+		world.addEntity(ship1);
+		world.addEntity(ship2);
+		queue = new ShipCommandQueue(world, 16);
+	}
+
+	@Test
+	public void testDrain_CaseOrderedByShip() throws IllegalWorldException {
+		assert ship1.getId() < ship2.getId();
+		queue.offerTurn(ship2, 0.1);
+		queue.offerThrustOff(ship2);
+		queue.offerTurn(ship1, 0.2);
+		queue.offerThrustOn(ship1);
+		queue.offerTurn(ship2, 0.3);
+		queue.offerThrustOn(ship2);
+		queue.offerTurn(ship1, 0.4);
+		queue.offerThrustOff(ship1);
+		assertEquals(0, turns.size());
+		world.evolve(0.01);
+		assertEquals(8, queue.getNbApplied());
+		assertEquals(4, turns.size());
+		assertEquals(0.2, turns.get(0), EPSILON);
+		assertEquals(0.4, turns.get(1), EPSILON);
+		assertEquals(0.1, turns.get(2), EPSILON);
+		assertEquals(0.3, turns.get(3), EPSILON);
+		assert ! ship1.thrusterEnabled();
+		assert ship2.thrusterEnabled();
+		world.evolve(0.01);
+		assertEquals(8, queue.getNbApplied());
+	}
+
+	@Test
+	public void testDrain_CaseShipLeftWorld() throws IllegalWorldException {
+		queue.offerThrustOn(ship1);
+		queue.offerThrustOn(ship2);
+		world.removeEntity(ship2);
+		world.evolve(0.01);
+		assertEquals(1, queue.getNbApplied());
+		assertEquals(1, queue.getNbSkipped());
+		assert ship1.thrusterEnabled();
+		assert ! ship2.thrusterEnabled();
+	}
+
+	@Test
+	public void testOffer_CaseFull() {
+		for (int index = 0; index < 16; index++)
+			assert queue.offerTurn(ship1, 0.1);
+		assert ! queue.offerTurn(ship1, 0.1);
+		assertEquals(16, queue.getNbAccepted());
+		assertEquals(1, queue.getNbRejected());
+	}
+
+	/**
+	 * A ship registering the angles it is turned over.
+	 */
+	private class RecordingShip extends Ship {
+
+		private RecordingShip(double xpos, double ypos) {
+			super(xpos, ypos, 0, 0, 20, 0, 100);
+		}
+
+		@Override
+		public void turn(double angle) {
+			turns.add(angle);
+			super.turn(angle);
+		}
+
+	}
+
+}
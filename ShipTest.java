@@ -11,8 +11,9 @@ import asteroids.facade.Facade;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 import asteroids.model.Bullet;
-import asteroids.model.IllegalBulletException;
-import asteroids.model.IllegalDurationException;
+import asteroids.model.EntitySet;
+import asteroids.model.exceptions.IllegalBulletException;
+import asteroids.model.exceptions.IllegalDurationException;
 
 public class ShipTest {
 
@@ -102,7 +103,7 @@ public class ShipTest {
 		ship.fireBullet();
 		assert ! ship.getBullets().contains(bullet);
 		assert bullet.getSource()==ship;
-		assert world.getBullets().contains(bullet);
+		assert new EntitySet<Bullet>(world, Bullet.class).getSet().contains(bullet);
 		assert ship.getNbBullets()==0;
 		assert bullet.getSpeed()==INITIAL_SPEED;
 	}
@@ -140,6 +141,33 @@ public class ShipTest {
 		assert ship3.isTerminated();
 	}
 	
+	@Test
+	public void testGetMass_CaseFireAndReload() {
+		World world2 = new World(1000,1000);
+		Ship ship2 = new Ship(500,500,0,0,20,0,100);
+		world2.addEntity(ship2);
+		double mass = ship2.getMass();
+		Bullet bullet1 = new Bullet(500,500,0,0,5);
+		Bullet bullet2 = new Bullet(500,500,0,0,3);
+		Bullet bullet3 = new Bullet(500,500,0,0,4);
+		ship2.loadBullet(bullet1);
+		ship2.loadBullet(bullet2);
+		ship2.loadBullet(bullet3);
+		assertEquals(mass+bullet1.getMass()+bullet2.getMass()+bullet3.getMass(), ship2.getMass(), mass*EPSILON*EPSILON);
+		ship2.fireBullet();
+		assert bullet1.getSource()==ship2;
+		assertEquals(mass+bullet2.getMass()+bullet3.getMass(), ship2.getMass(), mass*EPSILON*EPSILON);
+		Bullet bullet4 = new Bullet(500,500,0,0,6);
+		ship2.loadBullet(bullet4);
+		assertEquals(mass+bullet2.getMass()+bullet3.getMass()+bullet4.getMass(), ship2.getMass(), mass*EPSILON*EPSILON);
+		ship2.getBullets().remove(bullet3);
+		assertEquals(mass+bullet2.getMass()+bullet4.getMass(), ship2.getMass(), mass*EPSILON*EPSILON);
+		ship2.fireBullet();
+		ship2.fireBullet();
+		assertEquals(0, ship2.getNbBullets());
+		assertEquals(mass, ship2.getMass(), mass*EPSILON*EPSILON);
+	}
+	
 	private static final double INITIAL_SPEED = 250;
 }
 
@@ -0,0 +1,389 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalEntityException;
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of simulation clocks, advancing a world in steps of a fixed duration.
+ *
+ * Real time, offered to a clock in frames of arbitrary length, is accumulated and consumed
+ * in fixed steps. Each step executes the programs of the ships in the world and evolves
+ * the world for the duration of that step. The part of a frame that does not fill a whole
+ * step is carried over to the next frame, and can be used to interpolate between the
+ * previous and the current state of the world.
+ *
+ * @invar	The step of each simulation clock is a valid step.
+ * 			| isValidStep(getStep())
+ * @invar	Each simulation clock executes at least one step per frame.
+ * 			| getMaxStepsPerFrame() >= 1
+ */
+public class SimulationClock {
+
+	/**
+	 * Initialize this new simulation clock with given world, step and maximum number of
+	 * steps per frame.
+	 *
+	 * @param 	world
+	 * 			The world, driven by this new clock.
+	 * @param 	step
+	 * 			The fixed duration of a step of this new clock.
+	 * @param 	maxStepsPerFrame
+	 * 			The maximum number of steps this new clock executes per frame.
+	 * @post	The world of this new clock is equal to the given world.
+	 * 			| new.getWorld() == world
+	 * @post	The step of this new clock is equal to the given step.
+	 * 			| new.getStep() == step
+	 * @post	If the given maximum number of steps is at least 1, the maximum number of steps
+	 * 			per frame of this new clock is equal to it. Otherwise, it is equal to 1.
+	 * 			| new.getMaxStepsPerFrame() == Math.max(1, maxStepsPerFrame)
+	 * @throws	IllegalWorldException
+	 * 			The given world is ineffective or terminated.
+	 * 			| (world == null) || world.isTerminated()
+	 * @throws	IllegalDurationException
+	 * 			The given step is not a valid step.
+	 * 			| ! isValidStep(step)
+	 */
+	public SimulationClock(World world, double step, int maxStepsPerFrame)
+			throws IllegalWorldException, IllegalDurationException {
+		if ((world == null)||(world.isTerminated()))
+			throw new IllegalWorldException(world);
+		if (! isValidStep(step))
+			throw new IllegalDurationException(step);
+		this.world = world;
+		this.step = step;
+		this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+	}
+
+	/**
+	 * Initialize this new simulation clock with given world, and a standard step and
+	 * maximum number of steps per frame.
+	 *
+	 * @effect	| this(world, STANDARD_STEP, STANDARD_MAX_STEPS)
+	 */
+	public SimulationClock(World world) throws IllegalWorldException {
+		this(world, STANDARD_STEP, STANDARD_MAX_STEPS);
+	}
+
+	/**
+	 * Return the world, driven by this clock.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the fixed duration of a step of this clock.
+	 */
+	@Basic
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Return whether the given duration is a valid step for a clock.
+	 *
+	 * @param 	step
+	 * 			The duration to check.
+	 * @return	True if and only if the given duration is a strictly positive, finite number.
+	 * 			| result == (step > 0) && (step < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidStep(double step) {
+		return ((step > 0)&&(step < Double.POSITIVE_INFINITY));
+	}
+
+	/**
+	 * Return the maximum number of steps this clock executes per frame.
+	 */
+	@Basic
+	public int getMaxStepsPerFrame() {
+		return this.maxStepsPerFrame;
+	}
+
+	/**
+	 * Return the time, accumulated by this clock, that has not yet been consumed by a step.
+	 */
+	@Basic
+	public double getAccumulatedTime() {
+		return this.accumulatedTime;
+	}
+
+	/**
+	 * Return the total amount of time this clock has dropped, because frames offered more
+	 * time than could be consumed by the maximum number of steps per frame.
+	 */
+	@Basic
+	public double getDroppedTime() {
+		return this.droppedTime;
+	}
+
+	/**
+	 * Return the number of steps this clock has executed.
+	 */
+	@Basic
+	public long getNbSteps() {
+		return this.nbSteps;
+	}
+
+	/**
+	 * Return the interpolation factor between the previous and the current state of the world
+	 * of this clock.
+	 *
+	 * @return	The fraction of a step that is accumulated, but not yet consumed.
+	 * 			| result == getAccumulatedTime() / getStep()
+	 */
+	public double getAlpha() {
+		return getAccumulatedTime() / getStep();
+	}
+
+	/**
+	 * Advance this clock with a frame of given duration.
+	 *
+	 * @param 	frameTime
+	 * 			The real time that has passed since the previous frame.
+	 * @return	The number of steps executed during this frame.
+	 * 			| @see implementation
+	 * @effect	As long as the accumulated time covers a whole step and the maximum number of
+	 * 			steps per frame is not reached, a step is executed.
+	 * 			| @see implementation
+	 * @post	If the maximum number of steps per frame was reached, all whole steps that
+	 * 			remain accumulated are dropped.
+	 * 			| new.getAccumulatedTime() < getStep()
+	 * @throws	IllegalDurationException
+	 * 			The given frame time is negative or not a number.
+	 * 			| (frameTime < 0) || Double.isNaN(frameTime)
+	 */
+	public int advance(double frameTime)
+			throws IllegalEntityException, IllegalWorldException, IllegalDurationException {
+		if ((frameTime < 0)||(Double.isNaN(frameTime)))
+			throw new IllegalDurationException(frameTime);
+		this.accumulatedTime += frameTime;
+		int steps = 0;
+		while ((getAccumulatedTime() >= getStep())&&(steps < getMaxStepsPerFrame())) {
+			step();
+			this.accumulatedTime -= getStep();
+			steps++;
+		}
+		if (getAccumulatedTime() >= getStep()) {
+			double dropped = getStep() * Math.floor(getAccumulatedTime() / getStep());
+			this.droppedTime += dropped;
+			this.accumulatedTime -= dropped;
+		}
+		return steps;
+	}
+
+	/**
+	 * Execute a single step of this clock.
+	 *
+	 * @effect	The current positions of the entities in the world of this clock are registered
+	 * 			as their previous positions.
+	 * 			| for each entity in getWorld().getAllEntities()
+	 * 			| 	new.getPreviousPosition(entity) == getWorld().getEntities().get(entity)
+	 * @effect	The program of each ship in the world of this clock is executed for the
+	 * 			duration of a step.
+	 * 			| for each ship in getWorld().getAllEntities()
+	 * 			| 	if (ship.getProgram() != null)
+	 * 			| 		ship.getProgram().execute(getStep())
+	 * @effect	The world of this clock is evolved for the duration of a step.
+	 * 			| getWorld().evolve(getStep())
+	 * 
+	 * The ships with a program are collected in a list that is reused by every step, for
+	 * programs may add entities to the world while they are executed.
+	 */
+	public void step() throws IllegalEntityException, IllegalWorldException, IllegalDurationException {
+		World world = getWorld();
+		registerPreviousPositions();
+		for (Entity entity: world.getEntities().keySet()) {
+			if ((entity instanceof Ship)&&(((Ship) entity).getProgram() != null))
+				programmedShips.add((Ship) entity);
+		}
+		try {
+			for (int index = 0; index < programmedShips.size(); index++) {
+				Ship ship = programmedShips.get(index);
+				if (ship.getWorld() == world)
+					ship.getProgram().execute(getStep());
+			}
+		}
+		finally {
+			programmedShips.clear();
+		}
+		world.evolve(getStep());
+		this.nbSteps++;
+	}
+
+	/**
+	 * Register the current position of each entity in the world of this clock as its
+	 * previous position. The arrays, registering previous positions, are reused.
+	 */
+	private void registerPreviousPositions() {
+		Map<Entity,double[]> current = getWorld().getEntities();
+		Iterator<Entity> iterator = previousPositions.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (! current.containsKey(iterator.next()))
+				iterator.remove();
+		}
+		for (Map.Entry<Entity,double[]> entry: current.entrySet()) {
+			double[] previous = previousPositions.get(entry.getKey());
+			if (previous == null) {
+				previous = new double[2];
+				previousPositions.put(entry.getKey(), previous);
+			}
+			previous[0] = entry.getValue()[0];
+			previous[1] = entry.getValue()[1];
+		}
+	}
+
+	/**
+	 * Return the position of the given entity before the last step of this clock.
+	 *
+	 * @param 	entity
+	 * 			The entity to investigate.
+	 * @return	If the given entity was located in the world of this clock before the last step,
+	 * 			its position at that time. Otherwise, its current position.
+	 * 			| @see implementation
+	 */
+	public double[] getPreviousPosition(Entity entity) {
+		Vector position = new Vector(0, 0);
+		getPreviousPosition(entity, position);
+		return new double[]{position.getX(), position.getY()};
+	}
+
+	/**
+	 * Store the position of the given entity before the last step of this clock in the given
+	 * vector, without allocating any objects.
+	 *
+	 * @post	| (new position).getX() == getPreviousPosition(entity)[0]
+	 * 			| (new position).getY() == getPreviousPosition(entity)[1]
+	 */
+	public void getPreviousPosition(Entity entity, Vector position) {
+		double[] previous = previousPositions.get(entity);
+		if (previous == null)
+			getCurrentPosition(entity, position);
+		else {
+			position.setX(previous[0]);
+			position.setY(previous[1]);
+		}
+	}
+
+	/**
+	 * Return the position of the given entity after the last step of this clock.
+	 *
+	 * @param 	entity
+	 * 			The entity to investigate.
+	 * @return	| result == {entity.getXPosition(), entity.getYPosition()}
+	 */
+	public double[] getCurrentPosition(Entity entity) {
+		return new double[]{entity.getXPosition(), entity.getYPosition()};
+	}
+
+	/**
+	 * Store the position of the given entity after the last step of this clock in the given
+	 * vector, without allocating any objects.
+	 *
+	 * @post	| (new position).getX() == entity.getXPosition()
+	 * 			| (new position).getY() == entity.getYPosition()
+	 */
+	public void getCurrentPosition(Entity entity, Vector position) {
+		position.setX(entity.getXPosition());
+		position.setY(entity.getYPosition());
+	}
+
+	/**
+	 * Return the position of the given entity, interpolated between its previous and its
+	 * current position. In a world without boundaries, the entity is interpolated along the
+	 * shortest displacement, so that it does not sweep across the world when crossing a seam.
+	 *
+	 * @param 	entity
+	 * 			The entity to investigate.
+	 * @return	| previous = getPreviousPosition(entity)
+	 * 			| current = getCurrentPosition(entity)
+	 * 			| result == {getWorld().foldX(previous[0] +
+	 * 			| 	getAlpha()*getWorld().getSeparationX(current[0]-previous[0])),
+	 * 			| 	getWorld().foldY(previous[1] +
+	 * 			| 	getAlpha()*getWorld().getSeparationY(current[1]-previous[1]))}
+	 */
+	public double[] getInterpolatedPosition(Entity entity) {
+		Vector position = new Vector(0, 0);
+		getInterpolatedPosition(entity, position);
+		return new double[]{position.getX(), position.getY()};
+	}
+
+	/**
+	 * Store the position of the given entity, interpolated between its previous and its current
+	 * position, in the given vector, without allocating any objects. Renderers call this once
+	 * per entity per frame.
+	 *
+	 * @post	| (new position).getX() == getInterpolatedPosition(entity)[0]
+	 * 			| (new position).getY() == getInterpolatedPosition(entity)[1]
+	 */
+	public void getInterpolatedPosition(Entity entity, Vector position) {
+		double alpha = getAlpha();
+		double x = entity.getXPosition(), y = entity.getYPosition();
+		double[] previous = previousPositions.get(entity);
+		if (previous != null) {
+			x = world.foldX(previous[0] + alpha*world.getSeparationX(x-previous[0]));
+			y = world.foldY(previous[1] + alpha*world.getSeparationY(y-previous[1]));
+		}
+		position.setX(x);
+		position.setY(y);
+	}
+
+	/**
+	 * A variable registering the world, driven by this clock.
+	 */
+	private final World world;
+
+	/**
+	 * A variable registering the fixed duration of a step of this clock.
+	 */
+	private final double step;
+
+	/**
+	 * A variable registering the maximum number of steps this clock executes per frame.
+	 */
+	private final int maxStepsPerFrame;
+
+	/**
+	 * A variable registering the time, accumulated but not yet consumed by this clock.
+	 */
+	private double accumulatedTime = 0;
+
+	/**
+	 * A variable registering the total time, dropped by this clock.
+	 */
+	private double droppedTime = 0;
+
+	/**
+	 * A variable registering the number of steps, executed by this clock.
+	 */
+	private long nbSteps = 0;
+
+	/**
+	 * A variable registering the positions of the entities in the world of this clock
+	 * before the last step.
+	 */
+	private final HashMap<Entity,double[]> previousPositions = new HashMap<Entity,double[]>();
+
+	/**
+	 * A variable registering the ships whose programs are being executed by a step.
+	 */
+	private final ArrayList<Ship> programmedShips = new ArrayList<Ship>();
+
+	/**
+	 * A variable registering the standard duration of a step.
+	 */
+	public static final double STANDARD_STEP = 1/60.;
+
+	/**
+	 * A variable registering the standard maximum number of steps per frame.
+	 */
+	public static final int STANDARD_MAX_STEPS = 5;
+
+}
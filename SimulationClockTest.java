@@ -0,0 +1,96 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.SimulationClock;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import asteroids.model.WrappingWorld;
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class SimulationClockTest {
+
+	private static final double EPSILON = 0.0001;
+
+	World world;
+	Asteroid asteroid;
+	SimulationClock clock;
+
+	@Before
+	public void setUp() throws IllegalWorldException {
+		world = new World(1000,1000);
+		asteroid = new Asteroid(100, 100, 60, 0, 10);
+		world.addEntity(asteroid);
+		clock = new SimulationClock(world, 0.1, 3);
+	}
+
+	@Test
+	public void testAdvance_CaseWholeSteps() throws IllegalWorldException {
+		assertEquals(2, clock.advance(0.25));
+		assertEquals(2, clock.getNbSteps());
+		assertEquals(0.05, clock.getAccumulatedTime(), EPSILON);
+		assertEquals(0, clock.getDroppedTime(), EPSILON);
+		assertEquals(112, asteroid.getXPosition(), EPSILON);
+	}
+
+	@Test
+	public void testAdvance_CaseAccumulatorCap() throws IllegalWorldException {
+		assertEquals(3, clock.advance(0.75));
+		assertEquals(3, clock.getNbSteps());
+		assertEquals(0.4, clock.getDroppedTime(), EPSILON);
+		assertEquals(0.05, clock.getAccumulatedTime(), EPSILON);
+		assertEquals(118, asteroid.getXPosition(), EPSILON);
+		assertEquals(0, clock.advance(0.04));
+		assertEquals(0.4, clock.getDroppedTime(), EPSILON);
+		assertEquals(1, clock.advance(0.02));
+	}
+
+	@Test
+	public void testGetAlpha() throws IllegalWorldException {
+		clock.advance(0.1);
+		assertEquals(0, clock.getAlpha(), EPSILON);
+		clock.advance(0.025);
+		assertEquals(0.25, clock.getAlpha(), EPSILON);
+		clock.advance(0.05);
+		assertEquals(0.75, clock.getAlpha(), EPSILON);
+	}
+
+	@Test
+	public void testGetInterpolatedPosition() throws IllegalWorldException {
+		clock.advance(0.275);
+		assertEquals(106 + 0.75*6, clock.getInterpolatedPosition(asteroid)[0], EPSILON);
+		Vector position = new Vector(0, 0);
+		clock.getInterpolatedPosition(asteroid, position);
+		assertEquals(clock.getInterpolatedPosition(asteroid)[0], position.getX(), 0);
+		assertEquals(clock.getInterpolatedPosition(asteroid)[1], position.getY(), 0);
+		clock.getPreviousPosition(asteroid, position);
+		assertEquals(106, position.getX(), EPSILON);
+		clock.getCurrentPosition(asteroid, position);
+		assertEquals(112, position.getX(), EPSILON);
+	}
+
+	@Test
+	public void testGetInterpolatedPosition_CaseWrappingSeam() throws IllegalWorldException {
+		World wrapping = new WrappingWorld(1000,1000);
+		Asteroid crossing = new Asteroid(995, 500, 100, 0, 10);
+		wrapping.addEntity(crossing);
+		SimulationClock wrappingClock = new SimulationClock(wrapping, 0.1, 3);
+		wrappingClock.advance(0.125);
+		assertEquals(5, crossing.getXPosition(), EPSILON);
+		assertEquals(997.5, wrappingClock.getInterpolatedPosition(crossing)[0], EPSILON);
+		assertEquals(500, wrappingClock.getInterpolatedPosition(crossing)[1], EPSILON);
+		wrappingClock.advance(0.05);
+		assertEquals(2.5, wrappingClock.getInterpolatedPosition(crossing)[0], EPSILON);
+	}
+
+	@Test(expected = IllegalDurationException.class)
+	public void testAdvance_IllegalCaseNegativeFrame() throws IllegalWorldException {
+		clock.advance(-1);
+	}
+
+}
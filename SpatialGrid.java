@@ -0,0 +1,392 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A class of spatial grids, indexing entities by the axis-aligned boxes they cover.
+ *
+ * The grid is hashed: cells are only materialized when an item covers them, so the size
+ * of the world does not matter. Items are identified by the index at which they were
+ * inserted. Items covering too many cells are kept apart and tested against every query.
+ * All storage is reused between consecutive fillings of the grid. A removed item keeps its
+ * index and its links, and is skipped by all later queries until the grid is emptied.
+ *
+ * A grid can be periodic along both axes, for worlds that wrap around. The cells are then
+ * sized to divide the periods exactly, and a cell beyond a seam is folded onto the cell at
+ * the other side, so a box crossing a seam is linked into the cells on both sides without
+ * being inserted twice. Boxes are compared by the shortest distance between their centers
+ * along each axis.
+ */
+class SpatialGrid {
+
+	/**
+	 * Empty this grid and prepare it for items, indexed in cells of the given size.
+	 *
+	 * @param 	cellSize
+	 * 			The new size of the cells of this grid.
+	 * @param 	expectedItems
+	 * 			The number of items, expected to be inserted.
+	 * @post	This grid does not contain any items.
+	 * 			| new.getNbItems() == 0
+	 * @post	If the given cell size is a strictly positive finite number, the cell size of this
+	 * 			grid is equal to it. Otherwise, it is equal to 1.
+	 * 			| @see implementation
+	 */
+	void clear(double cellSize, int expectedItems) {
+		clear(cellSize, expectedItems, 0, 0);
+	}
+
+	/**
+	 * Empty this grid and prepare it for items, indexed in cells of about the given size,
+	 * folded by the given periods.
+	 *
+	 * @param 	periodX
+	 * 			The period of this grid along the x-axis, or 0 if it is not periodic.
+	 * @param 	periodY
+	 * 			The period of this grid along the y-axis, or 0 if it is not periodic.
+	 * @effect	This grid is emptied and prepared for the given number of items in cells of
+	 * 			the given size, which are then shrunk to divide the given periods exactly.
+	 * 			| @see implementation
+	 */
+	void clear(double cellSize, int expectedItems, double periodX, double periodY) {
+		if ((cellSize > 0)&&(cellSize < Double.POSITIVE_INFINITY))
+			this.cellSize = cellSize;
+		else
+			this.cellSize = 1;
+		this.cellSizeX = this.cellSize;
+		this.cellSizeY = this.cellSize;
+		this.periodX = 0;
+		this.periodY = 0;
+		if ((periodX > 0)&&(periodY > 0)&&(periodX < Double.POSITIVE_INFINITY)&&(periodY < Double.POSITIVE_INFINITY)) {
+			this.periodX = periodX;
+			this.periodY = periodY;
+			this.nbCellsX = (long) Math.max(1, Math.min(MAX_PERIODIC_CELLS, Math.floor(periodX / this.cellSize)));
+			this.nbCellsY = (long) Math.max(1, Math.min(MAX_PERIODIC_CELLS, Math.floor(periodY / this.cellSize)));
+			this.cellSizeX = periodX / nbCellsX;
+			this.cellSizeY = periodY / nbCellsY;
+		}
+		int tableSize = Integer.highestOneBit(Math.max(16, 2*expectedItems)-1) << 1;
+		if (heads.length != tableSize)
+			heads = new int[tableSize];
+		Arrays.fill(heads, -1);
+		if (items.length < expectedItems)
+			growItems(expectedItems);
+		nbItems = 0;
+		nbRemovedItems = 0;
+		nbNodes = 0;
+		nbLargeItems = 0;
+	}
+
+	/**
+	 * Return the size of the cells of this grid.
+	 */
+	double getCellSize() {
+		return this.cellSize;
+	}
+
+	/**
+	 * Return whether this grid is periodic.
+	 */
+	boolean isPeriodic() {
+		return this.periodX > 0;
+	}
+
+	/**
+	 * Return the number of items in this grid.
+	 */
+	int getNbItems() {
+		return this.nbItems;
+	}
+
+	/**
+	 * Return the number of items, removed from this grid since it was emptied.
+	 */
+	int getNbRemovedItems() {
+		return this.nbRemovedItems;
+	}
+
+	/**
+	 * Return the entity, inserted at the given index. Null if that item has been removed.
+	 */
+	Entity getItem(int index) {
+		return items[index];
+	}
+
+	/**
+	 * Insert the given entity, covering the given box, in this grid.
+	 *
+	 * @param 	entity
+	 * 			The entity to insert.
+	 * @return	The index of the inserted item.
+	 * 			| result == old.getNbItems()
+	 * @post	| new.getItem(result) == entity
+	 */
+	int insert(Entity entity, double minX, double minY, double maxX, double maxY) {
+		if (nbItems == items.length)
+			growItems(2*items.length);
+		int index = nbItems++;
+		items[index] = entity;
+		minXs[index] = minX;
+		minYs[index] = minY;
+		maxXs[index] = maxX;
+		maxYs[index] = maxY;
+		stamps[index] = 0;
+		long cx0 = cellX(minX), cx1 = cellX(maxX);
+		long cy0 = cellY(minY), cy1 = cellY(maxY);
+		if (isPeriodic()) {
+			cx1 = Math.min(cx1, cx0 + nbCellsX - 1);
+			cy1 = Math.min(cy1, cy0 + nbCellsY - 1);
+		}
+		if (getNbCells(cx0, cy0, cx1, cy1) > MAX_CELLS_PER_ITEM) {
+			if (nbLargeItems == largeItems.length)
+				largeItems = Arrays.copyOf(largeItems, 2*largeItems.length);
+			largeItems[nbLargeItems++] = index;
+		}
+		else {
+			for (long cx = cx0; cx <= cx1; cx++)
+				for (long cy = cy0; cy <= cy1; cy++)
+					link(slot(cx, cy), index);
+		}
+		return index;
+	}
+
+	/**
+	 * Remove the item at the given index from this grid.
+	 *
+	 * @post	| new.getItem(index) == null
+	 */
+	void remove(int index) {
+		if (items[index] != null) {
+			items[index] = null;
+			nbRemovedItems++;
+		}
+	}
+
+	/**
+	 * Visit the index of each item in this grid whose box overlaps with the given box.
+	 * Each item is visited at most once.
+	 *
+	 * @param	action
+	 * 			The action to perform on the index of each overlapping item.
+	 */
+	void query(double minX, double minY, double maxX, double maxY, IntConsumer action) {
+		int stamp = nextStamp();
+		for (int i = 0; i < nbLargeItems; i++)
+			visit(largeItems[i], stamp, minX, minY, maxX, maxY, action);
+		long cx0 = cellX(minX), cx1 = cellX(maxX);
+		long cy0 = cellY(minY), cy1 = cellY(maxY);
+		if (isPeriodic()) {
+			cx1 = Math.min(cx1, cx0 + nbCellsX - 1);
+			cy1 = Math.min(cy1, cy0 + nbCellsY - 1);
+		}
+		if (getNbCells(cx0, cy0, cx1, cy1) > Math.max(MAX_CELLS_PER_ITEM, nbItems)) {
+			for (int index = 0; index < nbItems; index++)
+				visit(index, stamp, minX, minY, maxX, maxY, action);
+			return;
+		}
+		for (long cx = cx0; cx <= cx1; cx++)
+			for (long cy = cy0; cy <= cy1; cy++)
+				for (int node = heads[slot(cx, cy)]; node != -1; node = nodeNext[node])
+					visit(nodeItem[node], stamp, minX, minY, maxX, maxY, action);
+	}
+
+	/**
+	 * Visit the index of each item in this grid whose box overlaps with the box of the item
+	 * at the given index, that item itself included.
+	 */
+	void queryItem(int index, IntConsumer action) {
+		query(minXs[index], minYs[index], maxXs[index], maxYs[index], action);
+	}
+
+	/**
+	 * Visit the index of each item in this grid whose box overlaps with the box of the item
+	 * at the given index of the given grid.
+	 */
+	void queryItem(SpatialGrid grid, int index, IntConsumer action) {
+		query(grid.minXs[index], grid.minYs[index], grid.maxXs[index], grid.maxYs[index], action);
+	}
+
+	/**
+	 * Visit the item at the given index, if it has not been visited with the given stamp
+	 * and its box overlaps with the given box.
+	 */
+	private void visit(int index, int stamp, double minX, double minY, double maxX, double maxY,
+			IntConsumer action) {
+		if ((stamps[index] == stamp)||(items[index] == null))
+			return;
+		stamps[index] = stamp;
+		if (isPeriodic()) {
+			if (overlapsPeriodic(minXs[index], maxXs[index], minX, maxX, periodX)&&
+					overlapsPeriodic(minYs[index], maxYs[index], minY, maxY, periodY))
+				action.accept(index);
+		}
+		else if ((minXs[index] <= maxX)&&(maxXs[index] >= minX)&&
+				(minYs[index] <= maxY)&&(maxYs[index] >= minY))
+			action.accept(index);
+	}
+
+	/**
+	 * Return whether the given intervals overlap on an axis with the given period, comparing the
+	 * shortest distance between their centers with their half lengths.
+	 */
+	private static boolean overlapsPeriodic(double min1, double max1, double min2, double max2,
+			double period) {
+		double reach = (max1 - min1 + max2 - min2) / 2;
+		if (2*reach >= period)
+			return true;
+		double distance = (min1 + max1 - min2 - max2) / 2;
+		distance -= period * Math.rint(distance / period);
+		return Math.abs(distance) <= reach;
+	}
+
+	/**
+	 * Return a fresh stamp to mark visited items with.
+	 */
+	private int nextStamp() {
+		if (++currentStamp == 0) {
+			Arrays.fill(stamps, 0);
+			currentStamp = 1;
+		}
+		return currentStamp;
+	}
+
+	/**
+	 * Return the index of the cell along the x-axis, containing the given coordinate.
+	 */
+	private long cellX(double coordinate) {
+		return (long) Math.floor(coordinate / cellSizeX);
+	}
+
+	/**
+	 * Return the index of the cell along the y-axis, containing the given coordinate.
+	 */
+	private long cellY(double coordinate) {
+		return (long) Math.floor(coordinate / cellSizeY);
+	}
+
+	/**
+	 * Return the number of cells in the given range of cells. If the range touches the
+	 * outermost representable cells, it is considered to be infinitely large.
+	 */
+	private static double getNbCells(long cx0, long cy0, long cx1, long cy1) {
+		if ((cx0 == Long.MIN_VALUE)||(cy0 == Long.MIN_VALUE)||
+				(cx1 == Long.MAX_VALUE)||(cy1 == Long.MAX_VALUE))
+			return Double.POSITIVE_INFINITY;
+		return ((double) (cx1-cx0)+1)*((double) (cy1-cy0)+1);
+	}
+
+	/**
+	 * Return the slot in the hash table of this grid for the cell with given indices.
+	 */
+	private int slot(long cx, long cy) {
+		if (isPeriodic()) {
+			cx = Math.floorMod(cx, nbCellsX);
+			cy = Math.floorMod(cy, nbCellsY);
+		}
+		long hash = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+		return (int) (hash ^ (hash >>> 29)) & (heads.length-1);
+	}
+
+	/**
+	 * Link the item with given index into the given slot.
+	 */
+	private void link(int slot, int index) {
+		if (nbNodes == nodeItem.length) {
+			nodeItem = Arrays.copyOf(nodeItem, 2*nodeItem.length);
+			nodeNext = Arrays.copyOf(nodeNext, 2*nodeNext.length);
+		}
+		nodeItem[nbNodes] = index;
+		nodeNext[nbNodes] = heads[slot];
+		heads[slot] = nbNodes++;
+	}
+
+	/**
+	 * Enlarge the item storage of this grid to the given capacity.
+	 */
+	private void growItems(int capacity) {
+		capacity = Math.max(capacity, 16);
+		items = Arrays.copyOf(items, capacity);
+		minXs = Arrays.copyOf(minXs, capacity);
+		minYs = Arrays.copyOf(minYs, capacity);
+		maxXs = Arrays.copyOf(maxXs, capacity);
+		maxYs = Arrays.copyOf(maxYs, capacity);
+		stamps = Arrays.copyOf(stamps, capacity);
+	}
+
+	/**
+	 * A variable registering the size of the cells of this grid.
+	 */
+	private double cellSize = 1;
+
+	/**
+	 * Variables registering the size of the cells along each axis, which differs from the cell
+	 * size of this grid if this grid is periodic.
+	 */
+	private double cellSizeX = 1;
+	private double cellSizeY = 1;
+
+	/**
+	 * Variables registering the periods of this grid, 0 if it is not periodic, and the number of
+	 * cells within each period.
+	 */
+	private double periodX = 0;
+	private double periodY = 0;
+	private long nbCellsX = 1;
+	private long nbCellsY = 1;
+
+	/**
+	 * Variables registering the items of this grid, and the boxes they cover.
+	 */
+	private Entity[] items = new Entity[0];
+	private double[] minXs = new double[0];
+	private double[] minYs = new double[0];
+	private double[] maxXs = new double[0];
+	private double[] maxYs = new double[0];
+
+	/**
+	 * A variable registering the stamp with which each item was last visited.
+	 */
+	private int[] stamps = new int[0];
+
+	/**
+	 * A variable registering the stamp of the last query.
+	 */
+	private int currentStamp = 0;
+
+	/**
+	 * A variable registering the number of items in this grid.
+	 */
+	private int nbItems = 0;
+
+	/**
+	 * A variable registering the number of items, removed from this grid since it was emptied.
+	 */
+	private int nbRemovedItems = 0;
+
+	/**
+	 * Variables registering the hash table of this grid: the first node of each slot, and
+	 * for each node its item and the next node in the same slot.
+	 */
+	private int[] heads = new int[0];
+	private int[] nodeItem = new int[64];
+	private int[] nodeNext = new int[64];
+	private int nbNodes = 0;
+
+	/**
+	 * A variable registering the items that cover too many cells to be linked into them.
+	 */
+	private int[] largeItems = new int[16];
+	private int nbLargeItems = 0;
+
+	/**
+	 * A variable registering the maximum number of cells an item is linked into.
+	 */
+	private static final int MAX_CELLS_PER_ITEM = 64;
+
+	/**
+	 * A variable registering the maximum number of cells within a period.
+	 */
+	private static final double MAX_PERIODIC_CELLS = 1 << 20;
+
+}
@@ -1,8 +1,18 @@
 package asteroids.model;
 
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import asteroids.model.exceptions.IllegalDurationException;
 import asteroids.model.exceptions.IllegalEntityException;
@@ -30,7 +40,27 @@ public class World {
 	 * 			| new.getHeight() == height
 	 */
 	public World(double width, double height) {
+		this(width, height, ThreadLocalRandom.current().nextLong());
+	}
+	
+	/**
+	 * Initialize this new world with given width, height and seed.
+	 * 
+	 * @param 	width
+	 * 			The width of this new world.
+	 * @param 	height
+	 * 			The height of this new world.
+	 * @param 	seed
+	 * 			The seed of the random source of this new world.
+	 * @post	The width and height of this new world are equal to the given width and height.
+	 * 			| new.getWidth() == width
+	 * 			| new.getHeight() == height
+	 * @post	The random source of this new world is seeded with the given seed.
+	 * 			| new.getRandom().getState() == seed
+	 */
+	public World(double width, double height, long seed) {
 		this.setSize(width,height);
+		this.random = new WorldRandom(seed);
 	}
 	
 	/**
@@ -77,6 +107,238 @@ public class World {
 			this.width = width;
 	}
 	
+	/**
+	 * Return whether this world has boundaries, entities bounce off.
+	 */
+	public boolean hasBoundaries() {
+		return true;
+	}
+	
+	/**
+	 * Return whether an entity with the given radius, centered at the given position, lies
+	 * within the boundaries of this world.
+	 * 
+	 * @return	| result == (xpos>0.99*radius)&&(xpos<1.01*(getWidth()-radius))&&
+	 * 			| 	(ypos>0.99*radius)&&(ypos<1.01*(getHeight()-radius))
+	 */
+	public boolean liesWithinBoundaries(double xpos, double ypos, double radius) {
+		return (xpos>0.99*radius)&&(xpos<1.01*(getWidth()-radius))&&
+				(ypos>0.99*radius)&&(ypos<1.01*(getHeight()-radius));
+	}
+	
+	/**
+	 * Return the displacement along the x-axis in this world, corresponding to the given
+	 * difference of positions along the x-axis.
+	 * 
+	 * @return	| result == dx
+	 */
+	public double getSeparationX(double dx) {
+		return dx;
+	}
+	
+	/**
+	 * Return the displacement along the y-axis in this world, corresponding to the given
+	 * difference of positions along the y-axis.
+	 * 
+	 * @return	| result == dy
+	 */
+	public double getSeparationY(double dy) {
+		return dy;
+	}
+	
+	/**
+	 * Return the position along the x-axis in this world, corresponding to the given position.
+	 * 
+	 * @return	| result == xpos
+	 */
+	public double foldX(double xpos) {
+		return xpos;
+	}
+	
+	/**
+	 * Return the position along the y-axis in this world, corresponding to the given position.
+	 * 
+	 * @return	| result == ypos
+	 */
+	public double foldY(double ypos) {
+		return ypos;
+	}
+	
+	/**
+	 * Return the random source of this world. All randomness in this world is drawn from
+	 * this source, so a world evolves identically for the same seed and the same inputs.
+	 */
+	public WorldRandom getRandom() {
+		return this.random;
+	}
+	
+	/**
+	 * Reseed the random source of this world with the given seed.
+	 * 
+	 * @param 	seed
+	 * 			The new seed.
+	 * @post	| new.getRandom().getState() == seed
+	 */
+	public void setSeed(long seed) {
+		this.random.setState(seed);
+	}
+	
+	/**
+	 * Return the journal, registering the events in this world. Null if none.
+	 */
+	public EventJournal getJournal() {
+		return this.journal;
+	}
+	
+	/**
+	 * Register the events in this world in the given journal from now on.
+	 * 
+	 * @param 	journal
+	 * 			The new journal of this world, or null to stop registering events.
+	 * @post	| new.getJournal() == journal
+	 */
+	public void setJournal(EventJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Return the delta encoder, encoding the state of this world after each evolution. Null if none.
+	 */
+	public WorldDeltaEncoder getDeltaEncoder() {
+		return this.deltaEncoder;
+	}
+	
+	/**
+	 * Encode the state of this world after each evolution with the given delta encoder from now on.
+	 * 
+	 * @param 	encoder
+	 * 			The new delta encoder of this world, or null to stop encoding.
+	 * @post	| new.getDeltaEncoder() == encoder
+	 * @throws	IllegalWorldException
+	 * 			The given encoder does not encode this world.
+	 * 			| (encoder != null) && (encoder.getWorld() != this)
+	 */
+	public void setDeltaEncoder(WorldDeltaEncoder encoder) throws IllegalWorldException {
+		if ((encoder != null)&&(encoder.getWorld() != this))
+			throw new IllegalWorldException(this);
+		this.deltaEncoder = encoder;
+	}
+	
+	/**
+	 * Return the queue, the collisions in this world are published in. Null if none.
+	 */
+	public CollisionEventQueue getCollisionQueue() {
+		return this.collisionQueue;
+	}
+	
+	/**
+	 * Publish the collisions in this world in the given queue from now on.
+	 * 
+	 * @param 	queue
+	 * 			The new collision queue of this world, or null to stop publishing collisions.
+	 * @post	| new.getCollisionQueue() == queue
+	 */
+	public void setCollisionQueue(CollisionEventQueue queue) {
+		this.collisionQueue = queue;
+	}
+	
+	/**
+	 * Return the queue, the commands for the ships in this world are collected in. Null if none.
+	 */
+	public ShipCommandQueue getCommandQueue() {
+		return this.commandQueue;
+	}
+	
+	/**
+	 * Apply the commands, collected in the given queue, at the start of each evolution from now on.
+	 * 
+	 * @param 	queue
+	 * 			The new command queue of this world, or null to stop applying commands.
+	 * @post	| new.getCommandQueue() == queue
+	 * @throws	IllegalWorldException
+	 * 			The given queue does not apply its commands in this world.
+	 * 			| (queue != null) && (queue.getWorld() != this)
+	 */
+	public void setCommandQueue(ShipCommandQueue queue) throws IllegalWorldException {
+		if ((queue != null)&&(queue.getWorld() != this))
+			throw new IllegalWorldException(this);
+		this.commandQueue = queue;
+	}
+	
+	/**
+	 * Return the view, publishing the state of this world after each evolution. Null if none.
+	 */
+	public WorldView getReadView() {
+		return this.readView;
+	}
+	
+	/**
+	 * Publish the state of this world after each evolution in the given view from now on.
+	 * 
+	 * @param 	view
+	 * 			The new view of this world, or null to stop publishing.
+	 * @post	| new.getReadView() == view
+	 * @throws	IllegalWorldException
+	 * 			The given view does not view this world.
+	 * 			| (view != null) && (view.getWorld() != this)
+	 */
+	public void setReadView(WorldView view) throws IllegalWorldException {
+		if ((view != null)&&(view.getWorld() != this))
+			throw new IllegalWorldException(this);
+		this.readView = view;
+	}
+	
+	/**
+	 * Return the gravity field, pulling the ships and bullets in this world. Null if none.
+	 */
+	public GravityField getGravityField() {
+		return this.gravityField;
+	}
+	
+	/**
+	 * Update the given gravity field at the start of each evolution from now on.
+	 * 
+	 * @param 	field
+	 * 			The new gravity field of this world, or null to switch off gravity.
+	 * @post	| new.getGravityField() == field
+	 * @throws	IllegalWorldException
+	 * 			The given field does not belong to this world.
+	 * 			| (field != null) && (field.getWorld() != this)
+	 */
+	public void setGravityField(GravityField field) throws IllegalWorldException {
+		if ((field != null)&&(field.getWorld() != this))
+			throw new IllegalWorldException(this);
+		this.gravityField = field;
+		for (Entity entity: getEntities().keySet()) {
+			entity.setGravity(0, 0);
+			if (entity.getWorld() == this)
+				updateSleepState(entity);
+		}
+	}
+	
+	/**
+	 * Return the metrics, collected for this world. Null if none.
+	 */
+	public WorldMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * Collect the given metrics for this world from now on.
+	 * 
+	 * @param 	metrics
+	 * 			The new metrics of this world, or null to collect no metrics.
+	 * @post	| new.getMetrics() == metrics
+	 * @throws	IllegalWorldException
+	 * 			The given metrics do not belong to this world.
+	 * 			| (metrics != null) && (metrics.getWorld() != this)
+	 */
+	public void setMetrics(WorldMetrics metrics) throws IllegalWorldException {
+		if ((metrics != null)&&(metrics.getWorld() != this))
+			throw new IllegalWorldException(this);
+		this.metrics = metrics;
+	}
+	
 	/**
 	 * Return the entities, located in this world.
 	 */
@@ -87,6 +349,9 @@ public class World {
 	/**
 	 * Add a given entity to this world.
 	 * 
+	 * While an event is being resolved by evolve, the addition is deferred until the end of
+	 * that event, and the entity is only validated then.
+	 * 
 	 * @param 	entity
 	 * 			The entity, that has to be added to this world.
 	 * @post	The world contains the given entity.
@@ -104,6 +369,11 @@ public class World {
 	 * 			| (getEntities().containsKey(entity) || entity == null)
 	 */
 	public void addEntity(Entity entity) throws IllegalEntityException {
+		if (deferring) {
+			deferredAdditions.set(deferredEntities.size());
+			deferredEntities.add(entity);
+			return;
+		}
 		if (getEntities().containsKey(entity) || entity == null)
 			throw new IllegalEntityException(entity);
 		if (entity.getWorld() != null) {
@@ -117,14 +387,216 @@ public class World {
 			}
 		}
 		if ((! entity.isTerminated())&&(entity.getWorld()!=null)) {
-			double[] pos = {entity.getXPosition(),entity.getYPosition()};
-			this.getEntities().put(entity, pos);
+			if (journal != null)
+				journal.recordAdd(this, entity, false);
+			placeEntity(entity);
+		}
+	}
+	
+	/**
+	 * Locate the given entity, whose position has been validated, in this world.
+	 */
+	private void placeEntity(Entity entity) {
+		double[] pos = {entity.getXPosition(),entity.getYPosition()};
+		reserveExpectedEntities();
+		if (this.getEntities().put(entity, pos) == null)
+			countEntity(entity, 1);
+		indexRange(entity);
+		this.assignId(entity);
+		this.updateSleepState(entity);
+		if ((journal != null)&&(entity instanceof Ship)) {
+			for (Bullet bullet: ((Ship) entity).getBullets()) {
+				if (bullet.getId() == 0) {
+					journal.recordAdd(this, bullet, true);
+					journal.recordLoad((Ship) entity, bullet);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add the given entities to this world, skipping those that cannot be placed in it.
+	 * 
+	 * All placements are validated before any entity is added, in a single pass over a spatial
+	 * index of this world, so that adding n entities does not take time proportional to n times
+	 * the number of entities in this world. An entity is rejected if it is ineffective or
+	 * terminated, if it is already located in this world or occurs earlier in the given
+	 * collection, if it is a bullet in flight or loaded on a ship, if it does not lie within the
+	 * boundaries of this world, or if it lies too close to an entity in this world or to an
+	 * earlier accepted entity, by the same measure as isValidPosition.
+	 * The accepted entities are then added in the order of the given collection. Rejected
+	 * entities are left untouched.
+	 * 
+	 * @param 	entities
+	 * 			The entities to add to this world.
+	 * @return	The rejected entities, in the order of the given collection.
+	 * @post	Each entity that is not rejected is located in this world.
+	 * 			| for (entity: entities)
+	 * 			| 	if (! result.contains(entity))
+	 * 			| 		new.getEntities().containsKey(entity) && (new entity).getWorld() == this
+	 */
+	public Set<Entity> addEntities(Collection<? extends Entity> entities) {
+		Set<Entity> rejected = new LinkedHashSet<Entity>();
+		double extents = 0;
+		for (Entity entity: getEntities().keySet())
+			extents += entity.getRadius();
+		for (Entity entity: entities) {
+			if (entity != null)
+				extents += entity.getRadius();
+		}
+		int nbItems = getEntities().size() + entities.size();
+		broadphase.clear(nbItems == 0 ? 1 : 4*extents/nbItems, nbItems,
+				hasBoundaries() ? 0 : getWidth(), hasBoundaries() ? 0 : getHeight());
+		for (Entity entity: getEntities().keySet())
+			insertSwept(entity, 0);
+		int nbExisting = broadphase.getNbItems();
+		for (Entity entity: entities) {
+			if (! canBePlaced(entity))
+				rejected.add(entity);
+		}
+		if (getEntities().isEmpty())
+			expectEntities(broadphase.getNbItems());
+		for (int index = nbExisting; index < broadphase.getNbItems(); index++) {
+			Entity entity = broadphase.getItem(index);
+			if (journal != null)
+				journal.recordAdd(this, entity, false);
+			if (entity.getWorld() != null)
+				entity.getWorld().removeEntity(entity);
+			foldPosition(entity);
+			entity.setWorld(this);
+			placeEntity(entity);
+		}
+		return rejected;
+	}
+	
+	/**
+	 * Return whether the given entity can be placed in this world at its folded position, next
+	 * to the entities in the broadphase of this world. If so, it is inserted in the broadphase
+	 * at that position.
+	 */
+	private boolean canBePlaced(Entity entity) {
+		if ((entity == null)||(entity.isTerminated())||(getEntities().containsKey(entity)))
+			return false;
+		if ((entity instanceof Bullet)&&
+				((((Bullet) entity).getSource() != null)||(((Bullet) entity).getShip() != null)))
+			return false;
+		double x = entity.getXPosition(), y = entity.getYPosition(), radius = entity.getRadius();
+		if (! liesWithinBoundaries(x, y, radius))
+			return false;
+		x = foldX(x);
+		y = foldY(y);
+		placedEntity = entity;
+		placedX = x;
+		placedY = y;
+		placementOverlaps = false;
+		broadphase.query(x-radius, y-radius, x+radius, y+radius, placementTest);
+		placedEntity = null;
+		if (placementOverlaps)
+			return false;
+		broadphase.insert(entity, x-radius, y-radius, x+radius, y+radius);
+		return true;
+	}
+	
+	/**
+	 * Fold the position of the given entity, which is not located in a world, into this world.
+	 * 
+	 * @effect	| if ((foldX(entity.getXPosition()) != entity.getXPosition()) ||
+	 * 			| 		(foldY(entity.getYPosition()) != entity.getYPosition()))
+	 * 			| 	entity.setPosition(foldX(entity.getXPosition()), foldY(entity.getYPosition()))
+	 */
+	void foldPosition(Entity entity) {
+		double xpos = foldX(entity.getXPosition()), ypos = foldY(entity.getYPosition());
+		if ((xpos != entity.getXPosition())||(ypos != entity.getYPosition()))
+			entity.setPosition(xpos, ypos);
+	}
+	
+	/**
+	 * Investigate whether the entity being placed lies too close to, or is, the entity at the
+	 * given index of the broadphase.
+	 */
+	private void testPlacement(int index) {
+		Entity other = broadphase.getItem(index);
+		double dx = getSeparationX(placedX - other.getXPosition());
+		double dy = getSeparationY(placedY - other.getYPosition());
+		if ((other == placedEntity)||
+				(Math.sqrt(dx*dx + dy*dy) < 0.99*(placedEntity.getRadius() + other.getRadius())))
+			placementOverlaps = true;
+	}
+	
+	/**
+	 * Assign an identifier of this world to the given entity, if it does not have one yet.
+	 * 
+	 * @post	| if (entity.getId() == 0)
+	 * 			| 	new.getNextId() == old.getNextId() + 1
+	 * 			| 	(new entity).getId() == old.getNextId()
+	 */
+	void assignId(Entity entity) {
+		if (entity.getId() == 0)
+			entity.setId(nextId++);
+	}
+	
+	/**
+	 * Prepare this world for the given number of entities, to be located in it by
+	 * restoreEntity or addEntity while it is still empty.
+	 */
+	void expectEntities(int count) {
+		this.expectedEntities = count;
+	}
+	
+	/**
+	 * Size the collections of this world for the number of entities it expects, if it is still
+	 * empty.
+	 */
+	private void reserveExpectedEntities() {
+		if (this.getEntities().isEmpty() && (expectedEntities > 0)) {
+			this.entities = new LinkedHashMap<Entity,double[]>(2*expectedEntities);
+			this.awakeEntities = new LinkedHashSet<Entity>(2*expectedEntities);
+			this.sleepingEntities = new LinkedHashSet<Entity>(2*expectedEntities);
 		}
+		this.expectedEntities = 0;
+	}
+	
+	/**
+	 * Locate the given entity in this world without checking its position, as the entity
+	 * is known to have been located in this world before.
+	 * 
+	 * @post	| new.getEntities().containsKey(entity)
+	 * 			| isAsleep(entity) == new.getSleepingEntities().contains(entity)
+	 */
+	void restoreEntity(Entity entity) {
+		reserveExpectedEntities();
+		if (this.getEntities().put(entity, new double[]{entity.getXPosition(), entity.getYPosition()}) == null)
+			countEntity(entity, 1);
+		indexRange(entity);
+		if (isAsleep(entity)) {
+			this.sleepingEntities.add(entity);
+			indexSleeping(entity);
+		}
+		else
+			this.awakeEntities.add(entity);
+	}
+	
+	/**
+	 * Return the identifier, this world will assign to the next entity without one.
+	 */
+	public long getNextId() {
+		return this.nextId;
+	}
+	
+	/**
+	 * Set the identifier, this world will assign to the next entity without one.
+	 */
+	void setNextId(long id) {
+		this.nextId = id;
 	}
 	
 	/**
 	 * Remove a given entity from this world.
 	 * 
+	 * While an event is being resolved by evolve, the removal is deferred until the end of that
+	 * event: only then is the entity taken out of the collections of this world and dissociated
+	 * from it. Removing it again before then has no effect.
+	 * 
 	 * @param	entity
 	 * 			The entity to remove from this world.
 	 * @post	This world does not contain the given entity.
@@ -141,172 +613,970 @@ public class World {
 			throw new IllegalEntityException(entity);
 		else if (entity.getWorld() != this)
 			throw new IllegalEntityException(entity);
+		else if (deferring) {
+			if (! isRemovalDeferred(entity)) {
+				if (journal != null)
+					journal.recordRemove(entity);
+				deferredEntities.add(entity);
+			}
+		}
 		else {
-			this.getEntities().remove(entity);
+			if (journal != null)
+				journal.recordRemove(entity);
+			if (this.getEntities().remove(entity) != null)
+				countEntity(entity, -1);
+			this.awakeEntities.remove(entity);
+			this.sleepingEntities.remove(entity);
+			unindexSleeping(entity);
+			unindexRange(entity);
 			entity.setWorld(null);
 		}
 	}
 	
 	/**
-	 * Return, if any, the entity whose center coincides with the given position. 
-	 * 
-	 * @param	xpos
-	 * 			The position along the x-axis to investigate.
-	 * @param	ypos
-	 * 			The position along the y-axis to investigate. 
-	 * @return 	Return the entity whose center coincides with the given position. Null if none.
-	 * 			| @see implementation
+	 * Return whether the last deferred request for the given entity is a removal.
 	 */
-	public Entity getEntityAt(double xpos,double ypos) {
-		for (Entity entity: getEntities().keySet()) {
-			if ((getEntities().get(entity)[0]==xpos)&&(getEntities().get(entity)[1]==ypos))
-				return entity;
+	private boolean isRemovalDeferred(Entity entity) {
+		for (int index = deferredEntities.size() - 1; index >= 0; index--) {
+			if (deferredEntities.get(index) == entity)
+				return ! deferredAdditions.get(index);
 		}
-		return null;
+		return false;
 	}
 	
 	/**
-	 * Return the entities in this world.
-	 */
-	public Set<? extends Entity> getAllEntities() {
-		return new HashSet<Entity>(getEntities().keySet());
-	}
-
-	/**
-	 * Return the time until the first collision in this world.
+	 * Apply the additions and removals of entities, deferred while resolving an event, in the
+	 * order in which they were requested, and stop deferring them.
 	 * 
-	 * @return	The time until the first collision, that will occur in this world, of an entity 
-	 * 			within that world with either a boundary of that world or another entity 
-	 * 			in that world.
-	 * 			| for (entity1: getAllEntities())
-	 * 			| 	result <= entity1.getTimeToBoundary()
-	 * 			| 		for (entity2: getAllEntities())
-	 * 			| 			result <= entity1.getTimeToCollision(entity2)
+	 * Entities to add are only validated now, against the entities that remain in this world.
+	 * If an entity cannot be added, the remaining requests are still applied before the
+	 * exception is thrown.
+	 * 
+	 * @throws	IllegalEntityException
+	 * 			One of the deferred entities could not be added to this world.
 	 */
-	public double getTimeFirstCollision() {
-		double boundary = Double.POSITIVE_INFINITY;
-		double collision = Double.POSITIVE_INFINITY;
-		double bound = Double.POSITIVE_INFINITY;
-		double coll = Double.POSITIVE_INFINITY;
-		for (Entity entity1: this.getEntities().keySet()) {
-			bound = entity1.getTimeToBoundary();
-			if (bound < boundary) {
-				boundary = bound;
-			}
-			for (Entity entity2: this.getEntities().keySet()) {
-				coll = entity1.getTimeToCollision(entity2);
-				if (coll<collision) {
-					collision = coll;
+	private void applyDeferred() throws IllegalEntityException {
+		deferring = false;
+		RuntimeException failure = null;
+		for (int index = 0; index < deferredEntities.size(); index++) {
+			Entity entity = deferredEntities.get(index);
+			if (deferredAdditions.get(index)) {
+				try {
+					if ((entity != null)&&(entity.getWorld() == this)&&(! getEntities().containsKey(entity)))
+						entity.setWorld(null);
+					addEntity(entity);
+				}
+				catch (RuntimeException exc) {
+					if (failure == null)
+						failure = exc;
 				}
+			}
+			else {
+				if (this.getEntities().remove(entity) != null)
+					countEntity(entity, -1);
+				this.awakeEntities.remove(entity);
+				this.sleepingEntities.remove(entity);
+				unindexSleeping(entity);
+				unindexRange(entity);
+				if (entity.getWorld() == this)
+					entity.setWorld(null);
+			}
 		}
-	}
-		return Math.min(boundary, collision);
+		deferredEntities.clear();
+		deferredAdditions.clear();
+		if (failure != null)
+			throw failure;
 	}
 	
 	/**
-	 * Return the position of the first collision in this world.
+	 * Return whether the given entity is asleep.
 	 * 
-	 * @return	The position, where the first collision of an entity within this world
-	 * 			with either a boundary of this world or another entity in that world.
-	 * 			| getAllEntities().move(getTimeFirstCollision)
-	 * 			| for (entity1: getAllEntities())
-	 * 			|	if (! entity1.isValidPosition(entity1.getXPosition(),entity1.getYPosition())
-	 * 			| 		if (entity1.getTimeToBoundary()==0)
-	 * 			| 			result == entity1.getBoundaryPosition()
-	 * 			| 		for (entity2: getAllEntities())
-	 * 			| 			if (entity2!=entity1)&&(!entity2.isValidPosition(
-	 * 			|				entity2.getXPosition(),entity2.getYPosition())
-	 * 			| 				result == entity1.getCollisionPosition(entity2)
+	 * @param 	entity
+	 * 			The entity to investigate.
+	 * @return	True if and only if the given entity does not move, is not pulled by gravity and,
+	 * 			if it is a ship, its thruster is disabled. Such an entity can never collide with
+	 * 			another sleeping entity.
+	 * 			| result == (entity.getXVelocity() == 0) && (entity.getYVelocity() == 0)
+	 * 			| 	&& (entity.getGravityX() == 0) && (entity.getGravityY() == 0)
+	 * 			| 	&& (! (entity instanceof Ship) || ! ((Ship) entity).thrusterEnabled())
 	 */
-	public double[] getFirstCollisionPosition() {
-		double boundary = Double.POSITIVE_INFINITY;
-		Entity entityB = null;
-		double collision = Double.POSITIVE_INFINITY;
-		Entity entityC1 = null;
-		Entity entityC2 = null;
-		double bound = Double.POSITIVE_INFINITY;
-		double coll = Double.POSITIVE_INFINITY;
-		for (Entity entity1: this.getEntities().keySet()) {
-			bound = entity1.getTimeToBoundary();
-			if (bound < boundary) {
-				boundary = bound;
-				entityB = entity1;
-			}
-			for (Entity entity2: this.getEntities().keySet()) {
-				coll = entity1.getTimeToCollision(entity2);
-				if (coll<collision) {
-					collision = coll;
-					entityC1 = entity1;
-					entityC2 = entity2;
-				}
-			}
-		}
-		if (Math.min(boundary, collision)==Double.POSITIVE_INFINITY) {
-			return null;
-		}
-		if (boundary<collision)
-			return entityB.getBoundaryPosition();
-		else
-			return entityC1.getCollisionPosition(entityC2);	
-		}
+	public static boolean isAsleep(Entity entity) {
+		if ((entity.getXVelocity() != 0)||(entity.getYVelocity() != 0))
+			return false;
+		if ((entity.getGravityX() != 0)||(entity.getGravityY() != 0))
+			return false;
+		if ((entity instanceof Ship)&&(((Ship) entity).thrusterEnabled()))
+			return false;
+		return true;
+	}
 	
 	/**
-	 * A method to evolve this world for a given duration.
+	 * Register the given entity as sleeping or awake, according to its current state.
 	 * 
-	 * | @see implementation
+	 * @param 	entity
+	 * 			The entity to classify.
+	 * @post	If the given entity is located in this world, it is registered as sleeping
+	 * 			if and only if it is asleep, and as awake otherwise.
+	 * 			| if (getEntities().containsKey(entity))
+	 * 			| 	new.getSleepingEntities().contains(entity) == isAsleep(entity)
+	 * 			| 	new.getAwakeEntities().contains(entity) == ! isAsleep(entity)
 	 */
-	public void evolve(double dt) throws IllegalEntityException, IllegalWorldException, IllegalDurationException {
-		if (dt<0 || Double.isNaN(dt))
-			throw new IllegalDurationException(dt);
-		double boundary = Double.POSITIVE_INFINITY;
-		Entity entityB = null;
-		double collision = Double.POSITIVE_INFINITY;
-		Entity entityC1 = null;
-		Entity entityC2 = null;
-		double bound = Double.POSITIVE_INFINITY;
-		double coll = Double.POSITIVE_INFINITY;
-		for (Entity entity1: this.getEntities().keySet()) {
-			bound = entity1.getTimeToBoundary();
-			if (bound < boundary) {
-				boundary = bound;
-				entityB = entity1;
-			}
-			for (Entity entity2: this.getEntities().keySet()) {
-				coll = entity1.getTimeToCollision(entity2);
-				if ((coll<collision)&&(coll>0)) {
-					collision = coll;
-					entityC1 = entity1;
-					entityC2 = entity2;
-				}
+	public void updateSleepState(Entity entity) {
+		if (! getEntities().containsKey(entity))
+			return;
+		if (isAsleep(entity)) {
+			if (awakeEntities.remove(entity) || ! sleepingEntities.contains(entity)) {
+				sleepingEntities.add(entity);
+				indexSleeping(entity);
 			}
 		}
-		if (Math.min(boundary, collision)>dt) {
-			for (Entity entity: this.getAllEntities()) {
-				entity.move(dt);
-			}
-		}
-		else if (Math.min(boundary, collision)<dt) {
-			for (Entity entity: this.getAllEntities()) {
-				entity.move(Math.min(boundary, collision));
-			}
-			if (boundary<collision) {
-				entityB.collideBoundary();
-				this.evolve(dt-boundary);
-			}
-			else {
-				entityC1.collide(entityC2);
-				this.evolve(dt-collision);
-			}
+		else {
+			unindexSleeping(entity);
+			if (sleepingEntities.remove(entity) || ! awakeEntities.contains(entity))
+				awakeEntities.add(entity);
 		}
 	}
 	
 	/**
-	 * Return whether this world is terminated.
+	 * Index the given sleeping entity at its current position in the index of sleeping entities
+	 * of this world, unless that index is to be rebuilt anyway.
 	 */
-	public boolean isTerminated() {
-		return this.isTerminated;
+	private void indexSleeping(Entity entity) {
+		if (! sleepingIndexValid)
+			return;
+		double x = entity.getXPosition(), y = entity.getYPosition(), radius = entity.getRadius();
+		entity.sleepingSlot = sleepingIndex.insert(entity, x-radius, y-radius, x+radius, y+radius);
 	}
-
+	
+	/**
+	 * Remove the given entity from the index of sleeping entities of this world, if it is
+	 * indexed there.
+	 */
+	private void unindexSleeping(Entity entity) {
+		if (entity.sleepingSlot >= 0) {
+			sleepingIndex.remove(entity.sleepingSlot);
+			entity.sleepingSlot = -1;
+		}
+	}
+	
+	/**
+	 * Make sure the index of sleeping entities of this world holds exactly its sleeping entities
+	 * at their current positions. The index is only rebuilt if it has been invalidated, or if
+	 * more entities have been removed from it than remain in it.
+	 */
+	private void ensureSleepingIndex() {
+		if (sleepingIndexValid && (sleepingIndex.getNbRemovedItems() <= this.sleepingEntities.size()))
+			return;
+		double extents = 0;
+		for (Entity entity: this.sleepingEntities)
+			extents += entity.getRadius();
+		int nbSleeping = this.sleepingEntities.size();
+		sleepingIndex.clear(nbSleeping == 0 ? 1 : 4*extents/nbSleeping, nbSleeping,
+				hasBoundaries() ? 0 : getWidth(), hasBoundaries() ? 0 : getHeight());
+		sleepingIndexValid = true;
+		for (Entity entity: this.sleepingEntities)
+			indexSleeping(entity);
+	}
+	
+	/**
+	 * Rebuild the index of sleeping entities of this world before it is used next, because the
+	 * sleeping entities have been changed without registering each change.
+	 */
+	void invalidateSleepingIndex() {
+		for (int index = 0; index < sleepingIndex.getNbItems(); index++) {
+			Entity entity = sleepingIndex.getItem(index);
+			if (entity != null)
+				entity.sleepingSlot = -1;
+		}
+		sleepingIndex.clear(1, 0);
+		sleepingIndexValid = false;
+	}
+	
+	/**
+	 * Update the indices of this world for the given entity in it, which has been moved or
+	 * resized. While the awake entities are being moved by evolve, or a range query is being
+	 * performed, the range index is only marked stale, and rebuilt once at the end of the
+	 * evolution or before the next range query.
+	 */
+	void updateIndices(Entity entity) {
+		if (entity.sleepingSlot >= 0) {
+			unindexSleeping(entity);
+			indexSleeping(entity);
+		}
+		if (entity.rangeSlot >= 0) {
+			if (movingAwakeEntities || (rangeAction != null))
+				rangeIndexStale = true;
+			else {
+				unindexRange(entity);
+				indexRange(entity);
+			}
+		}
+	}
+	
+	/**
+	 * Return whether the awake entities of this world are being moved up to the next event by
+	 * evolve, so that their new positions need not be checked against the other entities.
+	 */
+	boolean isMovingAwakeEntities() {
+		return this.movingAwakeEntities;
+	}
+	
+	/**
+	 * Return the entities in this world that are asleep.
+	 */
+	public Set<Entity> getSleepingEntities() {
+		return new HashSet<Entity>(this.sleepingEntities);
+	}
+	
+	/**
+	 * Return the entities in this world that are awake.
+	 */
+	public Set<Entity> getAwakeEntities() {
+		return new HashSet<Entity>(this.awakeEntities);
+	}
+	
+	/**
+	 * Return the number of sleeping entities in this world.
+	 */
+	public int getNbSleepingEntities() {
+		return this.sleepingEntities.size();
+	}
+	
+	/**
+	 * Return the number of awake entities in this world.
+	 */
+	public int getNbAwakeEntities() {
+		return this.awakeEntities.size();
+	}
+	
+	/**
+	 * Return, if any, the entity whose center coincides with the given position. 
+	 * 
+	 * @param	xpos
+	 * 			The position along the x-axis to investigate.
+	 * @param	ypos
+	 * 			The position along the y-axis to investigate. 
+	 * @return 	Return the entity whose center coincides with the given position. Null if none.
+	 * 			| @see implementation
+	 */
+	public Entity getEntityAt(double xpos,double ypos) {
+		for (Entity entity: getEntities().keySet()) {
+			if ((getEntities().get(entity)[0]==xpos)&&(getEntities().get(entity)[1]==ypos))
+				return entity;
+		}
+		return null;
+	}
+	
+	/**
+	 * Write a record of each entity in this world of the given type into the given array,
+	 * starting at the given offset, for as many records as fit in that array.
+	 * 
+	 * Each record consists of EXPORT_STRIDE numbers: the identifier, the type code, the position
+	 * along the x-axis and y-axis, the velocity along the x-axis and y-axis, and the radius of an
+	 * entity. Records are written in the order in which the entities are scanned by this world,
+	 * and nothing is allocated on the way.
+	 * 
+	 * @param 	target
+	 * 			The array to write the records into.
+	 * @param 	offset
+	 * 			The index in the given array of the first record.
+	 * @param 	type
+	 * 			The type of entities to export.
+	 * @return	The number of records written.
+	 * 			| result == Math.min((target.length-offset)/EXPORT_STRIDE,
+	 * 			| 	number of entities in getEntities().keySet() of the given type)
+	 * @throws	IndexOutOfBoundsException
+	 * 			The given offset does not lie within the given array.
+	 * 			| (offset < 0) || (offset > target.length)
+	 */
+	public int exportState(double[] target, int offset, Class<? extends Entity> type)
+			throws IndexOutOfBoundsException {
+		if ((offset < 0)||(offset > target.length))
+			throw new IndexOutOfBoundsException(Integer.toString(offset));
+		int capacity = (target.length - offset)/EXPORT_STRIDE;
+		int count = 0;
+		for (Entity entity: getEntities().keySet()) {
+			if (count == capacity)
+				break;
+			if (! type.isInstance(entity))
+				continue;
+			int index = offset + count*EXPORT_STRIDE;
+			target[index] = entity.getId();
+			target[index+1] = getTypeCode(entity);
+			target[index+2] = entity.getXPosition();
+			target[index+3] = entity.getYPosition();
+			target[index+4] = entity.getXVelocity();
+			target[index+5] = entity.getYVelocity();
+			target[index+6] = entity.getRadius();
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Write a record of each entity in this world of the given type into the given buffer,
+	 * from its current position on, for as many records as fit in its remaining space.
+	 * 
+	 * @return	The number of records written.
+	 * 			| result == Math.min(target.remaining()/EXPORT_STRIDE,
+	 * 			| 	number of entities in getEntities().keySet() of the given type)
+	 * @post	The position of the given buffer is advanced past the records written.
+	 * 			| (new target).position() == target.position() + result*EXPORT_STRIDE
+	 * @see		#exportState(double[], int, Class)
+	 */
+	public int exportState(DoubleBuffer target, Class<? extends Entity> type) {
+		int capacity = target.remaining()/EXPORT_STRIDE;
+		int count = 0;
+		for (Entity entity: getEntities().keySet()) {
+			if (count == capacity)
+				break;
+			if (! type.isInstance(entity))
+				continue;
+			target.put(entity.getId());
+			target.put(getTypeCode(entity));
+			target.put(entity.getXPosition());
+			target.put(entity.getYPosition());
+			target.put(entity.getXVelocity());
+			target.put(entity.getYVelocity());
+			target.put(entity.getRadius());
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Return the code of the type of the given entity in an exported record.
+	 * 
+	 * @return	| if (entity instanceof Ship) then result == EXPORT_SHIP
+	 * 			| else if (entity instanceof Bullet) then result == EXPORT_BULLET
+	 * 			| else if (entity instanceof Asteroid) then result == EXPORT_ASTEROID
+	 * 			| else if (entity instanceof Planetoid) then result == EXPORT_PLANETOID
+	 * 			| else result == -1
+	 */
+	public static int getTypeCode(Entity entity) {
+		if (entity instanceof Ship)
+			return EXPORT_SHIP;
+		if (entity instanceof Bullet)
+			return EXPORT_BULLET;
+		if (entity instanceof Asteroid)
+			return EXPORT_ASTEROID;
+		if (entity instanceof Planetoid)
+			return EXPORT_PLANETOID;
+		return -1;
+	}
+	
+	/**
+	 * Perform the given action on each entity of the given type in this world that lies within
+	 * the given distance of the given position.
+	 * 
+	 * The entities are found through a spatial index of this world, which is kept up to date as
+	 * entities are added, removed, moved or resized, and rebuilt at most once per evolution.
+	 * No collection of results is created. An entity lies within the
+	 * given distance if its disc overlaps with the disc around the given position, measured by
+	 * the separations of this world. The action may remove entities from this world; entities
+	 * removed before their turn are skipped.
+	 * 
+	 * @param 	x
+	 * 			The position along the x-axis to query around.
+	 * @param 	y
+	 * 			The position along the y-axis to query around.
+	 * @param 	radius
+	 * 			The distance to query within. No entities are visited for a negative radius.
+	 * @param 	type
+	 * 			The type of entities to visit, or null to visit entities of any type.
+	 * @param 	action
+	 * 			The action to perform on each entity that is found.
+	 * @effect	| for each entity in getEntities().keySet()
+	 * 			| 	if (type == null || type.isInstance(entity)) &&
+	 * 			| 			(Math.hypot(getSeparationX(entity.getXPosition()-x),
+	 * 			| 				getSeparationY(entity.getYPosition()-y)) <= radius+entity.getRadius())
+	 * 			| 		action.accept(entity)
+	 * @throws	IllegalStateException
+	 * 			The action queries this world itself.
+	 */
+	public <T extends Entity> void queryRadius(double x, double y, double radius, Class<T> type,
+			Consumer<? super T> action) throws IllegalStateException {
+		if (!(radius >= 0))
+			return;
+		queryRange(x-radius, y-radius, x+radius, y+radius, radius, type, action);
+	}
+	
+	/**
+	 * Perform the given action on each entity in this world that lies within the given distance
+	 * of the given position.
+	 * 
+	 * @effect	| queryRadius(x, y, radius, null, action)
+	 */
+	public void queryRadius(double x, double y, double radius, Consumer<? super Entity> action)
+			throws IllegalStateException {
+		queryRadius(x, y, radius, null, action);
+	}
+	
+	/**
+	 * Perform the given action on each entity of the given type in this world that overlaps
+	 * with the given rectangle.
+	 * 
+	 * The entities are found through the spatial index, used by queryRadius. An entity overlaps
+	 * with the rectangle if its disc does, measured by the separations of this world from the
+	 * center of the rectangle.
+	 * 
+	 * @param 	type
+	 * 			The type of entities to visit, or null to visit entities of any type.
+	 * @param 	action
+	 * 			The action to perform on each entity that is found.
+	 * @effect	| for each entity in getEntities().keySet()
+	 * 			| 	if (type == null || type.isInstance(entity)) &&
+	 * 			| 			(Math.hypot(Math.max(0, Math.abs(getSeparationX(entity.getXPosition()-(minX+maxX)/2))-(maxX-minX)/2),
+	 * 			| 				Math.max(0, Math.abs(getSeparationY(entity.getYPosition()-(minY+maxY)/2))-(maxY-minY)/2))
+	 * 			| 				<= entity.getRadius())
+	 * 			| 		action.accept(entity)
+	 * @throws	IllegalStateException
+	 * 			The action queries this world itself.
+	 */
+	public <T extends Entity> void queryRect(double minX, double minY, double maxX, double maxY,
+			Class<T> type, Consumer<? super T> action) throws IllegalStateException {
+		if (!((minX <= maxX)&&(minY <= maxY)))
+			return;
+		queryRange(minX, minY, maxX, maxY, -1, type, action);
+	}
+	
+	/**
+	 * Perform the given action on each entity in this world that overlaps with the given
+	 * rectangle.
+	 * 
+	 * @effect	| queryRect(minX, minY, maxX, maxY, null, action)
+	 */
+	public void queryRect(double minX, double minY, double maxX, double maxY,
+			Consumer<? super Entity> action) throws IllegalStateException {
+		queryRect(minX, minY, maxX, maxY, null, action);
+	}
+	
+	/**
+	 * Perform the given action on each entity of the given type in the range index of this world
+	 * that overlaps with the given box, and with the disc that fits in it if the given radius is
+	 * not negative.
+	 */
+	@SuppressWarnings("unchecked")
+	private void queryRange(double minX, double minY, double maxX, double maxY, double radius,
+			Class<? extends Entity> type, Consumer<?> action) throws IllegalStateException {
+		if (rangeAction != null)
+			throw new IllegalStateException();
+		ensureRangeIndex();
+		rangeX = (minX + maxX)/2;
+		rangeY = (minY + maxY)/2;
+		rangeHalfWidth = (maxX - minX)/2;
+		rangeHalfHeight = (maxY - minY)/2;
+		rangeRadius = radius;
+		rangeType = (type == null) ? Entity.class : type;
+		rangeAction = (Consumer<? super Entity>) action;
+		try {
+			rangeIndex.query(minX, minY, maxX, maxY, rangeTest);
+		}
+		finally {
+			rangeType = null;
+			rangeAction = null;
+		}
+	}
+	
+	/**
+	 * Perform the action of the current range query on the entity at the given index of the
+	 * range index, if it is still located in this world and lies within the queried range.
+	 */
+	private void testRange(int index) {
+		Entity entity = rangeIndex.getItem(index);
+		if ((entity.getWorld() != this)||(! rangeType.isInstance(entity)))
+			return;
+		double dx = Math.abs(getSeparationX(entity.getXPosition() - rangeX));
+		double dy = Math.abs(getSeparationY(entity.getYPosition() - rangeY));
+		double reach = entity.getRadius();
+		if (rangeRadius >= 0)
+			reach += rangeRadius;
+		else {
+			dx = Math.max(0, dx - rangeHalfWidth);
+			dy = Math.max(0, dy - rangeHalfHeight);
+		}
+		if (dx*dx + dy*dy <= reach*reach)
+			rangeAction.accept(entity);
+	}
+	
+	/**
+	 * Insert the given entity at its current position in the range index of this world, if
+	 * that index is in use. While the awake entities are being moved by evolve, or a range query
+	 * is being performed, the index is marked stale instead.
+	 */
+	private void indexRange(Entity entity) {
+		if (! rangeIndexValid)
+			return;
+		if (movingAwakeEntities || (rangeAction != null)) {
+			rangeIndexStale = true;
+			return;
+		}
+		double x = entity.getXPosition(), y = entity.getYPosition(), radius = entity.getRadius();
+		entity.rangeSlot = rangeIndex.insert(entity, x-radius, y-radius, x+radius, y+radius);
+	}
+	
+	/**
+	 * Remove the given entity from the range index of this world, if it is indexed there.
+	 */
+	private void unindexRange(Entity entity) {
+		if (entity.rangeSlot >= 0) {
+			rangeIndex.remove(entity.rangeSlot);
+			entity.rangeSlot = -1;
+		}
+	}
+	
+	/**
+	 * Make sure the range index of this world holds exactly its entities at their current
+	 * positions. Once built, the index is kept up to date as entities are added, removed, moved
+	 * and resized. It is only rebuilt if it has been invalidated, if entities were moved by
+	 * evolve since it was last built, or if more entities have been removed from it than
+	 * remain in it.
+	 */
+	private void ensureRangeIndex() {
+		if (rangeIndexValid && (! rangeIndexStale) &&
+				(rangeIndex.getNbRemovedItems() <= getEntities().size()))
+			return;
+		double extents = 0;
+		for (Entity entity: getEntities().keySet())
+			extents += entity.getRadius();
+		int nbItems = getEntities().size();
+		rangeIndex.clear(nbItems == 0 ? 1 : 4*extents/nbItems, nbItems,
+				hasBoundaries() ? 0 : getWidth(), hasBoundaries() ? 0 : getHeight());
+		rangeIndexValid = true;
+		rangeIndexStale = false;
+		for (Entity entity: getEntities().keySet())
+			indexRange(entity);
+	}
+	
+	/**
+	 * Stop keeping the range index of this world up to date, and build it anew before the next
+	 * range query, because the entities of this world have been replaced all at once.
+	 */
+	void invalidateRangeIndex() {
+		for (int index = 0; index < rangeIndex.getNbItems(); index++) {
+			Entity entity = rangeIndex.getItem(index);
+			if (entity != null)
+				entity.rangeSlot = -1;
+		}
+		rangeIndex.clear(1, 0);
+		rangeIndexValid = false;
+		rangeIndexStale = false;
+	}
+	
+	/**
+	 * Return the number of entities in this world, whose type has the given code in an exported
+	 * record. Zero for any other code.
+	 * 
+	 * @return	| result == number of entities in getEntities().keySet() with
+	 * 			| 	getTypeCode(entity) == typeCode
+	 */
+	public int getNbEntities(int typeCode) {
+		if ((typeCode < 0)||(typeCode >= nbEntitiesOfType.length))
+			return 0;
+		return nbEntitiesOfType[typeCode];
+	}
+	
+	/**
+	 * Count the given number of entities of the type of the given entity, as having entered this
+	 * world. A negative number counts entities that have left this world.
+	 */
+	void countEntity(Entity entity, int number) {
+		int typeCode = getTypeCode(entity);
+		if (typeCode >= 0)
+			nbEntitiesOfType[typeCode] += number;
+	}
+	
+	/**
+	 * Return the entities in this world.
+	 */
+	public Set<? extends Entity> getAllEntities() {
+		return new LinkedHashSet<Entity>(getEntities().keySet());
+	}
+
+	/**
+	 * Return the time until the first collision in this world.
+	 * 
+	 * @return	The time until the first collision, that will occur in this world, of an entity 
+	 * 			within that world with either a boundary of that world or another entity 
+	 * 			in that world.
+	 * 			Pairs of sleeping entities are not investigated, for they never collide.
+	 * 			| for (entity1: getAllEntities())
+	 * 			| 	result <= entity1.getTimeToBoundary()
+	 * 			| 		for (entity2: getAllEntities())
+	 * 			| 			result <= entity1.getTimeToCollision(entity2)
+	 */
+	public double getTimeFirstCollision() {
+		predictFirstCollision();
+		return Math.min(nextBoundary, nextCollision);
+	}
+	
+	/**
+	 * Return the position of the first collision in this world.
+	 * 
+	 * @return	The position, where the first collision of an entity within this world
+	 * 			with either a boundary of this world or another entity in that world.
+	 * 			| getAllEntities().move(getTimeFirstCollision)
+	 * 			| for (entity1: getAllEntities())
+	 * 			|	if (! entity1.isValidPosition(entity1.getXPosition(),entity1.getYPosition())
+	 * 			| 		if (entity1.getTimeToBoundary()==0)
+	 * 			| 			result == entity1.getBoundaryPosition()
+	 * 			| 		for (entity2: getAllEntities())
+	 * 			| 			if (entity2!=entity1)&&(!entity2.isValidPosition(
+	 * 			|				entity2.getXPosition(),entity2.getYPosition())
+	 * 			| 				result == entity1.getCollisionPosition(entity2)
+	 */
+	public double[] getFirstCollisionPosition() {
+		Vector position = new Vector(0, 0);
+		if (! getFirstCollisionPosition(position))
+			return null;
+		return new double[]{position.getX(),position.getY()};
+	}
+	
+	/**
+	 * Compute the position of the first collision in this world, without allocating any objects.
+	 * The time of each collision is computed once, and reused to compute its position.
+	 * 
+	 * @param	position
+	 * 			The vector to store the position of the first collision in.
+	 * @return	False if and only if no collision will occur in this world.
+	 * 			| result == (getFirstCollisionPosition() != null)
+	 * @post	If a collision will occur, the given vector holds its position, as returned by
+	 * 			getFirstCollisionPosition(). Otherwise, the given vector is left untouched.
+	 * 			| if (result)
+	 * 			| 	(new position).getX() == getFirstCollisionPosition()[0]
+	 * 			| 	(new position).getY() == getFirstCollisionPosition()[1]
+	 */
+	public boolean getFirstCollisionPosition(Vector position) {
+		predictFirstCollision();
+		if (Math.min(nextBoundary, nextCollision)==Double.POSITIVE_INFINITY)
+			return false;
+		if (nextBoundary<nextCollision)
+			return nextBoundaryEntity.getBoundaryPosition(position);
+		else
+			return nextCollisionEntity1.getCollisionPosition(nextCollisionEntity2, nextCollision, position);
+	}
+	
+	/**
+	 * Look for the first event in this world, however far ahead, and register its time and the
+	 * entities involved.
+	 * 
+	 * Events are looked for within growing horizons. An event found within the current horizon
+	 * is the first one, for all pairs that could collide earlier have been investigated. The last
+	 * horizon is so large that all swept boxes of moving entities cover the whole world.
+	 */
+	private void predictFirstCollision() {
+		for (double horizon = 1; ; horizon *= 64) {
+			if (horizon > MAX_FINITE_HORIZON)
+				horizon = Double.MAX_VALUE;
+			predictFirstEvent(horizon);
+			if ((Math.min(nextBoundary, nextCollision) <= horizon)||(horizon == Double.MAX_VALUE))
+				return;
+		}
+	}
+	
+	/**
+	 * A method to evolve this world for a given duration.
+	 * 
+	 * The commands, collected in the command queue of this world, are applied first.
+	 * Then the gravity field of this world, if any, registers the acceleration of each ship
+	 * and bullet, which is held constant during this evolution.
+	 * While an event is resolved, entities are added to and removed from this world in
+	 * a single pass at the end of the event.
+	 * The first event, within the remaining duration, is looked for among the boundary
+	 * collisions of the awake entities, and among the collisions of awake entities with
+	 * entities whose path, during the remaining duration, crosses theirs. Sleeping
+	 * entities are never moved, and pairs of sleeping entities are never investigated.
+	 * Each evolution is registered as a flight recorder event, if that event is enabled, and
+	 * counted in the metrics of this world, if they are collected. An evolution that fails is
+	 * registered as failed in the journal of this world, if any.
+	 * 
+	 * | @see implementation
+	 */
+	public void evolve(double dt) throws IllegalEntityException, IllegalWorldException, IllegalDurationException {
+		if (dt<0 || Double.isNaN(dt))
+			throw new IllegalDurationException(dt);
+		EvolveEvent event = new EvolveEvent();
+		event.begin();
+		int nbEvents = 0;
+		stepTime = 0;
+		WorldMetrics metrics = ((this.metrics != null)&&(this.metrics.isCollecting())) ? this.metrics : null;
+		long startTime = (metrics != null) ? System.nanoTime() : 0;
+		int nbPredictions = 0;
+		nbPairTests = 0;
+		if (commandQueue != null)
+			commandQueue.drain();
+		if (journal != null)
+			journal.recordEvolve(dt);
+		try {
+			if (gravityField != null)
+				gravityField.update();
+			double timeLeft = dt;
+			while (timeLeft > 0) {
+				predictFirstEvent(timeLeft);
+				nbPredictions++;
+				double time = Math.max(0, Math.min(nextBoundary, nextCollision));
+				boolean boundaryEvent = nextBoundary<nextCollision;
+				Entity entity1 = boundaryEvent ? nextBoundaryEntity : nextCollisionEntity1;
+				Entity entity2 = boundaryEvent ? null : nextCollisionEntity2;
+				if (time > timeLeft) {
+					moveAwakeEntities(timeLeft);
+					timeLeft = 0;
+				}
+				else {
+					if (time > 0)
+						moveAwakeEntities(time);
+					stepTime = dt - timeLeft + time;
+					nbEvents++;
+					deferring = true;
+					try {
+						if (boundaryEvent) {
+							if (collisionQueue != null)
+								publishBoundaryCollision(entity1);
+							if (metrics != null)
+								metrics.recordCollision(entity1, null);
+							entity1.collideBoundary();
+						}
+						else {
+							if (collisionQueue != null)
+								publishObjectCollision(entity1, entity2);
+							if (metrics != null)
+								metrics.recordCollision(entity1, entity2);
+							entity1.collide(entity2);
+						}
+					}
+					finally {
+						applyDeferred();
+					}
+					timeLeft -= time;
+				}
+			}
+		}
+		catch (RuntimeException exc) {
+			if (journal != null)
+				journal.recordFailure(exc);
+			throw exc;
+		}
+		if (rangeIndexStale)
+			ensureRangeIndex();
+		if (journal != null)
+			journal.recordEndOfEvolve(this);
+		if (deltaEncoder != null)
+			deltaEncoder.encodeTick();
+		if (readView != null)
+			readView.publish();
+		if (event.shouldCommit()) {
+			event.gameTime = dt;
+			event.nbEvents = nbEvents;
+			event.nbEntities = getEntities().size();
+			event.nbAwakeEntities = awakeEntities.size();
+			event.commit();
+		}
+		if (metrics != null)
+			metrics.recordEvolve(System.nanoTime() - startTime, nbPredictions, nbPairTests);
+	}
+	
+	/**
+	 * Return the game time, elapsed since the start of the current or last evolution of this
+	 * world, up to the event that is being resolved.
+	 */
+	double getStepTime() {
+		return this.stepTime;
+	}
+	
+	/**
+	 * Publish the collision of the given entity with a boundary of this world, which is about
+	 * to happen, in the collision queue of this world.
+	 */
+	private void publishBoundaryCollision(Entity entity) {
+		if (! entity.getBoundaryPosition(eventPosition)) {
+			eventPosition.setX(entity.getXPosition());
+			eventPosition.setY(entity.getYPosition());
+		}
+		collisionQueue.publishBoundaryCollision(entity, eventPosition.getX(), eventPosition.getY());
+	}
+	
+	/**
+	 * Publish the collision of the given entities, which is about to happen, in the collision
+	 * queue of this world. The entities have been moved up to their collision, so its position
+	 * is computed for a remaining time of zero.
+	 */
+	private void publishObjectCollision(Entity entity1, Entity entity2) {
+		entity1.getCollisionPosition(entity2, 0, eventPosition);
+		collisionQueue.publishObjectCollision(entity1, entity2, eventPosition.getX(), eventPosition.getY());
+	}
+	
+	/**
+	 * Move all awake entities in this world for the given duration.
+	 */
+	private void moveAwakeEntities(double dt) {
+		for (Entity entity: this.awakeEntities)
+			movingEntities.add(entity);
+		movingAwakeEntities = true;
+		try {
+			for (int index = 0; index < movingEntities.size(); index++) {
+				Entity entity = movingEntities.get(index);
+				if (entity.getWorld()==this)
+					entity.move(dt);
+			}
+		}
+		finally {
+			movingEntities.clear();
+			movingAwakeEntities = false;
+		}
+	}
+	
+	/**
+	 * Look for the first event in this world within the given horizon, and register its time
+	 * and the entities involved.
+	 * 
+	 * Only the boxes, swept by the awake entities within the horizon, are indexed in the
+	 * broadphase, so that an awake entity investigates the awake entities indexed after it.
+	 * Each swept box is also looked up in the index of sleeping entities, which is kept
+	 * between events and only changes when an entity falls asleep, wakes up, or is added,
+	 * removed, moved or resized while asleep.
+	 */
+	private void predictFirstEvent(double horizon) {
+		nextBoundary = Double.POSITIVE_INFINITY;
+		nextBoundaryEntity = null;
+		nextCollision = Double.POSITIVE_INFINITY;
+		nextCollisionEntity1 = null;
+		nextCollisionEntity2 = null;
+		double extents = 0;
+		for (Entity entity: this.awakeEntities)
+			extents += entity.getRadius() + entity.getSpeed()*horizon;
+		int nbAwake = this.awakeEntities.size();
+		broadphase.clear(nbAwake == 0 ? 1 : 2*extents/nbAwake, nbAwake,
+				hasBoundaries() ? 0 : getWidth(), hasBoundaries() ? 0 : getHeight());
+		for (Entity entity: this.awakeEntities)
+			insertSwept(entity, horizon);
+		if (nbAwake > 0)
+			ensureSleepingIndex();
+		for (int index = 0; index < nbAwake; index++) {
+			Entity entity = broadphase.getItem(index);
+			double bound = entity.getTimeToBoundary();
+			if (bound < nextBoundary) {
+				nextBoundary = bound;
+				nextBoundaryEntity = entity;
+			}
+			scannedIndex = index;
+			broadphase.queryItem(index, pairTest);
+			sleepingIndex.queryItem(broadphase, index, sleepingPairTest);
+		}
+	}
+	
+	/**
+	 * Insert the given entity in the broadphase of this world, covering the box it sweeps
+	 * during the given duration.
+	 */
+	private void insertSwept(Entity entity, double dt) {
+		double x = entity.getXPosition(), y = entity.getYPosition();
+		double toX = x + entity.getXVelocity()*dt, toY = y + entity.getYVelocity()*dt;
+		double radius = entity.getRadius();
+		broadphase.insert(entity, Math.min(x, toX)-radius, Math.min(y, toY)-radius,
+				Math.max(x, toX)+radius, Math.max(y, toY)+radius);
+	}
+	
+	/**
+	 * Investigate the collision of the entity at the scanned index of the broadphase with the
+	 * entity at the given index, if that one is indexed after it.
+	 */
+	private void testPair(int index) {
+		if (index <= scannedIndex)
+			return;
+		investigatePair(broadphase.getItem(scannedIndex), broadphase.getItem(index));
+	}
+	
+	/**
+	 * Investigate the collision of the entity at the scanned index of the broadphase with the
+	 * entity at the given index of the index of sleeping entities.
+	 */
+	private void testSleepingPair(int index) {
+		investigatePair(broadphase.getItem(scannedIndex), sleepingIndex.getItem(index));
+	}
+	
+	/**
+	 * Investigate the collision of the given entities, and register it if it is the first one
+	 * found so far.
+	 */
+	private void investigatePair(Entity entity1, Entity entity2) {
+		nbPairTests++;
+		double coll = entity1.getTimeToCollision(entity2);
+		if ((coll<nextCollision)&&(coll>0)) {
+			nextCollision = coll;
+			nextCollisionEntity1 = entity1;
+			nextCollisionEntity2 = entity2;
+		}
+	}
+	
+	/**
+	 * Capture the state of this world in a new snapshot.
+	 * 
+	 * @return	| result.getWorld() == this
+	 * @effect	| snapshot(new WorldSnapshot())
+	 */
+	public WorldSnapshot snapshot() {
+		return snapshot(new WorldSnapshot());
+	}
+	
+	/**
+	 * Capture the state of this world in the given snapshot, reusing its storage.
+	 * 
+	 * @param 	snapshot
+	 * 			The snapshot to capture this world in.
+	 * @return	| result == snapshot
+	 * @post	The given snapshot registers the kinematic state, termination, magazines and
+	 * 			program state of all entities in this world and of the bullets loaded on its ships.
+	 * 			| (new snapshot).getWorld() == this
+	 */
+	public WorldSnapshot snapshot(WorldSnapshot snapshot) {
+		snapshot.capture(this);
+		return snapshot;
+	}
+	
+	/**
+	 * Restore this world to the state, registered in the given snapshot.
+	 * 
+	 * Entities that entered this world after the snapshot was taken are removed from it,
+	 * and entities that left it or were terminated since are restored to their captured state.
+	 * 
+	 * @param 	snapshot
+	 * 			The snapshot to restore.
+	 * @post	| for each index in 0..snapshot.getNbEntities()-1
+	 * 			| 	(new snapshot.getEntity(index)).getXPosition() == snapshot.getXPosition(index)
+	 * 			| 	&& (new snapshot.getEntity(index)).getYPosition() == snapshot.getYPosition(index)
+	 * 			| 	&& (new snapshot.getEntity(index)).isTerminated() == snapshot.isTerminated(index)
+	 * 			| 	&& (snapshot.isInWorld(index) == new.getAllEntities().contains(snapshot.getEntity(index)))
+	 * @throws	IllegalWorldException
+	 * 			The given snapshot was not taken of this world.
+	 * 			| snapshot.getWorld() != this
+	 */
+	public void restore(WorldSnapshot snapshot) throws IllegalWorldException {
+		if (snapshot.getWorld() != this)
+			throw new IllegalWorldException(this);
+		snapshot.restore();
+	}
+	
+	/**
+	 * Return the entities in this world that are awake, in the order they are scanned.
+	 */
+	Set<Entity> getAwakeSet() {
+		return this.awakeEntities;
+	}
+	
+	/**
+	 * Return the entities in this world that are asleep, in the order they are scanned.
+	 */
+	Set<Entity> getSleepingSet() {
+		return this.sleepingEntities;
+	}
+	
+	/**
+	 * Return whether this world is terminated.
+	 */
+	public boolean isTerminated() {
+		return this.isTerminated;
+	}
+
 	/**
 	 * Terminate this world.
 	 *
@@ -326,6 +1596,17 @@ public class World {
 			entity.setWorld(null);
 		}
 		this.entities.clear();
+		Arrays.fill(nbEntitiesOfType, 0);
+		invalidateRangeIndex();
+		invalidateSleepingIndex();
+		this.awakeEntities.clear();
+		this.sleepingEntities.clear();
+		if (collisionQueue != null)
+			collisionQueue.shutdown();
+		if (readView != null)
+			readView.publish();
+		if (metrics != null)
+			metrics.unregister();
 	}
 
 	/**
@@ -340,14 +1621,221 @@ public class World {
 	
 	/**
 	 * A variable registering the entities, located in this world, and the position of their center.
+	 * The entities are kept in the order they were added, so iterating them is reproducible.
+	 */
+	public HashMap<Entity,double[]> entities = new LinkedHashMap<Entity,double[]>();
+	
+	/**
+	 * A variable registering the number of entities in this world of each type, indexed by the
+	 * code of that type in an exported record.
+	 */
+	private final int[] nbEntitiesOfType = new int[4];
+	
+	/**
+	 * A variable registering the identifier, assigned to the next entity without one.
 	 */
-	public HashMap<Entity,double[]> entities = new HashMap<Entity,double[]>();
+	private long nextId = 1;
+	
+	/**
+	 * A variable registering the number of entities, expected to be restored in this world.
+	 */
+	private int expectedEntities = 0;
+	
+	/**
+	 * A variable registering the random source of this world.
+	 */
+	private final WorldRandom random;
+	
+	/**
+	 * A variable registering the journal of this world.
+	 */
+	private EventJournal journal = null;
+	
+	/**
+	 * A variable registering the delta encoder of this world.
+	 */
+	private WorldDeltaEncoder deltaEncoder = null;
+	
+	/**
+	 * A variable registering the queue, the collisions in this world are published in.
+	 */
+	private CollisionEventQueue collisionQueue = null;
+	
+	/**
+	 * A variable registering the queue, the commands for the ships in this world are collected in.
+	 */
+	private ShipCommandQueue commandQueue = null;
+	
+	/**
+	 * A variable registering the view, the state of this world is published in.
+	 */
+	private WorldView readView = null;
+	
+	/**
+	 * A variable registering the gravity field, pulling the ships and bullets in this world.
+	 */
+	private GravityField gravityField = null;
+	
+	/**
+	 * A variable registering the metrics, collected for this world.
+	 */
+	private WorldMetrics metrics = null;
+	
+	/**
+	 * A variable registering the entities in this world that are awake.
+	 */
+	private Set<Entity> awakeEntities = new LinkedHashSet<Entity>();
+	
+	/**
+	 * A variable registering the entities in this world that are asleep.
+	 */
+	private Set<Entity> sleepingEntities = new LinkedHashSet<Entity>();
+	
+	/**
+	 * A variable registering the awake entities being moved. Moving an entity may put it to sleep,
+	 * so they are collected first; the list is reused by every move.
+	 */
+	private final ArrayList<Entity> movingEntities = new ArrayList<Entity>();
+	
+	/**
+	 * A variable registering whether additions and removals of entities are deferred, because
+	 * an event is being resolved.
+	 */
+	private boolean deferring = false;
+	
+	/**
+	 * Variables registering the entities whose addition or removal is deferred, in the order in
+	 * which they were requested, and the indices of the requests that are additions.
+	 */
+	private final ArrayList<Entity> deferredEntities = new ArrayList<Entity>();
+	private final BitSet deferredAdditions = new BitSet();
+	
+	/**
+	 * A variable registering the spatial index, used to find candidate pairs of colliding entities.
+	 */
+	private final SpatialGrid broadphase = new SpatialGrid();
+	
+	/**
+	 * A variable registering the pair test, performed on each candidate pair of the broadphase.
+	 */
+	private final IntConsumer pairTest = this::testPair;
+	
+	/**
+	 * A variable registering the spatial index of the sleeping entities of this world, and
+	 * whether it is up to date.
+	 */
+	private final SpatialGrid sleepingIndex = new SpatialGrid();
+	private boolean sleepingIndexValid = false;
+	
+	/**
+	 * A variable registering the pair test, performed on each sleeping entity whose box overlaps
+	 * with the swept box of an awake entity.
+	 */
+	private final IntConsumer sleepingPairTest = this::testSleepingPair;
+	
+	/**
+	 * A variable registering the largest finite horizon, within which the first event of this
+	 * world is looked for.
+	 */
+	private static final double MAX_FINITE_HORIZON = 1e15;
+	
+	/**
+	 * A variable registering the index of the entity whose candidate pairs are being tested.
+	 */
+	private int scannedIndex;
+	
+	/**
+	 * A variable registering the number of pairs, tested since the start of the current or last
+	 * evolution of this world.
+	 */
+	private long nbPairTests;
+	
+	/**
+	 * A variable registering the placement test, performed on each entity of the broadphase
+	 * near an entity being placed.
+	 */
+	private final IntConsumer placementTest = this::testPlacement;
+	
+	/**
+	 * Variables registering the spatial index of the entities of this world at their current
+	 * positions, used by range queries, whether it is in use and kept up to date, and whether
+	 * entities have been moved by evolve without updating it.
+	 */
+	private final SpatialGrid rangeIndex = new SpatialGrid();
+	private boolean rangeIndexValid = false;
+	private boolean rangeIndexStale = false;
+	
+	/**
+	 * A variable registering whether the awake entities of this world are being moved by evolve.
+	 */
+	private boolean movingAwakeEntities = false;
+	
+	/**
+	 * A variable registering the range test, performed on each candidate of a range query.
+	 */
+	private final IntConsumer rangeTest = this::testRange;
+	
+	/**
+	 * Variables registering the range query in progress: the center and half sizes of its box,
+	 * its radius or -1 for a rectangle, and the type of entities it visits and the action it
+	 * performs on them. The action is null if no query is in progress.
+	 */
+	private double rangeX;
+	private double rangeY;
+	private double rangeHalfWidth;
+	private double rangeHalfHeight;
+	private double rangeRadius;
+	private Class<? extends Entity> rangeType;
+	private Consumer<? super Entity> rangeAction;
+	
+	/**
+	 * Variables registering the entity being placed, its folded position, and whether it lies
+	 * too close to another one.
+	 */
+	private Entity placedEntity;
+	private double placedX;
+	private double placedY;
+	private boolean placementOverlaps;
+	
+	/**
+	 * A variable registering the position of the event, being published in the collision queue.
+	 */
+	private final Vector eventPosition = new Vector(0, 0);
+	
+	/**
+	 * Variables registering the first event, predicted by the last scan of this world.
+	 */
+	private double nextBoundary;
+	private Entity nextBoundaryEntity;
+	private double nextCollision;
+	private Entity nextCollisionEntity1;
+	private Entity nextCollisionEntity2;
+	
+	/**
+	 * A variable registering the game time, elapsed since the start of the current or last
+	 * evolution of this world, up to the event that is being resolved.
+	 */
+	private double stepTime;
 	
 	/**
 	 * A variable registering whether this world is terminated.
 	 */
 	public boolean isTerminated = false;
 	
+	/**
+	 * A variable registering the number of values in an exported record of an entity.
+	 */
+	public static final int EXPORT_STRIDE = 7;
+	
+	/**
+	 * Variables registering the type codes of ships, bullets, asteroids and planetoids in
+	 * exported records.
+	 */
+	public static final int EXPORT_SHIP = 0;
+	public static final int EXPORT_BULLET = 1;
+	public static final int EXPORT_ASTEROID = 2;
+	public static final int EXPORT_PLANETOID = 3;
+	
 	/**
 	 * A variable registering the upper bound for the width of a world.
 	 */
@@ -0,0 +1,80 @@
+package asteroids.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.model.exceptions.IllegalWorldException;
+
+/**
+ * A benchmark of the evolution of a world, and of the search for its first collision, for
+ * growing numbers of entities in a uniform and a clustered layout.
+ *
+ * The world is restored to its initial state before each iteration, so every iteration measures
+ * the same stretch of simulated time. An evolution that is aborted by an entity that cannot be
+ * moved to its next position is counted in the result like any other.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorldBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	public int nbEntities;
+
+	@Param({"UNIFORM", "CLUSTERED"})
+	public BenchmarkWorlds.Layout layout;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		world = BenchmarkWorlds.create(nbEntities, layout, SEED);
+		initial = world.snapshot();
+	}
+
+	@Setup(Level.Iteration)
+	public void restore() throws IllegalWorldException {
+		world.restore(initial);
+	}
+
+	@Benchmark
+	public World evolve() throws IllegalWorldException {
+		try {
+			world.evolve(STEP);
+		}
+		catch (RuntimeException exc) {
+			// The world keeps the state it reached, and the next step goes on from there.
+		}
+		return world;
+	}
+
+	@Benchmark
+	public double getTimeFirstCollision() {
+		return world.getTimeFirstCollision();
+	}
+
+	private World world;
+	private WorldSnapshot initial;
+
+	/**
+	 * Variables registering the seed of the generated world, and the duration of a step.
+	 */
+	private static final long SEED = 42;
+	private static final double STEP = 1/30.;
+
+}
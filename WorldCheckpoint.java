@@ -0,0 +1,351 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A class collecting the methods to save worlds to, and load worlds from, binary checkpoint files.
+ *
+ * A checkpoint file starts with a header of HEADER_SIZE bytes: a magic number, the version
+ * of the format, the number of entities, the size of the world, the state of its random
+ * source, its next identifier, a CRC-32 checksum of everything after the header and whether
+ * the world is bounded or wrapping. The header is followed by one column per property, each
+ * holding that property for all entities in a row: first the 8-byte columns, then the 4-byte
+ * columns and finally the 1-byte columns, so that every value is naturally aligned. All values
+ * are little-endian.
+ *
+ * The entities of a world are saved in the order the world keeps them, each ship directly
+ * followed by the bullets it has loaded. Ships and bullets refer to each other by identifier;
+ * a bullet whose source has left the world is saved without a source, and is loaded as a
+ * bullet located in the world by itself.
+ * Files are written and read through memory mappings, so no intermediate copies are made.
+ * A world is only loaded after its checksum is verified, and its entities are then put in
+ * place without checking their positions again.
+ */
+public class WorldCheckpoint {
+
+	/**
+	 * Prevent the construction of world checkpoints.
+	 */
+	private WorldCheckpoint() {
+	}
+
+	/**
+	 * Save the given world to the given file, replacing its contents.
+	 *
+	 * @param 	world
+	 * 			The world to save.
+	 * @param 	file
+	 * 			The file to save the given world to.
+	 * @return	The number of bytes written.
+	 * 			| result == HEADER_SIZE + (number of saved entities) * ENTITY_SIZE
+	 * @throws	IOException
+	 * 			The given file could not be written.
+	 */
+	public static long save(World world, Path file) throws IOException {
+		int count = 0;
+		for (Entity entity: world.getEntities().keySet()) {
+			count++;
+			if (entity instanceof Ship)
+				count += ((Ship) entity).getNbBullets();
+		}
+		long size = HEADER_SIZE + (long) count * ENTITY_SIZE;
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Too many entities for a world checkpoint: " + count);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			Columns columns = new Columns(count);
+			int index = 0;
+			for (Entity entity: world.getEntities().keySet()) {
+				write(buffer, columns, index++, world, entity, null, true);
+				if (entity instanceof Ship) {
+					for (Bullet bullet: ((Ship) entity).getBullets()) {
+						world.assignId(bullet);
+						write(buffer, columns, index++, world, bullet, (Ship) entity, false);
+					}
+				}
+			}
+			buffer.putLong(0, MAGIC);
+			buffer.putInt(8, VERSION);
+			buffer.putInt(12, count);
+			buffer.putDouble(16, world.getWidth());
+			buffer.putDouble(24, world.getHeight());
+			buffer.putLong(32, world.getRandom().getState());
+			buffer.putLong(40, world.getNextId());
+			buffer.putLong(48, checksum(buffer));
+			buffer.putInt(56, world.hasBoundaries() ? BOUNDED : WRAPPING);
+			buffer.force();
+		}
+		return size;
+	}
+
+	/**
+	 * Write the given entity of the given world in the given row of the given buffer. The source
+	 * of a bullet is only written if it is still located in the given world.
+	 */
+	private static void write(ByteBuffer buffer, Columns columns, int row, World world,
+			Entity entity, Ship carrier, boolean inWorld) {
+		byte type, flags = 0;
+		double aux1 = 0, aux2 = 0, aux3 = 0;
+		int bounces = 0;
+		long source = 0;
+		if (entity instanceof Ship) {
+			Ship ship = (Ship) entity;
+			type = SHIP;
+			aux1 = ship.getOrientation();
+			aux2 = ship.getShipMass();
+			aux3 = ship.getAcceleration();
+			if (ship.thrusterEnabled())
+				flags |= THRUSTER;
+		}
+		else if (entity instanceof Bullet) {
+			Bullet bullet = (Bullet) entity;
+			type = BULLET;
+			bounces = bullet.getBounces();
+			if ((bullet.getSource() != null)&&(world.getEntities().containsKey(bullet.getSource())))
+				source = bullet.getSource().getId();
+			if (bullet.isLoopTerminated())
+				flags |= LOOP_TERMINATED;
+		}
+		else if (entity instanceof Planetoid) {
+			type = PLANETOID;
+			aux1 = ((Planetoid) entity).getTotalDistance();
+		}
+		else
+			type = ASTEROID;
+		if (inWorld)
+			flags |= IN_WORLD;
+		if (entity.isTerminated())
+			flags |= TERMINATED;
+		buffer.putLong(columns.ids + 8*row, entity.getId());
+		buffer.putDouble(columns.xs + 8*row, entity.getXPosition());
+		buffer.putDouble(columns.ys + 8*row, entity.getYPosition());
+		buffer.putDouble(columns.vxs + 8*row, entity.getXVelocity());
+		buffer.putDouble(columns.vys + 8*row, entity.getYVelocity());
+		buffer.putDouble(columns.radii + 8*row, entity.getRadius());
+		buffer.putDouble(columns.densities + 8*row, entity.getMassDensity());
+		buffer.putDouble(columns.aux1 + 8*row, aux1);
+		buffer.putDouble(columns.aux2 + 8*row, aux2);
+		buffer.putDouble(columns.aux3 + 8*row, aux3);
+		buffer.putLong(columns.ships + 8*row, carrier == null ? 0 : carrier.getId());
+		buffer.putLong(columns.sources + 8*row, source);
+		buffer.putInt(columns.bounces + 4*row, bounces);
+		buffer.put(columns.types + row, type);
+		buffer.put(columns.flags + row, flags);
+	}
+
+	/**
+	 * Load a world from the given checkpoint file.
+	 *
+	 * @param 	file
+	 * 			The file to load a world from.
+	 * @return	A new world of the kind, size, random state, next identifier and entities,
+	 * 			registered in the given file.
+	 * 			| @see implementation
+	 * @throws	IOException
+	 * 			The given file could not be read, is not a checkpoint file of a supported version,
+	 * 			does not match its checksum, registers an unknown kind of world, or registers a bullet whose carrier or source is
+	 * 			missing from it.
+	 */
+	public static World load(Path file) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("Not a world checkpoint: " + file);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if ((buffer.getLong(0) != MAGIC)||(buffer.getInt(8) != VERSION))
+			throw new IOException("Not a world checkpoint of version " + VERSION + ": " + file);
+		int count = buffer.getInt(12);
+		if ((count < 0)||(buffer.capacity() != HEADER_SIZE + (long) count * ENTITY_SIZE))
+			throw new IOException("Truncated world checkpoint: " + file);
+		if (buffer.getLong(48) != checksum(buffer))
+			throw new IOException("Corrupt world checkpoint: " + file);
+		World world;
+		switch (buffer.getInt(56)) {
+		case BOUNDED:
+			world = new World(buffer.getDouble(16), buffer.getDouble(24), buffer.getLong(32));
+			break;
+		case WRAPPING:
+			world = new WrappingWorld(buffer.getDouble(16), buffer.getDouble(24), buffer.getLong(32));
+			break;
+		default:
+			throw new IOException("Corrupt world checkpoint: " + file);
+		}
+		world.expectEntities(count);
+		Columns columns = new Columns(count);
+		Entity[] entities = new Entity[count];
+		Map<Long,Ship> ships = new HashMap<Long,Ship>();
+		for (int row = 0; row < count; row++) {
+			entities[row] = read(buffer, columns, row);
+			if (entities[row] instanceof Ship)
+				ships.put(entities[row].getId(), (Ship) entities[row]);
+		}
+		for (int row = 0; row < count; row++) {
+			Entity entity = entities[row];
+			boolean inWorld = (buffer.get(columns.flags + row) & IN_WORLD) != 0;
+			if (entity instanceof Bullet) {
+				Ship carrier = getShip(ships, buffer.getLong(columns.ships + 8*row), file);
+				Ship source = getShip(ships, buffer.getLong(columns.sources + 8*row), file);
+				((Bullet) entity).restoreBulletState(((inWorld)&&(source == null)) ? world : null,
+						carrier, source, buffer.getInt(columns.bounces + 4*row),
+						(buffer.get(columns.flags + row) & LOOP_TERMINATED) != 0);
+				if (carrier != null)
+					carrier.getBullets().add((Bullet) entity);
+				if (source != null)
+					source.getBulletsFired().add((Bullet) entity);
+			}
+			else
+				entity.setWorld(world);
+			if (inWorld)
+				world.restoreEntity(entity);
+		}
+		world.setNextId(buffer.getLong(40));
+		return world;
+	}
+
+	/**
+	 * Return the ship with the given identifier among the given ships, loaded from the given
+	 * file. Null if the given identifier is zero.
+	 *
+	 * @throws	IOException
+	 * 			The given identifier is not zero, and none of the given ships has it.
+	 */
+	private static Ship getShip(Map<Long,Ship> ships, long id, Path file) throws IOException {
+		if (id == 0)
+			return null;
+		Ship ship = ships.get(id);
+		if (ship == null)
+			throw new IOException("Missing ship " + id + " in world checkpoint: " + file);
+		return ship;
+	}
+
+	/**
+	 * Construct the entity in the given row of the given buffer, without locating it in a world
+	 * or associating it with other entities.
+	 */
+	private static Entity read(ByteBuffer buffer, Columns columns, int row) throws IOException {
+		double xpos = buffer.getDouble(columns.xs + 8*row);
+		double ypos = buffer.getDouble(columns.ys + 8*row);
+		double xvel = buffer.getDouble(columns.vxs + 8*row);
+		double yvel = buffer.getDouble(columns.vys + 8*row);
+		double radius = buffer.getDouble(columns.radii + 8*row);
+		double aux1 = buffer.getDouble(columns.aux1 + 8*row);
+		byte flags = buffer.get(columns.flags + row);
+		Entity entity;
+		switch (buffer.get(columns.types + row)) {
+		case SHIP:
+			Ship ship = new Ship(xpos, ypos, xvel, yvel, radius, aux1, buffer.getDouble(columns.aux2 + 8*row));
+			ship.setMassDensity(buffer.getDouble(columns.densities + 8*row));
+			ship.restoreShipState(aux1, buffer.getDouble(columns.aux3 + 8*row), (flags & THRUSTER) != 0);
+			entity = ship;
+			break;
+		case BULLET:
+			entity = new Bullet(xpos, ypos, xvel, yvel, radius);
+			break;
+		case PLANETOID:
+			entity = new Planetoid(xpos, ypos, xvel, yvel, radius, 0);
+			((Planetoid) entity).setTotalDistance(aux1);
+			break;
+		case ASTEROID:
+			entity = new Asteroid(xpos, ypos, xvel, yvel, radius);
+			break;
+		default:
+			throw new IOException("Unknown entity type in world checkpoint: " + buffer.get(columns.types + row));
+		}
+		entity.setId(buffer.getLong(columns.ids + 8*row));
+		if ((flags & TERMINATED) != 0)
+			entity.restoreState(xpos, ypos, xvel, yvel, entity.getRadius(), true);
+		return entity;
+	}
+
+	/**
+	 * Return the CRC-32 checksum of everything after the header in the given buffer.
+	 */
+	private static long checksum(ByteBuffer buffer) {
+		ByteBuffer body = buffer.duplicate();
+		body.position(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		return crc.getValue();
+	}
+
+	/**
+	 * A class registering the offsets of the columns of a checkpoint with a given number of entities.
+	 */
+	private static class Columns {
+
+		private Columns(int count) {
+			long offset = HEADER_SIZE;
+			ids = (int) offset; offset += 8L*count;
+			xs = (int) offset; offset += 8L*count;
+			ys = (int) offset; offset += 8L*count;
+			vxs = (int) offset; offset += 8L*count;
+			vys = (int) offset; offset += 8L*count;
+			radii = (int) offset; offset += 8L*count;
+			densities = (int) offset; offset += 8L*count;
+			aux1 = (int) offset; offset += 8L*count;
+			aux2 = (int) offset; offset += 8L*count;
+			aux3 = (int) offset; offset += 8L*count;
+			ships = (int) offset; offset += 8L*count;
+			sources = (int) offset; offset += 8L*count;
+			bounces = (int) offset; offset += 4L*count;
+			types = (int) offset; offset += count;
+			flags = (int) offset;
+		}
+
+		private final int ids, xs, ys, vxs, vys, radii, densities, aux1, aux2, aux3, ships, sources;
+		private final int bounces, types, flags;
+
+	}
+
+	/**
+	 * A variable registering the size of the header of a checkpoint, in bytes.
+	 */
+	public static final int HEADER_SIZE = 64;
+
+	/**
+	 * A variable registering the number of bytes, taken by a single entity in a checkpoint.
+	 */
+	public static final int ENTITY_SIZE = 12*8 + 4 + 2;
+
+	/**
+	 * Variables identifying the format of a checkpoint.
+	 */
+	private static final long MAGIC = 0x41535443484B5054L;
+	private static final int VERSION = 2;
+
+	/**
+	 * Variables registering the kinds of worlds in a checkpoint.
+	 */
+	private static final int BOUNDED = 0;
+	private static final int WRAPPING = 1;
+
+	/**
+	 * Variables registering the types of entities in a checkpoint.
+	 */
+	private static final byte SHIP = 1;
+	private static final byte BULLET = 2;
+	private static final byte ASTEROID = 3;
+	private static final byte PLANETOID = 4;
+
+	/**
+	 * Flags registering the boolean state of an entity in a checkpoint.
+	 */
+	private static final byte IN_WORLD = 1;
+	private static final byte TERMINATED = 2;
+	private static final byte THRUSTER = 4;
+	private static final byte LOOP_TERMINATED = 8;
+
+}
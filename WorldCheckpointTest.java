@@ -0,0 +1,123 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldCheckpoint;
+import asteroids.model.WrappingWorld;
+
+public class WorldCheckpointTest {
+
+	World world;
+	Ship ship;
+	Bullet bullet;
+	Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		world = new World(1000,1000);
+		ship = new Ship(100,100,10,0,20,0,100);
+		bullet = new Bullet(100,100,0,0,5);
+		ship.loadBullet(bullet);
+		world.addEntity(ship);
+		world.addEntity(new Asteroid(500,500,-20,5,30));
+		world.addEntity(new Planetoid(800,200,0,0,20,50));
+		file = Files.createTempFile("world", ".checkpoint");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testLoad_CaseRoundTrip() throws IOException {
+		WorldCheckpoint.save(world, file);
+		World loaded = WorldCheckpoint.load(file);
+		assert loaded.getWidth()==1000;
+		assert loaded.getHeight()==1000;
+		assertEquals(world.getNextId(), loaded.getNextId());
+		List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+		List<Entity> loadedEntities = new ArrayList<Entity>(loaded.getEntities().keySet());
+		assertEquals(entities.size(), loadedEntities.size());
+		for (int index = 0; index < entities.size(); index++) {
+			Entity entity = entities.get(index), loadedEntity = loadedEntities.get(index);
+			assert entity.getClass()==loadedEntity.getClass();
+			assert entity.getId()==loadedEntity.getId();
+			assert entity.getXPosition()==loadedEntity.getXPosition();
+			assert entity.getYPosition()==loadedEntity.getYPosition();
+			assert entity.getXVelocity()==loadedEntity.getXVelocity();
+			assert entity.getYVelocity()==loadedEntity.getYVelocity();
+			assert entity.getRadius()==loadedEntity.getRadius();
+			assert loadedEntity.getWorld()==loaded;
+		}
+		Ship loadedShip = (Ship) loadedEntities.get(0);
+		assertEquals(1, loadedShip.getNbBullets());
+		Bullet loadedBullet = loadedShip.getBullets().iterator().next();
+		assert loadedBullet.getId()==bullet.getId();
+		assert loadedBullet.getShip()==loadedShip;
+		assert loadedBullet.getWorld()==null;
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoad_IllegalCaseCorrupt() throws IOException {
+		WorldCheckpoint.save(world, file);
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[WorldCheckpoint.HEADER_SIZE] ^= 1;
+		Files.write(file, bytes);
+		WorldCheckpoint.load(file);
+	}
+
+	@Test
+	public void testLoad_CaseRemovedSource() throws IOException {
+		ship.fireBullet();
+		world.removeEntity(ship);
+		assert bullet.getSource()==ship;
+		WorldCheckpoint.save(world, file);
+		World loaded = WorldCheckpoint.load(file);
+		assertEquals(world.getEntities().size(), loaded.getEntities().size());
+		Bullet loadedBullet = null;
+		for (Entity entity: loaded.getEntities().keySet())
+			if (entity.getId()==bullet.getId())
+				loadedBullet = (Bullet) entity;
+		assert loadedBullet!=null;
+		assert loadedBullet.getSource()==null;
+		assert loadedBullet.getShip()==null;
+		assert loadedBullet.getWorld()==loaded;
+		assert loadedBullet.getXPosition()==bullet.getXPosition();
+		assert loadedBullet.getYPosition()==bullet.getYPosition();
+	}
+
+	@Test
+	public void testLoad_CaseWrappingWorld() throws IOException {
+		World wrapping = new WrappingWorld(1000,1000,42);
+		Asteroid asteroid = new Asteroid(995,500,10,0,30);
+		wrapping.addEntity(asteroid);
+		WorldCheckpoint.save(wrapping, file);
+		World loaded = WorldCheckpoint.load(file);
+		assert loaded instanceof WrappingWorld;
+		assert !loaded.hasBoundaries();
+		assertEquals(wrapping.getRandom().getState(), loaded.getRandom().getState());
+		Entity loadedAsteroid = loaded.getEntities().keySet().iterator().next();
+		assert loadedAsteroid.getXPosition()==asteroid.getXPosition();
+		assert loadedAsteroid.getWorld()==loaded;
+		WorldCheckpoint.save(world, file);
+		assert !(WorldCheckpoint.load(file) instanceof WrappingWorld);
+	}
+
+}
@@ -0,0 +1,388 @@
+package asteroids.model;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of world delta encoders, turning the state of a world after each evolution into a
+ * compact frame of bytes for spectators.
+ *
+ * A frame starts with its type (DELTA or KEYFRAME) and the number of the tick, followed by
+ * three sections, each a count and that many entries: the entities that entered the world,
+ * the entities that moved and the entities that left it. A keyframe lists all entities in the
+ * world as entering, and none as leaving. An entity that entered is given by its identifier,
+ * type, quantized position and quantized radius; an entity that moved by its identifier and
+ * the change of its quantized position; an entity that left by its identifier.
+ * Positions and radii are quantized by rounding them to a multiple of the quantum, and an
+ * entity only counts as moved once its quantized position changes. Identifiers are written as
+ * the difference with the previous identifier in the same section.
+ *
+ * Counts, identifiers and quantized values are written as variable-length integers of 7 bits per
+ * byte, signed values after zigzag encoding. Each frame is encoded once into a reusable buffer
+ * and handed to all observers, so the cost of encoding does not grow with the number of
+ * observers. Frames are encoded and delivered on the thread that evolves the world.
+ *
+ * @invar	The quantum of each delta encoder is strictly positive and finite.
+ * 			| isValidQuantum(getQuantum())
+ */
+public class WorldDeltaEncoder {
+
+	/**
+	 * Initialize this new delta encoder for the given world, with given quantum and keyframe interval.
+	 *
+	 * @param 	world
+	 * 			The world to encode.
+	 * @param 	quantum
+	 * 			The quantum, positions and radii are rounded to.
+	 * @param 	keyframeInterval
+	 * 			The number of ticks between two keyframes.
+	 * @post	| new.getWorld() == world
+	 * 			| new.getQuantum() == quantum
+	 * 			| new.getKeyframeInterval() == Math.max(1, keyframeInterval)
+	 * @effect	The new encoder is attached to the given world.
+	 * 			| world.setDeltaEncoder(new)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not effective.
+	 * 			| world == null
+	 * @throws	IllegalArgumentException
+	 * 			The given quantum is not valid.
+	 * 			| ! isValidQuantum(quantum)
+	 */
+	public WorldDeltaEncoder(World world, double quantum, int keyframeInterval)
+			throws IllegalWorldException, IllegalArgumentException {
+		if (world == null)
+			throw new IllegalWorldException(world);
+		if (! isValidQuantum(quantum))
+			throw new IllegalArgumentException();
+		this.world = world;
+		this.quantum = quantum;
+		this.keyframeInterval = Math.max(1, keyframeInterval);
+		world.setDeltaEncoder(this);
+	}
+
+	/**
+	 * Initialize this new delta encoder for the given world, with a standard quantum and
+	 * keyframe interval.
+	 *
+	 * @effect	| this(world, STANDARD_QUANTUM, STANDARD_KEYFRAME_INTERVAL)
+	 */
+	public WorldDeltaEncoder(World world) throws IllegalWorldException {
+		this(world, STANDARD_QUANTUM, STANDARD_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Return the world, encoded by this encoder.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the quantum, positions and radii are rounded to by this encoder.
+	 */
+	@Basic
+	public double getQuantum() {
+		return this.quantum;
+	}
+
+	/**
+	 * Return whether the given quantum is a valid quantum for any encoder.
+	 *
+	 * @return	| result == (quantum > 0) && (quantum < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidQuantum(double quantum) {
+		return (quantum > 0)&&(quantum < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the number of ticks between two keyframes of this encoder.
+	 */
+	@Basic
+	public int getKeyframeInterval() {
+		return this.keyframeInterval;
+	}
+
+	/**
+	 * Return the number of frames, encoded by this encoder.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return this.nbTicks;
+	}
+
+	/**
+	 * Return the size of the last frame, encoded by this encoder, in bytes.
+	 */
+	public int getLastFrameSize() {
+		if (nbTicks == 0)
+			return 0;
+		return this.buffer.limit();
+	}
+
+	/**
+	 * Subscribe the given observer to the frames of this encoder. The next frame is a keyframe,
+	 * so the observer can start decoding right away.
+	 *
+	 * @param 	observer
+	 * 			The observer to subscribe.
+	 * @effect	| requestKeyframe()
+	 */
+	public void subscribe(WorldStreamObserver observer) {
+		observers.add(observer);
+		requestKeyframe();
+	}
+
+	/**
+	 * Unsubscribe the given observer from the frames of this encoder.
+	 */
+	public void unsubscribe(WorldStreamObserver observer) {
+		observers.remove(observer);
+	}
+
+	/**
+	 * Make the next frame of this encoder a keyframe.
+	 */
+	public void requestKeyframe() {
+		this.keyframeRequested = true;
+	}
+
+	/**
+	 * Encode the current state of the world of this encoder in a frame, and hand it to all
+	 * observers.
+	 */
+	void encodeTick() {
+		boolean keyframe = keyframeRequested || (nbTicks % keyframeInterval == 0);
+		keyframeRequested = false;
+		long stamp = ++nbTicks;
+		buffer.clear();
+		putVarLong(keyframe ? KEYFRAME : DELTA);
+		putVarLong(stamp);
+		if (keyframe)
+			tracks.clear();
+		int countPosition = reserveCount();
+		int count = 0;
+		long previous = 0;
+		for (Entity entity: world.getEntities().keySet()) {
+			Track track = tracks.get(entity);
+			if (track == null) {
+				track = new Track(entity.getId(), quantize(entity.getXPosition()),
+						quantize(entity.getYPosition()), stamp);
+				tracks.put(entity, track);
+				putVarLong(zigzag(track.id - previous));
+				previous = track.id;
+				buffer.put(getType(entity));
+				putVarLong(zigzag(track.x));
+				putVarLong(zigzag(track.y));
+				putVarLong(zigzag(quantize(entity.getRadius())));
+				count++;
+			}
+			track.stamp = stamp;
+		}
+		writeCount(countPosition, count);
+		countPosition = reserveCount();
+		count = 0;
+		previous = 0;
+		for (Entity entity: world.getEntities().keySet()) {
+			Track track = tracks.get(entity);
+			if (track.entered == stamp)
+				continue;
+			long x = quantize(entity.getXPosition()), y = quantize(entity.getYPosition());
+			if ((x != track.x)||(y != track.y)) {
+				putVarLong(zigzag(track.id - previous));
+				previous = track.id;
+				putVarLong(zigzag(x - track.x));
+				putVarLong(zigzag(y - track.y));
+				track.x = x;
+				track.y = y;
+				count++;
+			}
+		}
+		writeCount(countPosition, count);
+		countPosition = reserveCount();
+		count = 0;
+		previous = 0;
+		Iterator<Track> iterator = tracks.values().iterator();
+		while (iterator.hasNext()) {
+			Track track = iterator.next();
+			if (track.stamp != stamp) {
+				putVarLong(zigzag(track.id - previous));
+				previous = track.id;
+				iterator.remove();
+				count++;
+			}
+		}
+		writeCount(countPosition, count);
+		buffer.flip();
+		for (WorldStreamObserver observer: observers) {
+			view.limit(buffer.limit());
+			view.position(0);
+			observer.frameEncoded(view, keyframe);
+		}
+	}
+
+	/**
+	 * Return the given coordinate, quantized by the quantum of this encoder.
+	 */
+	private long quantize(double coordinate) {
+		return Math.round(coordinate / quantum);
+	}
+
+	/**
+	 * Return the type of the given entity in a frame.
+	 */
+	private static byte getType(Entity entity) {
+		if (entity instanceof Ship)
+			return SHIP;
+		if (entity instanceof Bullet)
+			return BULLET;
+		if (entity instanceof Planetoid)
+			return PLANETOID;
+		return ASTEROID;
+	}
+
+	/**
+	 * Reserve room for a count of at most MAX_COUNT_BYTES bytes, and return its position.
+	 */
+	private int reserveCount() {
+		ensureRoom(MAX_COUNT_BYTES);
+		int position = buffer.position();
+		buffer.position(position + MAX_COUNT_BYTES);
+		return position;
+	}
+
+	/**
+	 * Write the given count at the given reserved position. The count is padded to take all
+	 * reserved bytes, which is still a valid variable-length integer.
+	 */
+	private void writeCount(int position, int count) {
+		for (int index = 0; index < MAX_COUNT_BYTES - 1; index++) {
+			buffer.put(position + index, (byte) ((count & 0x7F) | 0x80));
+			count >>>= 7;
+		}
+		buffer.put(position + MAX_COUNT_BYTES - 1, (byte) count);
+	}
+
+	/**
+	 * Write the given value as a variable-length integer.
+	 */
+	private void putVarLong(long value) {
+		ensureRoom(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Return the zigzag encoding of the given value, mapping small magnitudes to small values.
+	 */
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Make sure the buffer of this encoder has room for the given number of bytes.
+	 */
+	private void ensureRoom(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+			view = buffer.asReadOnlyBuffer();
+		}
+	}
+
+	/**
+	 * A class registering the identifier and last encoded quantized position of an entity, and
+	 * the ticks in which it entered and was last seen.
+	 */
+	private static class Track {
+
+		private Track(long id, long x, long y, long entered) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+			this.entered = entered;
+		}
+
+		private final long id;
+		private long x;
+		private long y;
+		private final long entered;
+		private long stamp;
+
+	}
+
+	/**
+	 * A variable registering the world, encoded by this encoder.
+	 */
+	private final World world;
+
+	/**
+	 * A variable registering the quantum of this encoder.
+	 */
+	private final double quantum;
+
+	/**
+	 * A variable registering the number of ticks between two keyframes.
+	 */
+	private final int keyframeInterval;
+
+	/**
+	 * Variables registering the number of encoded frames and whether a keyframe is requested.
+	 */
+	private long nbTicks = 0;
+	private volatile boolean keyframeRequested = false;
+
+	/**
+	 * A variable registering the entities in the last frame, and what was encoded about them.
+	 */
+	private final Map<Entity,Track> tracks = new HashMap<Entity,Track>();
+
+	/**
+	 * Variables registering the buffer frames are encoded in, and a read-only view on it.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+	private ByteBuffer view = buffer.asReadOnlyBuffer();
+
+	/**
+	 * A variable registering the observers of this encoder.
+	 */
+	private final List<WorldStreamObserver> observers = new CopyOnWriteArrayList<WorldStreamObserver>();
+
+	/**
+	 * Variables registering the standard quantum and keyframe interval.
+	 */
+	public static final double STANDARD_QUANTUM = 0.5;
+	public static final int STANDARD_KEYFRAME_INTERVAL = 60;
+
+	/**
+	 * Variables registering the types of frames.
+	 */
+	public static final int DELTA = 0;
+	public static final int KEYFRAME = 1;
+
+	/**
+	 * Variables registering the types of entities in a frame.
+	 */
+	public static final byte SHIP = 1;
+	public static final byte BULLET = 2;
+	public static final byte ASTEROID = 3;
+	public static final byte PLANETOID = 4;
+
+	/**
+	 * A variable registering the number of bytes, reserved for a count.
+	 */
+	private static final int MAX_COUNT_BYTES = 5;
+
+}
@@ -0,0 +1,114 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldDeltaEncoder;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class WorldDeltaEncoderTest {
+
+	World world;
+	Asteroid asteroid;
+	Ship ship;
+	WorldDeltaEncoder encoder;
+	List<ByteBuffer> frames;
+
+	@Before
+	public void setUp() throws IllegalWorldException {
+		world = new World(1000,1000);
+		asteroid = new Asteroid(100,100,60,-20,10);
+		ship = new Ship(500,500,0,0,20,0,100);
+		world.addEntity(asteroid);
+		world.addEntity(ship);
+		encoder = new WorldDeltaEncoder(world, 0.5, 60);
+		frames = new ArrayList<ByteBuffer>();
+		encoder.subscribe((frame, keyframe) -> {
+			ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+			copy.put(frame);
+			copy.flip();
+			frames.add(copy);
+		});
+	}
+
+	@Test
+	public void testEncodeTick_CaseKeyframe() throws IllegalWorldException {
+		world.evolve(0.1);
+		ByteBuffer frame = frames.get(0);
+		assertEquals(WorldDeltaEncoder.KEYFRAME, getVarLong(frame));
+		assertEquals(1, getVarLong(frame));
+		assertEquals(2, getVarLong(frame));
+		assertEquals(asteroid.getId(), unzigzag(getVarLong(frame)));
+		assertEquals(WorldDeltaEncoder.ASTEROID, frame.get());
+		assertEquals(212, unzigzag(getVarLong(frame)));
+		assertEquals(196, unzigzag(getVarLong(frame)));
+		assertEquals(20, unzigzag(getVarLong(frame)));
+		assertEquals(ship.getId() - asteroid.getId(), unzigzag(getVarLong(frame)));
+		assertEquals(WorldDeltaEncoder.SHIP, frame.get());
+		assertEquals(1000, unzigzag(getVarLong(frame)));
+		assertEquals(1000, unzigzag(getVarLong(frame)));
+		assertEquals(40, unzigzag(getVarLong(frame)));
+		assertEquals(0, getVarLong(frame));
+		assertEquals(0, getVarLong(frame));
+		assert ! frame.hasRemaining();
+	}
+
+	@Test
+	public void testEncodeTick_CaseDelta() throws IllegalWorldException {
+		world.evolve(0.1);
+		world.removeEntity(ship);
+		Asteroid asteroid2 = new Asteroid(800,800,0,0,15);
+		world.addEntity(asteroid2);
+		world.evolve(0.1);
+		assertEquals(2, frames.size());
+		ByteBuffer frame = frames.get(1);
+		assertEquals(encoder.getLastFrameSize(), frame.remaining());
+		assertEquals(WorldDeltaEncoder.DELTA, getVarLong(frame));
+		assertEquals(2, getVarLong(frame));
+		assertEquals(1, getVarLong(frame));
+		assertEquals(asteroid2.getId(), unzigzag(getVarLong(frame)));
+		assertEquals(WorldDeltaEncoder.ASTEROID, frame.get());
+		assertEquals(1600, unzigzag(getVarLong(frame)));
+		assertEquals(1600, unzigzag(getVarLong(frame)));
+		assertEquals(30, unzigzag(getVarLong(frame)));
+		assertEquals(1, getVarLong(frame));
+		assertEquals(asteroid.getId(), unzigzag(getVarLong(frame)));
+		assertEquals(12, unzigzag(getVarLong(frame)));
+		assertEquals(-4, unzigzag(getVarLong(frame)));
+		assertEquals(1, getVarLong(frame));
+		assertEquals(ship.getId(), unzigzag(getVarLong(frame)));
+		assert ! frame.hasRemaining();
+	}
+
+	/**
+	 * Read a variable-length integer from the given frame.
+	 */
+	private static long getVarLong(ByteBuffer frame) {
+		long value = 0;
+		int shift = 0;
+		byte next;
+		do {
+			next = frame.get();
+			value |= (long) (next & 0x7F) << shift;
+			shift += 7;
+		} while (next < 0);
+		return value;
+	}
+
+	/**
+	 * Return the value, zigzag-encoded as the given value.
+	 */
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,378 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of world groups, hosting many independent worlds and evolving them in parallel.
+ *
+ * Each world is driven by its own simulation clock. On each tick, the clocks of all worlds
+ * are advanced on a work-stealing pool. A world whose clock fails is isolated: its failure
+ * is registered and it is no longer advanced, while the other worlds continue.
+ * When ticks take longer than the real time they simulate, the group falls behind. Until it
+ * has caught up, it refuses new worlds and skips ticks without advancing any world.
+ * Ticks are performed one at a time, even if several threads tick the group.
+ *
+ * @invar	The maximum lag of each world group is a valid duration.
+ * 			| SimulationClock.isValidStep(getMaxLag())
+ */
+public class WorldGroup {
+
+	/**
+	 * Initialize this new world group with given step, parallelism and maximum lag.
+	 *
+	 * @param 	step
+	 * 			The fixed step of the clocks of the worlds in this new group.
+	 * @param 	parallelism
+	 * 			The number of threads, evolving the worlds of this new group.
+	 * @param 	maxLag
+	 * 			The time this new group may fall behind real time before it refuses new worlds
+	 * 			and skips ticks.
+	 * @post	| new.getStep() == step
+	 * 			| new.getMaxLag() == maxLag
+	 * 			| new.getWorlds().isEmpty()
+	 * @throws	IllegalDurationException
+	 * 			The given step or maximum lag is not a valid duration.
+	 * 			| (! SimulationClock.isValidStep(step)) || (! SimulationClock.isValidStep(maxLag))
+	 */
+	public WorldGroup(double step, int parallelism, double maxLag) throws IllegalDurationException {
+		if (! SimulationClock.isValidStep(step))
+			throw new IllegalDurationException(step);
+		if (! SimulationClock.isValidStep(maxLag))
+			throw new IllegalDurationException(maxLag);
+		this.step = step;
+		this.maxLag = maxLag;
+		this.pool = new ForkJoinPool(Math.max(1, parallelism));
+	}
+
+	/**
+	 * Initialize this new world group with a standard step, one thread per available
+	 * processor and a standard maximum lag.
+	 *
+	 * @effect	| this(SimulationClock.STANDARD_STEP, Runtime.getRuntime().availableProcessors(),
+	 * 			| 	STANDARD_MAX_LAG)
+	 */
+	public WorldGroup() {
+		this(SimulationClock.STANDARD_STEP, Runtime.getRuntime().availableProcessors(), STANDARD_MAX_LAG);
+	}
+
+	/**
+	 * Return the fixed step of the clocks of the worlds in this group.
+	 */
+	@Basic
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Return the time this group may fall behind real time before it refuses new worlds and
+	 * skips ticks.
+	 */
+	@Basic
+	public double getMaxLag() {
+		return this.maxLag;
+	}
+
+	/**
+	 * Return the time this group currently lags behind real time.
+	 */
+	@Basic
+	public double getLag() {
+		return this.lag;
+	}
+
+	/**
+	 * Return whether this group has fallen behind real time.
+	 *
+	 * @return	| result == (getLag() > getMaxLag())
+	 */
+	public boolean isBehind() {
+		return getLag() > getMaxLag();
+	}
+
+	/**
+	 * Return the number of ticks this group has skipped, because it had fallen behind.
+	 */
+	@Basic
+	public long getNbSkippedTicks() {
+		return this.nbSkippedTicks;
+	}
+
+	/**
+	 * Return the worlds hosted by this group.
+	 */
+	public Set<World> getWorlds() {
+		return Collections.unmodifiableSet(this.matches.keySet());
+	}
+
+	/**
+	 * Add the given world to this group.
+	 *
+	 * @param 	world
+	 * 			The world to host.
+	 * @post	| new.getWorlds().contains(world)
+	 * 			| ! new.hasFailed(world)
+	 * @throws	IllegalWorldException
+	 * 			The given world is ineffective or terminated, already hosted by this group, or
+	 * 			this group has fallen behind real time.
+	 * 			| (world == null) || world.isTerminated() || getWorlds().contains(world) || isBehind()
+	 */
+	public synchronized void addWorld(World world) throws IllegalWorldException {
+		if ((world == null)||(world.isTerminated())||(matches.containsKey(world))||(isBehind()))
+			throw new IllegalWorldException(world);
+		Map<World,Match> newMatches = new LinkedHashMap<World,Match>(matches);
+		newMatches.put(world, new Match(new SimulationClock(world, getStep(), SimulationClock.STANDARD_MAX_STEPS)));
+		this.matches = newMatches;
+	}
+
+	/**
+	 * Remove the given world from this group.
+	 *
+	 * @param 	world
+	 * 			The world to remove.
+	 * @post	| ! new.getWorlds().contains(world)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not hosted by this group.
+	 * 			| ! getWorlds().contains(world)
+	 */
+	public synchronized void removeWorld(World world) throws IllegalWorldException {
+		if (! matches.containsKey(world))
+			throw new IllegalWorldException(world);
+		Map<World,Match> newMatches = new LinkedHashMap<World,Match>(matches);
+		newMatches.remove(world);
+		this.matches = newMatches;
+	}
+
+	/**
+	 * Return the clock, driving the given world in this group.
+	 *
+	 * @throws	IllegalWorldException
+	 * 			The given world is not hosted by this group.
+	 * 			| ! getWorlds().contains(world)
+	 */
+	public SimulationClock getClock(World world) throws IllegalWorldException {
+		return getMatch(world).clock;
+	}
+
+	/**
+	 * Return the histogram of the durations of the ticks of the given world, in nanoseconds.
+	 *
+	 * @throws	IllegalWorldException
+	 * 			The given world is not hosted by this group.
+	 * 			| ! getWorlds().contains(world)
+	 */
+	public LatencyHistogram getLatencyHistogram(World world) throws IllegalWorldException {
+		return getMatch(world).latency;
+	}
+
+	/**
+	 * Return whether the given world has failed during a tick of this group.
+	 *
+	 * @return	| result == (getFailure(world) != null)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not hosted by this group.
+	 * 			| ! getWorlds().contains(world)
+	 */
+	public boolean hasFailed(World world) throws IllegalWorldException {
+		return getFailure(world) != null;
+	}
+
+	/**
+	 * Return the exception with which the given world has failed. Null if none.
+	 *
+	 * @throws	IllegalWorldException
+	 * 			The given world is not hosted by this group.
+	 * 			| ! getWorlds().contains(world)
+	 */
+	public Exception getFailure(World world) throws IllegalWorldException {
+		return getMatch(world).failure;
+	}
+
+	/**
+	 * Return the bookkeeping of the given world in this group.
+	 */
+	private Match getMatch(World world) throws IllegalWorldException {
+		Match match = matches.get(world);
+		if (match == null)
+			throw new IllegalWorldException(world);
+		return match;
+	}
+
+	/**
+	 * Advance all worlds in this group, that have not failed, with a frame of given duration,
+	 * unless this group has fallen behind real time. A tick waits for any tick in progress.
+	 *
+	 * @param 	frameTime
+	 * 			The real time that has passed since the previous tick.
+	 * @return	The number of worlds that failed during this tick.
+	 * 			| @see implementation
+	 * @effect	If this group is not behind, the clock of each world that has not failed is
+	 * 			advanced with the given frame time, in parallel. A world whose clock throws an
+	 * 			exception is registered as failed.
+	 * 			| if (! isBehind())
+	 * 			| 	for each world in getWorlds()
+	 * 			| 		if (! hasFailed(world))
+	 * 			| 			getClock(world).advance(frameTime)
+	 * @post	If this group is behind, the tick is skipped.
+	 * 			| if (isBehind())
+	 * 			| 	new.getNbSkippedTicks() == getNbSkippedTicks() + 1
+	 * 			| 	result == 0
+	 * @post	The lag of this group is increased by the wall-clock time of this tick and
+	 * 			decreased by the given frame time, but never below zero.
+	 * 			| @see implementation
+	 * @throws	IllegalDurationException
+	 * 			The given frame time is negative or not a number.
+	 * 			| (frameTime < 0) || Double.isNaN(frameTime)
+	 */
+	public int tick(double frameTime) throws IllegalDurationException {
+		if ((frameTime < 0)||(Double.isNaN(frameTime)))
+			throw new IllegalDurationException(frameTime);
+		synchronized (tickLock) {
+			if (isBehind()) {
+				this.nbSkippedTicks++;
+				this.lag = Math.max(0, getLag() - frameTime);
+				return 0;
+			}
+			long start = System.nanoTime();
+			List<Match> current = new ArrayList<Match>(matches.values());
+			TickTask task = new TickTask(current, 0, current.size(), frameTime);
+			pool.invoke(task);
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			this.lag = Math.max(0, getLag() + elapsed - frameTime);
+			return task.failures;
+		}
+	}
+
+	/**
+	 * Shut down the threads of this group. This group cannot tick anymore.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * A class of tasks, advancing a range of worlds in this group. Ranges are split in halves
+	 * until they hold a single world, so idle threads can steal the remaining halves.
+	 */
+	@SuppressWarnings("serial")
+	private static class TickTask extends RecursiveAction {
+
+		private TickTask(List<Match> matches, int from, int to, double frameTime) {
+			this.matches = matches;
+			this.from = from;
+			this.to = to;
+			this.frameTime = frameTime;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				if ((from < to)&&(! matches.get(from).advance(frameTime)))
+					failures++;
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			TickTask left = new TickTask(matches, from, middle, frameTime);
+			TickTask right = new TickTask(matches, middle, to, frameTime);
+			invokeAll(left, right);
+			failures = left.failures + right.failures;
+		}
+
+		private final List<Match> matches;
+		private final int from;
+		private final int to;
+		private final double frameTime;
+		private int failures = 0;
+
+	}
+
+	/**
+	 * A class registering the clock, tick latencies and failure of a world in this group.
+	 */
+	private static class Match {
+
+		private Match(SimulationClock clock) {
+			this.clock = clock;
+		}
+
+		/**
+		 * Advance the clock of this match with the given frame time, unless it has failed.
+		 *
+		 * @return	False if and only if the clock failed during this advance.
+		 */
+		private boolean advance(double frameTime) {
+			if (failure != null)
+				return true;
+			long start = System.nanoTime();
+			try {
+				clock.advance(frameTime);
+			}
+			catch (Exception exc) {
+				failure = exc;
+				return false;
+			}
+			finally {
+				latency.record(System.nanoTime() - start);
+			}
+			return true;
+		}
+
+		private final SimulationClock clock;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private volatile Exception failure = null;
+
+	}
+
+	/**
+	 * A variable registering the fixed step of the clocks of the worlds in this group.
+	 */
+	private final double step;
+
+	/**
+	 * A variable registering the time this group may fall behind before it refuses new worlds
+	 * and skips ticks.
+	 */
+	private final double maxLag;
+
+	/**
+	 * A variable registering the time this group lags behind real time.
+	 */
+	private volatile double lag = 0;
+
+	/**
+	 * A variable registering the number of ticks, skipped because this group had fallen behind.
+	 */
+	private volatile long nbSkippedTicks = 0;
+
+	/**
+	 * A variable registering the lock, held by the tick in progress.
+	 */
+	private final Object tickLock = new Object();
+
+	/**
+	 * A variable registering the work-stealing pool, evolving the worlds of this group.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * A variable registering the worlds of this group and their bookkeeping. The map is
+	 * replaced as a whole when worlds are added or removed, so a tick iterates a stable copy.
+	 */
+	private volatile Map<World,Match> matches = new LinkedHashMap<World,Match>();
+
+	/**
+	 * A variable registering the standard time a group may fall behind real time.
+	 */
+	public static final double STANDARD_MAX_LAG = 0.25;
+
+}
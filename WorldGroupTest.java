@@ -0,0 +1,118 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.LatencyHistogram;
+import asteroids.model.World;
+import asteroids.model.WorldGroup;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class WorldGroupTest {
+
+	private static final double EPSILON = 0.0001;
+
+	WorldGroup group;
+	World world;
+	World failingWorld;
+	World slowWorld;
+
+	@Before
+	public void setUp() {
+		group = new WorldGroup(0.1, 2, 0.05);
+		world = new World(1000,1000);
+		failingWorld = new World(1000,1000) {
+			@Override
+			public void evolve(double dt) {
+				throw new IllegalStateException();
+			}
+		};
+		slowWorld = new World(1000,1000) {
+			@Override
+			public void evolve(double dt) {
+				try {
+					Thread.sleep(400);
+				}
+				catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		group.shutdown();
+	}
+
+	@Test
+	public void testTick_CaseFailureIsolation() throws IllegalWorldException {
+		group.shutdown();
+		group = new WorldGroup(0.1, 2, 60);
+		group.addWorld(world);
+		group.addWorld(failingWorld);
+		assertEquals(1, group.tick(0.1));
+		assert group.hasFailed(failingWorld);
+		assert group.getFailure(failingWorld) instanceof IllegalStateException;
+		assert ! group.hasFailed(world);
+		assertEquals(1, group.getClock(world).getNbSteps());
+		assertEquals(0, group.tick(0.1));
+		assertEquals(2, group.getClock(world).getNbSteps());
+		assertEquals(0, group.getClock(failingWorld).getNbSteps());
+		assertEquals(2, group.getLatencyHistogram(world).getCount());
+		assertEquals(1, group.getLatencyHistogram(failingWorld).getCount());
+	}
+
+	@Test
+	public void testTick_CaseBehind() throws IllegalWorldException {
+		group.addWorld(slowWorld);
+		group.tick(0.1);
+		assert group.isBehind();
+		double lag = group.getLag();
+		assertEquals(0, group.tick(0.1));
+		assertEquals(1, group.getNbSkippedTicks());
+		assertEquals(1, group.getClock(slowWorld).getNbSteps());
+		assertEquals(lag - 0.1, group.getLag(), EPSILON);
+		group.tick(1);
+		assertEquals(2, group.getNbSkippedTicks());
+		assertEquals(0, group.getLag(), EPSILON);
+		assert ! group.isBehind();
+		group.tick(1);
+		assertEquals(2, group.getNbSkippedTicks());
+		assert group.getClock(slowWorld).getNbSteps() > 1;
+	}
+
+	@Test(expected = IllegalWorldException.class)
+	public void testAddWorld_IllegalCaseBehind() throws IllegalWorldException {
+		group.addWorld(slowWorld);
+		group.tick(0.1);
+		group.addWorld(world);
+	}
+
+	@Test
+	public void testRecord_CaseConcurrentThreads() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int thread = 0; thread < 4; thread++) {
+			threads.add(new Thread(() -> {
+				for (int count = 1; count <= 10000; count++)
+					histogram.record(count);
+			}));
+		}
+		for (Thread thread: threads)
+			thread.start();
+		for (Thread thread: threads)
+			thread.join();
+		assertEquals(40000, histogram.getCount());
+		assertEquals(10000, histogram.getMax());
+		assertEquals(5000.5, histogram.getMean(), EPSILON);
+		assertEquals(10000, histogram.getPercentile(100));
+	}
+
+}
@@ -0,0 +1,405 @@
+package asteroids.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of world metrics, collecting live gauges and counters of a world, to be read over JMX
+ * while the world evolves.
+ *
+ * The metrics of a world count its collisions by kind, the duration of its evolutions, the
+ * pairs of entities tested for a collision and the statements executed by the programs of its
+ * ships, and register the number of entities of each type after each evolution. Everything that
+ * is counted is counted in the aggregate metrics of all worlds as well. The counters are striped
+ * adders, so worlds that evolve on different threads do not contend on the aggregate counters,
+ * and readers never block a world.
+ *
+ * The metrics of a world are collected only while they are enabled and the aggregate metrics are
+ * enabled. When they are not, a world only checks that, once per evolution, collision and program
+ * slice.
+ */
+public class WorldMetrics implements WorldMetricsMBean {
+
+	/**
+	 * Initialize these new, enabled metrics for the given world.
+	 *
+	 * @param 	world
+	 * 			The world of these new metrics.
+	 * @post	| new.getWorld() == world
+	 * @post	| new.isEnabled()
+	 * @effect	These new metrics are attached to the given world.
+	 * 			| world.setMetrics(new)
+	 * @throws	IllegalWorldException
+	 * 			The given world is not effective.
+	 * 			| world == null
+	 */
+	public WorldMetrics(World world) throws IllegalWorldException {
+		if (world == null)
+			throw new IllegalWorldException(world);
+		this.world = world;
+		world.setMetrics(this);
+	}
+
+	/**
+	 * Initialize these new, enabled metrics without a world.
+	 */
+	WorldMetrics() {
+		this.world = null;
+	}
+
+	/**
+	 * Return the world of these metrics. Null for the aggregate metrics.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the aggregate metrics of all worlds.
+	 */
+	public static AggregateWorldMetrics getAggregate() {
+		return AGGREGATE;
+	}
+
+	@Override @Basic
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Return whether these metrics are collected: they are enabled, and so are the aggregate metrics.
+	 */
+	public boolean isCollecting() {
+		return enabled && AGGREGATE.isEnabled();
+	}
+
+	/**
+	 * Register these metrics in the platform MBean server, and register the aggregate metrics as
+	 * well, if they are not registered yet.
+	 *
+	 * @throws	JMException
+	 * 			These metrics could not be registered.
+	 */
+	public synchronized void register() throws JMException {
+		if (name != null)
+			return;
+		ObjectName name = new ObjectName(DOMAIN + ":type=World,name=world-" + NEXT_NAME.getAndIncrement());
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		this.name = name;
+		AGGREGATE.register(this);
+	}
+
+	/**
+	 * Remove these metrics from the platform MBean server, if they are registered.
+	 */
+	public synchronized void unregister() {
+		if (name == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		catch (JMException exc) {
+			// The metrics were unregistered through the server itself.
+		}
+		name = null;
+		AGGREGATE.unregister(this);
+	}
+
+	/**
+	 * Return the name these metrics are registered under. Null if they are not registered.
+	 */
+	public synchronized ObjectName getName() {
+		return this.name;
+	}
+
+	@Override
+	public int getNbShips() {
+		return this.nbShips;
+	}
+
+	@Override
+	public int getNbBullets() {
+		return this.nbBullets;
+	}
+
+	@Override
+	public int getNbAsteroids() {
+		return this.nbAsteroids;
+	}
+
+	@Override
+	public int getNbPlanetoids() {
+		return this.nbPlanetoids;
+	}
+
+	@Override
+	public long getShipShipCollisions() {
+		return collisions[SHIP_SHIP].sum();
+	}
+
+	@Override
+	public long getBulletShipCollisions() {
+		return collisions[BULLET_SHIP].sum();
+	}
+
+	@Override
+	public long getBoundaryCollisions() {
+		return collisions[BOUNDARY].sum();
+	}
+
+	@Override
+	public long getPlanetoidShipCollisions() {
+		return collisions[PLANETOID_SHIP].sum();
+	}
+
+	@Override
+	public long getAsteroidShipCollisions() {
+		return collisions[ASTEROID_SHIP].sum();
+	}
+
+	@Override
+	public long getOtherCollisions() {
+		return collisions[OTHER].sum();
+	}
+
+	@Override
+	public double getShipShipCollisionsPerSecond() {
+		return getRate(getShipShipCollisions());
+	}
+
+	@Override
+	public double getBulletShipCollisionsPerSecond() {
+		return getRate(getBulletShipCollisions());
+	}
+
+	@Override
+	public double getBoundaryCollisionsPerSecond() {
+		return getRate(getBoundaryCollisions());
+	}
+
+	@Override
+	public double getPlanetoidShipCollisionsPerSecond() {
+		return getRate(getPlanetoidShipCollisions());
+	}
+
+	@Override
+	public double getAsteroidShipCollisionsPerSecond() {
+		return getRate(getAsteroidShipCollisions());
+	}
+
+	@Override
+	public double getOtherCollisionsPerSecond() {
+		return getRate(getOtherCollisions());
+	}
+
+	@Override
+	public long getEvolutions() {
+		return evolutions.sum();
+	}
+
+	@Override
+	public double getAverageEvolveNanos() {
+		long evolutions = getEvolutions();
+		return (evolutions == 0) ? 0 : (double) evolveNanos.sum()/evolutions;
+	}
+
+	@Override
+	public long getMaxEvolveNanos() {
+		return maxEvolveNanos.get();
+	}
+
+	@Override
+	public double getPairTestsPerEvent() {
+		long predictions = this.predictions.sum();
+		return (predictions == 0) ? 0 : (double) pairTests.sum()/predictions;
+	}
+
+	@Override
+	public long getProgramStatements() {
+		return programStatements.sum();
+	}
+
+	@Override
+	public double getProgramStatementsPerSecond() {
+		return getRate(getProgramStatements());
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder counter: collisions)
+			counter.reset();
+		evolutions.reset();
+		evolveNanos.reset();
+		maxEvolveNanos.reset();
+		predictions.reset();
+		pairTests.reset();
+		programStatements.reset();
+		resetTime = System.nanoTime();
+	}
+
+	/**
+	 * Return the given count per second since the last reset.
+	 */
+	private double getRate(long count) {
+		double seconds = (System.nanoTime() - resetTime)/1e9;
+		return (seconds <= 0) ? 0 : count/seconds;
+	}
+
+	/**
+	 * Count a collision of the given entity with the given other entity, or with a boundary if the
+	 * other entity is null.
+	 */
+	void recordCollision(Entity entity, Entity other) {
+		collisions[getKind(entity, other)].increment();
+		if (world != null)
+			AGGREGATE.recordCollision(entity, other);
+	}
+
+	/**
+	 * Count an evolution of the world of these metrics, that took the given number of nanoseconds
+	 * and looked for the given number of events by testing the given number of pairs, and register
+	 * the number of entities of each type in the world. The aggregate metrics register no entities:
+	 * they sum those of the registered metrics of worlds.
+	 */
+	void recordEvolve(long nanos, int predictions, long pairTests) {
+		evolutions.increment();
+		evolveNanos.add(nanos);
+		maxEvolveNanos.accumulate(nanos);
+		this.predictions.add(predictions);
+		this.pairTests.add(pairTests);
+		if (world == null)
+			return;
+		AGGREGATE.recordEvolve(nanos, predictions, pairTests);
+		nbShips = world.getNbEntities(World.EXPORT_SHIP);
+		nbBullets = world.getNbEntities(World.EXPORT_BULLET);
+		nbAsteroids = world.getNbEntities(World.EXPORT_ASTEROID);
+		nbPlanetoids = world.getNbEntities(World.EXPORT_PLANETOID);
+	}
+
+	/**
+	 * Count the given number of statements, executed in a slice of a program of a ship in the world
+	 * of these metrics.
+	 */
+	void recordProgramSlice(int statements) {
+		programStatements.add(statements);
+		if (world != null)
+			AGGREGATE.recordProgramSlice(statements);
+	}
+
+	/**
+	 * Return the kind of a collision of the given entity with the given other entity, or with a
+	 * boundary if the other entity is null.
+	 */
+	private static int getKind(Entity entity, Entity other) {
+		if (other == null)
+			return BOUNDARY;
+		if (other instanceof Ship) {
+			Entity swap = entity;
+			entity = other;
+			other = swap;
+		}
+		if (! (entity instanceof Ship))
+			return OTHER;
+		if (other instanceof Ship)
+			return SHIP_SHIP;
+		if (other instanceof Bullet)
+			return BULLET_SHIP;
+		if (other instanceof Planetoid)
+			return PLANETOID_SHIP;
+		if (other instanceof Asteroid)
+			return ASTEROID_SHIP;
+		return OTHER;
+	}
+
+	/**
+	 * A variable registering the world of these metrics.
+	 */
+	private final World world;
+
+	/**
+	 * A variable registering whether these metrics are enabled.
+	 */
+	private volatile boolean enabled = true;
+
+	/**
+	 * A variable registering the name these metrics are registered under, if any.
+	 */
+	private ObjectName name;
+
+	/**
+	 * Variables registering the number of entities of each type after the last evolution.
+	 */
+	private volatile int nbShips;
+	private volatile int nbBullets;
+	private volatile int nbAsteroids;
+	private volatile int nbPlanetoids;
+
+	/**
+	 * A variable registering the number of collisions of each kind.
+	 */
+	private final LongAdder[] collisions = { new LongAdder(), new LongAdder(), new LongAdder(),
+			new LongAdder(), new LongAdder(), new LongAdder() };
+
+	/**
+	 * Variables registering the number of evolutions, their total and their maximum duration.
+	 */
+	private final LongAdder evolutions = new LongAdder();
+	private final LongAdder evolveNanos = new LongAdder();
+	private final LongAccumulator maxEvolveNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Variables registering the number of events looked for, and the number of pairs tested.
+	 */
+	private final LongAdder predictions = new LongAdder();
+	private final LongAdder pairTests = new LongAdder();
+
+	/**
+	 * A variable registering the number of program statements executed.
+	 */
+	private final LongAdder programStatements = new LongAdder();
+
+	/**
+	 * A variable registering the time of the last reset, in nanoseconds.
+	 */
+	private volatile long resetTime = System.nanoTime();
+
+	/**
+	 * Variables registering the kinds of collisions, as indices of the collision counters.
+	 */
+	private static final int SHIP_SHIP = 0;
+	private static final int BULLET_SHIP = 1;
+	private static final int BOUNDARY = 2;
+	private static final int PLANETOID_SHIP = 3;
+	private static final int ASTEROID_SHIP = 4;
+	private static final int OTHER = 5;
+
+	/**
+	 * A variable registering the domain of the names metrics are registered under.
+	 */
+	static final String DOMAIN = "asteroids.model";
+
+	/**
+	 * A variable registering the number in the name of the next metrics to be registered.
+	 */
+	private static final AtomicLong NEXT_NAME = new AtomicLong(1);
+
+	/**
+	 * A variable registering the aggregate metrics of all worlds.
+	 */
+	private static final AggregateWorldMetrics AGGREGATE = new AggregateWorldMetrics();
+
+}
@@ -0,0 +1,89 @@
+package asteroids.model;
+
+/**
+ * The management interface of world metrics, exposing the live gauges and counters of a world
+ * over JMX.
+ *
+ * Counters accumulate from the last reset; rates are averaged over the time since that reset.
+ */
+public interface WorldMetricsMBean {
+
+	/**
+	 * Return whether these metrics are collected.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Switch the collection of these metrics on or off.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Return the number of ships, bullets, asteroids and planetoids after the last evolution.
+	 */
+	int getNbShips();
+
+	int getNbBullets();
+
+	int getNbAsteroids();
+
+	int getNbPlanetoids();
+
+	/**
+	 * Return the number of collisions of each kind.
+	 */
+	long getShipShipCollisions();
+
+	long getBulletShipCollisions();
+
+	long getBoundaryCollisions();
+
+	long getPlanetoidShipCollisions();
+
+	long getAsteroidShipCollisions();
+
+	long getOtherCollisions();
+
+	/**
+	 * Return the number of collisions of each kind per second.
+	 */
+	double getShipShipCollisionsPerSecond();
+
+	double getBulletShipCollisionsPerSecond();
+
+	double getBoundaryCollisionsPerSecond();
+
+	double getPlanetoidShipCollisionsPerSecond();
+
+	double getAsteroidShipCollisionsPerSecond();
+
+	double getOtherCollisionsPerSecond();
+
+	/**
+	 * Return the number of evolutions, and their average and maximum duration in nanoseconds.
+	 */
+	long getEvolutions();
+
+	double getAverageEvolveNanos();
+
+	long getMaxEvolveNanos();
+
+	/**
+	 * Return the average number of pairs of entities, tested for a collision, per event that was
+	 * looked for.
+	 */
+	double getPairTestsPerEvent();
+
+	/**
+	 * Return the number of program statements executed, in total and per second.
+	 */
+	long getProgramStatements();
+
+	double getProgramStatementsPerSecond();
+
+	/**
+	 * Set all counters to zero, and start averaging the rates anew.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,158 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.AggregateWorldMetrics;
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Planetoid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldMetrics;
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class WorldMetricsTest {
+
+	World world;
+	WorldMetrics metrics;
+	AggregateWorldMetrics aggregate;
+
+	@Before
+	public void setUp() throws IllegalWorldException {
+		// Each pair collides at a different moment, at most once within two seconds.
+		world = new World(5000,5000,42);
+		world.addEntity(new Ship(100,100,10,0,10,0,100));
+		world.addEntity(new Ship(140,100,-10,0,10,0,100));
+		world.addEntity(new Bullet(100,300,20,0,5));
+		world.addEntity(new Ship(140,300,0,0,10,0,100));
+		world.addEntity(new Asteroid(4985,500,10,0,10));
+		world.addEntity(new Planetoid(100,700,0,0,20,0));
+		world.addEntity(new Ship(160,700,-20,0,10,0,100));
+		world.addEntity(new Asteroid(100,900,20,0,10));
+		world.addEntity(new Ship(155,900,0,0,10,0,100));
+		world.addEntity(new Asteroid(500,100,10,0,10));
+		world.addEntity(new Asteroid(534,100,-10,0,10));
+		metrics = new WorldMetrics(world);
+		aggregate = WorldMetrics.getAggregate();
+	}
+
+	@After
+	public void tearDown() {
+		metrics.unregister();
+		aggregate.setEnabled(true);
+	}
+
+	@Test
+	public void testRecordEvolve_CaseCollisionKinds() throws IllegalDurationException, IllegalWorldException {
+		long aggregateShipShip = aggregate.getShipShipCollisions();
+		long aggregateEvolutions = aggregate.getEvolutions();
+		world.evolve(2);
+		assertEquals(1, metrics.getShipShipCollisions());
+		assertEquals(1, metrics.getBulletShipCollisions());
+		assertEquals(1, metrics.getBoundaryCollisions());
+		assertEquals(1, metrics.getPlanetoidShipCollisions());
+		assertEquals(1, metrics.getAsteroidShipCollisions());
+		assertEquals(1, metrics.getOtherCollisions());
+		assertEquals(1, metrics.getEvolutions());
+		assert metrics.getMaxEvolveNanos()>0;
+		assertEquals(aggregateShipShip + 1, aggregate.getShipShipCollisions());
+		assertEquals(aggregateEvolutions + 1, aggregate.getEvolutions());
+		checkEntityCounts();
+		metrics.reset();
+		assertEquals(0, metrics.getShipShipCollisions());
+		assertEquals(0, metrics.getEvolutions());
+	}
+
+	@Test
+	public void testRecordEvolve_CaseEntityCounts() throws IllegalDurationException, IllegalWorldException {
+		world.evolve(0.1);
+		checkEntityCounts();
+		assertEquals(5, metrics.getNbShips());
+		assertEquals(1, metrics.getNbBullets());
+		assertEquals(4, metrics.getNbAsteroids());
+		assertEquals(1, metrics.getNbPlanetoids());
+		Entity bullet = world.getEntities().keySet().stream()
+				.filter(entity -> entity instanceof Bullet).findFirst().get();
+		world.removeEntity(bullet);
+		world.addEntity(new Asteroid(2500,2500,0,0,10));
+		world.evolve(2);
+		checkEntityCounts();
+		assertEquals(0, metrics.getNbBullets());
+	}
+
+	@Test
+	public void testSetEnabled_CaseDisabled() throws IllegalDurationException, IllegalWorldException {
+		metrics.setEnabled(false);
+		assert ! metrics.isCollecting();
+		world.evolve(2);
+		assertEquals(0, metrics.getEvolutions());
+		assertEquals(0, metrics.getShipShipCollisions());
+		assertEquals(0, metrics.getBoundaryCollisions());
+		metrics.setEnabled(true);
+		aggregate.setEnabled(false);
+		assert ! metrics.isCollecting();
+		long aggregateEvolutions = aggregate.getEvolutions();
+		world.evolve(1);
+		assertEquals(0, metrics.getEvolutions());
+		assertEquals(aggregateEvolutions, aggregate.getEvolutions());
+		aggregate.setEnabled(true);
+		world.evolve(1);
+		assertEquals(1, metrics.getEvolutions());
+		assertEquals(aggregateEvolutions + 1, aggregate.getEvolutions());
+	}
+
+	@Test
+	public void testRegister() throws JMException, IllegalDurationException, IllegalWorldException {
+		int nbWorlds = aggregate.getNbWorlds();
+		int nbShips = aggregate.getNbShips();
+		world.evolve(0.1);
+		metrics.register();
+		ObjectName name = metrics.getName();
+		assert name!=null;
+		assert ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+		assert ManagementFactory.getPlatformMBeanServer().isRegistered(aggregate.getName());
+		assertEquals(nbWorlds + 1, aggregate.getNbWorlds());
+		assertEquals(nbShips + metrics.getNbShips(), aggregate.getNbShips());
+		metrics.register();
+		assert metrics.getName()==name;
+		assertEquals(nbWorlds + 1, aggregate.getNbWorlds());
+		metrics.unregister();
+		assert metrics.getName()==null;
+		assert ! ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+		assertEquals(nbWorlds, aggregate.getNbWorlds());
+		assertEquals(nbShips, aggregate.getNbShips());
+	}
+
+	/**
+	 * Check that the metrics register the number of entities of each type in the world.
+	 */
+	private void checkEntityCounts() {
+		int ships = 0, bullets = 0, asteroids = 0, planetoids = 0;
+		for (Entity entity: world.getEntities().keySet()) {
+			if (entity instanceof Ship)
+				ships++;
+			else if (entity instanceof Bullet)
+				bullets++;
+			else if (entity instanceof Asteroid)
+				asteroids++;
+			else if (entity instanceof Planetoid)
+				planetoids++;
+		}
+		assertEquals(ships, metrics.getNbShips());
+		assertEquals(bullets, metrics.getNbBullets());
+		assertEquals(asteroids, metrics.getNbAsteroids());
+		assertEquals(planetoids, metrics.getNbPlanetoids());
+	}
+
+}
@@ -0,0 +1,80 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of seedable random sources, owned by a world.
+ *
+ * The generator follows the SplitMix64 algorithm, the same one behind
+ * java.util.SplittableRandom: its complete state is a single long, so it never
+ * allocates, never touches shared state, and can be captured and restored exactly.
+ * Two sources with the same state produce the same sequence of numbers.
+ * A random source is not meant to be shared between threads.
+ */
+public class WorldRandom {
+
+	/**
+	 * Initialize this new random source with given seed.
+	 *
+	 * @param 	seed
+	 * 			The seed for this new random source.
+	 * @post	| new.getState() == seed
+	 */
+	public WorldRandom(long seed) {
+		setState(seed);
+	}
+
+	/**
+	 * Return the state of this random source.
+	 */
+	@Basic
+	public long getState() {
+		return this.state;
+	}
+
+	/**
+	 * Set the state of this random source to the given state.
+	 *
+	 * @param 	state
+	 * 			The new state of this random source.
+	 * @post	| new.getState() == state
+	 */
+	public void setState(long state) {
+		this.state = state;
+	}
+
+	/**
+	 * Return the next pseudorandom long of this random source.
+	 */
+	public long nextLong() {
+		long z = (state += GOLDEN_GAMMA);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Return the next pseudorandom double of this random source.
+	 *
+	 * @return	| (result >= 0) && (result < 1)
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * A variable registering the state of this random source.
+	 */
+	private long state;
+
+	/**
+	 * A variable registering the increment of the state for each number drawn.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * A variable registering the distance between consecutive doubles in [0, 1) with 53 bits.
+	 */
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+}
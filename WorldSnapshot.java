@@ -0,0 +1,463 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import asteroids.model.programs.statements.ProgramStatement;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of world snapshots, capturing the state of a world at a given moment so that
+ * the world can later be restored to it.
+ *
+ * The state of the captured entities is laid out in parallel arrays of primitives, indexed
+ * by the position of each entity in the snapshot: first the entities of the world in the
+ * order the world keeps them, each ship directly followed by the bullets it has loaded.
+ * Associations between entities are registered by reference, for a snapshot restores the
+ * very same entities it captured. All storage is reused when a snapshot captures a world again.
+ */
+public class WorldSnapshot {
+
+	/**
+	 * Return the world, captured by this snapshot. Null if none has been captured yet.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the number of entities, captured by this snapshot.
+	 */
+	@Basic
+	public int getNbEntities() {
+		return this.nbEntities;
+	}
+
+	/**
+	 * Return the entity at the given index of this snapshot.
+	 */
+	public Entity getEntity(int index) {
+		return entities[index];
+	}
+
+	/**
+	 * Return the identifier of the entity at the given index of this snapshot.
+	 */
+	public long getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * Return the captured position along the x-axis of the entity at the given index.
+	 */
+	public double getXPosition(int index) {
+		return xs[index];
+	}
+
+	/**
+	 * Return the captured position along the y-axis of the entity at the given index.
+	 */
+	public double getYPosition(int index) {
+		return ys[index];
+	}
+
+	/**
+	 * Return the captured velocity along the x-axis of the entity at the given index.
+	 */
+	public double getXVelocity(int index) {
+		return vxs[index];
+	}
+
+	/**
+	 * Return the captured velocity along the y-axis of the entity at the given index.
+	 */
+	public double getYVelocity(int index) {
+		return vys[index];
+	}
+
+	/**
+	 * Return the captured radius of the entity at the given index.
+	 */
+	public double getRadius(int index) {
+		return radii[index];
+	}
+
+	/**
+	 * Return whether the entity at the given index was located in the captured world itself,
+	 * rather than being loaded on a ship.
+	 */
+	public boolean isInWorld(int index) {
+		return (flags[index] & IN_WORLD) != 0;
+	}
+
+	/**
+	 * Return whether the entity at the given index was terminated.
+	 */
+	public boolean isTerminated(int index) {
+		return (flags[index] & TERMINATED) != 0;
+	}
+
+	/**
+	 * Capture the state of the given world in this snapshot.
+	 */
+	void capture(World world) {
+		this.world = world;
+		this.nbEntities = 0;
+		this.nbPrograms = 0;
+		this.nbInWorld = 0;
+		long stamp = STAMPS.incrementAndGet();
+		for (Entity entity: world.getEntities().keySet()) {
+			add(entity, stamp, IN_WORLD, null);
+			nbInWorld++;
+			if (entity instanceof Ship) {
+				Ship ship = (Ship) entity;
+				for (Bullet bullet: ship.getBullets()) {
+					world.assignId(bullet);
+					add(bullet, stamp, (byte) 0, ship);
+				}
+				if (ship.getProgram() != null)
+					addProgram(ship.getProgram());
+			}
+		}
+		for (int index = 0; index < nbEntities; index++) {
+			if (entities[index] instanceof Bullet)
+				sources[index] = ((Bullet) entities[index]).getSource();
+		}
+		nbAwake = captureOrder(world.getAwakeSet(), stamp, awakeOrder = ensure(awakeOrder, world.getAwakeSet().size()));
+		nbSleeping = captureOrder(world.getSleepingSet(), stamp, sleepingOrder = ensure(sleepingOrder, world.getSleepingSet().size()));
+		this.randomState = world.getRandom().getState();
+		this.nextId = world.getNextId();
+	}
+
+	/**
+	 * Register the given entity at the next index of this snapshot.
+	 */
+	private void add(Entity entity, long stamp, byte flag, Ship carrier) {
+		if (nbEntities == entities.length)
+			grow(Math.max(16, 2*entities.length));
+		int index = nbEntities++;
+		entity.snapshotStamp = stamp;
+		entity.snapshotIndex = index;
+		entities[index] = entity;
+		ids[index] = entity.getId();
+		xs[index] = entity.getXPosition();
+		ys[index] = entity.getYPosition();
+		vxs[index] = entity.getXVelocity();
+		vys[index] = entity.getYVelocity();
+		radii[index] = entity.getRadius();
+		carriers[index] = carrier;
+		sources[index] = null;
+		bounces[index] = 0;
+		auxs[index] = 0;
+		accelerations[index] = 0;
+		if (entity.isTerminated())
+			flag |= TERMINATED;
+		if (entity instanceof Ship) {
+			Ship ship = (Ship) entity;
+			auxs[index] = ship.getOrientation();
+			accelerations[index] = ship.getAcceleration();
+			if (ship.thrusterEnabled())
+				flag |= THRUSTER;
+		}
+		else if (entity instanceof Bullet) {
+			Bullet bullet = (Bullet) entity;
+			bounces[index] = bullet.getBounces();
+			if (bullet.isLoopTerminated())
+				flag |= LOOP_TERMINATED;
+		}
+		else if (entity instanceof Planetoid) {
+			auxs[index] = ((Planetoid) entity).getTotalDistance();
+		}
+		flags[index] = flag;
+	}
+
+	/**
+	 * Register the state of the given program in this snapshot.
+	 */
+	private void addProgram(Program program) {
+		if (nbPrograms == programs.length) {
+			int capacity = Math.max(4, 2*programs.length);
+			programs = Arrays.copyOf(programs, capacity);
+			programStatements = Arrays.copyOf(programStatements, capacity);
+			programTimes = Arrays.copyOf(programTimes, capacity);
+			programPrints = Arrays.copyOf(programPrints, capacity);
+			programVariables = Arrays.copyOf(programVariables, capacity);
+		}
+		int index = nbPrograms++;
+		programs[index] = program;
+		programStatements[index] = program.getCurrentStatement();
+		programTimes[index] = program.getTimeLeftToExecute();
+		programPrints[index] = program.getPrintStack().size();
+		if (programVariables[index] == null)
+			programVariables[index] = new HashMap<String,Object>();
+		programVariables[index].clear();
+		programVariables[index].putAll(program.getVariableStack());
+	}
+
+	/**
+	 * Register the indices of the given entities in the given array, in iteration order.
+	 *
+	 * @return	The number of indices registered.
+	 */
+	private int captureOrder(Set<Entity> entities, long stamp, int[] order) {
+		int size = 0;
+		for (Entity entity: entities) {
+			if (entity.snapshotStamp == stamp)
+				order[size++] = entity.snapshotIndex;
+		}
+		return size;
+	}
+
+	/**
+	 * Restore the captured world to the state, registered in this snapshot.
+	 */
+	void restore() {
+		World world = this.world;
+		Map<Entity,double[]> map = world.getEntities();
+		world.invalidateRangeIndex();
+		world.invalidateSleepingIndex();
+		long stamp = STAMPS.incrementAndGet();
+		for (int index = 0; index < nbEntities; index++) {
+			entities[index].snapshotStamp = stamp;
+			entities[index].snapshotIndex = index;
+		}
+		for (int index = 0; index < nbEntities; index++) {
+			if (entities[index] instanceof Ship) {
+				Ship ship = (Ship) entities[index];
+				releaseUncaptured(ship.getBullets(), stamp);
+				releaseUncaptured(ship.getBulletsFired(), stamp);
+				ship.getBullets().clear();
+				ship.getBulletsFired().clear();
+			}
+		}
+		Iterator<Entity> iterator = map.keySet().iterator();
+		while (iterator.hasNext()) {
+			Entity entity = iterator.next();
+			if ((entity.snapshotStamp != stamp)||(! isInWorld(entity.snapshotIndex))) {
+				iterator.remove();
+				world.countEntity(entity, -1);
+				world.getAwakeSet().remove(entity);
+				world.getSleepingSet().remove(entity);
+				if (entity.snapshotStamp != stamp)
+					entity.setWorld(null);
+			}
+		}
+		for (int index = 0; index < nbEntities; index++) {
+			Entity entity = entities[index];
+			entity.restoreState(xs[index], ys[index], vxs[index], vys[index], radii[index],
+					(flags[index] & TERMINATED) != 0);
+			if (entity instanceof Ship) {
+				((Ship) entity).restoreShipState(auxs[index], accelerations[index],
+						(flags[index] & THRUSTER) != 0);
+			}
+			else if (entity instanceof Planetoid) {
+				((Planetoid) entity).setTotalDistance(auxs[index]);
+			}
+			if (entity instanceof Bullet) {
+				Ship source = sources[index];
+				World own = ((isInWorld(index))&&(source == null)) ? world : null;
+				((Bullet) entity).restoreBulletState(own, carriers[index], source, bounces[index],
+						(flags[index] & LOOP_TERMINATED) != 0);
+				if (carriers[index] != null)
+					carriers[index].getBullets().add((Bullet) entity);
+				if (source != null)
+					source.getBulletsFired().add((Bullet) entity);
+			}
+			else if (entity.getWorld() != world) {
+				entity.setWorld(null);
+				entity.setWorld(world);
+			}
+			if (isInWorld(index)) {
+				double[] position = map.get(entity);
+				if (position == null) {
+					map.put(entity, new double[]{xs[index], ys[index]});
+					world.countEntity(entity, 1);
+				}
+				else {
+					position[0] = xs[index];
+					position[1] = ys[index];
+				}
+			}
+		}
+		restoreMapOrder(map);
+		restoreOrder(world.getAwakeSet(), awakeOrder, nbAwake);
+		restoreOrder(world.getSleepingSet(), sleepingOrder, nbSleeping);
+		for (int index = 0; index < nbPrograms; index++) {
+			Program program = programs[index];
+			program.setTimeLeftToExecute(programTimes[index]);
+			program.setCurrentStatement(programStatements[index]);
+			program.getVariableStack().clear();
+			program.getVariableStack().putAll(programVariables[index]);
+			List<Object> prints = program.getPrintStack();
+			if (prints.size() > programPrints[index])
+				prints.subList(programPrints[index], prints.size()).clear();
+		}
+		world.getRandom().setState(randomState);
+		world.setNextId(nextId);
+	}
+
+	/**
+	 * Dissociate the bullets in the given set, that are not captured with the given stamp,
+	 * from the ship they are loaded on or were fired by.
+	 */
+	private static void releaseUncaptured(Set<Bullet> bullets, long stamp) {
+		for (Bullet bullet: bullets) {
+			if (bullet.snapshotStamp != stamp) {
+				bullet.setShip(null);
+				bullet.setSource(null);
+			}
+		}
+	}
+
+	/**
+	 * Reorder the entities of the given map to the captured order, if they are out of order.
+	 * The entities up to the first one out of order keep their place; only the entities after
+	 * it are moved to the end of the map, in the captured order.
+	 */
+	private void restoreMapOrder(Map<Entity,double[]> map) {
+		int index = 0;
+		int nbInOrder = 0;
+		for (Entity entity: map.keySet()) {
+			while ((index < nbEntities)&&(! isInWorld(index)))
+				index++;
+			if ((index == nbEntities)||(entities[index] != entity))
+				break;
+			index++;
+			nbInOrder++;
+		}
+		if (nbInOrder == map.size())
+			return;
+		for (; index < nbEntities; index++) {
+			if (isInWorld(index)) {
+				double[] position = map.remove(entities[index]);
+				map.put(entities[index], position);
+			}
+		}
+	}
+
+	/**
+	 * Restore the given set to hold the entities at the given indices, in the given order.
+	 * The entities up to the first one out of order keep their place; only the entities after
+	 * it are removed from the set and added again, in the given order.
+	 */
+	private void restoreOrder(Set<Entity> set, int[] order, int size) {
+		int nbInOrder = 0;
+		boolean inOrder = true;
+		Iterator<Entity> iterator = set.iterator();
+		while (iterator.hasNext()) {
+			Entity entity = iterator.next();
+			if ((inOrder)&&(nbInOrder < size)&&(entities[order[nbInOrder]] == entity))
+				nbInOrder++;
+			else {
+				inOrder = false;
+				iterator.remove();
+			}
+		}
+		for (int index = nbInOrder; index < size; index++)
+			set.add(entities[order[index]]);
+	}
+
+	/**
+	 * Return the given array if it holds at least the given number of elements, and a larger
+	 * array otherwise.
+	 */
+	private static int[] ensure(int[] array, int size) {
+		if (array.length >= size)
+			return array;
+		return new int[Math.max(size, 2*array.length)];
+	}
+
+	/**
+	 * Enlarge the storage of this snapshot to the given capacity.
+	 */
+	private void grow(int capacity) {
+		entities = Arrays.copyOf(entities, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		vxs = Arrays.copyOf(vxs, capacity);
+		vys = Arrays.copyOf(vys, capacity);
+		radii = Arrays.copyOf(radii, capacity);
+		auxs = Arrays.copyOf(auxs, capacity);
+		accelerations = Arrays.copyOf(accelerations, capacity);
+		bounces = Arrays.copyOf(bounces, capacity);
+		carriers = Arrays.copyOf(carriers, capacity);
+		sources = Arrays.copyOf(sources, capacity);
+	}
+
+	/**
+	 * A variable registering the world, captured by this snapshot.
+	 */
+	private World world = null;
+
+	/**
+	 * Variables registering the number of captured entities, and how many of them were
+	 * located in the world itself.
+	 */
+	private int nbEntities = 0;
+	private int nbInWorld = 0;
+
+	/**
+	 * Variables registering the state of the captured entities, by index.
+	 * The auxiliary value is the orientation of a ship or the total distance of a planetoid.
+	 */
+	private Entity[] entities = new Entity[0];
+	private long[] ids = new long[0];
+	private byte[] flags = new byte[0];
+	private double[] xs = new double[0];
+	private double[] ys = new double[0];
+	private double[] vxs = new double[0];
+	private double[] vys = new double[0];
+	private double[] radii = new double[0];
+	private double[] auxs = new double[0];
+	private double[] accelerations = new double[0];
+	private int[] bounces = new int[0];
+	private Ship[] carriers = new Ship[0];
+	private Ship[] sources = new Ship[0];
+
+	/**
+	 * Variables registering the order in which the world scanned its awake and sleeping entities.
+	 */
+	private int[] awakeOrder = new int[0];
+	private int nbAwake = 0;
+	private int[] sleepingOrder = new int[0];
+	private int nbSleeping = 0;
+
+	/**
+	 * Variables registering the state of the programs of the captured ships.
+	 */
+	private Program[] programs = new Program[0];
+	private ProgramStatement[] programStatements = new ProgramStatement[0];
+	private double[] programTimes = new double[0];
+	private int[] programPrints = new int[0];
+	@SuppressWarnings({"unchecked","rawtypes"})
+	private HashMap<String,Object>[] programVariables = new HashMap[0];
+	private int nbPrograms = 0;
+
+	/**
+	 * Variables registering the state of the random source of the world, and its next identifier.
+	 */
+	private long randomState;
+	private long nextId;
+
+	/**
+	 * Flags registering the boolean state of a captured entity.
+	 */
+	private static final byte IN_WORLD = 1;
+	private static final byte TERMINATED = 2;
+	private static final byte THRUSTER = 4;
+	private static final byte LOOP_TERMINATED = 8;
+
+	/**
+	 * A variable registering the last stamp, used to mark the entities of a snapshot.
+	 */
+	private static final AtomicLong STAMPS = new AtomicLong();
+
+}
@@ -0,0 +1,22 @@
+package asteroids.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An interface for observers of the frames, encoded by a world delta encoder.
+ */
+public interface WorldStreamObserver {
+
+	/**
+	 * Receive the given encoded frame.
+	 *
+	 * @param 	frame
+	 * 			A read-only buffer, holding the frame between its position and its limit.
+	 * 			The buffer is reused for the next frame, so its contents must be copied if
+	 * 			they are needed after this method returns.
+	 * @param 	keyframe
+	 * 			Whether the given frame is a keyframe, describing all entities in the world.
+	 */
+	void frameEncoded(ByteBuffer frame, boolean keyframe);
+
+}
@@ -1,17 +1,39 @@
 package asteroids.tests;
 
+import static org.junit.Assert.assertEquals;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import asteroids.facade.Facade;
+import asteroids.model.Asteroid;
 import asteroids.model.Bullet;
-import asteroids.model.IllegalDurationException;
-import asteroids.model.IllegalEntityException;
-import asteroids.model.IllegalWorldException;
+import asteroids.model.Entity;
+import asteroids.model.EntitySet;
+import asteroids.model.exceptions.IllegalDurationException;
+import asteroids.model.exceptions.IllegalEntityException;
+import asteroids.model.exceptions.IllegalWorldException;
+import asteroids.model.MinorPlanet;
+import asteroids.model.Planetoid;
 import asteroids.model.Ship;
 import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.model.WorldView;
+import asteroids.model.WrappingWorld;
+import asteroids.util.ModelException;
 
 public class WorldTest {
 	
+	private static final double EPSILON = 0.0001;
+	
 	World world;
 	
 	@Before
@@ -25,7 +47,7 @@ public class WorldTest {
 		world.addEntity(ship);
 		assert ship.getWorld()==world;
 		assert world.getEntities().containsKey(ship);
-		assert world.getShips().contains(ship);
+		assert new EntitySet<Ship>(world, Ship.class).getSet().contains(ship);
 		assert world.getEntities().get(ship)[0]==100;
 		assert world.getEntities().get(ship)[1]==100;
 	}
@@ -39,6 +61,40 @@ public class WorldTest {
 		assert ship2.isTerminated();
 	}
 	
+	@Test
+	public void testAddEntities_CaseRejected() {
+		Ship ship = new Ship(100,100,10,10,10,0,100);
+		world.addEntity(ship);
+		Asteroid overlappingExisting = new Asteroid(105,100,0,0,10);
+		Asteroid accepted = new Asteroid(500,500,0,0,20);
+		Asteroid overlappingAccepted = new Asteroid(520,500,0,0,20);
+		Asteroid outOfBounds = new Asteroid(1005,500,0,0,10);
+		Asteroid accepted2 = new Asteroid(800,800,0,0,20);
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(overlappingExisting);
+		entities.add(accepted);
+		entities.add(overlappingAccepted);
+		entities.add(outOfBounds);
+		entities.add(accepted);
+		entities.add(accepted2);
+		List<Entity> rejected = new ArrayList<Entity>(world.addEntities(entities));
+		assertEquals(4, rejected.size());
+		assert rejected.get(0)==overlappingExisting;
+		assert rejected.get(1)==overlappingAccepted;
+		assert rejected.get(2)==outOfBounds;
+		assert rejected.get(3)==accepted;
+		assert accepted.getWorld()==world;
+		assert accepted2.getWorld()==world;
+		assert world.getEntities().containsKey(accepted2);
+		assertEquals(3, world.getEntities().size());
+		for (int index = 0; index < 3; index++) {
+			Entity entity = rejected.get(index);
+			assert entity.getWorld()==null;
+			assert ! entity.isTerminated();
+			assert ! world.getEntities().containsKey(entity);
+		}
+	}
+	
 	@Test
 	public void testRemoveEntity_LegalCaseShip() {
 		Ship ship = new Ship(100,100,10,10,10,0,100);
@@ -46,7 +102,7 @@ public class WorldTest {
 		world.removeEntity(ship);
 		assert ship.getWorld()==null;
 		assert ! world.getEntities().containsKey(ship);
-		assert ! world.getShips().contains(ship);
+		assert ! new EntitySet<Ship>(world, Ship.class).getSet().contains(ship);
 	}
 	
 	@Test
@@ -59,7 +115,7 @@ public class WorldTest {
 		assert bullet.getWorld()==null;
 		assert bullet.getSource()==null;
 		assert ! world.getEntities().containsKey(bullet);
-		assert ! world.getBullets().contains(bullet);
+		assert ! new EntitySet<Bullet>(world, Bullet.class).getSet().contains(bullet);
 	}
 	
 	@Test
@@ -81,7 +137,7 @@ public class WorldTest {
 		world.terminate();
 		assert world.isTerminated();
 		assert world.getEntities().size()==0;
-		assert world.getShips().size()==0;
+		assert new EntitySet<Ship>(world, Ship.class).getSet().size()==0;
 		assert ship.getWorld()==null;
 	}
 	
@@ -144,6 +200,124 @@ public class WorldTest {
 		assert ship.getXVelocity()==10;
 	}
 	
+	@Test
+	public void testEvolve_CaseSleepingEntities() throws IllegalEntityException, IllegalDurationException, IllegalWorldException {
+		Asteroid asteroid1 = new Asteroid(100,100,0,0,20);
+		world.addEntity(asteroid1);
+		Asteroid asteroid2 = new Asteroid(300,100,0,0,20);
+		world.addEntity(asteroid2);
+		Ship ship = new Ship(500,500,10,0,10,0,100);
+		world.addEntity(ship);
+		assert world.getNbSleepingEntities()==2;
+		assert world.getNbAwakeEntities()==1;
+		world.evolve(1);
+		assert asteroid1.getXPosition()==100;
+		asteroid1.setVelocity(10, 0);
+		assert world.getNbSleepingEntities()==1;
+		assert world.getAwakeEntities().contains(asteroid1);
+		world.evolve(1);
+		assert asteroid1.getXPosition()==110;
+	}
+	
+	@Test
+	public void testEvolve_CaseRemovalDuringSplit() throws IllegalEntityException, IllegalDurationException, IllegalWorldException {
+		Asteroid asteroid = new Asteroid(100,900,0,0,20);
+		world.addEntity(asteroid);
+		World[] worldDuringSplit = new World[1];
+		Planetoid planetoid = new Planetoid(500,500,0,0,40,0) {
+			@Override
+			public void terminate() {
+				getWorld().removeEntity(asteroid);
+				getWorld().removeEntity(asteroid);
+				worldDuringSplit[0] = asteroid.getWorld();
+				super.terminate();
+			}
+		};
+		world.addEntity(planetoid);
+		Bullet bullet = new Bullet(300,500,100,0,5);
+		world.addEntity(bullet);
+		world.evolve(3);
+		assert worldDuringSplit[0]==world;
+		assert asteroid.getWorld()==null;
+		assert planetoid.getWorld()==null;
+		assert bullet.getWorld()==null;
+		assert bullet.isTerminated();
+		assert ! world.getEntities().containsKey(asteroid);
+		assert ! world.getEntities().containsKey(planetoid);
+		assert ! world.getAwakeEntities().contains(asteroid);
+		assertEquals(2, world.getEntities().size());
+		for (Entity entity: world.getEntities().keySet()) {
+			assert entity instanceof Asteroid;
+			assert entity.getWorld()==world;
+			assertEquals(20, entity.getRadius(), 0);
+		}
+	}
+	
+	@Test
+	public void testAddEntities_CaseWrappingFolded() {
+		World world = new WrappingWorld(1000,1000);
+		world.addEntity(new Asteroid(500,500,0,0,20));
+		Asteroid folded = new Asteroid(1100,-50,0,0,20);
+		Asteroid overlappingFolded = new Asteroid(-880,960,0,0,20);
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(folded);
+		entities.add(overlappingFolded);
+		List<Entity> rejected = new ArrayList<Entity>(world.addEntities(entities));
+		assertEquals(1, rejected.size());
+		assert rejected.get(0)==overlappingFolded;
+		assert overlappingFolded.getXPosition()==-880;
+		assert folded.getWorld()==world;
+		assertEquals(100, folded.getXPosition(), EPSILON);
+		assertEquals(950, folded.getYPosition(), EPSILON);
+	}
+	
+	@Test
+	public void testEvolve_CaseWrappingSeamCollision() throws IllegalEntityException, IllegalDurationException, IllegalWorldException {
+		World world = new WrappingWorld(1000,1000);
+		Asteroid asteroid1 = new Asteroid(600,500,-200,0,20);
+		Asteroid asteroid2 = new Asteroid(950,500,0,0,20);
+		world.addEntity(asteroid1);
+		world.addEntity(asteroid2);
+		assertEquals(3.05, asteroid1.getTimeToCollision(asteroid2), EPSILON);
+		assertEquals(3.05, asteroid2.getTimeToCollision(asteroid1), EPSILON);
+		assertEquals(3.05, world.getTimeFirstCollision(), EPSILON);
+		assertEquals(970, asteroid1.getCollisionPosition(asteroid2)[0], EPSILON);
+		assertEquals(970, world.getFirstCollisionPosition()[0], EPSILON);
+		world.evolve(4);
+		assertEquals(990, asteroid1.getXPosition(), EPSILON);
+		assertEquals(0, asteroid1.getXVelocity(), EPSILON);
+		assertEquals(760, asteroid2.getXPosition(), EPSILON);
+		assertEquals(-200, asteroid2.getXVelocity(), EPSILON);
+	}
+	
+	@Test
+	public void testEvolve_CaseLinearCost() throws IllegalDurationException, IllegalWorldException {
+		getEvolveTime(8000);
+		long small = getEvolveTime(1000);
+		long large = getEvolveTime(8000);
+		assert large < 32*small : large + " ns for 8000 entities, " + small + " ns for 1000";
+	}
+	
+	/**
+	 * Return the shortest time, in nanoseconds, of a short evolution of a world with the given
+	 * number of moving asteroids, laid out on a grid.
+	 */
+	private static long getEvolveTime(int nbEntities) throws IllegalDurationException, IllegalWorldException {
+		int side = (int) Math.ceil(Math.sqrt(nbEntities));
+		World world = new World(side*100+100, side*100+100);
+		List<Entity> asteroids = new ArrayList<Entity>();
+		for (int index = 0; index < nbEntities; index++)
+			asteroids.add(new Asteroid(100+(index%side)*100, 100+(index/side)*100, 1+(index%7), 1+(index%5), 10));
+		world.addEntities(asteroids);
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < 20; round++) {
+			long start = System.nanoTime();
+			world.evolve(0.01);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+	
 	@Test (expected = IllegalDurationException.class)
 	public void testEvolve_IllegalCaseDuration() throws IllegalEntityException, IllegalDurationException, IllegalWorldException {
 		Ship ship = new Ship(100,100,-10,0,10,0,100);
@@ -151,5 +325,331 @@ public class WorldTest {
 		world.evolve(-10);
 	}
 	
+	@Test
+	public void testExportState_CaseAllEntities() {
+		List<Entity> entities = addExportedEntities();
+		double[] target = new double[entities.size()*World.EXPORT_STRIDE];
+		assertEquals(entities.size(), world.exportState(target, 0, Entity.class));
+		checkRecords(target, 0, entities.size(), entities);
+	}
+	
+	@Test
+	public void testExportState_CaseType() {
+		List<Entity> entities = addExportedEntities();
+		double[] target = new double[entities.size()*World.EXPORT_STRIDE];
+		assertEquals(1, world.exportState(target, 0, Ship.class));
+		checkRecords(target, 0, 1, entities.subList(0, 1));
+		assertEquals(1, world.exportState(target, 0, Asteroid.class));
+		checkRecords(target, 0, 1, entities.subList(1, 2));
+		assertEquals(2, world.exportState(target, 0, MinorPlanet.class));
+		checkRecords(target, 0, 2, entities.subList(1, 3));
+		assertEquals(1, world.exportState(target, 0, Bullet.class));
+		checkRecords(target, 0, 1, entities.subList(3, 4));
+	}
+	
+	@Test
+	public void testExportState_CaseOffset() {
+		List<Entity> entities = addExportedEntities();
+		double[] target = new double[3 + entities.size()*World.EXPORT_STRIDE + 2];
+		Arrays.fill(target, -1);
+		assertEquals(entities.size(), world.exportState(target, 3, Entity.class));
+		checkRecords(target, 3, entities.size(), entities);
+		for (int index: new int[]{0, 1, 2, target.length-2, target.length-1})
+			assert target[index]==-1;
+		assertEquals(0, world.exportState(target, target.length, Entity.class));
+	}
+	
+	@Test
+	public void testExportState_CaseTooSmallArray() {
+		List<Entity> entities = addExportedEntities();
+		double[] target = new double[2*World.EXPORT_STRIDE + World.EXPORT_STRIDE - 1];
+		Arrays.fill(target, -1);
+		assertEquals(2, world.exportState(target, 0, Entity.class));
+		checkRecords(target, 0, 2, entities);
+		assert target[target.length-1]==-1;
+		assertEquals(1, world.exportState(target, World.EXPORT_STRIDE, Entity.class));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testExportState_IllegalCaseOffset() {
+		addExportedEntities();
+		world.exportState(new double[World.EXPORT_STRIDE], World.EXPORT_STRIDE + 1, Entity.class);
+	}
+	
+	@Test
+	public void testExportState_CaseBuffer() {
+		List<Entity> entities = addExportedEntities();
+		DoubleBuffer target = DoubleBuffer.allocate(2 + entities.size()*World.EXPORT_STRIDE + 2);
+		target.position(2);
+		assertEquals(entities.size(), world.exportState(target, Entity.class));
+		assertEquals(2 + entities.size()*World.EXPORT_STRIDE, target.position());
+		checkRecords(target.array(), 2, entities.size(), entities);
+		target.clear();
+		target.limit(World.EXPORT_STRIDE + 3);
+		assertEquals(1, world.exportState(target, MinorPlanet.class));
+		assertEquals(World.EXPORT_STRIDE, target.position());
+		assertEquals(0, world.exportState(target, Entity.class));
+		assertEquals(World.EXPORT_STRIDE, target.position());
+	}
+	
+	@Test
+	public void testExportEntities_CaseFacade() throws ModelException, IllegalWorldException {
+		List<Entity> entities = addExportedEntities();
+		Facade facade = new Facade();
+		double[] target = new double[entities.size()*World.EXPORT_STRIDE];
+		assertEquals(entities.size(), facade.exportEntities(world, target, 0));
+		checkRecords(target, 0, entities.size(), entities);
+		new WorldView(world);
+		Arrays.fill(target, -1);
+		assertEquals(1, facade.exportEntities(world, Ship.class, target, World.EXPORT_STRIDE));
+		checkRecords(target, World.EXPORT_STRIDE, 1, entities.subList(0, 1));
+		DoubleBuffer buffer = DoubleBuffer.allocate(target.length);
+		assertEquals(entities.size(), facade.exportEntities(world, buffer));
+		checkRecords(buffer.array(), 0, entities.size(), entities);
+		try {
+			facade.exportEntities(world, target, -1);
+			assert false;
+		}
+		catch (ModelException exc) {
+		}
+	}
+	
+	@Test
+	public void testRestore_CaseRoundTrip() throws IllegalDurationException, IllegalWorldException {
+		Ship ship = new Ship(100,100,10,0,20,0,100);
+		Bullet bullet = new Bullet(100,100,0,0,5);
+		ship.loadBullet(bullet);
+		world.addEntity(ship);
+		world.addEntity(new Asteroid(500,500,-20,5,30));
+		world.addEntity(new Asteroid(800,200,0,0,20));
+		WorldSnapshot snapshot = world.snapshot();
+		List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+		double[][] states = getStates(entities);
+		Bullet lateBullet = new Bullet(100,100,0,0,5);
+		ship.loadBullet(lateBullet);
+		Asteroid lateAsteroid = new Asteroid(300,800,0,-10,20);
+		world.addEntity(lateAsteroid);
+		world.removeEntity(entities.get(2));
+		world.evolve(3);
+		world.restore(snapshot);
+		assert entities.equals(new ArrayList<Entity>(world.getEntities().keySet()));
+		double[][] restored = getStates(entities);
+		for (int index = 0; index < entities.size(); index++)
+			for (int field = 0; field < 4; field++)
+				assert states[index][field] == restored[index][field];
+		assert ship.getBullets().contains(bullet);
+		assert bullet.getShip()==ship;
+		assert bullet.getWorld()==null;
+		assert ! ship.getBullets().contains(lateBullet);
+		assert lateBullet.getShip()==null;
+		assert lateAsteroid.getWorld()==null;
+	}
+	
+	@Test
+	public void testRestore_CaseManyEntities() throws IllegalDurationException, IllegalWorldException {
+		World world = new World(10000,10000);
+		List<Entity> asteroids = new ArrayList<Entity>();
+		for (int index = 0; index < 10000; index++)
+			asteroids.add(new Asteroid(50+(index%100)*99, 50+(index/100)*99, 0, 0, 20));
+		world.addEntities(asteroids);
+		Ship ship = new Ship(5000,5050,10,0,10,0,100);
+		world.addEntity(ship);
+		WorldSnapshot snapshot = world.snapshot();
+		List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+		double[][] states = getStates(entities);
+		long duration = Long.MAX_VALUE;
+		for (int round = 0; round < 20; round++) {
+			world.evolve(1);
+			world.removeEntity(asteroids.get(asteroids.size() - 1 - round));
+			long start = System.nanoTime();
+			world.restore(snapshot);
+			duration = Math.min(duration, System.nanoTime() - start);
+		}
+		assert duration < 5000000L;
+		assert entities.equals(new ArrayList<Entity>(world.getEntities().keySet()));
+		double[][] restored = getStates(entities);
+		for (int index = 0; index < entities.size(); index++)
+			for (int field = 0; field < 4; field++)
+				assert states[index][field] == restored[index][field];
+	}
+	
+	@Test
+	public void testQuery_CaseBruteForce() throws IllegalDurationException, IllegalWorldException {
+		checkQueries(new World(2000,2000));
+	}
+	
+	@Test
+	public void testQuery_CaseBruteForceWrapping() throws IllegalDurationException, IllegalWorldException {
+		checkQueries(new WrappingWorld(2000,2000));
+	}
+	
+	@Test
+	public void testQuery_CaseEvolveBetweenQueries() throws IllegalDurationException, IllegalWorldException {
+		Asteroid asteroid = new Asteroid(100,100,100,0,10);
+		world.addEntity(asteroid);
+		List<Entity> found = new ArrayList<Entity>();
+		world.queryRadius(100, 100, 5, found::add);
+		assert found.contains(asteroid);
+		world.evolve(1);
+		found.clear();
+		world.queryRadius(100, 100, 5, found::add);
+		assert found.isEmpty();
+		world.queryRadius(200, 100, 5, found::add);
+		assert found.contains(asteroid);
+		asteroid.setPosition(500, 500);
+		found.clear();
+		world.queryRect(490, 490, 510, 510, found::add);
+		assert found.contains(asteroid);
+		world.removeEntity(asteroid);
+		found.clear();
+		world.queryRect(490, 490, 510, 510, found::add);
+		assert found.isEmpty();
+	}
+	
+	/**
+	 * Check the range queries on the given world against a scan of all its entities, while the
+	 * world evolves and entities are added, removed and moved between the queries.
+	 */
+	private static void checkQueries(World world) throws IllegalDurationException, IllegalWorldException {
+		Random random = new Random(50);
+		List<Entity> asteroids = new ArrayList<Entity>();
+		for (int index = 0; index < 100; index++)
+			asteroids.add(new Asteroid(100+(index%10)*190, 100+(index/10)*190,
+					random.nextDouble()*10-5, random.nextDouble()*10-5, 5+random.nextDouble()*10));
+		world.addEntities(asteroids);
+		for (int round = 0; round < 20; round++) {
+			for (int query = 0; query < 20; query++) {
+				double x = random.nextDouble()*2000, y = random.nextDouble()*2000;
+				double radius = random.nextDouble()*300;
+				double width = random.nextDouble()*600, height = random.nextDouble()*600;
+				List<Entity> found = new ArrayList<Entity>();
+				world.queryRadius(x, y, radius, found::add);
+				assert found.size() == new HashSet<Entity>(found).size();
+				assert new HashSet<Entity>(found).equals(scan(world, x, y, 0, 0, radius));
+				found.clear();
+				world.queryRect(x-width/2, y-height/2, x+width/2, y+height/2, Asteroid.class, found::add);
+				assert found.size() == new HashSet<Entity>(found).size();
+				assert new HashSet<Entity>(found).equals(scan(world, x, y, width/2, height/2, 0));
+			}
+			world.evolve(0.5);
+			List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+			world.removeEntity(entities.get(round));
+			Entity moved = entities.get(entities.size() - 1 - round);
+			if (moved.isValidPosition(moved.getXPosition() + 3, moved.getYPosition()))
+				moved.setPosition(moved.getXPosition() + 3, moved.getYPosition());
+			world.addEntity(new Asteroid(195+(round%9)*190, 195+(round/9)*190, 0, 0, 5));
+		}
+	}
+	
+	@Test
+	public void testEvolve_CaseSameSeed() throws IllegalDurationException, IllegalWorldException {
+		assert Arrays.equals(getSeededState(42), getSeededState(42));
+	}
+	
+	@Test
+	public void testEvolve_CaseDifferentSeed() throws IllegalDurationException, IllegalWorldException {
+		assert ! Arrays.equals(getSeededState(42), getSeededState(43));
+	}
+	
+	/**
+	 * Return the entities in the given world, whose disc lies within the given distance of the
+	 * rectangle with given center and half extents, measured by the separations of the world.
+	 */
+	private static Set<Entity> scan(World world, double x, double y, double halfWidth,
+			double halfHeight, double radius) {
+		Set<Entity> result = new HashSet<Entity>();
+		for (Entity entity: world.getEntities().keySet()) {
+			double dx = Math.max(0, Math.abs(world.getSeparationX(entity.getXPosition() - x)) - halfWidth);
+			double dy = Math.max(0, Math.abs(world.getSeparationY(entity.getYPosition() - y)) - halfHeight);
+			double reach = radius + entity.getRadius();
+			if (dx*dx + dy*dy <= reach*reach)
+				result.add(entity);
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the state of a world with the given seed after evolving it, as the raw bits of the
+	 * position, velocity and radius of its entities in the order of their identifiers, followed by
+	 * the state of its random source. On the way, a planetoid is split by a bullet, a ship is
+	 * teleported by a planetoid and an asteroid is given a random velocity for a NaN velocity,
+	 * each drawing from that source.
+	 */
+	private static long[] getSeededState(long seed) throws IllegalDurationException, IllegalWorldException {
+		World world = new World(1000,1000,seed);
+		world.addEntity(new Ship(500,150,0,50,20,0,100));
+		world.addEntity(new Planetoid(500,400,0,0,40,0));
+		world.addEntity(new Planetoid(300,800,0,0,40,0));
+		world.addEntity(new Bullet(450,800,-100,0,5));
+		Asteroid asteroid = new Asteroid(800,200,0,0,20);
+		world.addEntity(asteroid);
+		for (int tick = 0; tick < 20; tick++)
+			world.evolve(0.5);
+		asteroid.setVelocity(Double.NaN, Double.NaN);
+		world.evolve(0.001);
+		List<Entity> entities = new ArrayList<Entity>(world.getEntities().keySet());
+		entities.sort((entity, other) -> Long.compare(entity.getId(), other.getId()));
+		long[] state = new long[5*entities.size() + 1];
+		for (int index = 0; index < entities.size(); index++) {
+			Entity entity = entities.get(index);
+			state[5*index] = Double.doubleToLongBits(entity.getXPosition());
+			state[5*index+1] = Double.doubleToLongBits(entity.getYPosition());
+			state[5*index+2] = Double.doubleToLongBits(entity.getXVelocity());
+			state[5*index+3] = Double.doubleToLongBits(entity.getYVelocity());
+			state[5*index+4] = Double.doubleToLongBits(entity.getRadius());
+		}
+		state[state.length-1] = world.getRandom().getState();
+		return state;
+	}
+	
+	/**
+	 * Add a ship, an asteroid, a planetoid and a bullet to the world, and return them in that order.
+	 */
+	private List<Entity> addExportedEntities() {
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(new Ship(100,100,10,5,20,0,100));
+		entities.add(new Asteroid(500,500,-20,5,30));
+		entities.add(new Planetoid(800,200,1,2,20,0));
+		entities.add(new Bullet(300,700,3,4,5));
+		for (Entity entity: entities)
+			world.addEntity(entity);
+		return entities;
+	}
+	
+	/**
+	 * Check that the given array holds the given number of exported records from the given
+	 * offset on, one for each of the given entities in any order, matching their getters.
+	 */
+	private static void checkRecords(double[] records, int offset, int count, List<Entity> entities) {
+		Set<Entity> exported = new HashSet<Entity>();
+		for (int index = 0; index < count; index++) {
+			int start = offset + index*World.EXPORT_STRIDE;
+			Entity entity = null;
+			for (Entity candidate: entities)
+				if (candidate.getId()==records[start])
+					entity = candidate;
+			assert entity!=null;
+			assert exported.add(entity);
+			assert records[start+1]==World.getTypeCode(entity);
+			assert records[start+2]==entity.getXPosition();
+			assert records[start+3]==entity.getYPosition();
+			assert records[start+4]==entity.getXVelocity();
+			assert records[start+5]==entity.getYVelocity();
+			assert records[start+6]==entity.getRadius();
+		}
+	}
+	
+	/**
+	 * Return the position and velocity of each of the given entities.
+	 */
+	private static double[][] getStates(List<Entity> entities) {
+		double[][] states = new double[entities.size()][];
+		for (int index = 0; index < entities.size(); index++) {
+			Entity entity = entities.get(index);
+			states[index] = new double[]{entity.getXPosition(), entity.getYPosition(),
+					entity.getXVelocity(), entity.getYVelocity()};
+		}
+		return states;
+	}
 	
 }
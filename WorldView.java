@@ -0,0 +1,385 @@
+package asteroids.model;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import asteroids.model.exceptions.IllegalWorldException;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of world views, giving other threads a consistent picture of a world while it evolves.
+ *
+ * At the end of each evolution of its world, a view copies the position, velocity and radius of
+ * each entity in the world into a frame of arrays, and publishes that frame through a volatile
+ * reference. Queries are answered from the latest published frame, without taking any locks and
+ * without touching the collections of the world. A view keeps two frames and fills the one that
+ * is not published. A reader announces itself on the frame it reads, so the view never refills a
+ * frame that is still being read; it fills a fresh frame instead.
+ *
+ * The view reflects the world as it was at the end of its last evolution, or at the last call of
+ * publish(). Changes in between, like adding an entity, are not visible in the view until then.
+ */
+public class WorldView {
+
+	/**
+	 * Initialize this new view on the given world, and publish the current state of that world.
+	 *
+	 * @param 	world
+	 * 			The world to view.
+	 * @post	| new.getWorld() == world
+	 * @effect	The new view is attached to the given world.
+	 * 			| world.setReadView(new)
+	 * @effect	| publish()
+	 * @throws	IllegalWorldException
+	 * 			The given world is not effective.
+	 * 			| world == null
+	 */
+	public WorldView(World world) throws IllegalWorldException {
+		if (world == null)
+			throw new IllegalWorldException(world);
+		this.world = world;
+		world.setReadView(this);
+		publish();
+	}
+
+	/**
+	 * Return the world, viewed by this view.
+	 */
+	@Basic
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Return the number of frames, published by this view.
+	 */
+	public long getNbPublished() {
+		return this.nbPublished;
+	}
+
+	/**
+	 * Copy the current state of the world of this view into a frame, and publish that frame.
+	 * Only the thread that evolves the world of this view may publish frames.
+	 */
+	public void publish() {
+		Frame frame = spare;
+		if (frame.readers.get() != 0)
+			frame = new Frame();
+		frame.fill(world);
+		spare = current;
+		current = frame;
+		nbPublished++;
+	}
+
+	/**
+	 * Return the latest published frame, announcing the calling thread as a reader of it.
+	 */
+	private Frame acquire() {
+		while (true) {
+			Frame frame = current;
+			frame.readers.incrementAndGet();
+			if (frame == current)
+				return frame;
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return the number of entities in this view.
+	 */
+	public int getNbEntities() {
+		return current.size;
+	}
+
+	/**
+	 * Return the position of the given entity in this view. Null if the given entity is not in
+	 * this view.
+	 */
+	public double[] getPosition(Entity entity) {
+		Frame frame = acquire();
+		try {
+			int slot = frame.indexOf(entity);
+			if (slot < 0)
+				return null;
+			return new double[] {frame.xs[slot], frame.ys[slot]};
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return the velocity of the given entity in this view. Null if the given entity is not in
+	 * this view.
+	 */
+	public double[] getVelocity(Entity entity) {
+		Frame frame = acquire();
+		try {
+			int slot = frame.indexOf(entity);
+			if (slot < 0)
+				return null;
+			return new double[] {frame.vxs[slot], frame.vys[slot]};
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return the radius of the given entity in this view. Not a number if the given entity is not
+	 * in this view.
+	 */
+	public double getRadius(Entity entity) {
+		Frame frame = acquire();
+		try {
+			int slot = frame.indexOf(entity);
+			if (slot < 0)
+				return Double.NaN;
+			return frame.radii[slot];
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return whether the given entity is in this view.
+	 */
+	public boolean contains(Entity entity) {
+		Frame frame = acquire();
+		try {
+			return frame.indexOf(entity) >= 0;
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return the entities in this view.
+	 */
+	public Set<Entity> getEntities() {
+		return getEntities(Entity.class);
+	}
+
+	/**
+	 * Return the entities in this view of the given type.
+	 */
+	public <T extends Entity> Set<T> getEntities(Class<T> type) {
+		Frame frame = acquire();
+		try {
+			Set<T> result = new LinkedHashSet<T>();
+			for (int slot = 0; slot < frame.size; slot++) {
+				if (type.isInstance(frame.entities[slot]))
+					result.add(type.cast(frame.entities[slot]));
+			}
+			return result;
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Write a record of each entity in this view of the given type into the given array,
+	 * starting at the given offset, for as many records as fit in that array.
+	 *
+	 * @see	World#exportState(double[], int, Class)
+	 */
+	public int exportState(double[] target, int offset, Class<? extends Entity> type)
+			throws IndexOutOfBoundsException {
+		if ((offset < 0)||(offset > target.length))
+			throw new IndexOutOfBoundsException(Integer.toString(offset));
+		Frame frame = acquire();
+		try {
+			int capacity = (target.length - offset)/World.EXPORT_STRIDE;
+			int count = 0;
+			for (int slot = 0; (slot < frame.size)&&(count < capacity); slot++) {
+				Entity entity = frame.entities[slot];
+				if (! type.isInstance(entity))
+					continue;
+				int index = offset + count*World.EXPORT_STRIDE;
+				target[index] = entity.getId();
+				target[index+1] = World.getTypeCode(entity);
+				target[index+2] = frame.xs[slot];
+				target[index+3] = frame.ys[slot];
+				target[index+4] = frame.vxs[slot];
+				target[index+5] = frame.vys[slot];
+				target[index+6] = frame.radii[slot];
+				count++;
+			}
+			return count;
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Write a record of each entity in this view of the given type into the given buffer,
+	 * from its current position on, for as many records as fit in its remaining space.
+	 *
+	 * @see	World#exportState(DoubleBuffer, Class)
+	 */
+	public int exportState(DoubleBuffer target, Class<? extends Entity> type) {
+		Frame frame = acquire();
+		try {
+			int capacity = target.remaining()/World.EXPORT_STRIDE;
+			int count = 0;
+			for (int slot = 0; (slot < frame.size)&&(count < capacity); slot++) {
+				Entity entity = frame.entities[slot];
+				if (! type.isInstance(entity))
+					continue;
+				target.put(entity.getId());
+				target.put(World.getTypeCode(entity));
+				target.put(frame.xs[slot]);
+				target.put(frame.ys[slot]);
+				target.put(frame.vxs[slot]);
+				target.put(frame.vys[slot]);
+				target.put(frame.radii[slot]);
+				count++;
+			}
+			return count;
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return, if any, the entity in this view whose center coincides with the given position.
+	 *
+	 * @see	World#getEntityAt(double, double)
+	 */
+	public Entity getEntityAt(double xpos, double ypos) {
+		Frame frame = acquire();
+		try {
+			for (int slot = 0; slot < frame.size; slot++) {
+				if ((frame.xs[slot] == xpos)&&(frame.ys[slot] == ypos))
+					return frame.entities[slot];
+			}
+			return null;
+		}
+		finally {
+			frame.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * A class of frames, holding the state of the entities in a world in arrays, and a table
+	 * mapping each entity to its slot in these arrays.
+	 */
+	private static class Frame {
+
+		/**
+		 * Copy the state of the entities in the given world into this frame.
+		 */
+		private void fill(World world) {
+			int count = world.getEntities().size();
+			if (count > entities.length)
+				grow(count);
+			else
+				Arrays.fill(keys, null);
+			int slot = 0;
+			for (Entity entity: world.getEntities().keySet()) {
+				entities[slot] = entity;
+				xs[slot] = entity.getXPosition();
+				ys[slot] = entity.getYPosition();
+				vxs[slot] = entity.getXVelocity();
+				vys[slot] = entity.getYVelocity();
+				radii[slot] = entity.getRadius();
+				int index = hash(entity);
+				while (keys[index] != null)
+					index = (index + 1) & (keys.length - 1);
+				keys[index] = entity;
+				slots[index] = slot;
+				slot++;
+			}
+			for (int index = slot; index < size; index++)
+				entities[index] = null;
+			size = slot;
+		}
+
+		/**
+		 * Return the slot of the given entity in this frame, or -1 if it is not in this frame.
+		 */
+		private int indexOf(Entity entity) {
+			if (entity == null)
+				return -1;
+			int index = hash(entity);
+			while (keys[index] != null) {
+				if (keys[index] == entity)
+					return slots[index];
+				index = (index + 1) & (keys.length - 1);
+			}
+			return -1;
+		}
+
+		/**
+		 * Return the index in the table of this frame, where the search for the given entity starts.
+		 */
+		private int hash(Entity entity) {
+			int hash = System.identityHashCode(entity) * 0x9E3779B9;
+			return (hash ^ (hash >>> 16)) & (keys.length - 1);
+		}
+
+		/**
+		 * Make room in this frame for the given number of entities.
+		 */
+		private void grow(int count) {
+			int capacity = Math.max(2*entities.length, count);
+			entities = new Entity[capacity];
+			xs = new double[capacity];
+			ys = new double[capacity];
+			vxs = new double[capacity];
+			vys = new double[capacity];
+			radii = new double[capacity];
+			keys = new Entity[Integer.highestOneBit(2*capacity - 1) << 1];
+			slots = new int[keys.length];
+			size = 0;
+		}
+
+		/**
+		 * Variables registering the number of entities in this frame, and their state.
+		 */
+		private int size = 0;
+		private Entity[] entities = new Entity[16];
+		private double[] xs = new double[16];
+		private double[] ys = new double[16];
+		private double[] vxs = new double[16];
+		private double[] vys = new double[16];
+		private double[] radii = new double[16];
+
+		/**
+		 * Variables registering the table, mapping entities to their slots.
+		 */
+		private Entity[] keys = new Entity[32];
+		private int[] slots = new int[32];
+
+		/**
+		 * A variable registering the number of threads, reading this frame.
+		 */
+		private final AtomicInteger readers = new AtomicInteger();
+
+	}
+
+	/**
+	 * A variable registering the world, viewed by this view.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the published frame and the frame to fill next.
+	 */
+	private volatile Frame current = new Frame();
+	private Frame spare = new Frame();
+
+	/**
+	 * A variable registering the number of published frames.
+	 */
+	private volatile long nbPublished = 0;
+
+}
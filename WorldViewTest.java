@@ -0,0 +1,120 @@
+package asteroids.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.facade.Facade;
+import asteroids.model.Asteroid;
+import asteroids.model.World;
+import asteroids.model.WorldView;
+import asteroids.model.exceptions.IllegalWorldException;
+
+public class WorldViewTest {
+
+	private static final double EPSILON = 0.0001;
+
+	World world;
+	WorldView view;
+	Facade facade;
+	List<Asteroid> asteroids;
+	Map<Double,Double> initialXs;
+
+	@Before
+	public void setUp() throws IllegalWorldException {
+		world = new World(1000,1000);
+		asteroids = new ArrayList<Asteroid>();
+		initialXs = new HashMap<Double,Double>();
+		for (int row = 0; row < NB_ROWS; row++) {
+			for (int column = 0; column < NB_COLUMNS; column++) {
+				Asteroid asteroid = new Asteroid(100 + 50*column, 100 + 50*row, 10, 0, 10);
+				world.addEntity(asteroid);
+				asteroids.add(asteroid);
+				initialXs.put((double) asteroid.getId(), asteroid.getXPosition());
+			}
+		}
+		view = new WorldView(world);
+		facade = new Facade();
+	}
+
+	@Test
+	public void testFacade_CaseConcurrentEvolve() throws Throwable {
+		AtomicBoolean done = new AtomicBoolean(false);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread evolver = new Thread(() -> {
+			try {
+				for (int tick = 0; tick < NB_TICKS; tick++)
+					facade.evolve(world, 0.01, null);
+			}
+			catch (Throwable exc) {
+				failure.compareAndSet(null, exc);
+			}
+			finally {
+				done.set(true);
+			}
+		});
+		int nbReads = 0;
+		double[] records = new double[asteroids.size()*World.EXPORT_STRIDE];
+		DoubleBuffer buffer = DoubleBuffer.allocate(records.length);
+		evolver.start();
+		try {
+			while ((! done.get())||(nbReads == 0)) {
+				assertEquals(asteroids.size(), facade.exportEntities(world, records, 0));
+				checkFrame(records);
+				buffer.clear();
+				assertEquals(asteroids.size(), facade.exportEntities(world, buffer));
+				checkFrame(buffer.array());
+				assertEquals(asteroids.size(), facade.getWorldAsteroids(world).size());
+				Asteroid asteroid = asteroids.get(nbReads % asteroids.size());
+				double[] position = facade.getAsteroidPosition(asteroid);
+				assertEquals(initialXs.get((double) asteroid.getId()), position[0], NB_TICKS*0.1 + EPSILON);
+				assertEquals(asteroid.getYPosition(), position[1], 0);
+				assertEquals(10, facade.getAsteroidVelocity(asteroid)[0], 0);
+				nbReads++;
+			}
+		}
+		finally {
+			evolver.join();
+		}
+		if (failure.get() != null)
+			throw failure.get();
+		assert view.getNbPublished()>NB_TICKS;
+		assert nbReads>0;
+	}
+
+	/**
+	 * Check that the given records register the asteroids of the world at a single moment: all of
+	 * them have moved over the same distance since the start, at their original velocity.
+	 */
+	private void checkFrame(double[] records) {
+		double distance = Double.NaN;
+		for (int index = 0; index < asteroids.size(); index++) {
+			int offset = index*World.EXPORT_STRIDE;
+			double moved = records[offset+2] - initialXs.get(records[offset]);
+			if (index == 0)
+				distance = moved;
+			assertEquals(distance, moved, EPSILON);
+			assertEquals(10, records[offset+4], 0);
+			assertEquals(0, records[offset+5], 0);
+			assertEquals(10, records[offset+6], 0);
+		}
+		assert (distance >= 0)&&(distance <= NB_TICKS*0.1 + EPSILON);
+	}
+
+	/**
+	 * Variables registering the size of the grid of asteroids, and the number of evolutions.
+	 */
+	private static final int NB_ROWS = 10;
+	private static final int NB_COLUMNS = 10;
+	private static final int NB_TICKS = 2000;
+
+}
@@ -0,0 +1,139 @@
+package asteroids.model;
+
+import asteroids.model.exceptions.IllegalEntityException;
+
+/**
+ * A class of wrapping worlds, whose opposite edges are joined, so that an entity leaving the
+ * world at one side enters it again at the other side.
+ *
+ * A wrapping world has no boundaries: entities never collide with them, and any position is
+ * folded into the rectangle of the world, also when entities are added in bulk. Distances
+ * between entities are measured to the nearest periodic image of the other entity, which is
+ * only unique as long as no entity is wider than half the world. Collision times also consider
+ * the image on the other side, towards which an entity moves; see Entity.getTimeToCollision.
+ * The broadphase of a wrapping world is a periodic grid, in which each entity is inserted
+ * once, so wrapping around costs as much as bouncing off boundaries.
+ *
+ * @invar	The position of each entity in a wrapping world lies within the rectangle of the world.
+ * 			| for (entity: getEntities().keySet())
+ * 			| 	(entity.getXPosition() >= 0) && (entity.getXPosition() < getWidth()) &&
+ * 			| 	(entity.getYPosition() >= 0) && (entity.getYPosition() < getHeight())
+ */
+public class WrappingWorld extends World {
+
+	/**
+	 * Initialize this new wrapping world with given width and height.
+	 *
+	 * @effect	| super(width, height)
+	 */
+	public WrappingWorld(double width, double height) {
+		super(width, height);
+	}
+
+	/**
+	 * Initialize this new wrapping world with given width, height and seed.
+	 *
+	 * @effect	| super(width, height, seed)
+	 */
+	public WrappingWorld(double width, double height, long seed) {
+		super(width, height, seed);
+	}
+
+	/**
+	 * Return whether this world has boundaries, entities bounce off.
+	 *
+	 * @return	| result == false
+	 */
+	@Override
+	public boolean hasBoundaries() {
+		return false;
+	}
+
+	/**
+	 * Return whether an entity with the given radius, centered at the given position, lies
+	 * within the boundaries of this world.
+	 *
+	 * @return	Any finite position lies within a world without boundaries.
+	 * 			| result == (! Double.isInfinite(xpos)) && (! Double.isNaN(xpos)) &&
+	 * 			| 	(! Double.isInfinite(ypos)) && (! Double.isNaN(ypos))
+	 */
+	@Override
+	public boolean liesWithinBoundaries(double xpos, double ypos, double radius) {
+		return (! Double.isInfinite(xpos))&&(! Double.isNaN(xpos))&&
+				(! Double.isInfinite(ypos))&&(! Double.isNaN(ypos));
+	}
+
+	/**
+	 * Return the displacement along the x-axis to the nearest periodic image.
+	 *
+	 * @return	| result == dx - getWidth()*Math.rint(dx/getWidth())
+	 */
+	@Override
+	public double getSeparationX(double dx) {
+		if (getWidth() <= 0)
+			return dx;
+		return dx - getWidth()*Math.rint(dx/getWidth());
+	}
+
+	/**
+	 * Return the displacement along the y-axis to the nearest periodic image.
+	 *
+	 * @return	| result == dy - getHeight()*Math.rint(dy/getHeight())
+	 */
+	@Override
+	public double getSeparationY(double dy) {
+		if (getHeight() <= 0)
+			return dy;
+		return dy - getHeight()*Math.rint(dy/getHeight());
+	}
+
+	/**
+	 * Return the given position along the x-axis, folded into the width of this world.
+	 *
+	 * @return	| (result >= 0) && (result < getWidth())
+	 * 			| Math.rint((xpos - result)/getWidth()) == (xpos - result)/getWidth()
+	 */
+	@Override
+	public double foldX(double xpos) {
+		return fold(xpos, getWidth());
+	}
+
+	/**
+	 * Return the given position along the y-axis, folded into the height of this world.
+	 *
+	 * @return	| (result >= 0) && (result < getHeight())
+	 * 			| Math.rint((ypos - result)/getHeight()) == (ypos - result)/getHeight()
+	 */
+	@Override
+	public double foldY(double ypos) {
+		return fold(ypos, getHeight());
+	}
+
+	/**
+	 * Return the given coordinate, folded into the interval from zero to the given period.
+	 * Coordinates within that interval are returned unchanged.
+	 */
+	private static double fold(double coordinate, double period) {
+		if ((period <= 0)||(coordinate >= 0)&&(coordinate < period))
+			return coordinate;
+		double folded = coordinate - period*Math.floor(coordinate/period);
+		if (folded >= period)
+			folded -= period;
+		return folded;
+	}
+
+	/**
+	 * Add a given entity to this world, after folding its position into this world.
+	 *
+	 * @effect	| if ((entity != null) && (entity.getWorld() == null))
+	 * 			| 	foldPosition(entity)
+	 * @effect	| super.addEntity(entity)
+	 */
+	@Override
+	public void addEntity(Entity entity) throws IllegalEntityException {
+		if ((entity != null)&&(entity.getWorld() == null))
+			foldPosition(entity);
+		super.addEntity(entity);
+	}
+
+}